@@ -32,6 +32,8 @@ public class EnvConstants {
 
     /** A prefix under under bucket {@value  BUCKET_AT_REGION_1}*/
     public static final String PERFSTAT_PREFIX = "test-suite/perfstat";
+    /** A prefix under bucket {@value  BUCKET_AT_REGION_1} for fixtures kept across perf runs. */
+    public static final String FIXTURE_PREFIX = "test-suite/fixtures";
     /**
      * *************************************************************************************************
      * *********** Below values need to be filled from environment variable or system properties . *****
@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An {@link AsyncStorageClient} over the non-blocking java.net.http.HttpClient. Each request is sent to a URL presigned
+ * by a {@link BatchPresigner}, so it is authenticated the way the SDK client is, and the responses are handled by a
+ * small fixed pool of threads whatever the number of requests in flight.
+ */
+public class AsyncS3CompatStorageClient implements AsyncStorageClient {
+    /** Validity of the URL of a request, it only has to outlive sending the request. */
+    private static final int REQUEST_LIFETIME_SECS = 15 * 60;
+    private static final Duration CONNECT_TIME_OUT = Duration.ofSeconds(30);
+    private static final Pattern ERROR_CODE = Pattern.compile("<Code>(.*?)</Code>");
+    private static final Pattern ERROR_MESSAGE = Pattern.compile("<Message>(.*?)</Message>");
+
+    private final BatchPresigner presigner;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+
+    /**
+     * Constructor for an async client.
+     * @param presigner Presigns the request URLs, with the credentials, region and endpoint of the client.
+     * @param threads Number of threads handling responses.
+     */
+    public AsyncS3CompatStorageClient(BatchPresigner presigner, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads should be > 0.");
+        }
+        this.presigner = presigner;
+        this.executor = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("async-storage-%d").setDaemon(true).build());
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(CONNECT_TIME_OUT)
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<S3CompatObject> readObject(String bucketName, String key, @Nullable Long start, @Nullable Long end,
+                                                        ObjectContentConsumer consumer) {
+        HttpRequest.Builder request = request(bucketName, key, HttpMethod.GET).GET();
+        if (start != null) {
+            request.header("Range", "bytes=" + start + "-" + (end != null ? end : ""));
+        }
+        return send(request.build()).thenApply(response -> {
+            try {
+                consumer.consume(new ByteArrayInputStream(response.body()));
+            } catch (IOException e) {
+                throw new RuntimeException("Fail to consume " + bucketName + "/" + key, e);
+            }
+            return new S3CompatObject(bucketName, key, eTag(response), response.body().length,
+                    response.headers().firstValue("Content-Range").orElse(null));
+        });
+    }
+
+    @Override
+    public CompletableFuture<RemoteObjectMetadata> getObjectMetadata(String bucketName, String key) {
+        HttpRequest request = request(bucketName, key, HttpMethod.HEAD)
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+        return send(request).thenApply(response -> new RemoteObjectMetadata(
+                response.headers().firstValueAsLong("Content-Length").orElse(0),
+                eTag(response),
+                response.headers().firstValue("x-amz-version-id").orElse(null),
+                response.headers().firstValue("Last-Modified")
+                        .map(value -> Date.from(ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()))
+                        .orElse(null)));
+    }
+
+    @Override
+    public CompletableFuture<PutObjectResult> putObject(String bucketName, String key, byte[] content) {
+        HttpRequest request = request(bucketName, key, HttpMethod.PUT)
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(content))
+                .build();
+        return send(request).thenApply(response -> {
+            PutObjectResult result = new PutObjectResult();
+            result.setETag(eTag(response));
+            result.setVersionId(response.headers().firstValue("x-amz-version-id").orElse(null));
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteObject(String bucketName, String key) {
+        return send(request(bucketName, key, HttpMethod.DELETE).DELETE().build()).thenApply(response -> null);
+    }
+
+    /**
+     * Stop the response threads, requests in flight are abandoned.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private HttpRequest.Builder request(String bucketName, String key, HttpMethod method) {
+        String url = presigner.presign(bucketName, Collections.singletonList(key), method, REQUEST_LIFETIME_SECS).get(0);
+        return HttpRequest.newBuilder(URI.create(url));
+    }
+
+    /**
+     * Send a request, the future fails with an AmazonS3Exception when the response is not a 2xx.
+     */
+    private CompletableFuture<HttpResponse<byte[]>> send(HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw toException(request, response);
+            }
+            return response;
+        });
+    }
+
+    private static AmazonS3Exception toException(HttpRequest request, HttpResponse<byte[]> response) {
+        String body = response.body() != null ? new String(response.body(), StandardCharsets.UTF_8) : "";
+        Matcher message = ERROR_MESSAGE.matcher(body);
+        AmazonS3Exception exception = new AmazonS3Exception(message.find() ? message.group(1)
+                : request.method() + " " + request.uri().getPath() + " returned " + response.statusCode());
+        exception.setStatusCode(response.statusCode());
+        Matcher code = ERROR_CODE.matcher(body);
+        if (code.find()) {
+            exception.setErrorCode(code.group(1));
+        }
+        exception.setErrorType(response.statusCode() >= 500 ? AmazonS3Exception.ErrorType.Service : AmazonS3Exception.ErrorType.Client);
+        exception.setRequestId(response.headers().firstValue("x-amz-request-id").orElse(null));
+        return exception;
+    }
+
+    private static @Nullable String eTag(HttpResponse<?> response) {
+        return response.headers().firstValue("ETag").map(eTag -> eTag.replace("\"", "")).orElse(null);
+    }
+}
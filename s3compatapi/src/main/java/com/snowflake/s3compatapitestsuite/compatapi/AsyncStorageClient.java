@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.amazonaws.services.s3.model.PutObjectResult;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interface representing a storage client whose calls return as soon as the request is sent. The futures complete
+ * when the response arrives, or complete exceptionally with an AmazonS3Exception when the service rejects the request,
+ * so many requests can be in flight without a thread waiting on each of them.
+ */
+public interface AsyncStorageClient extends AutoCloseable {
+    /**
+     * Read the current version of an object or a range of it.
+     * @param bucketName The name of the bucket containing the desired object.
+     * @param key The key in the specified bucket under which the object is stored.
+     * @param start Offset of the first byte to read, the whole object if null.
+     * @param end Offset of the last byte to read (inclusive), up to the end of the object if null.
+     * @param consumer Consumer of the content, called once the whole response is received.
+     * @return The object, without its content.
+     */
+    CompletableFuture<S3CompatObject> readObject(String bucketName, String key, @Nullable Long start, @Nullable Long end,
+                                                 ObjectContentConsumer consumer);
+    /**
+     * Get the metadata of the current version of an object.
+     * @param bucketName The name of the bucket containing the desired object.
+     * @param key The key in the specified bucket under which the object is stored.
+     * @return The object metadata.
+     */
+    CompletableFuture<RemoteObjectMetadata> getObjectMetadata(String bucketName, String key);
+    /**
+     * Write an object.
+     * @param bucketName The name of an existing bucket, to which the new object will be uploaded.
+     * @param key The key under which to store the new object.
+     * @param content Content of the object.
+     * @return result of the writing operation, with the ETag and the version id.
+     */
+    CompletableFuture<PutObjectResult> putObject(String bucketName, String key, byte[] content);
+    /**
+     * Delete an object.
+     * @param bucketName Name of the bucket that contains the object to delete.
+     * @param key The key of the object to delete.
+     * @return A future completed once the object is deleted.
+     */
+    CompletableFuture<Void> deleteObject(String bucketName, String key);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.google.common.io.BaseEncoding;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Presign URLs for many objects at once with SigV4 query string authentication, the way
+ * {@link PreSignedUrlGenerator} does one object at a time. The day-scoped signing key is derived once per day and
+ * credentials, and the query string, credential scope and hashing objects are built once per batch, so each URL
+ * costs one SHA-256 and one HMAC. URLs are virtual-host style, like the requests of {@link S3CompatStorageClient}.
+ */
+public class BatchPresigner {
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String HMAC = "HmacSHA256";
+    /** Longest validity SigV4 allows, 7 days. */
+    private static final int MAX_LIFETIME_SECS = 7 * 24 * 3600;
+    private static final DateTimeFormatter DATE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final AWSCredentialsProvider credentialsProvider;
+    private final String region;
+    private final String scheme;
+    /** Host and port of the endpoint, prefixed by the bucket name in URLs. */
+    private final String endpointAuthority;
+    /** The signing key of the last batch, reused while the day and the credentials are the same. */
+    private volatile SigningKey signingKey;
+
+    /**
+     * Constructor for a batch presigner.
+     * @param credentialsProvider Credentials signing the URLs.
+     * @param region Region of the bucket, part of the credential scope.
+     * @param endpoint Endpoint of the bucket, with or without a scheme, https by default.
+     */
+    public BatchPresigner(AWSCredentialsProvider credentialsProvider, String region, String endpoint) {
+        this.credentialsProvider = credentialsProvider;
+        this.region = region;
+        URI uri = URI.create(endpoint.contains("://") ? endpoint : "https://" + endpoint);
+        this.scheme = uri.getScheme();
+        this.endpointAuthority = uri.getRawAuthority();
+    }
+
+    /**
+     * Presign a URL for each key.
+     * @param bucketName Bucket name of the objects.
+     * @param keys Keys of the objects.
+     * @param method The HTTP method the URLs are used with, e.g. GET to download or PUT to upload.
+     * @param lifetimeInSecs Time in seconds the URLs are valid, at most 7 days.
+     * @return The URLs, in the order of the keys.
+     */
+    public List<String> presign(String bucketName, List<String> keys, HttpMethod method, int lifetimeInSecs) {
+        return presign(bucketName, keys, method, lifetimeInSecs, Instant.now());
+    }
+
+    List<String> presign(String bucketName, List<String> keys, HttpMethod method, int lifetimeInSecs, Instant now) {
+        if (lifetimeInSecs <= 0 || lifetimeInSecs > MAX_LIFETIME_SECS) {
+            throw new IllegalArgumentException("lifetimeInSecs should be > 0 and at most " + MAX_LIFETIME_SECS);
+        }
+        AWSCredentials credentials = credentialsProvider.getCredentials();
+        String dateStamp = DATE_STAMP.format(now);
+        String amzDate = AMZ_DATE.format(now);
+        String scope = dateStamp + "/" + region + "/s3/aws4_request";
+        String host = bucketName + "." + endpointAuthority;
+        // query parameters sorted by name, as the canonical request requires.
+        StringBuilder query = new StringBuilder()
+                .append("X-Amz-Algorithm=").append(ALGORITHM)
+                .append("&X-Amz-Credential=").append(uriEncode(credentials.getAWSAccessKeyId() + "/" + scope, false))
+                .append("&X-Amz-Date=").append(amzDate)
+                .append("&X-Amz-Expires=").append(lifetimeInSecs);
+        if (credentials instanceof AWSSessionCredentials) {
+            query.append("&X-Amz-Security-Token=").append(uriEncode(((AWSSessionCredentials) credentials).getSessionToken(), false));
+        }
+        query.append("&X-Amz-SignedHeaders=host");
+        String canonicalQuery = query.toString();
+        String canonicalSuffix = "\n" + canonicalQuery + "\nhost:" + host + "\n\nhost\nUNSIGNED-PAYLOAD";
+        String stringToSignPrefix = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n";
+        String urlPrefix = scheme + "://" + host;
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(signingKey(credentials, dateStamp), HMAC));
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            List<String> urls = new ArrayList<>(keys.size());
+            StringBuilder canonicalRequest = new StringBuilder();
+            for (String key : keys) {
+                String path = "/" + uriEncode(key, true);
+                canonicalRequest.setLength(0);
+                canonicalRequest.append(method.name()).append('\n').append(path).append(canonicalSuffix);
+                String hashedRequest = BaseEncoding.base16().lowerCase().encode(
+                        sha256.digest(canonicalRequest.toString().getBytes(StandardCharsets.UTF_8)));
+                String signature = BaseEncoding.base16().lowerCase().encode(
+                        mac.doFinal((stringToSignPrefix + hashedRequest).getBytes(StandardCharsets.UTF_8)));
+                urls.add(urlPrefix + path + "?" + canonicalQuery + "&X-Amz-Signature=" + signature);
+            }
+            return urls;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Fail to presign URLs", e);
+        }
+    }
+
+    /**
+     * Get the signing key of a day, derived from the secret key only when the day or the credentials change.
+     */
+    private byte[] signingKey(AWSCredentials credentials, String dateStamp) throws GeneralSecurityException {
+        SigningKey cached = signingKey;
+        if (cached != null && cached.dateStamp.equals(dateStamp) && cached.accessKeyId.equals(credentials.getAWSAccessKeyId())
+                && cached.secretKey.equals(credentials.getAWSSecretKey())) {
+            return cached.key;
+        }
+        byte[] key = hmac(("AWS4" + credentials.getAWSSecretKey()).getBytes(StandardCharsets.UTF_8), dateStamp);
+        key = hmac(key, region);
+        key = hmac(key, "s3");
+        key = hmac(key, "aws4_request");
+        signingKey = new SigningKey(credentials.getAWSAccessKeyId(), credentials.getAWSSecretKey(), dateStamp, key);
+        return key;
+    }
+
+    private static byte[] hmac(byte[] key, String data) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance(HMAC);
+        mac.init(new SecretKeySpec(key, HMAC));
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * URI encode a string the way SigV4 does: every byte but the unreserved characters is percent encoded.
+     * @param value The string to encode.
+     * @param keepSlash Whether to keep '/' as is, for object keys in paths.
+     * @return The encoded string.
+     */
+    static String uriEncode(String value, boolean keepSlash) {
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                sb.append(c);
+            } else {
+                sb.append('%').append(Character.toUpperCase(Character.forDigit((c >> 4) & 0xf, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static class SigningKey {
+        private final String accessKeyId;
+        private final String secretKey;
+        private final String dateStamp;
+        private final byte[] key;
+
+        SigningKey(String accessKeyId, String secretKey, String dateStamp, byte[] key) {
+            this.accessKeyId = accessKeyId;
+            this.secretKey = secretKey;
+            this.dateStamp = dateStamp;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,473 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.google.common.base.Ticker;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A read-through cache of fixed-size blocks of objects, aligned on the block size, in front of ranged reads.
+ * Blocks are keyed by bucket, key and ETag, and held off-heap or in a local file, in a fixed number of slots
+ * evicted in LRU order. The ETag of an object is learnt from the responses filling the cache and dropped with its
+ * last block. It is served as is for the TTL after it was learnt or last validated; afterwards the client revalidates
+ * it with a HEAD conditional on the ETag before serving cached blocks, so writes by other clients are seen. A write
+ * or delete through the client invalidates it at once.
+ */
+public class BlockCache implements AutoCloseable {
+    private final int blockSize;
+    private final int numSlots;
+    private final Store store;
+    private final @Nullable FileChannel file;
+    private final @Nullable ByteBuffer[] buffers;
+    /** Cached blocks in access order, guarded by this. */
+    private final LinkedHashMap<BlockKey, Slot> blocks = new LinkedHashMap<>(16, 0.75f, true /* accessOrder */);
+    /** Slots not holding a block, guarded by this. */
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    /** Version of the objects with cached blocks, keyed by bucket/key, guarded by this. */
+    private final Map<String, CachedObject> objects = new LinkedHashMap<>();
+    private final long ttlNanos;
+    private final Ticker ticker;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bytesServed = new LongAdder();
+    private final LongAdder bytesFetched = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+
+    /**
+     * Constructor for a block cache.
+     * @param blockSize Size in bytes of each block.
+     * @param capacity Max number of bytes cached, rounded down to whole blocks.
+     * @param store Where blocks are held.
+     * @param diskFile The cache file for {@link Store#DISK}, ignored otherwise.
+     * @param ttlMs Time in ms the version of an object is trusted without revalidation, 0 to revalidate every read.
+     */
+    public BlockCache(int blockSize, long capacity, Store store, @Nullable Path diskFile, long ttlMs) {
+        this(blockSize, capacity, store, diskFile, ttlMs, Ticker.systemTicker());
+    }
+
+    BlockCache(int blockSize, long capacity, Store store, @Nullable Path diskFile, long ttlMs, Ticker ticker) {
+        if (blockSize <= 0 || capacity < blockSize) {
+            throw new IllegalArgumentException("blockSize should be > 0 and capacity should hold at least one block.");
+        }
+        if (ttlMs < 0) {
+            throw new IllegalArgumentException("ttlMs should be >= 0.");
+        }
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.ticker = ticker;
+        if (capacity / blockSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many blocks, use a larger block size.");
+        }
+        this.blockSize = blockSize;
+        this.numSlots = (int) (capacity / blockSize);
+        this.store = store;
+        for (int i = 0; i < numSlots; i++) {
+            freeSlots.add(i);
+        }
+        if (store == Store.DISK) {
+            if (diskFile == null) {
+                throw new IllegalArgumentException("A disk block cache needs a file.");
+            }
+            try {
+                this.file = FileChannel.open(diskFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Fail to open block cache file " + diskFile, e);
+            }
+            this.buffers = null;
+        } else {
+            this.file = null;
+            // allocated on first use of each slot.
+            this.buffers = new ByteBuffer[numSlots];
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Get the ETag and size of a cached object.
+     * @param bucketName Bucket name of the object.
+     * @param key Key of the object.
+     * @return The version whose blocks are cached, or null if the object is not cached.
+     */
+    synchronized @Nullable ObjectVersion getObjectVersion(String bucketName, String key) {
+        CachedObject object = objects.get(bucketName + "/" + key);
+        return object != null ? object.version : null;
+    }
+
+    /**
+     * Whether the version of a cached object was learnt or validated within the TTL, so its blocks are served as is.
+     * @return true if fresh, false if it should be revalidated first or is not cached.
+     */
+    synchronized boolean isFresh(String bucketName, String key) {
+        CachedObject object = objects.get(bucketName + "/" + key);
+        return object != null && ticker.read() - object.validatedAt < ttlNanos;
+    }
+
+    /**
+     * Record the version of an object seen in a response, or confirmed by a revalidation. Blocks of another version
+     * are dropped.
+     */
+    synchronized void setObjectVersion(String bucketName, String key, ObjectVersion version) {
+        String objectKey = bucketName + "/" + key;
+        CachedObject previous = objects.get(objectKey);
+        if (previous != null && previous.version.equals(version)) {
+            previous.validatedAt = ticker.read();
+            return;
+        }
+        if (previous != null) {
+            dropBlocks(bucketName, key);
+        }
+        objects.put(objectKey, new CachedObject(version, ticker.read()));
+    }
+
+    /**
+     * Record a conditional HEAD sent to revalidate the version of an object.
+     */
+    void recordRevalidation() {
+        revalidations.increment();
+    }
+
+    /**
+     * Drop every cached block of an object, e.g. when it is overwritten or deleted.
+     * @param bucketName Bucket name of the object.
+     * @param key Key of the object.
+     */
+    public synchronized void invalidate(String bucketName, String key) {
+        if (objects.remove(bucketName + "/" + key) != null) {
+            dropBlocks(bucketName, key);
+        }
+    }
+
+    /**
+     * Copy a cached block.
+     * @return The content of the block, or null on a miss.
+     */
+    synchronized byte @Nullable [] getBlock(String bucketName, String key, String eTag, long blockIndex) {
+        Slot slot = blocks.get(new BlockKey(bucketName, key, eTag, blockIndex));
+        if (slot == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return readSlot(slot);
+    }
+
+    /**
+     * Cache a block, evicting the least recently used one if all slots are taken. A block of a version older than
+     * the one recorded for the object is not cached.
+     */
+    synchronized void putBlock(String bucketName, String key, String eTag, long blockIndex, byte[] content) {
+        if (content.length > blockSize) {
+            throw new IllegalArgumentException("Block of " + content.length + " bytes larger than the block size " + blockSize);
+        }
+        BlockKey blockKey = new BlockKey(bucketName, key, eTag, blockIndex);
+        CachedObject object = objects.get(bucketName + "/" + key);
+        if (blocks.containsKey(blockKey) || object != null && !object.version.eTag.equals(eTag)) {
+            return;
+        }
+        Integer slotIndex = freeSlots.poll();
+        if (slotIndex == null) {
+            Iterator<Map.Entry<BlockKey, Slot>> eldest = blocks.entrySet().iterator();
+            Map.Entry<BlockKey, Slot> evicted = eldest.next();
+            slotIndex = evicted.getValue().index;
+            eldest.remove();
+            blockRemoved(evicted.getKey());
+            evictions.increment();
+        }
+        Slot slot = new Slot(slotIndex, content.length);
+        writeSlot(slot, content);
+        blocks.put(blockKey, slot);
+        object = objects.get(bucketName + "/" + key);
+        if (object != null) {
+            object.blocks++;
+        }
+    }
+
+    /** Get the number of objects whose version is kept. */
+    synchronized int getCachedObjects() {
+        return objects.size();
+    }
+
+    /**
+     * Forget the version of an object along with its last block, so versions are bounded by the blocks.
+     */
+    private void blockRemoved(BlockKey blockKey) {
+        String objectKey = blockKey.bucketName + "/" + blockKey.key;
+        CachedObject object = objects.get(objectKey);
+        if (object != null && object.version.eTag.equals(blockKey.eTag) && --object.blocks <= 0) {
+            objects.remove(objectKey);
+        }
+    }
+
+    void recordMisses(long blocks) {
+        misses.add(blocks);
+    }
+
+    void recordServed(long bytes) {
+        bytesServed.add(bytes);
+    }
+
+    void recordFetched(long bytes) {
+        bytesFetched.add(bytes);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /** Get the number of conditional HEADs sent to revalidate cached objects past their TTL. */
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    /**
+     * Get the fraction of block lookups served from the cache.
+     * @return The hit ratio, 0 if nothing was looked up.
+     */
+    public double getHitRatio() {
+        long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    /**
+     * Get the number of bytes returned to readers from cached blocks, instead of from the network.
+     * @return The bytes saved.
+     */
+    public long getBytesSaved() {
+        return bytesServed.sum();
+    }
+
+    /**
+     * Get the number of bytes fetched from the network to fill the cache.
+     * @return The bytes fetched.
+     */
+    public long getBytesFetched() {
+        return bytesFetched.sum();
+    }
+
+    /**
+     * Clear the counters, the cached blocks are kept.
+     */
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        bytesServed.reset();
+        bytesFetched.reset();
+        evictions.reset();
+        revalidations.reset();
+    }
+
+    @Override
+    public synchronized void close() {
+        blocks.clear();
+        objects.clear();
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Fail to close block cache file", e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BlockCache: {store: %s, blocks: %d x %d bytes, hit ratio: %.3f, hits: %d, misses: %d, "
+                        + "evictions: %d, revalidations: %d, bytes saved: %d, bytes fetched: %d}", store.getName(), numSlots,
+                blockSize, getHitRatio(), getHits(), getMisses(), getEvictions(), getRevalidations(), getBytesSaved(),
+                getBytesFetched());
+    }
+
+    private void dropBlocks(String bucketName, String key) {
+        Iterator<Map.Entry<BlockKey, Slot>> it = blocks.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<BlockKey, Slot> entry = it.next();
+            if (entry.getKey().bucketName.equals(bucketName) && entry.getKey().key.equals(key)) {
+                freeSlots.add(entry.getValue().index);
+                it.remove();
+            }
+        }
+    }
+
+    private byte[] readSlot(Slot slot) {
+        byte[] content = new byte[slot.length];
+        if (file != null) {
+            ByteBuffer target = ByteBuffer.wrap(content);
+            long position = (long) slot.index * blockSize;
+            try {
+                while (target.hasRemaining()) {
+                    if (file.read(target, position + target.position()) < 0) {
+                        throw new IOException("Block cache file truncated.");
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Fail to read block cache file", e);
+            }
+        } else {
+            buffers[slot.index].duplicate().position(0).get(content);
+        }
+        return content;
+    }
+
+    private void writeSlot(Slot slot, byte[] content) {
+        if (file != null) {
+            ByteBuffer source = ByteBuffer.wrap(content);
+            long position = (long) slot.index * blockSize;
+            try {
+                while (source.hasRemaining()) {
+                    file.write(source, position + source.position());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Fail to write block cache file", e);
+            }
+        } else {
+            if (buffers[slot.index] == null) {
+                buffers[slot.index] = ByteBuffer.allocateDirect(blockSize);
+            }
+            ByteBuffer buffer = buffers[slot.index].duplicate();
+            buffer.clear();
+            buffer.put(content);
+        }
+    }
+
+    /**
+     * Where blocks are held.
+     */
+    public enum Store {
+        /** Direct buffers outside of the Java heap. */
+        OFF_HEAP("offheap"),
+        /** A local file, deleted when the cache is closed. */
+        DISK("disk");
+
+        private final String name;
+
+        Store(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Lookup a store by its name.
+         * @param name Name of the store.
+         * @return The store.
+         */
+        public static Store lookupByName(String name) {
+            for (Store store : values()) {
+                if (store.name.equalsIgnoreCase(name)) {
+                    return store;
+                }
+            }
+            throw new IllegalArgumentException("Block cache store " + name + " not supported, use offheap or disk.");
+        }
+    }
+
+    /**
+     * The version of an object with cached blocks.
+     */
+    private static class CachedObject {
+        private final ObjectVersion version;
+        /** Number of cached blocks of the version. */
+        private int blocks;
+        /** Ticker time the version was learnt or last validated. */
+        private long validatedAt;
+
+        CachedObject(ObjectVersion version, long validatedAt) {
+            this.version = version;
+            this.validatedAt = validatedAt;
+        }
+    }
+
+    /**
+     * The ETag and size of a cached object.
+     */
+    static class ObjectVersion {
+        final String eTag;
+        final long size;
+
+        ObjectVersion(String eTag, long size) {
+            this.eTag = eTag;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ObjectVersion)) return false;
+            ObjectVersion that = (ObjectVersion) o;
+            return size == that.size && eTag.equals(that.eTag);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(eTag, size);
+        }
+    }
+
+    private static class BlockKey {
+        private final String bucketName;
+        private final String key;
+        private final String eTag;
+        private final long blockIndex;
+
+        BlockKey(String bucketName, String key, String eTag, long blockIndex) {
+            this.bucketName = bucketName;
+            this.key = key;
+            this.eTag = eTag;
+            this.blockIndex = blockIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BlockKey)) return false;
+            BlockKey that = (BlockKey) o;
+            return blockIndex == that.blockIndex && bucketName.equals(that.bucketName) && key.equals(that.key) && eTag.equals(that.eTag);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketName, key, eTag, blockIndex);
+        }
+    }
+
+    private static class Slot {
+        private final int index;
+        private final int length;
+
+        Slot(int index, int length) {
+            this.index = index;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.google.common.io.BaseEncoding;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+/**
+ * Checksums computed while object content is streamed.
+ */
+public enum ChecksumAlgorithm {
+    /** MD5 in hex, the ETag of an object written by a single PUT without SSE-KMS. */
+    MD5("md5"),
+    /** CRC32C in base64 of the big endian value, the encoding of x-amz-checksum-crc32c. The JDK implementation is an intrinsic. */
+    CRC32C("crc32c");
+
+    private final String name;
+
+    ChecksumAlgorithm(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the user metadata key under which the checksum of an object is stored.
+     * @return The user metadata key.
+     */
+    public String getMetadataKey() {
+        return "checksum-" + name;
+    }
+
+    /**
+     * Create an incremental digest.
+     * @return A new digest.
+     */
+    public Digest newDigest() {
+        switch (this) {
+            case MD5:
+                try {
+                    MessageDigest md5 = MessageDigest.getInstance("MD5");
+                    return new Digest() {
+                        @Override
+                        public void update(byte[] b, int off, int len) {
+                            md5.update(b, off, len);
+                        }
+                        @Override
+                        public String getValue() {
+                            return BaseEncoding.base16().lowerCase().encode(md5.digest());
+                        }
+                    };
+                } catch (NoSuchAlgorithmException e) {
+                    throw new RuntimeException("MD5 is not available: " + e);
+                }
+            case CRC32C:
+                CRC32C crc32c = new CRC32C();
+                return new Digest() {
+                    @Override
+                    public void update(byte[] b, int off, int len) {
+                        crc32c.update(b, off, len);
+                    }
+                    @Override
+                    public String getValue() {
+                        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) crc32c.getValue()).array());
+                    }
+                };
+            default:
+                throw new IllegalArgumentException("Not supported checksum algorithm " + name);
+        }
+    }
+
+    /**
+     * Compute the checksum of content in memory.
+     * @param content The content.
+     * @return The encoded checksum.
+     */
+    public String checksumOf(byte[] content) {
+        Digest digest = newDigest();
+        digest.update(content, 0, content.length);
+        return digest.getValue();
+    }
+
+    /**
+     * Whether a stored checksum matches a computed one. Hex MD5 is compared ignoring case, base64 CRC32C exactly, as
+     * base64 is case sensitive.
+     * @param expected The stored checksum.
+     * @param actual The computed checksum.
+     * @return true if they are the same checksum.
+     */
+    public boolean matches(String expected, String actual) {
+        return this == MD5 ? expected.equalsIgnoreCase(actual) : expected.equals(actual);
+    }
+
+    /**
+     * An incremental digest, the value is available once all content has been updated.
+     */
+    public interface Digest {
+        void update(byte[] b, int off, int len);
+        String getValue();
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bytes digested and time spent computing checksums, per algorithm, across threads.
+ * Digests are pure computation, so the time spent in them is CPU time of the calling threads.
+ */
+public class ChecksumCost {
+    private static final double GB = 1024.0 * 1024 * 1024;
+    private final Map<ChecksumAlgorithm, LongAdder> bytes = new EnumMap<>(ChecksumAlgorithm.class);
+    private final Map<ChecksumAlgorithm, LongAdder> nanos = new EnumMap<>(ChecksumAlgorithm.class);
+
+    public ChecksumCost() {
+        for (ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+            bytes.put(algorithm, new LongAdder());
+            nanos.put(algorithm, new LongAdder());
+        }
+    }
+
+    void record(ChecksumAlgorithm algorithm, long numBytes, long elapsedNanos) {
+        bytes.get(algorithm).add(numBytes);
+        nanos.get(algorithm).add(elapsedNanos);
+    }
+
+    public long getBytes(ChecksumAlgorithm algorithm) {
+        return bytes.get(algorithm).sum();
+    }
+
+    public long getNanos(ChecksumAlgorithm algorithm) {
+        return nanos.get(algorithm).sum();
+    }
+
+    /**
+     * Get the CPU time spent per GB digested.
+     * @param algorithm The checksum algorithm.
+     * @return Nanoseconds per GB, or 0 if nothing was digested.
+     */
+    public double getNanosPerGB(ChecksumAlgorithm algorithm) {
+        long digested = getBytes(algorithm);
+        return digested == 0 ? 0 : getNanos(algorithm) * GB / digested;
+    }
+
+    /**
+     * Clear the counters, e.g. after a warm up.
+     */
+    public void reset() {
+        for (ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+            bytes.get(algorithm).reset();
+            nanos.get(algorithm).reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ChecksumCost:");
+        for (ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+            sb.append(String.format(" {%s: %d bytes, %.0f ms/GB}", algorithm.getName(), getBytes(algorithm),
+                    getNanosPerGB(algorithm) / 1_000_000));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An input stream updating checksums with every byte read, so content is verified in the same pass that
+ * uploads or drains it. The time spent in the digests is accounted to a {@link ChecksumCost}.
+ */
+public class ChecksumInputStream extends FilterInputStream {
+    private final Map<ChecksumAlgorithm, ChecksumAlgorithm.Digest> digests = new EnumMap<>(ChecksumAlgorithm.class);
+    private final ChecksumCost cost;
+    private final byte[] single = new byte[1];
+    private long bytesRead = 0;
+
+    /**
+     * Constructor for a checksum input stream.
+     * @param in The stream to read from.
+     * @param algorithms Checksums to compute.
+     * @param cost Accumulator of the time spent in the digests.
+     */
+    public ChecksumInputStream(InputStream in, Set<ChecksumAlgorithm> algorithms, ChecksumCost cost) {
+        super(in);
+        for (ChecksumAlgorithm algorithm : algorithms) {
+            digests.put(algorithm, algorithm.newDigest());
+        }
+        this.cost = cost;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int n = read(single, 0, 1);
+        return n == 1 ? single[0] & 0xff : -1;
+    }
+
+    @Override
+    public int read(@NotNull byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            for (Map.Entry<ChecksumAlgorithm, ChecksumAlgorithm.Digest> entry : digests.entrySet()) {
+                long start = System.nanoTime();
+                entry.getValue().update(b, off, n);
+                cost.record(entry.getKey(), n, System.nanoTime() - start);
+            }
+            bytesRead += n;
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // every byte has to go through the digests.
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Read the rest of the stream, so the checksums cover the whole content.
+     * @throws IOException if the stream fails.
+     */
+    public void drain() throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        while (read(buffer, 0, buffer.length) >= 0) {
+            // only the digests need the content.
+        }
+    }
+
+    /**
+     * Get the number of bytes read so far.
+     * @return The number of bytes.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Whether a checksum is computed by this stream.
+     * @param algorithm The checksum algorithm.
+     * @return true if computed.
+     */
+    public boolean isComputed(ChecksumAlgorithm algorithm) {
+        return digests.containsKey(algorithm);
+    }
+
+    /**
+     * Get a checksum of the content read, the stream must be fully read.
+     * @param algorithm The checksum algorithm, one of the computed ones.
+     * @return The encoded checksum.
+     */
+    public String getChecksum(ChecksumAlgorithm algorithm) {
+        ChecksumAlgorithm.Digest digest = digests.get(algorithm);
+        if (digest == null) {
+            throw new IllegalArgumentException(algorithm.getName() + " is not computed by this stream.");
+        }
+        return digest.getValue();
+    }
+}
@@ -1,8 +1,11 @@
 package com.snowflake.s3compatapitestsuite.compatapi;
 
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
 import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.Headers;
 
 /**
  * This is a wrapper around AmazonS3Client.
@@ -11,5 +14,19 @@ public class InstrumentedAmazonS3Client extends AmazonS3Client {
     public InstrumentedAmazonS3Client(
             AWSCredentials awsCredentials, ClientConfiguration clientConfiguration) {
         super(awsCredentials, clientConfiguration);
+        requestHandler2s.add(new SuffixRangeHandler());
+    }
+
+    /**
+     * Sets the Range header of a {@link SuffixRangeGetObjectRequest}, before the request is signed.
+     */
+    private static class SuffixRangeHandler extends RequestHandler2 {
+        @Override
+        public void beforeRequest(Request<?> request) {
+            if (request.getOriginalRequest() instanceof SuffixRangeGetObjectRequest) {
+                long suffixLength = ((SuffixRangeGetObjectRequest) request.getOriginalRequest()).getSuffixLength();
+                request.addHeader(Headers.RANGE, "bytes=-" + suffixLength);
+            }
+        }
     }
 }
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of object metadata keyed by bucket, key and version. An entry is served as is for the TTL after it
+ * was fetched or last validated; afterwards the next lookup revalidates it with a HEAD conditional on its ETag
+ * (If-None-Match), which costs a 304 without headers to parse when the object is unchanged.
+ */
+public class MetadataCache {
+    private final Cache<String, Entry> entries;
+    private final long ttlNanos;
+    private final Ticker ticker;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder refreshed = new LongAdder();
+
+    /**
+     * Constructor for a metadata cache.
+     * @param maxEntries Max number of cached entries, the least recently used ones are evicted first.
+     * @param ttlMs Time in ms an entry is served without revalidation, 0 to revalidate every lookup.
+     */
+    public MetadataCache(long maxEntries, long ttlMs) {
+        this(maxEntries, ttlMs, Ticker.systemTicker());
+    }
+
+    MetadataCache(long maxEntries, long ttlMs, Ticker ticker) {
+        if (maxEntries <= 0 || ttlMs < 0) {
+            throw new IllegalArgumentException("maxEntries should be > 0 and ttlMs should be >= 0.");
+        }
+        this.entries = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.ticker = ticker;
+    }
+
+    /**
+     * Get the metadata of an object, from the cache while it is fresh, revalidated or fetched otherwise.
+     * @param bucketName Bucket name of the object.
+     * @param key Key of the object.
+     * @param versionId VersionId of the object, the current version if null.
+     * @param head Sends a HEAD, conditional on the ETag given when not null, and returns null on a 304.
+     * @return The metadata.
+     */
+    public RemoteObjectMetadata get(String bucketName, String key, @Nullable String versionId,
+                                    Function<String, RemoteObjectMetadata> head) {
+        String cacheKey = cacheKey(bucketName, key, versionId);
+        Entry entry = entries.getIfPresent(cacheKey);
+        long now = ticker.read();
+        if (entry != null && now - entry.validatedAt < ttlNanos) {
+            hits.increment();
+            return entry.metadata;
+        }
+        if (entry == null) {
+            misses.increment();
+            RemoteObjectMetadata metadata = head.apply(null);
+            entries.put(cacheKey, new Entry(metadata, now));
+            return metadata;
+        }
+        RemoteObjectMetadata metadata = head.apply(entry.metadata.getObjectETag());
+        if (metadata == null) {
+            notModified.increment();
+            entries.put(cacheKey, new Entry(entry.metadata, now));
+            return entry.metadata;
+        }
+        refreshed.increment();
+        entries.put(cacheKey, new Entry(metadata, now));
+        return metadata;
+    }
+
+    /**
+     * Drop the cached metadata of an object version, e.g. when it is overwritten or deleted.
+     * @param bucketName Bucket name of the object.
+     * @param key Key of the object.
+     * @param versionId VersionId of the object, null for the current version.
+     */
+    public void invalidate(String bucketName, String key, @Nullable String versionId) {
+        entries.invalidate(cacheKey(bucketName, key, versionId));
+    }
+
+    /** Get the number of lookups served from a fresh entry. */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /** Get the number of lookups sending a full HEAD because nothing was cached. */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /** Get the number of revalidations answered with a 304. */
+    public long getNotModified() {
+        return notModified.sum();
+    }
+
+    /** Get the number of revalidations answered with full metadata, because the object changed or the condition was ignored. */
+    public long getRefreshed() {
+        return refreshed.sum();
+    }
+
+    /**
+     * Clear the counters, the cached entries are kept.
+     */
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+        notModified.reset();
+        refreshed.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MetadataCache: {entries: %d, hits: %d, misses: %d, not modified: %d, refreshed: %d}",
+                entries.size(), getHits(), getMisses(), getNotModified(), getRefreshed());
+    }
+
+    private static String cacheKey(String bucketName, String key, @Nullable String versionId) {
+        return bucketName + "/" + key + "?versionId=" + versionId;
+    }
+
+    private static class Entry {
+        private final RemoteObjectMetadata metadata;
+        /** Ticker time the metadata was fetched or last validated. */
+        private final long validatedAt;
+
+        Entry(RemoteObjectMetadata metadata, long validatedAt) {
+            this.metadata = metadata;
+            this.validatedAt = validatedAt;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Progress of multipart uploads kept across runs, so an interrupted upload resumes with its upload id and
+ * completed parts instead of starting over. An upload with a checkpoint is never aborted on failure.
+ */
+public interface MultipartCheckpoint {
+    /**
+     * Get the upload id of an upload in progress.
+     * @param key Key of the target.
+     * @return The upload id, or null if there is no upload in progress.
+     */
+    @Nullable String getUploadId(String key);
+    /**
+     * Get the part size of an upload in progress, parts of a resumed upload must keep their boundaries.
+     * @param key Key of the target.
+     * @return The part size in bytes.
+     */
+    long getPartSize(String key);
+    /**
+     * Get the ETag of a completed part.
+     * @param key Key of the target.
+     * @param partNumber Number of the part, starting at 1.
+     * @return The ETag, or null if the part is not completed.
+     */
+    @Nullable String getPartETag(String key, int partNumber);
+    /**
+     * Called when an upload is initiated.
+     * @param key Key of the target.
+     * @param uploadId Upload id of the new upload.
+     * @param partSize Part size in bytes.
+     */
+    void uploadStarted(String key, String uploadId, long partSize);
+    /**
+     * Called when a part is uploaded.
+     * @param key Key of the target.
+     * @param partNumber Number of the part, starting at 1.
+     * @param eTag ETag of the part.
+     */
+    void partCompleted(String key, int partNumber, String eTag);
+    /**
+     * Called when an upload in progress can not be resumed, e.g. it was aborted or expired remotely.
+     * @param key Key of the target.
+     */
+    void uploadDiscarded(String key);
+    /**
+     * Whether to stop scheduling more parts. Parts in flight complete, and the upload is left in progress.
+     * @return true to stop.
+     */
+    boolean isStopped();
+}
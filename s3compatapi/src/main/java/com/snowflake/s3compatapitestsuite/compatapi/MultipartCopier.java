@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Server side copy of a large object as a multipart upload, copying byte ranges of the source version in parallel.
+ */
+class MultipartCopier {
+    private static final Logger logger = LogManager.getLogger(MultipartCopier.class);
+    /** Min size of a part except the last one. */
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    /** Max number of parts in a multipart upload. */
+    static final int MAX_PARTS = 10_000;
+
+    private final AmazonS3 s3Client;
+    private final Executor executor;
+    private final long partSize;
+    private final int parallelism;
+
+    /**
+     * Constructor for a multipart copier.
+     * @param s3Client The client to issue requests with.
+     * @param executor Runs the part copies, shared by all the copies of a client so their total parallelism is bounded.
+     * @param partSize Requested part size in bytes, raised if needed to fit the object in {@value MAX_PARTS} parts.
+     * @param parallelism Number of part copies in flight.
+     */
+    MultipartCopier(AmazonS3 s3Client, Executor executor, long partSize, int parallelism) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("partSize should be >= " + MIN_PART_SIZE);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism should be > 0.");
+        }
+        this.s3Client = s3Client;
+        this.executor = executor;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Copy an object. The upload is aborted if any part fails, so no orphaned parts are left behind.
+     * @param sourceBucket Bucket name of the source object.
+     * @param sourceKey Key of the source object.
+     * @param sourceMetadata Metadata of the source version: its version id, ETag, length, content headers and user metadata.
+     * @param dstBucket Bucket name of the target.
+     * @param destKey Key of the target.
+     * @return Result of completing the multipart upload.
+     */
+    CompleteMultipartUploadResult copy(String sourceBucket, String sourceKey, ObjectMetadata sourceMetadata, String dstBucket,
+                                       String destKey) {
+        @Nullable String sourceVersionId = sourceMetadata.getVersionId();
+        @Nullable String sourceETag = sourceMetadata.getETag();
+        long contentLength = sourceMetadata.getContentLength();
+        long effectivePartSize = partSizeFor(contentLength);
+        int numParts = (int) ((contentLength + effectivePartSize - 1) / effectivePartSize);
+        // Keep the headers and user metadata of the source, as a single CopyObject does.
+        InitiateMultipartUploadRequest initiateRequest =
+                new InitiateMultipartUploadRequest(dstBucket, destKey, destinationMetadata(sourceMetadata));
+        String uploadId = s3Client.initiateMultipartUpload(initiateRequest).getUploadId();
+        PartETag[] partETags = new PartETag[numParts];
+        Semaphore permits = new Semaphore(Math.min(parallelism, numParts));
+        AtomicReference<RuntimeException> firstFailure = new AtomicReference<>();
+        List<CompletableFuture<Void>> parts = new ArrayList<>(numParts);
+        try {
+            for (int i = 0; i < numParts && firstFailure.get() == null; i++) {
+                final int partIndex = i;
+                long firstByte = i * effectivePartSize;
+                long lastByte = Math.min(contentLength, firstByte + effectivePartSize) - 1;
+                permits.acquireUninterruptibly();
+                parts.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        partETags[partIndex] = copyPart(sourceBucket, sourceKey, sourceVersionId, sourceETag, dstBucket, destKey,
+                                uploadId, partIndex + 1, firstByte, lastByte);
+                    } catch (RuntimeException e) {
+                        firstFailure.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                    }
+                }, executor));
+            }
+            // Wait for the parts in flight even after a failure, so none completes after the abort.
+            CompletableFuture.allOf(parts.toArray(new CompletableFuture<?>[0])).join();
+            if (firstFailure.get() != null) {
+                throw firstFailure.get();
+            }
+            List<PartETag> completedParts = Arrays.asList(partETags);
+            return s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(dstBucket, destKey, uploadId, completedParts));
+        } catch (RuntimeException e) {
+            abortQuietly(dstBucket, destKey, uploadId);
+            throw e;
+        }
+    }
+
+    private PartETag copyPart(String sourceBucket, String sourceKey, @Nullable String sourceVersionId, @Nullable String sourceETag,
+                              String dstBucket, String destKey, String uploadId, int partNumber, long firstByte, long lastByte) {
+        CopyPartRequest request = new CopyPartRequest()
+                .withSourceBucketName(sourceBucket)
+                .withSourceKey(sourceKey)
+                .withSourceVersionId(sourceVersionId)
+                .withDestinationBucketName(dstBucket)
+                .withDestinationKey(destKey)
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withFirstByte(firstByte)
+                .withLastByte(lastByte);
+        if (sourceVersionId == null && sourceETag != null) {
+            request.withMatchingETagConstraint(sourceETag);
+        }
+        CopyPartResult result = s3Client.copyPart(request);
+        if (result == null) {
+            // the SDK returns null when the copy condition is not met.
+            throw new IllegalStateException("Source " + sourceKey + " changed during multipart copy.");
+        }
+        return result.getPartETag();
+    }
+
+    /**
+     * Get the metadata a copy keeps from its source: the content headers and the user metadata, without the
+     * headers describing the source version itself, such as its length or ETag.
+     * @param sourceMetadata Metadata of the source.
+     * @return Metadata for the target.
+     */
+    static ObjectMetadata destinationMetadata(ObjectMetadata sourceMetadata) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        if (sourceMetadata.getContentType() != null) {
+            metadata.setContentType(sourceMetadata.getContentType());
+        }
+        if (sourceMetadata.getContentEncoding() != null) {
+            metadata.setContentEncoding(sourceMetadata.getContentEncoding());
+        }
+        if (sourceMetadata.getContentDisposition() != null) {
+            metadata.setContentDisposition(sourceMetadata.getContentDisposition());
+        }
+        if (sourceMetadata.getContentLanguage() != null) {
+            metadata.setContentLanguage(sourceMetadata.getContentLanguage());
+        }
+        if (sourceMetadata.getCacheControl() != null) {
+            metadata.setCacheControl(sourceMetadata.getCacheControl());
+        }
+        if (sourceMetadata.getHttpExpiresDate() != null) {
+            metadata.setHttpExpiresDate(sourceMetadata.getHttpExpiresDate());
+        }
+        metadata.setUserMetadata(sourceMetadata.getUserMetadata());
+        return metadata;
+    }
+
+    /**
+     * Get the part size used for an object, keeping the number of parts under {@value MAX_PARTS}.
+     * @param contentLength Length of the object.
+     * @return The part size in bytes.
+     */
+    long partSizeFor(long contentLength) {
+        long minPartSizeForLength = (contentLength + MAX_PARTS - 1) / MAX_PARTS;
+        return Math.max(partSize, minPartSizeForLength);
+    }
+
+    private void abortQuietly(String bucketName, String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+        } catch (AmazonClientException e) {
+            logger.warn("Fail to abort multipart upload " + uploadId + " for " + bucketName + "/" + key, e);
+        }
+    }
+}
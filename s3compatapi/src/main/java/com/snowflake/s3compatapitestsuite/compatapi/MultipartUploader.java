@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Upload of a large local file as a multipart upload, uploading parts in parallel straight from the file.
+ */
+class MultipartUploader {
+    private static final Logger logger = LogManager.getLogger(MultipartUploader.class);
+
+    private final AmazonS3 s3Client;
+    private final long partSize;
+    private final int parallelism;
+
+    /**
+     * Constructor for a multipart uploader.
+     * @param s3Client The client to issue requests with.
+     * @param partSize Requested part size in bytes, raised if needed to fit the file in {@value MultipartCopier#MAX_PARTS} parts.
+     * @param parallelism Number of part uploads in flight.
+     */
+    MultipartUploader(AmazonS3 s3Client, long partSize, int parallelism) {
+        if (partSize < MultipartCopier.MIN_PART_SIZE) {
+            throw new IllegalArgumentException("partSize should be >= " + MultipartCopier.MIN_PART_SIZE);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism should be > 0.");
+        }
+        this.s3Client = s3Client;
+        this.partSize = partSize;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Upload a file. The upload is aborted if any part fails, so no orphaned parts are left behind.
+     * @param bucketName Bucket name of the target.
+     * @param key Key of the target.
+     * @param file The file to upload, it must not be empty.
+     * @return Result of completing the multipart upload.
+     */
+    CompleteMultipartUploadResult upload(String bucketName, String key, File file) {
+        return upload(bucketName, key, file, null);
+    }
+
+    /**
+     * Upload a file, resuming the upload in progress in the checkpoint if any. With a checkpoint, a failed
+     * upload is left in progress so the next run resumes it.
+     * @param bucketName Bucket name of the target.
+     * @param key Key of the target.
+     * @param file The file to upload, it must not be empty.
+     * @param checkpoint Progress kept across runs, or null.
+     * @return Result of completing the multipart upload.
+     * @throws CancellationException if the checkpoint is stopped before all parts are uploaded.
+     */
+    CompleteMultipartUploadResult upload(String bucketName, String key, File file, @Nullable MultipartCheckpoint checkpoint) {
+        long contentLength = file.length();
+        if (contentLength == 0) {
+            throw new IllegalArgumentException("A multipart upload needs a non empty file: " + file);
+        }
+        String uploadId = checkpoint != null ? checkpoint.getUploadId(key) : null;
+        if (uploadId != null) {
+            try {
+                return uploadParts(bucketName, key, file, uploadId, checkpoint.getPartSize(key), checkpoint);
+            } catch (AmazonS3Exception e) {
+                if (e.getStatusCode() != 404) {
+                    throw e;
+                }
+                // NoSuchUpload: the upload was aborted or expired remotely, start over.
+                logger.warn("Can not resume multipart upload " + uploadId + " for " + bucketName + "/" + key + ", start over.");
+                checkpoint.uploadDiscarded(key);
+            }
+        }
+        long effectivePartSize = Math.max(partSize, (contentLength + MultipartCopier.MAX_PARTS - 1) / MultipartCopier.MAX_PARTS);
+        uploadId = s3Client.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, key)).getUploadId();
+        if (checkpoint != null) {
+            checkpoint.uploadStarted(key, uploadId, effectivePartSize);
+        }
+        try {
+            return uploadParts(bucketName, key, file, uploadId, effectivePartSize, checkpoint);
+        } catch (RuntimeException e) {
+            if (checkpoint == null) {
+                try {
+                    s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+                } catch (AmazonClientException abortException) {
+                    logger.warn("Fail to abort multipart upload " + uploadId + " for " + bucketName + "/" + key, abortException);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private CompleteMultipartUploadResult uploadParts(String bucketName, String key, File file, String uploadId,
+                                                      long effectivePartSize, @Nullable MultipartCheckpoint checkpoint) {
+        long contentLength = file.length();
+        int numParts = (int) ((contentLength + effectivePartSize - 1) / effectivePartSize);
+        PartETag[] partETags = new PartETag[numParts];
+        int inFlight = Math.min(parallelism, numParts);
+        boolean stopped = false;
+        try (BoundedExecutor executor = new BoundedExecutor("multipart-upload", inFlight, inFlight)) {
+            for (int i = 0; i < numParts; i++) {
+                final int partIndex = i;
+                String completedETag = checkpoint != null ? checkpoint.getPartETag(key, partIndex + 1) : null;
+                if (completedETag != null) {
+                    partETags[partIndex] = new PartETag(partIndex + 1, completedETag);
+                    continue;
+                }
+                if (checkpoint != null && checkpoint.isStopped()) {
+                    stopped = true;
+                    break;
+                }
+                long offset = i * effectivePartSize;
+                long length = Math.min(effectivePartSize, contentLength - offset);
+                executor.submit(() -> {
+                    UploadPartRequest request = new UploadPartRequest()
+                            .withBucketName(bucketName)
+                            .withKey(key)
+                            .withUploadId(uploadId)
+                            .withPartNumber(partIndex + 1)
+                            .withFile(file)
+                            .withFileOffset(offset)
+                            .withPartSize(length)
+                            .withLastPart(partIndex == numParts - 1);
+                    partETags[partIndex] = s3Client.uploadPart(request).getPartETag();
+                    if (checkpoint != null) {
+                        checkpoint.partCompleted(key, partIndex + 1, partETags[partIndex].getETag());
+                    }
+                });
+            }
+            executor.awaitCompletion();
+        }
+        if (stopped) {
+            throw new CancellationException("Multipart upload " + uploadId + " for " + bucketName + "/" + key + " stopped.");
+        }
+        return s3Client.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, key, uploadId, Arrays.asList(partETags)));
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Functional interface: A consumer of the content stream of an object.
+ *
+ * <p>The stream is only valid during the call and is closed afterwards. The consumer should read it to the end,
+ * otherwise the connection can not be reused.
+ */
+@FunctionalInterface
+public interface ObjectContentConsumer {
+    void consume(@NotNull InputStream content) throws IOException;
+}
@@ -0,0 +1,43 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+/**
+ * When {@link S3CompatStorageClient#putObject(WriteObjectSpec)} reads the object metadata back after writing,
+ * to check that the version written is the one read.
+ */
+public enum ReadAfterWriteVerification {
+    /** Every put is followed by a HEAD before it returns. */
+    ALWAYS("always"),
+    /** A random sample of puts is followed by a HEAD before it returns. */
+    SAMPLED("sampled"),
+    /** Every put is followed by a HEAD off the calling thread, failures are collected and reported later. */
+    ASYNC("async"),
+    /** Puts are not verified. */
+    OFF("off");
+
+    private final String name;
+
+    ReadAfterWriteVerification(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Lookup a policy by its name.
+     * @param name Name of the policy.
+     * @return The policy, or null if not found.
+     */
+    public static ReadAfterWriteVerification lookupByName(String name) {
+        for (ReadAfterWriteVerification policy : values()) {
+            if (policy.name.equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+}
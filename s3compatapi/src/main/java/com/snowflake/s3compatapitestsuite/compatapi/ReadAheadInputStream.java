@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import org.apache.commons.io.IOUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A sequential stream over an object, fetched as ranged GETs of a fixed chunk size kept in flight ahead of the reader.
+ * The window of chunks in flight starts at {@value INITIAL_WINDOW} and doubles, up to a max, each time the reader has
+ * to wait for a chunk, so memory stays bounded by the max window times the chunk size. A failed chunk is retried on
+ * its own, and every chunk is read with the ETag the stream was opened with, so a concurrent overwrite fails the read.
+ */
+public class ReadAheadInputStream extends InputStream {
+    /** Chunks in flight when the stream is opened. */
+    static final int INITIAL_WINDOW = 2;
+    /** Attempts to fetch a chunk before the read fails. */
+    private static final int MAX_CHUNK_ATTEMPTS = 4;
+    /** Pause before the first retry of a chunk, doubled for each later retry. */
+    private static final long RETRY_BACKOFF_MS = 100;
+
+    private final S3CompatStorageClient client;
+    private final ExecutorService executor;
+    private final String bucketName;
+    private final String key;
+    private final @Nullable String versionId;
+    private final String eTag;
+    private final long size;
+    private final int chunkSize;
+    private final int maxWindow;
+    /** Chunks in flight, in the order they are read. */
+    private final Deque<Future<byte[]>> chunks = new ArrayDeque<>();
+    /** Offset of the next chunk to fetch. */
+    private long nextChunkOffset = 0;
+    private int window;
+    private byte[] current = new byte[0];
+    private int position = 0;
+    private boolean closed = false;
+
+    private long chunksFetched = 0;
+    private final LongAdder chunkRetries = new LongAdder();
+    private long stalls = 0;
+
+    ReadAheadInputStream(S3CompatStorageClient client, ExecutorService executor, String bucketName, String key,
+                         @Nullable String versionId, String eTag, long size, int chunkSize, int maxWindow) {
+        if (chunkSize <= 0 || maxWindow <= 0) {
+            throw new IllegalArgumentException("chunkSize and maxWindow should be > 0.");
+        }
+        this.client = client;
+        this.executor = executor;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.versionId = versionId;
+        this.eTag = eTag;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.maxWindow = maxWindow;
+        this.window = Math.min(INITIAL_WINDOW, maxWindow);
+        fillWindow();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureCurrent()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte @NotNull [] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureCurrent()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        chunks.forEach(chunk -> chunk.cancel(true));
+        chunks.clear();
+        current = new byte[0];
+    }
+
+    /** Get the object size. */
+    public long getSize() {
+        return size;
+    }
+
+    /** Get the number of chunks fetched so far. */
+    public long getChunksFetched() {
+        return chunksFetched;
+    }
+
+    /** Get the number of chunk fetches retried. */
+    public long getChunkRetries() {
+        return chunkRetries.sum();
+    }
+
+    /** Get the number of times the reader waited for a chunk still in flight. */
+    public long getStalls() {
+        return stalls;
+    }
+
+    /** Get the number of chunks kept in flight. */
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * Move to the next chunk when the current one is consumed.
+     * @return false at the end of the object.
+     */
+    private boolean ensureCurrent() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+        if (position < current.length) {
+            return true;
+        }
+        Future<byte[]> next = chunks.poll();
+        if (next == null) {
+            return false;
+        }
+        if (!next.isDone()) {
+            // the reader is faster than the chunks in flight.
+            stalls++;
+            window = Math.min(window * 2, maxWindow);
+        }
+        try {
+            current = next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + bucketName + "/" + key);
+        } catch (ExecutionException e) {
+            throw new IOException("Fail to read " + bucketName + "/" + key, e.getCause());
+        }
+        position = 0;
+        chunksFetched++;
+        fillWindow();
+        return true;
+    }
+
+    private void fillWindow() {
+        while (chunks.size() < window && nextChunkOffset < size) {
+            long start = nextChunkOffset;
+            long end = Math.min(start + chunkSize, size) - 1;
+            chunks.add(executor.submit(() -> fetchChunk(start, end)));
+            nextChunkOffset = end + 1;
+        }
+    }
+
+    private byte[] fetchChunk(long start, long end) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            GetObjectRequest request = new GetObjectRequest(bucketName, key, versionId)
+                    .withMatchingETagConstraint(eTag);
+            request.setRange(start, end);
+            byte[] chunk = new byte[(int) (end - start + 1)];
+            try {
+                client.readObject(request, content -> IOUtils.readFully(content, chunk));
+                return chunk;
+            } catch (AmazonS3Exception e) {
+                if (e.getStatusCode() >= 400 && e.getStatusCode() < 500 || attempt == MAX_CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                if (attempt == MAX_CHUNK_ATTEMPTS) {
+                    throw e;
+                }
+            }
+            chunkRetries.increment();
+            Thread.sleep(RETRY_BACKOFF_MS << (attempt - 1));
+        }
+    }
+}
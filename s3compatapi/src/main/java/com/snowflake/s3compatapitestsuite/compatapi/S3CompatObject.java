@@ -33,6 +33,22 @@ public class S3CompatObject {
         }
     }
 
+    /**
+     * Constructor for an S3CompatObject served without a request, e.g. from a {@link BlockCache}.
+     * @param bucketName Bucket name of the object.
+     * @param key Key of the object.
+     * @param eTag ETag of the object.
+     * @param contentLength Number of bytes served.
+     * @param contentRange Content range of the bytes served, like "bytes 10-19/100".
+     */
+    S3CompatObject(String bucketName, String key, String eTag, long contentLength, String contentRange) {
+        this.bucketName = bucketName;
+        this.key = key;
+        this.eTag = eTag;
+        this.contentLength = contentLength;
+        this.contentRange = contentRange;
+    }
+
     public String getETag() {
         return eTag;
     }
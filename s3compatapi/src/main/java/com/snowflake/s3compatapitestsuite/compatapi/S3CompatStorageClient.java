@@ -5,12 +5,17 @@ package com.snowflake.s3compatapitestsuite.compatapi;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.ClientConfiguration;
+import com.amazonaws.HttpMethod;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.regions.RegionUtils;
+import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.S3ClientOptions;
 import com.amazonaws.services.s3.model.*;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.snowflake.s3compatapitestsuite.perf.PerfMeasurement;
 import com.snowflake.s3compatapitestsuite.perf.PerfMeasurementRecorder;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -18,31 +23,83 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
  * Wrapper for a S3Compat storage client.
  */
-public class S3CompatStorageClient implements StorageClient {
+public class S3CompatStorageClient implements StorageClient, AutoCloseable {
     private static final Logger logger = LogManager.getLogger(S3CompatStorageClient.class);
     final InstrumentedAmazonS3Client s3Client;
     private static final int TIME_OUT = 300_000; // in MS
     private static final String ENCODING = "UTF-8";
     /** Configurable value to use for the max error retry configuration when creating an S3 client. */
     private static final int MAX_ERROR_RETRY = 5;
+    /** Threads verifying puts with {@link ReadAfterWriteVerification#ASYNC}. */
+    private static final int ASYNC_VERIFIER_THREADS = 4;
+    /** Verifications queued or running before puts block, so a slow HEAD path applies backpressure. */
+    private static final int ASYNC_VERIFIER_MAX_IN_FLIGHT = 1024;
 
-    private boolean measurementPerformance = false;
+    private volatile boolean measurementPerformance = false;
 
-    private PerfMeasurementRecorder perfMeasurement;
+    private volatile PerfMeasurementRecorder perfMeasurement;
+    /** Checksums computed and verified while uploading and reading whole objects. */
+    private volatile Set<ChecksumAlgorithm> checksumAlgorithms = EnumSet.noneOf(ChecksumAlgorithm.class);
+    private final ChecksumCost checksumCost = new ChecksumCost();
+    /** When puts read the object metadata back. */
+    private volatile ReadAfterWriteVerification readAfterWriteVerification = ReadAfterWriteVerification.ALWAYS;
+    /** Fraction of puts verified with {@link ReadAfterWriteVerification#SAMPLED}. */
+    private volatile double verificationSampleRate = 1.0;
+    /** Runs the verifications of {@link ReadAfterWriteVerification#ASYNC}, created on first use. */
+    private BoundedExecutor asyncVerifier;
+    /** Failures of asynchronous verifications not reported yet. */
+    private final Queue<RuntimeException> asyncVerificationFailures = new ConcurrentLinkedQueue<>();
+    /** Whether identical concurrent getObject and getObjectMetadata calls share one request. */
+    private volatile boolean requestCoalescing = false;
+    private final SingleFlight<String, S3CompatObject> objectFlights = new SingleFlight<>();
+    private final SingleFlight<String, RemoteObjectMetadata> metadataFlights = new SingleFlight<>();
+    /** Serves getObjectMetadata, null to always send a HEAD. */
+    private volatile @Nullable MetadataCache metadataCache;
+    /** Fetches the chunks of {@link ReadAheadInputStream}s, created on first use. */
+    private ExecutorService readAheadExecutor;
+    /** Copies the parts of all multipart copies, one thread per connection, created on first use. */
+    private ExecutorService partCopyExecutor;
+    private final int maxConnections;
+    /** Serves ranged reads of the current version of objects, null to always read from the endpoint. */
+    private volatile @Nullable BlockCache blockCache;
+    /** Credentials, region and endpoint of the client, for requests signed outside of the SDK. */
+    private final @Nullable AWSCredentialsProvider credentialsProvider;
+    private volatile @Nullable String region;
+    private final String endpoint;
+    /** Presigns batches of URLs, created on first use. */
+    private BatchPresigner batchPresigner;
+    /** Region signing requests of a client created without a region. */
+    private static final String DEFAULT_SIGNING_REGION = "us-east-1";
     private static final String BUCKET_REGION_HEADER_NAME = "x-amz-bucket-region";
+    /** An ETag that is the MD5 of the content, unlike the ETags of multipart uploads or SSE-KMS objects. */
+    private static final Pattern PLAIN_MD5_ETAG = Pattern.compile("\"?[0-9a-fA-F]{32}\"?");
+    /** Largest span from the first cached block of a range to its end served through the block cache, an array size. */
+    private static final long MAX_CACHED_SPAN = Integer.MAX_VALUE - 8;
     /**
      * Constructor for a s3 compat storage client.
      * @param awsCredentialsProvider Wrapper for aws credential.
@@ -53,14 +110,34 @@ public class S3CompatStorageClient implements StorageClient {
             @Nullable AWSCredentialsProvider awsCredentialsProvider,
             @Nullable String region,
             String endpoint) {
-        this.s3Client = createS3Client(region, awsCredentialsProvider, endpoint);
+        this(awsCredentialsProvider, region, endpoint, ClientConfiguration.DEFAULT_MAX_CONNECTIONS);
+    }
+    /**
+     * Constructor for a s3 compat storage client with a sized connection pool, for concurrent use.
+     * @param awsCredentialsProvider Wrapper for aws credential.
+     * @param region The region the client targeting.
+     * @param endpoint Endpoint the client would make requests to.
+     * @param maxConnections Max number of open HTTP connections.
+     */
+    public S3CompatStorageClient(
+            @Nullable AWSCredentialsProvider awsCredentialsProvider,
+            @Nullable String region,
+            String endpoint,
+            int maxConnections) {
+        this.s3Client = createS3Client(region, awsCredentialsProvider, endpoint, maxConnections);
+        this.maxConnections = maxConnections;
+        this.credentialsProvider = awsCredentialsProvider;
+        this.region = region;
+        this.endpoint = endpoint;
     }
     private InstrumentedAmazonS3Client createS3Client(
             final @Nullable String region,
             final @Nullable AWSCredentialsProvider awsCredentialsProvide,
-            final String endpoint) {
+            final String endpoint,
+            final int maxConnections) {
         ClientConfiguration clientCfg = new ClientConfiguration();
         clientCfg.withSignerOverride("AWSS3V4SignerType");
+        clientCfg.setMaxConnections(maxConnections);
         clientCfg.setMaxErrorRetry(MAX_ERROR_RETRY);
         clientCfg.withSocketTimeout(TIME_OUT);
         clientCfg.withTcpKeepAlive(true);
@@ -137,6 +214,12 @@ public class S3CompatStorageClient implements StorageClient {
     }
 
     public S3CompatObject getObject(String bucketName, String key, @Nullable Long start, @Nullable Long end) {
+        if (requestCoalescing) {
+            return objectFlights.execute(bucketName + "/" + key + "?range=" + start + "-" + end, () -> fetchObject(bucketName, key, start, end));
+        }
+        return fetchObject(bucketName, key, start, end);
+    }
+    private S3CompatObject fetchObject(String bucketName, String key, @Nullable Long start, @Nullable Long end) {
         S3Object res = null;
         try {
             GetObjectRequest request = new GetObjectRequest(bucketName, key);
@@ -169,16 +252,384 @@ public class S3CompatStorageClient implements StorageClient {
             }
         }
     }
+    /**
+     * Read the content of an object, or of a range of it, handing the content stream to a consumer.
+     * Unlike {@link #getObject(String, String, Long, Long)} the content is available to the caller.
+     * @param bucketName The name of the bucket containing the desired object.
+     * @param key The key in the specified bucket under which the object is stored.
+     * @param versionId VersionId of the object, the current version if null.
+     * @param start The first byte of the range, or null to read the whole object.
+     * @param end The last byte of the range (inclusive), or null to read to the end of the object.
+     * @param consumer Consumer of the content stream, the stream is closed after it returns.
+     * @return The object, without its content.
+     */
+    public S3CompatObject readObject(String bucketName, String key, @Nullable String versionId, @Nullable Long start, @Nullable Long end,
+                                     ObjectContentConsumer consumer) {
+        BlockCache cache = blockCache;
+        if (cache != null && versionId == null && start != null && end != null
+                && end - start / cache.getBlockSize() * cache.getBlockSize() < MAX_CACHED_SPAN) {
+            // the range is assembled in one array, larger ranges are streamed from the endpoint.
+            return readObjectThroughCache(cache, bucketName, key, start, end, consumer);
+        }
+        GetObjectRequest request = new GetObjectRequest(bucketName, key, versionId);
+        if (start != null && end != null) {
+            request.setRange(start, end);
+        } else if (start != null) {
+            request.setRange(start);
+        }
+        return readObject(request, start == null /* wholeObject */, consumer);
+    }
+    /**
+     * Read the last bytes of an object with a suffix range (bytes=-N), without knowing its size, like a reader
+     * fetching the footer of a Parquet or ORC file. The object size is in the content range of the result.
+     * @param bucketName The name of the bucket containing the desired object.
+     * @param key The key in the specified bucket under which the object is stored.
+     * @param versionId VersionId of the object, the current version if null.
+     * @param suffixLength Number of bytes to read from the end, the whole object is read if it is smaller.
+     * @param consumer Consumer of the content stream, the stream is closed after it returns.
+     * @return The object, without its content.
+     */
+    public S3CompatObject readObjectSuffix(String bucketName, String key, @Nullable String versionId, long suffixLength,
+                                           ObjectContentConsumer consumer) {
+        if (suffixLength <= 0) {
+            throw new IllegalArgumentException("suffixLength should be > 0.");
+        }
+        return readObject(new SuffixRangeGetObjectRequest(bucketName, key, versionId, suffixLength), false /* wholeObject */, consumer);
+    }
+    /**
+     * Open a sequential stream over an object, fetched as ranged GETs of chunkSize kept in flight ahead of the reader.
+     * The object is pinned to the ETag returned by a HEAD, so an overwrite during the read fails it.
+     * @param bucketName The name of the bucket containing the desired object.
+     * @param key The key in the specified bucket under which the object is stored.
+     * @param versionId VersionId of the object, the current version if null.
+     * @param chunkSize Size in bytes of each ranged GET.
+     * @param maxWindow Max number of chunks in flight, which bounds the memory of the stream to maxWindow * chunkSize.
+     * @return The stream, to be closed by the caller.
+     */
+    public ReadAheadInputStream openReadAheadStream(String bucketName, String key, @Nullable String versionId, int chunkSize,
+                                                    int maxWindow) {
+        RemoteObjectMetadata metadata = getObjectMetadata(bucketName, key, versionId);
+        ExecutorService executor;
+        synchronized (this) {
+            if (readAheadExecutor == null) {
+                readAheadExecutor = Executors.newCachedThreadPool(
+                        new ThreadFactoryBuilder().setNameFormat("read-ahead-%d").setDaemon(true).build());
+            }
+            executor = readAheadExecutor;
+        }
+        return new ReadAheadInputStream(this, executor, bucketName, key, versionId, metadata.getObjectETag(),
+                metadata.getObjectContentLength(), chunkSize, maxWindow);
+    }
+    /**
+     * Read a request as is, e.g. with ETag constraints, bypassing the block cache.
+     * @param request The request, with its range and constraints.
+     * @param consumer Consumer of the content stream, the stream is closed after it returns.
+     * @return The object, without its content.
+     * @throws AmazonS3Exception with status 412 if the constraints of the request are not met.
+     */
+    public S3CompatObject readObject(GetObjectRequest request, ObjectContentConsumer consumer) {
+        return readObject(request, request.getRange() == null /* wholeObject */, consumer);
+    }
+    private S3CompatObject readObject(GetObjectRequest request, boolean wholeObject, ObjectContentConsumer consumer) {
+        String bucketName = request.getBucketName();
+        String key = request.getKey();
+        if (TIME_OUT > 0) {
+            request.setSdkClientExecutionTimeout(TIME_OUT);
+        }
+        if (measurementPerformance && perfMeasurement != null) {
+            perfMeasurement.startTiming(PerfMeasurement.FUNC_NAME.GET_OBJECT);
+        }
+        try (S3Object res = this.s3Client.getObject(request)) {
+            if (res == null) {
+                // the SDK returns null when the constraints of the request are not met.
+                AmazonS3Exception ex = new AmazonS3Exception("Constraints not met reading " + bucketName + "/" + key);
+                ex.setStatusCode(412);
+                ex.setErrorCode("PreconditionFailed");
+                throw ex;
+            }
+            Set<ChecksumAlgorithm> algorithms = checksumAlgorithms;
+            if (algorithms.isEmpty() || !wholeObject) {
+                consumer.consume(res.getObjectContent());
+            } else {
+                ChecksumInputStream content = new ChecksumInputStream(res.getObjectContent(), algorithms, checksumCost);
+                consumer.consume(content);
+                content.drain();
+                verifyChecksums(content, res.getObjectMetadata().getETag(), res.getObjectMetadata().getUserMetadata(),
+                        bucketName + "/" + key);
+            }
+            if (measurementPerformance && perfMeasurement != null) {
+                perfMeasurement.recordElapsedTime(PerfMeasurement.FUNC_NAME.GET_OBJECT);
+            }
+            return new S3CompatObject(res);
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read " + bucketName + "/" + key, e);
+        }
+    }
+    /**
+     * Serve a range from the cached blocks covering it, fetching the missing ones with one aligned ranged GET per
+     * run of consecutive missing blocks. The blocks are re-read once if the object changed between two GETs.
+     */
+    private S3CompatObject readObjectThroughCache(BlockCache cache, String bucketName, String key, long start, long end,
+                                                  ObjectContentConsumer consumer) {
+        if (start < 0 || end < start) {
+            throw new IllegalArgumentException("Invalid range " + start + "-" + end);
+        }
+        int blockSize = cache.getBlockSize();
+        long firstBlock = start / blockSize;
+        for (int attempt = 0; ; attempt++) {
+            BlockCache.ObjectVersion version = cache.getObjectVersion(bucketName, key);
+            if (version != null && !cache.isFresh(bucketName, key)) {
+                version = revalidate(cache, bucketName, key, version);
+            }
+            long lastBlock = end / blockSize;
+            if (version != null) {
+                if (start >= version.size) {
+                    // let the endpoint answer the unsatisfiable range.
+                    break;
+                }
+                lastBlock = Math.min(lastBlock, (version.size - 1) / blockSize);
+            }
+            byte[][] blocks = new byte[(int) (lastBlock - firstBlock + 1)][];
+            long servedBytes = 0;
+            if (version != null) {
+                for (int i = 0; i < blocks.length; i++) {
+                    blocks[i] = cache.getBlock(bucketName, key, version.eTag, firstBlock + i);
+                    if (blocks[i] != null) {
+                        servedBytes += blocks[i].length;
+                    }
+                }
+            } else {
+                cache.recordMisses(blocks.length);
+            }
+            boolean changed = false;
+            for (int i = 0; i < blocks.length && !changed; i++) {
+                if (blocks[i] != null) {
+                    continue;
+                }
+                int run = i;
+                while (run + 1 < blocks.length && blocks[run + 1] == null) {
+                    run++;
+                }
+                BlockCache.ObjectVersion seen = fetchBlocks(cache, bucketName, key, firstBlock, i, run, blocks);
+                if (version == null) {
+                    version = seen;
+                } else if (!version.equals(seen)) {
+                    changed = true;
+                }
+                i = run;
+            }
+            if (changed) {
+                if (attempt > 0) {
+                    throw new RuntimeException("Object " + bucketName + "/" + key + " keeps changing while it is read.");
+                }
+                continue;
+            }
+            cache.recordServed(servedBytes);
+            long last = Math.min(end, version.size - 1);
+            int offset = (int) (start - firstBlock * blockSize);
+            int length = (int) (last - start + 1);
+            byte[] content = new byte[offset + length];
+            int position = 0;
+            for (byte[] block : blocks) {
+                if (position == content.length) {
+                    break;
+                }
+                int n = Math.min(block.length, content.length - position);
+                System.arraycopy(block, 0, content, position, n);
+                position += n;
+            }
+            try {
+                consumer.consume(new ByteArrayInputStream(content, offset, length));
+            } catch (IOException e) {
+                throw new RuntimeException("Fail to read " + bucketName + "/" + key, e);
+            }
+            return new S3CompatObject(bucketName, key, version.eTag, length,
+                    String.format("bytes %d-%d/%d", start, last, version.size));
+        }
+        GetObjectRequest request = new GetObjectRequest(bucketName, key);
+        request.setRange(start, end);
+        return readObject(request, false /* wholeObject */, consumer);
+    }
+    /**
+     * Check that a cached object still has the version of its blocks with a HEAD conditional on its ETag, as another
+     * client may have overwritten it. The blocks of the old version are dropped if it changed.
+     * @return The current version of the object.
+     */
+    private BlockCache.ObjectVersion revalidate(BlockCache cache, String bucketName, String key, BlockCache.ObjectVersion cached) {
+        cache.recordRevalidation();
+        RemoteObjectMetadata metadata;
+        try {
+            metadata = headObject(bucketName, key, null /* versionId */, cached.eTag);
+        } catch (AmazonS3Exception e) {
+            cache.invalidate(bucketName, key);
+            throw e;
+        }
+        BlockCache.ObjectVersion current = metadata == null
+                ? cached : new BlockCache.ObjectVersion(metadata.getObjectETag(), metadata.getObjectContentLength());
+        cache.setObjectVersion(bucketName, key, current);
+        return current;
+    }
+    /**
+     * Fetch blocks [first, last] of the slice starting at block firstBlock with one ranged GET, and cache them.
+     * @return The version of the object the blocks belong to.
+     */
+    private BlockCache.ObjectVersion fetchBlocks(BlockCache cache, String bucketName, String key, long firstBlock,
+                                                 int first, int last, byte[][] blocks) {
+        int blockSize = cache.getBlockSize();
+        long rangeStart = (firstBlock + first) * blockSize;
+        GetObjectRequest request = new GetObjectRequest(bucketName, key);
+        request.setRange(rangeStart, (firstBlock + last + 1) * blockSize - 1);
+        byte[][] fetched = new byte[last - first + 1][];
+        S3CompatObject res = readObject(request, false /* wholeObject */, content -> {
+            for (int i = 0; i < fetched.length; i++) {
+                byte[] block = new byte[blockSize];
+                int n = IOUtils.read(content, block);
+                if (n == 0) {
+                    break;
+                }
+                fetched[i] = n == blockSize ? block : Arrays.copyOf(block, n);
+                if (n < blockSize) {
+                    break;
+                }
+            }
+        });
+        // Content-Range: bytes first-last/size
+        String contentRange = res.getContentRange();
+        if (contentRange == null) {
+            throw new RuntimeException("Ranged read of " + bucketName + "/" + key + " returned no Content-Range.");
+        }
+        long size = Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1).trim());
+        BlockCache.ObjectVersion version = new BlockCache.ObjectVersion(res.getETag(), size);
+        cache.setObjectVersion(bucketName, key, version);
+        for (int i = 0; i < fetched.length && fetched[i] != null; i++) {
+            cache.putBlock(bucketName, key, version.eTag, firstBlock + first + i, fetched[i]);
+            cache.recordFetched(fetched[i].length);
+            blocks[first + i] = fetched[i];
+        }
+        return version;
+    }
+    /**
+     * Coalesce concurrent {@link #getObject(String, String, Long, Long)} calls for the same bucket, key and range, and
+     * concurrent {@link #getObjectMetadata(String, String, String)} calls for the same bucket, key and version: one
+     * request is sent and its result or failure is shared by every caller waiting for it. A call arriving after a
+     * request is sent may see the state from before a write that completed in between.
+     * @param enabled Whether to coalesce identical calls, off by default.
+     */
+    public void setRequestCoalescing(boolean enabled) {
+        this.requestCoalescing = enabled;
+    }
+    /**
+     * Get the number of getObject and getObjectMetadata calls that shared a request in flight instead of sending one.
+     * @return The network calls saved.
+     */
+    public long getCoalescedRequests() {
+        return objectFlights.getCoalesced() + metadataFlights.getCoalesced();
+    }
+    /**
+     * Get the number of getObject and getObjectMetadata requests sent while coalescing.
+     * @return The network calls made.
+     */
+    public long getCoalescingLeaderRequests() {
+        return objectFlights.getExecuted() + metadataFlights.getExecuted();
+    }
+    /**
+     * Clear the coalescing counters.
+     */
+    public void resetCoalescingStats() {
+        objectFlights.resetStats();
+        metadataFlights.resetStats();
+    }
+    /**
+     * Serve ranged reads of {@link #readObject(String, String, String, Long, Long, ObjectContentConsumer)} from a
+     * block cache. Only reads of the current version with a start and an end, spanning less than 2GB, go through the
+     * cache; writes, copies and deletes through this client invalidate the cached blocks of their target, and writes
+     * by other clients are seen once the version of the object is revalidated after the TTL of the cache.
+     * @param cache The block cache, null to read from the endpoint again. The caller owns and closes it.
+     */
+    public void setBlockCache(@Nullable BlockCache cache) {
+        this.blockCache = cache;
+    }
+    /**
+     * Get the block cache serving ranged reads.
+     * @return The block cache, null if ranged reads are not cached.
+     */
+    public @Nullable BlockCache getBlockCache() {
+        return blockCache;
+    }
+    /**
+     * Drop what the caches hold about an object after a write or delete: its blocks, its current metadata, and the
+     * metadata of the version deleted if any.
+     */
+    private void invalidateCaches(String bucketName, String key, @Nullable String versionId) {
+        BlockCache cache = blockCache;
+        if (cache != null) {
+            cache.invalidate(bucketName, key);
+        }
+        MetadataCache metadata = metadataCache;
+        if (metadata != null) {
+            metadata.invalidate(bucketName, key, null /* versionId */);
+            if (versionId != null) {
+                metadata.invalidate(bucketName, key, versionId);
+            }
+        }
+    }
+    /**
+     * Serve {@link #getObjectMetadata(String, String, String)} from a metadata cache, revalidated with conditional
+     * HEADs once stale. Writes, copies and deletes through this client invalidate the cached metadata of their target.
+     * @param cache The metadata cache, null to always send a HEAD.
+     */
+    public void setMetadataCache(@Nullable MetadataCache cache) {
+        this.metadataCache = cache;
+    }
+    /**
+     * Get the metadata cache serving getObjectMetadata.
+     * @return The metadata cache, null if metadata is not cached.
+     */
+    public @Nullable MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
     @Override
     public RemoteObjectMetadata getObjectMetadata(String bucketName, String key, @Nullable String versionId) throws AmazonS3Exception{
+        MetadataCache cache = metadataCache;
+        if (cache != null) {
+            return cache.get(bucketName, key, versionId, eTag -> headObject(bucketName, key, versionId, eTag));
+        }
+        return headObject(bucketName, key, versionId, null /* ifNoneMatch */);
+    }
+    private @Nullable RemoteObjectMetadata headObject(String bucketName, String key, @Nullable String versionId, @Nullable String ifNoneMatch) {
+        if (requestCoalescing) {
+            return metadataFlights.execute(bucketName + "/" + key + "?versionId=" + versionId + "&ifNoneMatch=" + ifNoneMatch,
+                    () -> fetchObjectMetadata(bucketName, key, versionId, ifNoneMatch));
+        }
+        return fetchObjectMetadata(bucketName, key, versionId, ifNoneMatch);
+    }
+    /**
+     * Send a HEAD, conditional on an ETag if given.
+     * @return The metadata, null if the object still has the ETag given.
+     */
+    private @Nullable RemoteObjectMetadata fetchObjectMetadata(String bucketName, String key, @Nullable String versionId,
+                                                               @Nullable String ifNoneMatch) {
         GetObjectMetadataRequest objectMetadataRequest = new GetObjectMetadataRequest(bucketName, key);
         if (versionId != null ) {
             objectMetadataRequest.setVersionId(versionId);
         }
+        if (ifNoneMatch != null) {
+            // GetObjectMetadataRequest has no ETag constraints, the header is sent as is.
+            objectMetadataRequest.putCustomRequestHeader(Headers.GET_OBJECT_IF_NONE_MATCH,
+                    ifNoneMatch.startsWith("\"") ? ifNoneMatch : "\"" + ifNoneMatch + "\"");
+        }
         if (measurementPerformance && perfMeasurement != null) {
             perfMeasurement.startTiming(PerfMeasurement.FUNC_NAME.GET_OBJECT_METADATA);
         }
-        RemoteObjectMetadata res = RemoteObjectMetadata.fromS3ObjectMetadata(this.s3Client.getObjectMetadata(objectMetadataRequest));
+        RemoteObjectMetadata res;
+        try {
+            res = RemoteObjectMetadata.fromS3ObjectMetadata(this.s3Client.getObjectMetadata(objectMetadataRequest));
+        } catch (AmazonS3Exception ex) {
+            if (ifNoneMatch != null && ex.getStatusCode() == 304) {
+                return null;
+            }
+            throw ex;
+        }
         if (measurementPerformance && perfMeasurement != null) {
             perfMeasurement.recordElapsedTime(PerfMeasurement.FUNC_NAME.GET_OBJECT_METADATA);
         }
@@ -199,6 +650,16 @@ public class S3CompatStorageClient implements StorageClient {
     }
     @Override
     public PutObjectResult putObject(WriteObjectSpec writeObjectSpec) {
+        return putObject(writeObjectSpec, readAfterWriteVerification);
+    }
+    /**
+     * Write an object with its own read after write verification, without changing the policy of the client.
+     * The putObject timing covers the verification, except the asynchronous HEAD of {@link ReadAfterWriteVerification#ASYNC}.
+     * @param writeObjectSpec Spec for the object to write.
+     * @param verification When this put reads the object metadata back.
+     * @return result of put object.
+     */
+    public PutObjectResult putObject(WriteObjectSpec writeObjectSpec, ReadAfterWriteVerification verification) {
         ObjectMetadata meta = new ObjectMetadata();
         meta.setContentLength(writeObjectSpec.getContentLengthToWrite());
         if (writeObjectSpec.getAdditionalBlobMetadata() != null) {
@@ -208,8 +669,15 @@ public class S3CompatStorageClient implements StorageClient {
             writeObjectSpec.getAdditionalBlobMetadata().forEach((key, value) -> meta.getUserMetadata().put(key, value));
         }
         try {
+            Set<ChecksumAlgorithm> algorithms = checksumAlgorithms;
+            InputStream content = writeObjectSpec.getInputStream();
+            ChecksumInputStream checksumContent = null;
+            if (!algorithms.isEmpty()) {
+                checksumContent = new ChecksumInputStream(content, algorithms, checksumCost);
+                content = checksumContent;
+            }
             PutObjectRequest request =
-                    new PutObjectRequest(writeObjectSpec.getBucketName(), writeObjectSpec.getFilePath(), writeObjectSpec.getInputStream(), meta);
+                    new PutObjectRequest(writeObjectSpec.getBucketName(), writeObjectSpec.getFilePath(), content, meta);
             if (writeObjectSpec.getClientTimeoutInMs() != null && writeObjectSpec.getClientTimeoutInMs() > 0) {
                 request.setSdkClientExecutionTimeout(writeObjectSpec.getClientTimeoutInMs());
             }
@@ -217,18 +685,34 @@ public class S3CompatStorageClient implements StorageClient {
                 perfMeasurement.startTiming(PerfMeasurement.FUNC_NAME.PUT_OBJECT);
             }
             PutObjectResult putResult = this.s3Client.putObject(request);
-            if (measurementPerformance && perfMeasurement != null) {
-                perfMeasurement.recordElapsedTime(PerfMeasurement.FUNC_NAME.PUT_OBJECT);
-            }
-            RemoteObjectMetadata objectMetadata = getObjectMetadata(writeObjectSpec.getBucketName(), writeObjectSpec.getFilePath(), putResult.getVersionId());
+            invalidateCaches(writeObjectSpec.getBucketName(), writeObjectSpec.getFilePath(), null /* versionId */);
             if (putResult == null) {
                 throw new RuntimeException("Put Object result should not be null! ");
             }
-            if (putResult.getVersionId() != null && !putResult.getVersionId().equalsIgnoreCase(objectMetadata.getObjectVersionId())) {
-                throw new RuntimeException("Version id not match a read after write.");
-            } else {
-                logger.log(Level.INFO, "Put " + objectMetadata.getObjectContentLength() + " bytes to remote location " + writeObjectSpec.getBucketName() + "/" + writeObjectSpec.getFilePath());
+            if (checksumContent != null) {
+                verifyChecksums(checksumContent, putResult.getETag(), writeObjectSpec.getAdditionalBlobMetadata(),
+                        writeObjectSpec.getBucketName() + "/" + writeObjectSpec.getFilePath());
+            }
+            switch (verification) {
+                case ALWAYS:
+                    verifyReadAfterWrite(writeObjectSpec.getBucketName(), writeObjectSpec.getFilePath(), putResult);
+                    break;
+                case SAMPLED:
+                    if (ThreadLocalRandom.current().nextDouble() < verificationSampleRate) {
+                        verifyReadAfterWrite(writeObjectSpec.getBucketName(), writeObjectSpec.getFilePath(), putResult);
+                    }
+                    break;
+                case ASYNC:
+                    verifyReadAfterWriteAsync(writeObjectSpec.getBucketName(), writeObjectSpec.getFilePath(), putResult);
+                    break;
+                default:
+                    break;
+            }
+            // the verification is part of the cost of a put under its policy.
+            if (measurementPerformance && perfMeasurement != null) {
+                perfMeasurement.recordElapsedTime(PerfMeasurement.FUNC_NAME.PUT_OBJECT);
             }
+            logger.log(Level.INFO, "Put " + writeObjectSpec.getContentLengthToWrite() + " bytes to remote location " + writeObjectSpec.getBucketName() + "/" + writeObjectSpec.getFilePath());
             return putResult;
         } catch (AmazonS3Exception ex) {
             throw ex;
@@ -237,6 +721,101 @@ public class S3CompatStorageClient implements StorageClient {
         }
         throw new RuntimeException("Fail to putObject:" + writeObjectSpec.getFilePath());
     }
+    private void verifyReadAfterWrite(String bucketName, String key, PutObjectResult putResult) {
+        RemoteObjectMetadata objectMetadata = getObjectMetadata(bucketName, key, putResult.getVersionId());
+        if (putResult.getVersionId() != null && !putResult.getVersionId().equalsIgnoreCase(objectMetadata.getObjectVersionId())) {
+            throw new RuntimeException("Version id not match a read after write.");
+        }
+    }
+    private void verifyReadAfterWriteAsync(String bucketName, String key, PutObjectResult putResult) {
+        BoundedExecutor verifier;
+        synchronized (this) {
+            if (asyncVerifier == null) {
+                asyncVerifier = new BoundedExecutor("read-after-write", ASYNC_VERIFIER_THREADS, ASYNC_VERIFIER_MAX_IN_FLIGHT);
+            }
+            verifier = asyncVerifier;
+        }
+        verifier.submit(() -> {
+            try {
+                verifyReadAfterWrite(bucketName, key, putResult);
+            } catch (RuntimeException e) {
+                asyncVerificationFailures.add(new RuntimeException("Read after write failed for " + bucketName + "/" + key, e));
+            }
+        });
+    }
+    /**
+     * Set when {@link #putObject(WriteObjectSpec)} reads the object metadata back to verify the write.
+     * @param policy The verification policy, {@link ReadAfterWriteVerification#ALWAYS} by default.
+     * @param sampleRate Fraction of puts verified with {@link ReadAfterWriteVerification#SAMPLED}, between 0 and 1.
+     */
+    public void setReadAfterWriteVerification(ReadAfterWriteVerification policy, double sampleRate) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate should be between 0 and 1.");
+        }
+        this.verificationSampleRate = sampleRate;
+        this.readAfterWriteVerification = policy;
+    }
+    /**
+     * Get when puts read the object metadata back.
+     * @return The verification policy.
+     */
+    public ReadAfterWriteVerification getReadAfterWriteVerification() {
+        return readAfterWriteVerification;
+    }
+    /**
+     * Get the fraction of puts verified with {@link ReadAfterWriteVerification#SAMPLED}.
+     * @return The sample rate.
+     */
+    public double getVerificationSampleRate() {
+        return verificationSampleRate;
+    }
+    /**
+     * Wait for the pending asynchronous verifications, and take the failures not reported yet.
+     * @return Failures of asynchronous verifications, empty if all passed.
+     */
+    public List<RuntimeException> awaitAsyncVerifications() {
+        BoundedExecutor verifier;
+        synchronized (this) {
+            verifier = asyncVerifier;
+        }
+        if (verifier != null) {
+            verifier.awaitCompletion();
+        }
+        List<RuntimeException> failures = new ArrayList<>();
+        RuntimeException failure;
+        while ((failure = asyncVerificationFailures.poll()) != null) {
+            failures.add(failure);
+        }
+        return failures;
+    }
+    @Override
+    public CompleteMultipartUploadResult putObjectMultipart(String bucketName, String key, String fileName, long partSize, int parallelism) {
+        return putObjectMultipart(bucketName, key, fileName, partSize, parallelism, null);
+    }
+    /**
+     * Write a local file as a multipart upload, resuming the upload in progress in the checkpoint if any.
+     * @param bucketName The name of an existing bucket, to which the new object will be uploaded.
+     * @param key The key under which to store the new object.
+     * @param fileName The name of the file to upload, it must not be empty.
+     * @param partSize Size in bytes of each part of a new upload, at least 5MB.
+     * @param parallelism Number of parts uploaded in parallel.
+     * @param checkpoint Progress kept across runs, or null.
+     * @return result of completing the multipart upload.
+     */
+    public CompleteMultipartUploadResult putObjectMultipart(String bucketName, String key, String fileName, long partSize, int parallelism,
+                                                            @Nullable MultipartCheckpoint checkpoint) {
+        MultipartUploader uploader = new MultipartUploader(this.s3Client, partSize, parallelism);
+        if (measurementPerformance && perfMeasurement != null) {
+            perfMeasurement.startTiming(PerfMeasurement.FUNC_NAME.PUT_OBJECT_MULTIPART);
+        }
+        CompleteMultipartUploadResult result = uploader.upload(bucketName, key, new File(fileName), checkpoint);
+        invalidateCaches(bucketName, key, null /* versionId */);
+        if (measurementPerformance && perfMeasurement != null) {
+            perfMeasurement.recordElapsedTime(PerfMeasurement.FUNC_NAME.PUT_OBJECT_MULTIPART);
+        }
+        logger.log(Level.INFO, "Put " + fileName + " as multipart upload to remote location " + bucketName + "/" + key);
+        return result;
+    }
     public List<S3ObjectSummary> listObjectsV2(String bucketName, String prefix, @Nullable Integer maxKeys, PerfMeasurement.FUNC_NAME funcName) {
         if (!(funcName == PerfMeasurement.FUNC_NAME.LIST_OBJECTS_V2 || funcName == PerfMeasurement.FUNC_NAME.LIST_LARGE_NUM_OBJECTS)) {
             throw new IllegalArgumentException("Only LIST_OBJECT_V2 or LIST_LARGE_NUM_OBJECTS allowed, illegal param: " + funcName.name());
@@ -269,6 +848,29 @@ public class S3CompatStorageClient implements StorageClient {
     public List<S3ObjectSummary> listObjectsV2(String bucketName, String prefix, @Nullable Integer maxKeys) {
         return listObjectsV2(bucketName, prefix, maxKeys, PerfMeasurement.FUNC_NAME.LIST_OBJECTS_V2);
     }
+    /**
+     * List objects V2 page by page, handing each page to the consumer before requesting the next one.
+     * Unlike {@link #listObjectsV2(String, String, Integer)} the listing is never held in memory as a whole.
+     * @param bucketName Name of the bucket
+     * @param prefix A parameter restricting the response to keys beginning with the specified prefix.
+     * @param maxKeys The optional parameter indicating the maximum number of keys in each page.
+     * @param pageConsumer Consumer of each page of object summaries.
+     */
+    public void listObjectsV2Paged(String bucketName, String prefix, @Nullable Integer maxKeys, Consumer<List<S3ObjectSummary>> pageConsumer) {
+        ListObjectsV2Request listV2Req = new ListObjectsV2Request().withBucketName(bucketName).withPrefix(prefix);
+        if (maxKeys != null) {
+            listV2Req.withMaxKeys(maxKeys);
+        }
+        try {
+            ListObjectsV2Result listV2Res;
+            do {
+                listV2Res = this.s3Client.listObjectsV2(listV2Req);
+                pageConsumer.accept(fromV2ObjectListing(listV2Res, listV2Req));
+            } while (listV2Res.getNextContinuationToken() != null && listV2Res.isTruncated());
+        } catch (UnsupportedEncodingException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
     private @NotNull List<S3ObjectSummary> fromV2ObjectListing(@NotNull ListObjectsV2Result listRes,
                                                                @NotNull ListObjectsV2Request listReq)
             throws UnsupportedEncodingException {
@@ -359,6 +961,7 @@ public class S3CompatStorageClient implements StorageClient {
                 perfMeasurement.startTiming(PerfMeasurement.FUNC_NAME.DELETE_OBJECT);
             }
             this.s3Client.deleteObject(bucketName, fileKey);
+            invalidateCaches(bucketName, fileKey, null /* versionId */);
             if (measurementPerformance && perfMeasurement != null) {
                 perfMeasurement.recordElapsedTime(PerfMeasurement.FUNC_NAME.DELETE_OBJECT);
             }
@@ -372,6 +975,7 @@ public class S3CompatStorageClient implements StorageClient {
         try {
             for (S3ObjectSummary file: this.s3Client.listObjects(bucketName, prefixPath).getObjectSummaries()) {
                 this.s3Client.deleteObject(bucketName, file.getKey());
+                invalidateCaches(bucketName, file.getKey(), null /* versionId */);
                 numDeleted++;
             }
         } catch (AmazonS3Exception ex) {
@@ -395,6 +999,8 @@ public class S3CompatStorageClient implements StorageClient {
                 perfMeasurement.startTiming(PerfMeasurement.FUNC_NAME.DELETE_OBJECTS);
             }
             DeleteObjectsResult result = this.s3Client.deleteObjects(dor);
+            toDeleteList.forEach(objectSpec -> invalidateCaches(bucketName, objectSpec.toS3KeyVersion().getKey(),
+                    objectSpec.toS3KeyVersion().getVersion()));
             if (measurementPerformance && perfMeasurement != null) {
                 perfMeasurement.recordElapsedTime(PerfMeasurement.FUNC_NAME.DELETE_OBJECTS);
             }
@@ -416,6 +1022,7 @@ public class S3CompatStorageClient implements StorageClient {
                 perfMeasurement.startTiming(PerfMeasurement.FUNC_NAME.COPY_OBJECT);
             }
             this.s3Client.copyObject(cpReq);
+            invalidateCaches(dstBucket, destKey, null /* versionId */);
             if (measurementPerformance && perfMeasurement != null) {
                 perfMeasurement.recordElapsedTime(PerfMeasurement.FUNC_NAME.COPY_OBJECT);
             }
@@ -424,9 +1031,42 @@ public class S3CompatStorageClient implements StorageClient {
         }
     }
     @Override
+    public void copyObjectMultipart(String sourceBucket, String sourceKey, @Nullable String sourceFileVersionId, String dstBucket, String destKey,
+                                    long partSize, int parallelism) {
+        ExecutorService executor;
+        synchronized (this) {
+            if (partCopyExecutor == null) {
+                partCopyExecutor = Executors.newFixedThreadPool(maxConnections,
+                        new ThreadFactoryBuilder().setNameFormat("multipart-copy-%d").setDaemon(true).build());
+            }
+            executor = partCopyExecutor;
+        }
+        MultipartCopier copier = new MultipartCopier(this.s3Client, executor, partSize, parallelism);
+        if (measurementPerformance && perfMeasurement != null) {
+            perfMeasurement.startTiming(PerfMeasurement.FUNC_NAME.COPY_OBJECT_MULTIPART);
+        }
+        // Resolve the source version first, so all byte ranges are copied from the same version.
+        GetObjectMetadataRequest sourceMetadataRequest = new GetObjectMetadataRequest(sourceBucket, sourceKey, sourceFileVersionId);
+        ObjectMetadata sourceMetadata = this.s3Client.getObjectMetadata(sourceMetadataRequest);
+        if (sourceMetadata.getContentLength() == 0) {
+            // A multipart upload needs at least one non empty part.
+            copyObject(sourceBucket, sourceKey, sourceMetadata.getVersionId(), dstBucket, destKey);
+        } else {
+            copier.copy(sourceBucket, sourceKey, sourceMetadata, dstBucket, destKey);
+            invalidateCaches(dstBucket, destKey, null /* versionId */);
+        }
+        if (measurementPerformance && perfMeasurement != null) {
+            perfMeasurement.recordElapsedTime(PerfMeasurement.FUNC_NAME.COPY_OBJECT_MULTIPART);
+        }
+    }
+    @Override
     public void setRegion(@Nullable String region) {
          try {
              this.s3Client.setRegion(RegionUtils.getRegion(region));
+             synchronized (this) {
+                 this.region = region;
+                 this.batchPresigner = null;
+             }
          } catch (AmazonS3Exception ex) {
              throw ex;
          }
@@ -443,7 +1083,103 @@ public class S3CompatStorageClient implements StorageClient {
         }
         return pg.generate();
     }
+    /**
+     * Presign URLs for many objects at once, much faster than one {@link #generatePresignedUrl(String, String, int, String)}
+     * call per object.
+     * @param bucketName Bucket name of the objects.
+     * @param keys Keys of the objects.
+     * @param method The HTTP method the URLs are used with.
+     * @param lifetimeInSecs Time in seconds the URLs are valid, at most 7 days.
+     * @return The URLs, in the order of the keys.
+     */
+    public List<String> presignUrls(String bucketName, List<String> keys, HttpMethod method, int lifetimeInSecs) {
+        return getBatchPresigner().presign(bucketName, keys, method, lifetimeInSecs);
+    }
+    /**
+     * Get the presigner of {@link #presignUrls(String, List, HttpMethod, int)}, which signs with the credentials,
+     * region and endpoint of this client.
+     * @return The batch presigner.
+     */
+    public synchronized BatchPresigner getBatchPresigner() {
+        if (batchPresigner == null) {
+            if (credentialsProvider == null) {
+                throw new IllegalStateException("A client without credentials can not presign URLs.");
+            }
+            batchPresigner = new BatchPresigner(credentialsProvider, region != null ? region : DEFAULT_SIGNING_REGION, endpoint);
+        }
+        return batchPresigner;
+    }
+    /**
+     * Create an async client sending requests with the credentials, region and endpoint of this client.
+     * @param threads Number of threads handling responses.
+     * @return The async client, to close once done.
+     */
+    public AsyncS3CompatStorageClient createAsyncClient(int threads) {
+        return new AsyncS3CompatStorageClient(getBatchPresigner(), threads);
+    }
+
+    /**
+     * Shut down the connection pool of this client and the threads it started. Asynchronous verifications not done yet
+     * are abandoned, call {@link #awaitAsyncVerifications()} first to wait for them.
+     */
+    @Override
+    public void close() {
+        BoundedExecutor verifier;
+        synchronized (this) {
+            verifier = asyncVerifier;
+            if (readAheadExecutor != null) {
+                readAheadExecutor.shutdownNow();
+            }
+            if (partCopyExecutor != null) {
+                partCopyExecutor.shutdownNow();
+            }
+        }
+        if (verifier != null) {
+            verifier.close();
+        }
+        s3Client.shutdown();
+    }
 
+    /**
+     * Compute checksums while uploading with {@link #putObject(WriteObjectSpec)} and while reading whole objects with
+     * {@link #readObject(String, String, String, Long, Long, ObjectContentConsumer)}, and verify them against the
+     * ETag when it is a plain MD5, and against checksums stored in user metadata under
+     * {@link ChecksumAlgorithm#getMetadataKey()}. A mismatch fails the call.
+     * @param algorithms Checksums to compute, empty to turn verification off.
+     */
+    public void setChecksumVerification(Set<ChecksumAlgorithm> algorithms) {
+        this.checksumAlgorithms = algorithms.isEmpty() ? EnumSet.noneOf(ChecksumAlgorithm.class) : EnumSet.copyOf(algorithms);
+    }
+    /**
+     * Get the bytes digested and time spent computing checksums by this client.
+     * @return The checksum cost.
+     */
+    public ChecksumCost getChecksumCost() {
+        return checksumCost;
+    }
+    private static void verifyChecksums(ChecksumInputStream content, @Nullable String eTag, @Nullable Map<String, String> storedMetadata,
+                                        String location) {
+        for (ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+            if (!content.isComputed(algorithm)) {
+                continue;
+            }
+            String expected = null;
+            if (storedMetadata != null) {
+                expected = storedMetadata.get(algorithm.getMetadataKey());
+            }
+            if (expected == null && algorithm == ChecksumAlgorithm.MD5 && eTag != null && PLAIN_MD5_ETAG.matcher(eTag).matches()) {
+                expected = eTag.replace("\"", "");
+            }
+            if (expected == null) {
+                continue;
+            }
+            String actual = content.getChecksum(algorithm);
+            if (!algorithm.matches(expected, actual)) {
+                throw new RuntimeException(String.format("%s checksum mismatch for %s: expected %s, computed %s over %d bytes.",
+                        algorithm.getName(), location, expected, actual, content.getBytesRead()));
+            }
+        }
+    }
     public void setMeasurementPerformance(boolean measurementPerformance) {
         this.measurementPerformance = measurementPerformance;
     }
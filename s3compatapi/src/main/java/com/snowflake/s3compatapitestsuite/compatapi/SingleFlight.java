@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls with the same key: the first caller runs the call, callers arriving while it is in
+ * flight wait for it and share its result or its failure. Nothing is cached once the call completes.
+ * @param <K> Type of the keys identifying identical calls.
+ * @param <V> Type of the results.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Run a call, or wait for the identical call in flight.
+     * @param key Key identifying identical calls.
+     * @param call The call.
+     * @return The result of the call run by this caller or by the caller it joined.
+     */
+    public V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        executed.increment();
+        try {
+            V result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Get the number of calls run.
+     * @return The calls that went to the network.
+     */
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    /**
+     * Get the number of calls that joined an identical call in flight instead of running.
+     * @return The calls saved.
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Clear the counters.
+     */
+    public void resetStats() {
+        executed.reset();
+        coalesced.reset();
+    }
+}
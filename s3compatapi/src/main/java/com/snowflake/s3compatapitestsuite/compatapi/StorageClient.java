@@ -45,6 +45,16 @@ public interface StorageClient {
      * @return result of the writing operation.
      */
     PutObjectResult putObject(WriteObjectSpec writeObjectSpec);
+    /**
+     * Write a local file to a remote storage location as a multipart upload, uploading parts in parallel.
+     * @param bucketName The name of an existing bucket, to which the new object will be uploaded.
+     * @param key The key under which to store the new object.
+     * @param fileName The name of the file to upload, it must not be empty.
+     * @param partSize Size in bytes of each part, at least 5MB.
+     * @param parallelism Number of parts uploaded in parallel.
+     * @return result of completing the multipart upload.
+     */
+    CompleteMultipartUploadResult putObjectMultipart(String bucketName, String key, String fileName, long partSize, int parallelism);
     /**
      * List objects V2 by providing bucket name and prefix of the object.
      * @param bucketName Name of the bucket
@@ -93,6 +103,20 @@ public interface StorageClient {
      * @param destKey Name of the target of the copy.
      */
     void copyObject(String sourceBucket, String sourceKey, @Nullable String sourceFileVersionId, String dstBucket, String destKey);
+    /**
+     * Copy an object as a multipart upload, copying byte ranges of the source version in parallel.
+     * This is required for objects over 5GB, and faster than a single copy request for large objects.
+     * Like a single copy request, the target keeps the content headers and user metadata of the source.
+     * @param sourceBucket Bucket name of the source object of the copy.
+     * @param sourceKey Name of the source object of the copy.
+     * @param sourceFileVersionId Version id of the source object of the copy, the current version if null.
+     * @param dstBucket Bucket name of the target of the copy.
+     * @param destKey Name of the target of the copy.
+     * @param partSize Size in bytes of each part, at least 5MB.
+     * @param parallelism Number of parts of this copy in flight, on a pool shared by all the copies of the client.
+     */
+    void copyObjectMultipart(String sourceBucket, String sourceKey, @Nullable String sourceFileVersionId, String dstBucket, String destKey,
+                             long partSize, int parallelism);
     /**
      * Sets the region for this client's service calls.
      * @param region The region this client will communicate with.
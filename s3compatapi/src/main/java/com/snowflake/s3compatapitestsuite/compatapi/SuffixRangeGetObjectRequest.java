@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A GET of the last bytes of an object (Range: bytes=-N). GetObjectRequest only models ranges with a start,
+ * so the request carries a placeholder range, which keeps the SDK from validating the partial content against
+ * the MD5 of the whole object, and {@link InstrumentedAmazonS3Client} rewrites the Range header before signing.
+ */
+class SuffixRangeGetObjectRequest extends GetObjectRequest {
+    private static final long serialVersionUID = 1L;
+    private final long suffixLength;
+
+    SuffixRangeGetObjectRequest(String bucketName, String key, @Nullable String versionId, long suffixLength) {
+        super(bucketName, key, versionId);
+        this.suffixLength = suffixLength;
+        setRange(0);
+    }
+
+    long getSuffixLength() {
+        return suffixLength;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.distributed;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.snowflake.s3compatapitestsuite.workload.Scenario;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadResult;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadStats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates a scenario run by several worker processes, on one machine or many: it waits for the workers to connect,
+ * failing if they do not all connect in time, sends them the scenario, starts each phase on all of them at once when
+ * they are all ready, then merges the histograms they send back into one report. The merged throughput is computed
+ * over the longest window of the workers, as they start each phase together.
+ */
+public class DistributedCoordinator implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(DistributedCoordinator.class);
+    /** Time a run waits for all its workers to connect, longer than the workers keep trying to connect. */
+    private static final long DEFAULT_ACCEPT_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(5);
+
+    private final ServerSocket serverSocket;
+    private final int numOfWorkers;
+    private final long acceptTimeoutMs;
+
+    /**
+     * Constructor for a coordinator, listening as soon as it is created.
+     * @param port Port the workers connect to, 0 for any free port.
+     * @param numOfWorkers Number of workers the run waits for.
+     */
+    public DistributedCoordinator(int port, int numOfWorkers) {
+        this(port, numOfWorkers, DEFAULT_ACCEPT_TIMEOUT_MS);
+    }
+
+    /**
+     * Constructor for a coordinator, listening as soon as it is created.
+     * @param port Port the workers connect to, 0 for any free port.
+     * @param numOfWorkers Number of workers the run waits for.
+     * @param acceptTimeoutMs Time in ms a run waits for all the workers to connect before it fails.
+     */
+    public DistributedCoordinator(int port, int numOfWorkers, long acceptTimeoutMs) {
+        if (numOfWorkers <= 0 || acceptTimeoutMs <= 0) {
+            throw new IllegalArgumentException("The number of workers and the accept timeout should be > 0.");
+        }
+        this.numOfWorkers = numOfWorkers;
+        this.acceptTimeoutMs = acceptTimeoutMs;
+        try {
+            this.serverSocket = new ServerSocket(port);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to listen on port " + port, e);
+        }
+    }
+
+    /** Get the port the workers connect to. */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Run a scenario on the workers.
+     * @param scenarioJson Content of the scenario file, sent as it is to the workers.
+     * @param out Where to print the merged report.
+     * @return The merged result of each phase, by phase name, in the order the phases ran.
+     */
+    public Map<String, WorkloadResult> run(String scenarioJson, PrintStream out) {
+        Scenario scenario = Scenario.parse(scenarioJson);
+        List<MessageChannel> workers = new ArrayList<>();
+        try {
+            out.printf("Waiting for %d workers on port %d%n", numOfWorkers, getPort());
+            long deadline = System.currentTimeMillis() + acceptTimeoutMs;
+            while (workers.size() < numOfWorkers) {
+                MessageChannel worker = new MessageChannel(accept(deadline, workers.size()));
+                workers.add(worker);
+                JsonNode hello = worker.receive(MessageChannel.HELLO);
+                out.printf("worker %d: %s connected%n", workers.size() - 1, hello.path("name").asText());
+            }
+            for (int i = 0; i < workers.size(); i++) {
+                workers.get(i).send(MessageChannel.message(MessageChannel.ASSIGN)
+                        .put("workerId", i)
+                        .put("workers", numOfWorkers)
+                        .put("scenario", scenarioJson));
+            }
+            for (Scenario.Phase phase : scenario.getPhases()) {
+                for (MessageChannel worker : workers) {
+                    String ready = worker.receive(MessageChannel.READY).path("phase").asText();
+                    if (!phase.getName().equals(ready)) {
+                        throw new IllegalStateException("A worker is ready for phase " + ready + " instead of " + phase.getName());
+                    }
+                }
+                logger.info("Start phase {} on {} workers", phase.getName(), workers.size());
+                for (MessageChannel worker : workers) {
+                    worker.send(MessageChannel.message(MessageChannel.GO).put("phase", phase.getName()));
+                }
+            }
+            List<JsonNode> results = new ArrayList<>();
+            for (MessageChannel worker : workers) {
+                results.add(worker.receive(MessageChannel.RESULTS).get("phases"));
+            }
+            return report(scenario, results, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to accept the workers", e);
+        } finally {
+            for (MessageChannel worker : workers) {
+                try {
+                    worker.close();
+                } catch (IOException e) {
+                    logger.warn("Fail to close a worker connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Accept the next worker, failing once the deadline passes.
+     * @param deadline Time in ms, as of {@link System#currentTimeMillis()}, all the workers should be connected by.
+     * @param connected Number of workers connected so far.
+     */
+    private Socket accept(long deadline, int connected) throws IOException {
+        long remainingMs = deadline - System.currentTimeMillis();
+        try {
+            if (remainingMs <= 0) {
+                throw new SocketTimeoutException();
+            }
+            serverSocket.setSoTimeout((int) Math.min(remainingMs, Integer.MAX_VALUE));
+            return serverSocket.accept();
+        } catch (SocketTimeoutException e) {
+            throw new IllegalStateException(String.format("Only %d of %d workers connected to port %d within %d sec.",
+                    connected, numOfWorkers, getPort(), TimeUnit.MILLISECONDS.toSeconds(acceptTimeoutMs)), e);
+        }
+    }
+
+    private Map<String, WorkloadResult> report(Scenario scenario, List<JsonNode> results, PrintStream out) {
+        out.println(WorkloadStats.HEADER);
+        Map<String, WorkloadResult> merged = new LinkedHashMap<>();
+        for (Scenario.Phase phase : scenario.getPhases()) {
+            List<WorkloadResult> phaseResults = new ArrayList<>();
+            for (JsonNode workerResults : results) {
+                phaseResults.add(MessageChannel.decodeResult(workerResults.get(phase.getName())));
+            }
+            WorkloadResult result = merge(phaseResults);
+            result.print(out, phase.getName());
+            for (int i = 0; i < phaseResults.size(); i++) {
+                WorkloadStats steady = phaseResults.get(i).getSteady();
+                out.printf("%s: worker %d %.1f ops/sec, %d failures%n", phase.getName(), i, steady.getOpsPerSec(), steady.getFailures());
+            }
+            merged.put(phase.getName(), result);
+        }
+        return merged;
+    }
+
+    /**
+     * Merge the results of the workers for a phase: every call of every worker, over the longest window.
+     */
+    static WorkloadResult merge(List<WorkloadResult> results) {
+        WorkloadStats warmup = new WorkloadStats(0);
+        WorkloadStats steady = new WorkloadStats(0);
+        double warmupMs = 0;
+        double steadyMs = 0;
+        for (WorkloadResult result : results) {
+            warmup.merge(result.getWarmup());
+            steady.merge(result.getSteady());
+            warmupMs = Math.max(warmupMs, result.getWarmup().getElapsedMs());
+            steadyMs = Math.max(steadyMs, result.getSteady().getElapsedMs());
+        }
+        return new WorkloadResult(warmup.finish(Math.round(warmupMs * 1_000_000)), steady.finish(Math.round(steadyMs * 1_000_000)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.distributed;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.snowflake.s3compatapitestsuite.workload.Scenario;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadResult;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A worker of a distributed run: it connects to the coordinator, receives its id and the scenario, runs the scenario
+ * starting each phase when the coordinator says all workers are ready, and sends back the statistics of each phase.
+ */
+public class DistributedWorker {
+    private static final Logger logger = LogManager.getLogger(DistributedWorker.class);
+    /** Time a worker keeps trying to connect, so workers may start before the coordinator. */
+    private static final long CONNECT_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+    private static final long CONNECT_RETRY_MS = 500;
+
+    /**
+     * Runs the scenario of a worker.
+     */
+    public interface ScenarioExecutor {
+        /**
+         * Run the scenario.
+         * @param scenario The scenario.
+         * @param workerId Id of this worker, from 0, to write under a prefix no other worker writes to.
+         * @param beforePhase To call just before each phase starts, it returns when all workers are ready.
+         * @return The result of each phase, by phase name.
+         */
+        Map<String, WorkloadResult> run(Scenario scenario, int workerId, Consumer<Scenario.Phase> beforePhase);
+    }
+
+    private final String host;
+    private final int port;
+
+    /**
+     * Constructor for a worker.
+     * @param coordinator host:port of the coordinator.
+     */
+    public DistributedWorker(String coordinator) {
+        int separator = coordinator.lastIndexOf(':');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("The coordinator " + coordinator + " should be host:port.");
+        }
+        this.host = coordinator.substring(0, separator);
+        this.port = Integer.parseInt(coordinator.substring(separator + 1));
+    }
+
+    /**
+     * Run the part of this worker of a distributed run.
+     * @param executor Runs the scenario.
+     */
+    public void run(ScenarioExecutor executor) {
+        try (MessageChannel coordinator = new MessageChannel(connect())) {
+            coordinator.send(MessageChannel.message(MessageChannel.HELLO)
+                    .put("name", ProcessHandle.current().pid() + "@" + InetAddress.getLocalHost().getHostName()));
+            JsonNode assign = coordinator.receive(MessageChannel.ASSIGN);
+            int workerId = assign.get("workerId").asInt();
+            logger.info("Run as worker {} of {}", workerId, assign.get("workers").asInt());
+            Map<String, WorkloadResult> results;
+            try {
+                results = executor.run(Scenario.parse(assign.get("scenario").asText()), workerId, phase -> {
+                    coordinator.send(MessageChannel.message(MessageChannel.READY).put("phase", phase.getName()));
+                    coordinator.receive(MessageChannel.GO);
+                });
+            } catch (RuntimeException e) {
+                coordinator.send(MessageChannel.message(MessageChannel.ERROR).put("message", String.valueOf(e)));
+                throw e;
+            }
+            ObjectNode message = MessageChannel.message(MessageChannel.RESULTS);
+            ObjectNode phases = message.putObject("phases");
+            results.forEach((phase, result) -> phases.set(phase, MessageChannel.encode(result)));
+            coordinator.send(message);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to run as a worker of " + host + ":" + port, e);
+        }
+    }
+
+    private Socket connect() throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        while (true) {
+            try {
+                return new Socket(host, port);
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(CONNECT_RETRY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while connecting to " + host + ":" + port, ie);
+                }
+            }
+        }
+    }
+}
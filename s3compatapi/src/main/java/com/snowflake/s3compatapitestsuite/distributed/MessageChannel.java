@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.distributed;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.snowflake.s3compatapitestsuite.perf.LatencyHistogram;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadOp;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadResult;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadStats;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Messages between the coordinator and a worker of a distributed run, one JSON object per line with a "type" field.
+ * Statistics travel as the bucket counts of their histograms, so the coordinator merges them without any loss.
+ */
+class MessageChannel implements Closeable {
+    static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Sent by a worker when it connects. */
+    static final String HELLO = "hello";
+    /** Sent by the coordinator to a worker: its id, the number of workers and the scenario. */
+    static final String ASSIGN = "assign";
+    /** Sent by a worker when it is ready to start a phase. */
+    static final String READY = "ready";
+    /** Sent by the coordinator to all workers once they are all ready to start a phase. */
+    static final String GO = "go";
+    /** Sent by a worker after its last phase: the results of all its phases. */
+    static final String RESULTS = "results";
+    /** Sent by a worker that fails, with the message of the failure. */
+    static final String ERROR = "error";
+
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final Writer writer;
+    private final String peer;
+
+    MessageChannel(Socket socket) throws IOException {
+        this.socket = socket;
+        this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        this.peer = String.valueOf(socket.getRemoteSocketAddress());
+    }
+
+    /** Create a message of a type. */
+    static ObjectNode message(String type) {
+        return MAPPER.createObjectNode().put("type", type);
+    }
+
+    void send(ObjectNode message) {
+        try {
+            writer.write(MAPPER.writeValueAsString(message));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to send " + message.path("type").asText() + " to " + peer, e);
+        }
+    }
+
+    /**
+     * Wait for the next message, which should be of a type.
+     * @param type The expected type.
+     * @return The message.
+     */
+    JsonNode receive(String type) {
+        JsonNode message;
+        try {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IllegalStateException(peer + " closed the connection while " + type + " was expected.");
+            }
+            message = MAPPER.readTree(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to receive " + type + " from " + peer, e);
+        }
+        String received = message.path("type").asText();
+        if (ERROR.equals(received)) {
+            throw new IllegalStateException(peer + " failed: " + message.path("message").asText());
+        }
+        if (!type.equals(received)) {
+            throw new IllegalStateException("Expected " + type + " from " + peer + ", received " + received + ".");
+        }
+        return message;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    static ObjectNode encode(WorkloadResult result) {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.set("warmup", encode(result.getWarmup()));
+        node.set("steady", encode(result.getSteady()));
+        return node;
+    }
+
+    static WorkloadResult decodeResult(JsonNode node) {
+        return new WorkloadResult(decodeStats(node.get("warmup")), decodeStats(node.get("steady")));
+    }
+
+    private static ObjectNode encode(WorkloadStats stats) {
+        ObjectNode node = MAPPER.createObjectNode().put("elapsedMs", stats.getElapsedMs());
+        ObjectNode ops = node.putObject("ops");
+        for (WorkloadOp op : WorkloadOp.values()) {
+            LatencyHistogram latency = stats.getLatency(op);
+            if (latency.getCount() == 0 && stats.getFailures(op) == 0) {
+                continue;
+            }
+            ObjectNode opNode = ops.putObject(op.getName());
+            ArrayNode buckets = opNode.putArray("buckets");
+            for (long value : latency.getBucketCounts()) {
+                buckets.add(value);
+            }
+            opNode.put("sum", latency.getSum())
+                    .put("min", latency.getMin())
+                    .put("max", latency.getMax())
+                    .put("failures", stats.getFailures(op))
+                    .put("bytes", stats.getBytes(op));
+        }
+        return node;
+    }
+
+    private static WorkloadStats decodeStats(JsonNode node) {
+        WorkloadStats stats = new WorkloadStats(0);
+        node.get("ops").fields().forEachRemaining(entry -> {
+            WorkloadOp op = WorkloadOp.lookupByName(entry.getKey());
+            if (op == null) {
+                throw new IllegalStateException("Unknown operation " + entry.getKey());
+            }
+            JsonNode opNode = entry.getValue();
+            long[] buckets = new long[opNode.get("buckets").size()];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = opNode.get("buckets").get(i).asLong();
+            }
+            stats.add(op, LatencyHistogram.fromBucketCounts(buckets, opNode.get("sum").asLong(), opNode.get("min").asLong(),
+                    opNode.get("max").asLong()), opNode.get("failures").asLong(), opNode.get("bytes").asLong());
+        });
+        return stats.finish(Math.round(node.get("elapsedMs").asDouble() * 1_000_000));
+    }
+}
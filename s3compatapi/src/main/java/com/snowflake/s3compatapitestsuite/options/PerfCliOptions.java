@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.options;
+
+import com.google.common.base.Strings;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+
+import java.util.Arrays;
+
+/**
+ * A class wrapping the command line arguments of the performance stats app.
+ */
+public class PerfCliOptions {
+    /* The parsed command line. */
+    private final CommandLine cml;
+
+    /**
+     * Parse the command line arguments.
+     * @param args Execution arguments passed from the CLI.
+     */
+    public PerfCliOptions(String[] args) {
+        Options options = new Options();
+        Arrays.stream(PERF_OPTIONS.values()).forEach(e -> options.addOption(e.getOption()));
+        this.cml = new CliParser(options).parse(args);
+    }
+
+    /**
+     * Whether an option is provided.
+     * @param option The option.
+     * @return true if the option is provided.
+     */
+    public boolean hasOption(PERF_OPTIONS option) {
+        return cml != null && cml.hasOption(option.getOption());
+    }
+
+    /**
+     * Get the value for an option.
+     * @param option The option.
+     * @return The value for the option, null if not provided.
+     */
+    public String getValue(PERF_OPTIONS option) {
+        if (!hasOption(option)) {
+            return null;
+        }
+        return cml.getOptionValue(option.getOption());
+    }
+
+    /**
+     * Get the int value for an option.
+     * @param option The option.
+     * @param defaultValue The value returned if the option is not provided.
+     * @return The int value for the option.
+     */
+    public int getInt(PERF_OPTIONS option, int defaultValue) {
+        String value = getValue(option);
+        return Strings.isNullOrEmpty(value) ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Get the long value for an option.
+     * @param option The option.
+     * @param defaultValue The value returned if the option is not provided.
+     * @return The long value for the option.
+     */
+    public long getLong(PERF_OPTIONS option, long defaultValue) {
+        String value = getValue(option);
+        return Strings.isNullOrEmpty(value) ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * Get the double value for an option.
+     * @param option The option.
+     * @param defaultValue The value returned if the option is not provided.
+     * @return The double value for the option.
+     */
+    public double getDouble(PERF_OPTIONS option, double defaultValue) {
+        String value = getValue(option);
+        return Strings.isNullOrEmpty(value) ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    /**
+     * Get the comma separated long values for an option.
+     * @param option The option.
+     * @param defaultValue The value used if the option is not provided.
+     * @return The long values for the option.
+     */
+    public long[] getLongs(PERF_OPTIONS option, String defaultValue) {
+        String value = getValue(option);
+        if (Strings.isNullOrEmpty(value)) {
+            value = defaultValue;
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).mapToLong(Long::parseLong).toArray();
+    }
+
+    /**
+     * Enum for the options of the performance stats app.
+     */
+    public enum PERF_OPTIONS {
+        APIS(new Option("a", "APIs", true, "A list of APIs for measure performance")),
+        TIMES(new Option("t", "times", true, "How many times to run each API")),
+        CONCURRENCY(longOption("concurrency", "Number of concurrent workers for the APIs supporting concurrency")),
+        LISTING_FIXTURE_KEYS(longOption("listingFixtureKeys", "Build or reuse a fixture with this many objects for listLargeNumObjects")),
+        FIXTURE_KEY_DISTRIBUTION(longOption("fixtureKeyDistribution", "Key naming of the listing fixture: sequential, hashed or nested")),
+        FIXTURE_OBJECT_SIZE(longOption("fixtureObjectSize", "Size in bytes of each object in the listing fixture")),
+        LARGE_OBJECT_SIZES_MB(longOption("largeObjectSizesMB", "Comma separated object sizes in MB for copyObjectMultipart and putObjectMultipart")),
+        PART_SIZE_MB(longOption("partSizeMB", "Part size in MB for multipart operations")),
+        MULTIPART_THRESHOLD_MB(longOption("multipartThresholdMB", "Objects of this size in MB or larger use multipart operations in bulk transfers")),
+        OBJECT_SIZE(longOption("objectSize", "Size in bytes of each object created for bulk transfer measurements")),
+        LOCAL_DIR(longOption("localDir", "Local directory to upload with bulkUpload or download into with bulkDownload, a temporary one is used if not provided")),
+        SOURCE_PREFIX(longOption("sourcePrefix", "Existing prefix to download with bulkDownload, a generated dataset is used if not provided")),
+        CHECKPOINT(longOption("checkpoint", "Journal file of bulkUpload and bulkDownload, a rerun with the same journal resumes the transfer")),
+        VERIFICATION(longOption("verification", "Read after write verification of putObject: always, sampled, async or off")),
+        VERIFICATION_SAMPLE_RATE(longOption("verificationSampleRate", "Fraction of puts verified with --verification sampled, between 0 and 1")),
+        PROBE_INTERVAL_MS(longOption("probeIntervalMs", "Pause in ms between two polls of consistencyProbe")),
+        PROBE_WRITERS(longOption("probeWriters", "Number of threads writing other objects while consistencyProbe runs")),
+        FOOTER_KB(longOption("footerKB", "Size in KB of the suffix range read first by tailRangeRead")),
+        RANGE_READS(longOption("rangeReads", "Number of random ranges read after the footer by tailRangeRead")),
+        RANGE_KB(longOption("rangeKB", "Size in KB of each random range read by tailRangeRead and blockCacheRead")),
+        BLOCK_CACHE_MB(longOption("blockCacheMB", "Capacity in MB of the block cache of blockCacheRead")),
+        BLOCK_SIZE_KB(longOption("blockSizeKB", "Size in KB of each block of the block cache")),
+        BLOCK_CACHE_TTL_MS(longOption("blockCacheTtlMs", "Time in ms cached blocks are served before their object is revalidated with a conditional HEAD")),
+        BLOCK_CACHE_STORE(longOption("blockCacheStore", "Where the block cache holds its blocks: offheap or disk")),
+        ZIPF_EXPONENT(longOption("zipfExponent", "Skew of the objects and ranges read by blockCacheRead, 0 for uniform reads")),
+        CONCURRENCY_LEVELS(longOption("concurrencyLevels", "Comma separated numbers of requests in flight swept by bulkHead and executionModes")),
+        READ_AHEAD_WINDOW(longOption("readAheadWindow", "Max number of chunks of --partSizeMB in flight ahead of the reader of readAhead")),
+        EXECUTION_MODE(longOption("executionMode", "Threads running the concurrent workers: platform, or virtual on Java 21+")),
+        MIX(longOption("mix", "Weighted operations of mixedWorkload, like get=60,head=25,list=10,put=5")),
+        SCENARIO(longOption("scenario", "A JSON scenario file whose phases run instead of the APIs of -a")),
+        DURATION(longOption("duration", "Seconds each API of -a runs for, instead of -t times")),
+        WARMUP(longOption("warmup", "Seconds each API runs before --duration, reported apart from the steady window")),
+        SATURATE(longOption("saturate", "Search the max sustainable throughput of each API of -a by stepping up its concurrency or rate")),
+        SLO_P99_MS(longOption("sloP99Ms", "p99 latency in ms above which a step of --saturate is not sustained")),
+        MAX_ERROR_RATE(longOption("maxErrorRate", "Share of failed operations above which a step of --saturate is not sustained")),
+        TRACE(longOption("trace", "A .jsonl or .csv trace of requests replayed instead of the APIs of -a")),
+        SPEEDUP(longOption("speedup", "Factor the inter-arrival times of --trace are divided by, 1 for the original timing, 0 for max speed")),
+        COORDINATOR(longOption("coordinator", "Port to coordinate a distributed run of --scenario on, waiting for --workers workers")),
+        WORKERS(longOption("workers", "Number of worker processes of the distributed run of --coordinator")),
+        WORKER(longOption("worker", "host:port of the coordinator to run a distributed scenario for"));
+
+        private final Option op;
+        PERF_OPTIONS(Option op) {
+            this.op = op;
+        }
+        /* Get the option name. */
+        public String getOptionName() {
+            return this.op.getOpt() != null ? this.op.getOpt() : this.op.getLongOpt();
+        }
+        /* Get the option for the enum. */
+        public Option getOption() {
+            return this.op;
+        }
+        private static Option longOption(String name, String description) {
+            return Option.builder().longOpt(name).hasArg().desc(description).build();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.snowflake.s3compatapitestsuite.compatapi.ReadAfterWriteVerification;
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.compatapi.WriteObjectSpec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how long a write takes to become visible. Each round creates, overwrites and deletes an object,
+ * and after each acknowledged write GET, HEAD and listObjectsV2 poll the object from separate threads until
+ * they observe the new state. The lag of a method is the time from the acknowledgement to the first poll
+ * that observed the new state, so a strongly consistent store shows a lag of about 0 and no stale reads.
+ * Background writers can put load on the same prefix while probing.
+ */
+public class ConsistencyProbe {
+    private static final Logger logger = LogManager.getLogger(ConsistencyProbe.class);
+
+    private final S3CompatStorageClient client;
+    private final String bucketName;
+    private final String prefix;
+    /** Pause between two polls of the same method. */
+    private long pollIntervalMs = 5;
+    /** Polling gives up after this long, the write is counted as timed out. */
+    private long timeoutMs = 60_000;
+    /** Number of threads writing other objects while probing. */
+    private int backgroundWriters = 0;
+    /** Size in bytes of the probe and background objects. */
+    private int objectSize = 1024;
+
+    private final Map<WriteType, Map<ReadMethod, LatencyHistogram>> lags = new EnumMap<>(WriteType.class);
+    private final Map<WriteType, Map<ReadMethod, LongAdder>> staleReads = new EnumMap<>(WriteType.class);
+    private final Map<WriteType, Map<ReadMethod, LongAdder>> timeouts = new EnumMap<>(WriteType.class);
+    private final LongAdder backgroundWrites = new LongAdder();
+
+    /**
+     * Constructor for a consistency probe.
+     * @param client The client to issue requests with, its connection pool should fit the pollers and writers.
+     * @param bucketName Bucket name of the probed objects.
+     * @param prefix Prefix of the probed objects.
+     */
+    public ConsistencyProbe(S3CompatStorageClient client, String bucketName, String prefix) {
+        this.client = client;
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        for (WriteType writeType : WriteType.values()) {
+            lags.put(writeType, new EnumMap<>(ReadMethod.class));
+            staleReads.put(writeType, new EnumMap<>(ReadMethod.class));
+            timeouts.put(writeType, new EnumMap<>(ReadMethod.class));
+            for (ReadMethod method : ReadMethod.values()) {
+                lags.get(writeType).put(method, new LatencyHistogram());
+                staleReads.get(writeType).put(method, new LongAdder());
+                timeouts.get(writeType).put(method, new LongAdder());
+            }
+        }
+    }
+
+    /**
+     * Probe with a poll interval.
+     * @param pollIntervalMs Pause in ms between two polls of the same method, 0 to poll back to back.
+     * @return The consistency probe.
+     */
+    public ConsistencyProbe withPollIntervalMs(long pollIntervalMs) {
+        this.pollIntervalMs = pollIntervalMs;
+        return this;
+    }
+    /**
+     * Probe with a timeout.
+     * @param timeoutMs Polling of a write gives up after this long.
+     * @return The consistency probe.
+     */
+    public ConsistencyProbe withTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        return this;
+    }
+    /**
+     * Probe under concurrent write load.
+     * @param backgroundWriters Number of threads putting other objects under the prefix while probing.
+     * @return The consistency probe.
+     */
+    public ConsistencyProbe withBackgroundWriters(int backgroundWriters) {
+        this.backgroundWriters = backgroundWriters;
+        return this;
+    }
+    /**
+     * Probe with an object size.
+     * @param objectSize Size in bytes of the probe and background objects.
+     * @return The consistency probe.
+     */
+    public ConsistencyProbe withObjectSize(int objectSize) {
+        this.objectSize = objectSize;
+        return this;
+    }
+
+    /**
+     * Run rounds of create, overwrite and delete, each write polled by every read method.
+     * Puts are not verified by the client while probing, the probe is the verification.
+     * @param rounds Number of rounds.
+     */
+    public void run(int rounds) {
+        ExecutorService pollers = Executors.newFixedThreadPool(ReadMethod.values().length,
+                new ThreadFactoryBuilder().setNameFormat("consistency-poller-%d").setDaemon(true).build());
+        ExecutorService writers = backgroundWriters > 0 ? Executors.newFixedThreadPool(backgroundWriters,
+                new ThreadFactoryBuilder().setNameFormat("consistency-writer-%d").setDaemon(true).build()) : null;
+        AtomicBoolean stopWriters = new AtomicBoolean(false);
+        try {
+            for (int i = 0; i < backgroundWriters; i++) {
+                final int writer = i;
+                writers.execute(() -> writeInBackground(writer, stopWriters));
+            }
+            for (int round = 0; round < rounds; round++) {
+                // fixed width, so listing the key as a prefix matches no other probe key.
+                String key = String.format("%s/probe-%08d", prefix, round);
+                PutObjectResult created = put(key);
+                probe(pollers, WriteType.CREATE, key, System.nanoTime(), normalize(created.getETag()));
+                PutObjectResult overwritten = put(key);
+                probe(pollers, WriteType.OVERWRITE, key, System.nanoTime(), normalize(overwritten.getETag()));
+                client.deleteObject(bucketName, key);
+                probe(pollers, WriteType.DELETE, key, System.nanoTime(), null);
+            }
+        } finally {
+            stopWriters.set(true);
+            pollers.shutdownNow();
+            if (writers != null) {
+                writers.shutdown();
+                try {
+                    writers.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the lags of a write type observed by a read method.
+     * @param writeType The write type.
+     * @param method The read method.
+     * @return The histogram of lags in microseconds.
+     */
+    public LatencyHistogram getLag(WriteType writeType, ReadMethod method) {
+        return lags.get(writeType).get(method);
+    }
+
+    /**
+     * Print the lag distributions and the stale reads, one line per write type and read method.
+     */
+    public void printReport() {
+        System.out.println("write, read, writes, stale reads, timeouts, p50 lag ms, p99 lag ms, max lag ms");
+        for (WriteType writeType : WriteType.values()) {
+            for (ReadMethod method : ReadMethod.values()) {
+                LatencyHistogram lag = getLag(writeType, method);
+                System.out.printf("%s, %s, %d, %d, %d, %.2f, %.2f, %.2f%n", writeType.getName(), method.getName(),
+                        lag.getCount(), staleReads.get(writeType).get(method).sum(), timeouts.get(writeType).get(method).sum(),
+                        lag.getPercentile(50) / 1000.0, lag.getPercentile(99) / 1000.0, lag.getMax() / 1000.0);
+            }
+        }
+        if (backgroundWriters > 0) {
+            System.out.printf("background writers: %d, background writes: %d%n", backgroundWriters, backgroundWrites.sum());
+        }
+    }
+
+    private void probe(ExecutorService pollers, WriteType writeType, String key, long ackNanos, @Nullable String expectedETag) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (ReadMethod method : ReadMethod.values()) {
+            futures.add(pollers.submit(() -> {
+                start.await();
+                poll(writeType, method, key, ackNanos, expectedETag);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Fail to poll " + bucketName + "/" + key, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while polling " + bucketName + "/" + key);
+            }
+        }
+    }
+
+    private void poll(WriteType writeType, ReadMethod method, String key, long ackNanos, @Nullable String expectedETag)
+            throws InterruptedException {
+        long deadline = ackNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            long issued = System.nanoTime();
+            String observed = read(method, key);
+            boolean visible = expectedETag == null ? observed == null : expectedETag.equals(observed);
+            if (visible) {
+                lags.get(writeType).get(method).record(TimeUnit.NANOSECONDS.toMicros(Math.max(0, issued - ackNanos)));
+                return;
+            }
+            staleReads.get(writeType).get(method).increment();
+            if (System.nanoTime() > deadline) {
+                timeouts.get(writeType).get(method).increment();
+                logger.warn(writeType.getName() + " of " + bucketName + "/" + key + " not visible to " + method.getName()
+                        + " after " + timeoutMs + " ms.");
+                return;
+            }
+            if (pollIntervalMs > 0) {
+                Thread.sleep(pollIntervalMs);
+            }
+        }
+    }
+
+    /**
+     * Read the ETag of an object with a read method.
+     * @return The normalized ETag, or null if the object is not found.
+     */
+    private @Nullable String read(ReadMethod method, String key) {
+        try {
+            switch (method) {
+                case GET:
+                    return normalize(client.getObject(bucketName, key).getETag());
+                case HEAD:
+                    return normalize(client.getObjectMetadata(bucketName, key, null /* versionId */).getObjectETag());
+                case LIST:
+                    for (S3ObjectSummary summary : client.listObjectsV2(bucketName, key, 1 /* maxKeys */)) {
+                        if (summary.getKey().equals(key)) {
+                            return normalize(summary.getETag());
+                        }
+                    }
+                    return null;
+                default:
+                    throw new IllegalArgumentException("Not supported read method " + method);
+            }
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private PutObjectResult put(String key) {
+        byte[] content = new byte[objectSize];
+        // random content, so an overwrite has a new ETag.
+        ThreadLocalRandom.current().nextBytes(content);
+        try {
+            return client.putObject(new WriteObjectSpec(bucketName, key, () -> new ByteArrayInputStream(content),
+                    content.length, null /* clientTimeoutInMs */, null /* additionalBlobMetadata */), ReadAfterWriteVerification.OFF);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void writeInBackground(int writer, AtomicBoolean stop) {
+        long i = 0;
+        while (!stop.get()) {
+            try {
+                put(prefix + "/load_" + writer + "_" + (i++ % 100));
+                backgroundWrites.increment();
+            } catch (RuntimeException e) {
+                logger.warn("Background write failed: " + e);
+            }
+        }
+    }
+
+    private static @Nullable String normalize(@Nullable String eTag) {
+        return eTag == null ? null : eTag.replace("\"", "").toLowerCase();
+    }
+
+    /**
+     * Writes whose visibility is probed.
+     */
+    public enum WriteType {
+        CREATE("create"),
+        OVERWRITE("overwrite"),
+        DELETE("delete");
+
+        private final String name;
+
+        WriteType(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Reads polling for a write.
+     */
+    public enum ReadMethod {
+        GET("getObject"),
+        HEAD("getObjectMetadata"),
+        LIST("listObjectsV2");
+
+        private final String name;
+
+        ReadMethod(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
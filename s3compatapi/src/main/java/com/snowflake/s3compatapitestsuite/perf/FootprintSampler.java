@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the memory footprint of the JVM on a background thread and keeps the peaks: the heap used, and the resident
+ * set size of the process, which also counts the native stacks of platform threads the heap does not show.
+ */
+public class FootprintSampler implements AutoCloseable {
+    /** Status file of the process on Linux, with its resident set size. */
+    private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+
+    private final MemoryMXBean memoryMXBean = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService sampler;
+    private volatile long peakHeapUsed = 0;
+    private volatile long peakRss = -1;
+
+    /**
+     * Start sampling.
+     * @param intervalMs Time in ms between two samples.
+     */
+    public FootprintSampler(long intervalMs) {
+        sampler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("footprint-sampler-%d").setDaemon(true).build());
+        sampler.scheduleAtFixedRate(this::sample, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Get the peak heap used in bytes. */
+    public long getPeakHeapUsed() {
+        return peakHeapUsed;
+    }
+
+    /** Get the peak resident set size in bytes, -1 where the OS does not expose it. */
+    public long getPeakRss() {
+        return peakRss;
+    }
+
+    /**
+     * Stop sampling, after a last sample.
+     */
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+        sample();
+    }
+
+    private synchronized void sample() {
+        peakHeapUsed = Math.max(peakHeapUsed, memoryMXBean.getHeapMemoryUsage().getUsed());
+        peakRss = Math.max(peakRss, readRss());
+    }
+
+    private static long readRss() {
+        if (!Files.isReadable(PROC_STATUS)) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(PROC_STATUS)) {
+                if (line.startsWith("VmRSS:")) {
+                    // like "VmRSS:	  123456 kB"
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+}
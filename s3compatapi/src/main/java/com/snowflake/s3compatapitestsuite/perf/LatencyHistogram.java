@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of non negative values, e.g. latencies in microseconds, with log-linear buckets:
+ * values below 32 are exact, and every power of two above is split into 16 linear buckets, so any percentile
+ * is within about 6% of the recorded value whatever the range. Histograms with the same buckets merge losslessly.
+ */
+public class LatencyHistogram {
+    /** Values below 2^SUB_BUCKET_BITS have a bucket each. */
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT / 2;
+    /** Number of buckets covering every non negative long. */
+    static final int BUCKET_COUNT = (65 - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Record a value.
+     * @param value The value, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(bucketOf(v));
+        count.increment();
+        sum.add(v);
+        min.accumulateAndGet(v, Math::min);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Add all values recorded in another histogram. The other histogram should not be recording concurrently.
+     * @param other The histogram to merge.
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        count.add(other.getCount());
+        sum.add(other.sum.sum());
+        if (other.getCount() > 0) {
+            min.accumulateAndGet(other.min.get(), Math::min);
+            max.accumulateAndGet(other.max.get(), Math::max);
+        }
+    }
+
+    /**
+     * Clear all recorded values, e.g. at the end of a warm up. Values recorded concurrently may be lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+    /**
+     * Get the non empty buckets as pairs of bucket index and count, which with {@link #getSum()}, {@link #getMin()} and
+     * {@link #getMax()} rebuild the exact histogram with {@link #fromBucketCounts}, e.g. in another process.
+     * @return The pairs, flattened as index, count, index, count...
+     */
+    public long[] getBucketCounts() {
+        long[] pairs = new long[BUCKET_COUNT * 2];
+        int n = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                pairs[n++] = i;
+                pairs[n++] = c;
+            }
+        }
+        return Arrays.copyOf(pairs, n);
+    }
+
+    /**
+     * Rebuild a histogram from the values of another one.
+     * @param bucketCounts The pairs of {@link #getBucketCounts()}.
+     * @param sum The sum of the values.
+     * @param min The smallest value, ignored if empty.
+     * @param max The largest value, ignored if empty.
+     * @return The histogram.
+     */
+    public static LatencyHistogram fromBucketCounts(long[] bucketCounts, long sum, long min, long max) {
+        if (bucketCounts.length % 2 != 0) {
+            throw new IllegalArgumentException("Bucket counts should be pairs of bucket index and count.");
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < bucketCounts.length; i += 2) {
+            if (bucketCounts[i] < 0 || bucketCounts[i] >= BUCKET_COUNT || bucketCounts[i + 1] < 0) {
+                throw new IllegalArgumentException("Invalid bucket " + bucketCounts[i] + " of count " + bucketCounts[i + 1]);
+            }
+            histogram.counts.addAndGet((int) bucketCounts[i], bucketCounts[i + 1]);
+            histogram.count.add(bucketCounts[i + 1]);
+        }
+        if (histogram.getCount() > 0) {
+            histogram.sum.add(sum);
+            histogram.min.set(min);
+            histogram.max.set(max);
+        }
+        return histogram;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Get the smallest value recorded.
+     * @return The min, or 0 if empty.
+     */
+    public long getMin() {
+        return getCount() == 0 ? 0 : min.get();
+    }
+
+    /**
+     * Get the largest value recorded.
+     * @return The max, or 0 if empty.
+     */
+    public long getMax() {
+        return getCount() == 0 ? 0 : max.get();
+    }
+
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * Get a percentile, as the highest value of the bucket it falls in, capped by the max recorded.
+     * @param percentile The percentile, between 0 and 100.
+     * @return The value at the percentile, or 0 if empty.
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile should be between 0 and 100.");
+        }
+        long n = getCount();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        return shift * HALF_SUB_BUCKET_COUNT + (int) (value >>> shift);
+    }
+
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / HALF_SUB_BUCKET_COUNT - 1;
+        long subBucket = bucket - (long) shift * HALF_SUB_BUCKET_COUNT;
+        return subBucket << shift;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return lowestValueOf(bucket + 1) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count: %d, min: %d, p50: %d, p90: %d, p99: %d, p99.9: %d, max: %d, mean: %.1f",
+                getCount(), getMin(), getPercentile(50), getPercentile(90), getPercentile(99), getPercentile(99.9),
+                getMax(), getMean());
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.hash.Hashing;
+import com.snowflake.s3compatapitestsuite.compatapi.ReadAfterWriteVerification;
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.compatapi.WriteObjectSpec;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds a prefix with a large number of small objects for listing benchmarks, and writes a manifest
+ * so the same fixture can be reused across runs.
+ */
+public class ListingFixtureGenerator {
+    private static final Logger logger = LogManager.getLogger(ListingFixtureGenerator.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    /** Number of sub directories per level for {@link KeyDistribution#NESTED}. */
+    private static final int NESTED_FAN_OUT = 100;
+    /** Tasks queued per worker thread, to keep the producer ahead of the workers. */
+    private static final int QUEUED_TASKS_PER_WORKER = 4;
+
+    private final S3CompatStorageClient client;
+    private final String bucketName;
+    private final int concurrency;
+
+    /**
+     * Constructor for a listing fixture generator.
+     * @param client The client to create objects with, its connection pool should fit the concurrency.
+     * @param bucketName Bucket name where to create the fixture.
+     * @param concurrency Number of concurrent put requests.
+     */
+    public ListingFixtureGenerator(S3CompatStorageClient client, String bucketName, int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency should be > 0.");
+        }
+        this.client = client;
+        this.bucketName = bucketName;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Reuse the fixture described by the manifest file if it matches the request and still exists remotely,
+     * otherwise build it and write the manifest file.
+     * @param prefix Prefix under which to create the objects.
+     * @param numKeys Number of objects to create.
+     * @param objectSize Size in bytes of each object, can be 0.
+     * @param distribution Key naming distribution.
+     * @param manifestFile Local manifest file.
+     * @return The manifest of the fixture.
+     */
+    public ListingFixtureManifest loadOrBuild(String prefix, long numKeys, int objectSize,
+                                              KeyDistribution distribution, File manifestFile) {
+        ListingFixtureManifest requested =
+                new ListingFixtureManifest(bucketName, prefix, numKeys, objectSize, distribution, 0L);
+        ListingFixtureManifest existing = readManifest(manifestFile);
+        if (requested.describesSameFixture(existing) && existsRemotely(existing)) {
+            System.out.println("Reuse " + existing + " from manifest " + manifestFile);
+            return existing;
+        }
+        ListingFixtureManifest built = build(prefix, numKeys, objectSize, distribution);
+        writeManifest(built, manifestFile);
+        return built;
+    }
+
+    /**
+     * Concurrently create the objects of a fixture.
+     * @param prefix Prefix under which to create the objects.
+     * @param numKeys Number of objects to create.
+     * @param objectSize Size in bytes of each object, can be 0.
+     * @param distribution Key naming distribution.
+     * @return The manifest of the fixture.
+     */
+    public ListingFixtureManifest build(String prefix, long numKeys, int objectSize, KeyDistribution distribution) {
+        if (numKeys <= 0 || objectSize < 0) {
+            throw new IllegalArgumentException("numKeys should be > 0 and objectSize should be >= 0.");
+        }
+        byte[] payload = new byte[objectSize];
+        AtomicLong created = new AtomicLong();
+        long progressStep = Math.max(1, numKeys / 10);
+        long start = System.currentTimeMillis();
+        try (BoundedExecutor executor = new BoundedExecutor("listing-fixture", concurrency, concurrency * QUEUED_TASKS_PER_WORKER)) {
+            for (long i = 0; i < numKeys; i++) {
+                String key = keyFor(prefix, distribution, i);
+                executor.submit(() -> {
+                    putObject(key, payload);
+                    long done = created.incrementAndGet();
+                    if (done % progressStep == 0) {
+                        System.out.printf("Listing fixture %s: created %d/%d objects%n", prefix, done, numKeys);
+                    }
+                });
+            }
+            executor.awaitCompletion();
+        }
+        long elapsedMs = Math.max(1, System.currentTimeMillis() - start);
+        System.out.printf("Listing fixture %s: created %d objects in %d ms (%.1f objects/sec)%n",
+                prefix, numKeys, elapsedMs, numKeys * 1000.0 / elapsedMs);
+        return new ListingFixtureManifest(bucketName, prefix, numKeys, objectSize, distribution, System.currentTimeMillis());
+    }
+
+    /**
+     * Get the key of the i-th object of a fixture. Keys are deterministic, so a fixture can be recreated
+     * or verified from its manifest.
+     * @param prefix Prefix of the fixture.
+     * @param distribution Key naming distribution.
+     * @param i Index of the object.
+     * @return The key of the object.
+     */
+    public static @NotNull String keyFor(String prefix, KeyDistribution distribution, long i) {
+        switch (distribution) {
+            case SEQUENTIAL:
+                return String.format("%s/obj-%012d", prefix, i);
+            case HASHED:
+                // a hash in front spreads the keys over the whole key space, like randomized partition prefixes.
+                return String.format("%s/%s-%012d", prefix, Hashing.murmur3_32_fixed().hashLong(i), i);
+            case NESTED:
+                return String.format("%s/d%02d/d%02d/obj-%012d", prefix,
+                        i % NESTED_FAN_OUT, (i / NESTED_FAN_OUT) % NESTED_FAN_OUT, i);
+            default:
+                throw new IllegalArgumentException("Not supported key distribution " + distribution);
+        }
+    }
+
+    private void putObject(String key, byte[] payload) {
+        try {
+            // the fixture is checked as a whole when reused, a HEAD after every put would only double the requests.
+            // The policy is set per put, other users of the client keep theirs.
+            client.putObject(new WriteObjectSpec(bucketName, key, () -> new ByteArrayInputStream(payload),
+                    payload.length, null /* clientTimeoutInMs */, null /* additionalBlobMetadata */), ReadAfterWriteVerification.OFF);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean existsRemotely(ListingFixtureManifest manifest) {
+        // sample the first and the last key, as a cheap check that nobody cleaned up the fixture.
+        try {
+            client.getObjectMetadata(bucketName, keyFor(manifest.getPrefix(), manifest.getKeyDistribution(), 0), null);
+            client.getObjectMetadata(bucketName,
+                    keyFor(manifest.getPrefix(), manifest.getKeyDistribution(), manifest.getNumKeys() - 1), null);
+            return true;
+        } catch (AmazonS3Exception ex) {
+            if (ex.getStatusCode() == 404) {
+                return false;
+            }
+            throw ex;
+        }
+    }
+
+    private static ListingFixtureManifest readManifest(File manifestFile) {
+        if (!manifestFile.exists()) {
+            return null;
+        }
+        try {
+            return MAPPER.readValue(manifestFile, ListingFixtureManifest.class);
+        } catch (IOException e) {
+            logger.warn("Ignore unreadable listing fixture manifest " + manifestFile, e);
+            return null;
+        }
+    }
+
+    private static void writeManifest(ListingFixtureManifest manifest, File manifestFile) {
+        try {
+            MAPPER.writeValue(manifestFile, manifest);
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to write listing fixture manifest " + manifestFile, e);
+        }
+    }
+
+    /**
+     * Key naming distributions of a fixture.
+     */
+    public enum KeyDistribution {
+        /** Zero padded sequence numbers, all keys share one lexicographic range. */
+        SEQUENTIAL("sequential"),
+        /** A hash in front of each key, spreading keys over the key space. */
+        HASHED("hashed"),
+        /** Keys spread over two levels of sub directories. */
+        NESTED("nested");
+
+        private final String name;
+
+        KeyDistribution(String name) {
+            this.name = name;
+        }
+        public static KeyDistribution lookupByName(String name) {
+            for (KeyDistribution distribution : KeyDistribution.values()) {
+                if (distribution.getName().equalsIgnoreCase(name)) {
+                    return distribution;
+                }
+            }
+            throw new IllegalArgumentException("Key distribution " + name + " not supported, use sequential, hashed or nested.");
+        }
+        public String getName() {
+            return this.name;
+        }
+    }
+}
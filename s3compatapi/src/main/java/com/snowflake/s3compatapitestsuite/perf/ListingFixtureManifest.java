@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Objects;
+
+/**
+ * Manifest of a listing fixture. Keys are derived from the manifest fields, so the manifest is enough to
+ * reproduce or reuse the fixture without storing millions of key names.
+ */
+public class ListingFixtureManifest {
+    /** Bucket name where the fixture locates. */
+    private final String bucketName;
+    /** Prefix under which all fixture objects are created. */
+    private final String prefix;
+    /** Number of objects in the fixture. */
+    private final long numKeys;
+    /** Size in bytes of each object. */
+    private final int objectSize;
+    /** Key naming distribution. */
+    private final ListingFixtureGenerator.KeyDistribution keyDistribution;
+    /** Time in ms since epoch when the fixture was completed. */
+    private final long createdAtMs;
+
+    /**
+     * Constructor for a listing fixture manifest.
+     * @param bucketName Bucket name where the fixture locates.
+     * @param prefix Prefix under which all fixture objects are created.
+     * @param numKeys Number of objects in the fixture.
+     * @param objectSize Size in bytes of each object.
+     * @param keyDistribution Key naming distribution.
+     * @param createdAtMs Time in ms since epoch when the fixture was completed.
+     */
+    @JsonCreator
+    public ListingFixtureManifest(
+            @JsonProperty("bucketName") String bucketName,
+            @JsonProperty("prefix") String prefix,
+            @JsonProperty("numKeys") long numKeys,
+            @JsonProperty("objectSize") int objectSize,
+            @JsonProperty("keyDistribution") ListingFixtureGenerator.KeyDistribution keyDistribution,
+            @JsonProperty("createdAtMs") long createdAtMs) {
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.numKeys = numKeys;
+        this.objectSize = objectSize;
+        this.keyDistribution = keyDistribution;
+        this.createdAtMs = createdAtMs;
+    }
+
+    /**
+     * Whether this manifest describes the same fixture as another one, ignoring creation time.
+     * @param other The other manifest.
+     * @return true if both manifests describe the same set of objects.
+     */
+    public boolean describesSameFixture(ListingFixtureManifest other) {
+        return other != null
+                && Objects.equals(bucketName, other.bucketName)
+                && Objects.equals(prefix, other.prefix)
+                && numKeys == other.numKeys
+                && objectSize == other.objectSize
+                && keyDistribution == other.keyDistribution;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public long getNumKeys() {
+        return numKeys;
+    }
+
+    public int getObjectSize() {
+        return objectSize;
+    }
+
+    public ListingFixtureGenerator.KeyDistribution getKeyDistribution() {
+        return keyDistribution;
+    }
+
+    public long getCreatedAtMs() {
+        return createdAtMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ListingFixture: {bucket: %s, prefix: %s, numKeys: %d, objectSize: %d, keyDistribution: %s}",
+                bucketName, prefix, numKeys, objectSize, keyDistribution);
+    }
+}
@@ -3,31 +3,90 @@
  */
 package com.snowflake.s3compatapitestsuite.perf;
 
+import com.amazonaws.HttpMethod;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3VersionSummary;
 import com.google.common.base.Strings;
 import com.snowflake.s3compatapitestsuite.EnvConstants;
+import com.snowflake.s3compatapitestsuite.compatapi.AsyncS3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.compatapi.BlockCache;
+import com.snowflake.s3compatapitestsuite.compatapi.ChecksumAlgorithm;
+import com.snowflake.s3compatapitestsuite.compatapi.ChecksumCost;
 import com.snowflake.s3compatapitestsuite.compatapi.DeleteRemoteObjectSpec;
+import com.snowflake.s3compatapitestsuite.compatapi.MetadataCache;
+import com.snowflake.s3compatapitestsuite.compatapi.ReadAfterWriteVerification;
+import com.snowflake.s3compatapitestsuite.compatapi.ReadAheadInputStream;
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatObject;
 import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
-import com.snowflake.s3compatapitestsuite.options.CliParser;
-import org.apache.commons.cli.CommandLine;
-import org.apache.commons.cli.Option;
-import org.apache.commons.cli.Options;
+import com.snowflake.s3compatapitestsuite.compatapi.WriteObjectSpec;
+import com.snowflake.s3compatapitestsuite.distributed.DistributedWorker;
+import com.snowflake.s3compatapitestsuite.options.PerfCliOptions;
+import com.snowflake.s3compatapitestsuite.transfer.BulkCopier;
+import com.snowflake.s3compatapitestsuite.transfer.BulkDownloader;
+import com.snowflake.s3compatapitestsuite.transfer.BulkMetadataFetcher;
+import com.snowflake.s3compatapitestsuite.transfer.BulkUploader;
+import com.snowflake.s3compatapitestsuite.transfer.TransferCheckpoint;
+import com.snowflake.s3compatapitestsuite.transfer.TransferStats;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import com.snowflake.s3compatapitestsuite.util.ExecutionMode;
+import com.snowflake.s3compatapitestsuite.workload.MixedWorkload;
+import com.snowflake.s3compatapitestsuite.workload.OperationMix;
+import com.snowflake.s3compatapitestsuite.workload.Scenario;
+import com.snowflake.s3compatapitestsuite.workload.ScenarioRunner;
+import com.snowflake.s3compatapitestsuite.workload.TraceReader;
+import com.snowflake.s3compatapitestsuite.workload.TraceReplayer;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadOp;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadResult;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadStats;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+import java.util.stream.Stream;
 
 /**
  * A Class wrapping up performance measurement.
  */
 public class PerfMeasurement {
+    private static final Logger logger = LogManager.getLogger(PerfMeasurement.class);
     /** A client created with region TestConstants.region1 provided. */
     private static S3CompatStorageClient clientWithRegion1;
     /** A prefix for running tests. */
@@ -37,6 +96,129 @@ public class PerfMeasurement {
     private static AWSCredentialsProvider credentialsProvider = null;
 
     private static final int default_times = 20;
+    private static final int default_concurrency = 32;
+    private static final long MB = 1024L * 1024;
+    private static final String default_large_object_sizes_mb = "16,128,1024";
+    private static final long default_part_size_mb = 16;
+    /** Object sizes in MB measured by the multipart measurements. */
+    private static long[] largeObjectSizesMB;
+    /** Part size in bytes for multipart operations. */
+    private static long partSize = default_part_size_mb * MB;
+    private static final long default_multipart_threshold_mb = 64;
+    private static final int default_object_size = 1024;
+    /** Objects of this size in bytes or larger use multipart operations in bulk transfers. */
+    private static long multipartThreshold = default_multipart_threshold_mb * MB;
+    /** Size in bytes of each object created for bulk transfer measurements. */
+    private static int objectSize = default_object_size;
+    /** Local directory to upload with {@link #measureBulkUpload(int)} or download into with {@link #measureBulkDownload(int)}, null for a temporary one. */
+    private static String localDir;
+    /** Existing prefix to download with {@link #measureBulkDownload(int)}, null to upload a dataset. */
+    private static String sourcePrefix;
+    /** Journal file of the bulk transfers, null to transfer without a checkpoint. */
+    private static String checkpointFile;
+    private static final double default_verification_sample_rate = 0.1;
+    /** Read after write verification of the puts. */
+    private static ReadAfterWriteVerification verification = ReadAfterWriteVerification.ALWAYS;
+    /** Fraction of puts verified with {@link ReadAfterWriteVerification#SAMPLED}. */
+    private static double verificationSampleRate = default_verification_sample_rate;
+    private static final long default_probe_interval_ms = 5;
+    /** Pause in ms between two polls of {@link #measureConsistencyProbe(int)}. */
+    private static long probeIntervalMs = default_probe_interval_ms;
+    /** Number of threads writing other objects while {@link #measureConsistencyProbe(int)} runs. */
+    private static int probeWriters = 0;
+    private static final int default_footer_kb = 64;
+    private static final int default_range_reads = 8;
+    private static final int default_range_kb = 1024;
+    /** Objects of the corpus generated for {@link #measureTailRangeRead(int)}. */
+    private static final int tail_range_corpus_size = 4;
+    /** Size in bytes of the suffix range read first by {@link #measureTailRangeRead(int)}. */
+    private static long footerSize = default_footer_kb * 1024L;
+    /** Number of random ranges read after the footer by {@link #measureTailRangeRead(int)}. */
+    private static int rangeReads = default_range_reads;
+    /** Size in bytes of each random range read by {@link #measureTailRangeRead(int)}. */
+    private static long rangeSize = default_range_kb * 1024L;
+    private static final long default_block_cache_mb = 256;
+    private static final int default_block_size_kb = 1024;
+    private static final long default_block_cache_ttl_ms = 1000;
+    private static final double default_zipf_exponent = 1.1;
+    /** Capacity in bytes of the block cache of {@link #measureBlockCacheRead(int)}. */
+    private static long blockCacheSize = default_block_cache_mb * MB;
+    /** Size in bytes of each block of the block cache. */
+    private static int blockSize = default_block_size_kb * 1024;
+    /** Time in ms the block cache serves blocks before revalidating their object. */
+    private static long blockCacheTtlMs = default_block_cache_ttl_ms;
+    /** Where the block cache holds its blocks. */
+    private static BlockCache.Store blockCacheStore = BlockCache.Store.OFF_HEAP;
+    /** Skew of the objects and ranges read by {@link #measureBlockCacheRead(int)}. */
+    private static double zipfExponent = default_zipf_exponent;
+    private static final int default_read_ahead_window = 8;
+    private static final String default_concurrency_levels = "1,4,16,64,256";
+    /** Requests in flight swept by {@link #measureBulkHead(int)} and {@link #measureExecutionModes(int)}. */
+    private static long[] concurrencyLevels;
+    /** Throughput gain below which a higher concurrency level is not worth it. */
+    private static final double bulk_head_min_gain = 0.1;
+    /** Rounds run before the measured one by {@link #measurePresignUrls(int)}, so both paths are compiled. */
+    private static final int presign_warmup_rounds = 5;
+    /** Objects looked up by {@link #measureMetadataCache(int)}. */
+    private static final int metadata_cache_objects = 16;
+    /** Threads handling the responses of the async client of {@link #measureAsyncReads(int)}. */
+    private static final int async_response_threads = 4;
+    /** Header of the rows printed by the download benchmarks, peak threads is the peak number of live JVM threads. */
+    private static final String download_header = "path, objects, p50 ms, p99 ms, max ms, objects/sec, MB/sec, failures, peak threads";
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    /** Max number of chunks of --partSizeMB in flight ahead of the reader of {@link #measureReadAhead(int)}. */
+    private static int readAheadWindow = default_read_ahead_window;
+    /** Threads running the concurrent workers of the measurements. */
+    private static ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    /** Objects read by the simulated clients of {@link #measureExecutionModes(int)}. */
+    private static final int execution_modes_objects = 16;
+    /** Share of failed requests above which a concurrency level is not sustained. */
+    private static final double max_failure_rate = 0.01;
+    /** Drop from the best throughput of {@link #measureExecutionModes(int)} past which a concurrency level is not sustained. */
+    private static final double execution_modes_max_rate_drop = 0.1;
+    private static final String default_mix = "get=60,head=25,list=10,put=5";
+    /** Weighted operations of {@link #measureMixedWorkload(int)}. */
+    private static OperationMix mix;
+    /** Objects of the shared pool of {@link #measureMixedWorkload(int)}. */
+    private static final int mixed_workload_objects = 64;
+    /** Time each function of -a runs for instead of -t times, null to run -t times. */
+    private static Duration duration;
+    /** Time each function runs before {@link #duration}, whose samples are reported apart. */
+    private static Duration warmup = Duration.ZERO;
+    /**
+     * Functions that can run for {@link #duration}, those repeating a single call. The others use -t as the size of a
+     * corpus or a sweep rather than a number of repetitions.
+     */
+    private static final Set<FUNC_NAME> timed_funcs = EnumSet.of(FUNC_NAME.GET_BUCKET_LOCATION, FUNC_NAME.GET_OBJECT,
+            FUNC_NAME.GET_OBJECT_METADATA, FUNC_NAME.PUT_OBJECT, FUNC_NAME.COPY_OBJECT, FUNC_NAME.LIST_OBJECTS,
+            FUNC_NAME.LIST_OBJECTS_V2, FUNC_NAME.LIST_LARGE_NUM_OBJECTS, FUNC_NAME.LIST_VERSIONS, FUNC_NAME.DELETE_OBJECT,
+            FUNC_NAME.MIXED_WORKLOAD);
+    /** Load stepped up by {@link #measureSaturation(FUNC_NAME)}, null to run the functions once. */
+    private static SaturationSearch.Load saturation;
+    /** Functions whose max sustainable throughput {@link #measureSaturation(FUNC_NAME)} can search, as workload operations. */
+    private static final Set<FUNC_NAME> saturation_funcs = EnumSet.of(FUNC_NAME.GET_OBJECT, FUNC_NAME.GET_OBJECT_METADATA,
+            FUNC_NAME.PUT_OBJECT, FUNC_NAME.LIST_OBJECTS, FUNC_NAME.LIST_OBJECTS_V2, FUNC_NAME.MIXED_WORKLOAD);
+    private static final long default_saturation_step_sec = 10;
+    private static final double default_speedup = 1;
+    private static final double default_saturation_warmup_sec = 2;
+    private static final double default_slo_p99_ms = 200;
+    /** p99 latency in ms above which a step of {@link #measureSaturation(FUNC_NAME)} is not sustained. */
+    private static double sloP99Ms = default_slo_p99_ms;
+    /** Share of failed operations above which a step of {@link #measureSaturation(FUNC_NAME)} is not sustained. */
+    private static double maxErrorRate = max_failure_rate;
+    /** Highest concurrency stepped through by {@link #measureSaturation(FUNC_NAME)}. */
+    private static final long saturation_max_concurrency = 1024;
+    /** Lowest and highest rates in ops/sec stepped through by {@link #measureSaturation(FUNC_NAME)}. */
+    private static final long saturation_min_rate = 10;
+    private static final long saturation_max_rate = 1_000_000;
+    /** A client with a connection pool sized for {@link #concurrency}, created on first use. */
+    private static S3CompatStorageClient concurrentClient;
+    /** Number of concurrent workers for the APIs supporting concurrency. */
+    private static int concurrency = default_concurrency;
+    /** The prefix listed by {@link #measureListLargeNumObjects(int)}. */
+    private static String listingPrefix;
+    /** The expected number of objects under {@link #listingPrefix}, or -1 if unknown. */
+    private static long listingTotalSize = -1;
     private static PutObjectResult putObjectResult1;
     private static PutObjectResult putObjectResult2;
 
@@ -53,32 +235,111 @@ public class PerfMeasurement {
      *             eg:
      */
     public void startPerfMeasurement(String[] args) {
-        Option apisOpt = new Option("a", "APIs", true, "A list of APIs for measure performance");
-        Option timesOpt = new Option("t", "times", true, "How many times to run each API");
-        CommandLine cml = parseArgs(new Options().addOption(apisOpt).addOption(timesOpt), args);
-        String funcNames = null;
-        String times = null;
-        if (cml != null && cml.hasOption(apisOpt)) {
-            funcNames = cml.getOptionValue(apisOpt);
+        PerfCliOptions options = new PerfCliOptions(args);
+        String funcNames = options.getValue(PerfCliOptions.PERF_OPTIONS.APIS);
+        int timesInt = options.getInt(PerfCliOptions.PERF_OPTIONS.TIMES, default_times);
+        if (timesInt < 0) {
+            throw new IllegalArgumentException("Number of times to run a API should be > 0");
         }
-        if (cml != null && cml.hasOption(timesOpt)) {
-            times = cml.getOptionValue(timesOpt);
+        concurrency = options.getInt(PerfCliOptions.PERF_OPTIONS.CONCURRENCY, default_concurrency);
+        largeObjectSizesMB = options.getLongs(PerfCliOptions.PERF_OPTIONS.LARGE_OBJECT_SIZES_MB, default_large_object_sizes_mb);
+        partSize = options.getLong(PerfCliOptions.PERF_OPTIONS.PART_SIZE_MB, default_part_size_mb) * MB;
+        multipartThreshold = options.getLong(PerfCliOptions.PERF_OPTIONS.MULTIPART_THRESHOLD_MB, default_multipart_threshold_mb) * MB;
+        objectSize = options.getInt(PerfCliOptions.PERF_OPTIONS.OBJECT_SIZE, default_object_size);
+        localDir = options.getValue(PerfCliOptions.PERF_OPTIONS.LOCAL_DIR);
+        sourcePrefix = options.getValue(PerfCliOptions.PERF_OPTIONS.SOURCE_PREFIX);
+        checkpointFile = options.getValue(PerfCliOptions.PERF_OPTIONS.CHECKPOINT);
+        if (options.hasOption(PerfCliOptions.PERF_OPTIONS.VERIFICATION)) {
+            verification = ReadAfterWriteVerification.lookupByName(options.getValue(PerfCliOptions.PERF_OPTIONS.VERIFICATION).trim());
+            if (verification == null) {
+                throw new IllegalArgumentException("Verification " + options.getValue(PerfCliOptions.PERF_OPTIONS.VERIFICATION)
+                        + " not supported, use always, sampled, async or off.");
+            }
         }
-        int timesInt = default_times;
-        if (!Strings.isNullOrEmpty(times)) {
-            timesInt = Integer.parseInt(times);
+        verificationSampleRate = options.getDouble(PerfCliOptions.PERF_OPTIONS.VERIFICATION_SAMPLE_RATE, default_verification_sample_rate);
+        clientWithRegion1.setReadAfterWriteVerification(verification, verificationSampleRate);
+        probeIntervalMs = options.getLong(PerfCliOptions.PERF_OPTIONS.PROBE_INTERVAL_MS, default_probe_interval_ms);
+        probeWriters = options.getInt(PerfCliOptions.PERF_OPTIONS.PROBE_WRITERS, 0);
+        footerSize = options.getLong(PerfCliOptions.PERF_OPTIONS.FOOTER_KB, default_footer_kb) * 1024;
+        rangeReads = options.getInt(PerfCliOptions.PERF_OPTIONS.RANGE_READS, default_range_reads);
+        rangeSize = options.getLong(PerfCliOptions.PERF_OPTIONS.RANGE_KB, default_range_kb) * 1024;
+        blockCacheSize = options.getLong(PerfCliOptions.PERF_OPTIONS.BLOCK_CACHE_MB, default_block_cache_mb) * MB;
+        blockSize = options.getInt(PerfCliOptions.PERF_OPTIONS.BLOCK_SIZE_KB, default_block_size_kb) * 1024;
+        blockCacheTtlMs = options.getLong(PerfCliOptions.PERF_OPTIONS.BLOCK_CACHE_TTL_MS, default_block_cache_ttl_ms);
+        if (options.hasOption(PerfCliOptions.PERF_OPTIONS.BLOCK_CACHE_STORE)) {
+            blockCacheStore = BlockCache.Store.lookupByName(options.getValue(PerfCliOptions.PERF_OPTIONS.BLOCK_CACHE_STORE).trim());
         }
-        if (timesInt < 0) {
-            throw new IllegalArgumentException("Number of times to run a API should be > 0");
+        zipfExponent = options.getDouble(PerfCliOptions.PERF_OPTIONS.ZIPF_EXPONENT, default_zipf_exponent);
+        concurrencyLevels = options.getLongs(PerfCliOptions.PERF_OPTIONS.CONCURRENCY_LEVELS, default_concurrency_levels);
+        readAheadWindow = options.getInt(PerfCliOptions.PERF_OPTIONS.READ_AHEAD_WINDOW, default_read_ahead_window);
+        mix = OperationMix.parse(Strings.isNullOrEmpty(options.getValue(PerfCliOptions.PERF_OPTIONS.MIX))
+                ? default_mix : options.getValue(PerfCliOptions.PERF_OPTIONS.MIX));
+        if (options.hasOption(PerfCliOptions.PERF_OPTIONS.EXECUTION_MODE)) {
+            executionMode = ExecutionMode.lookupByName(options.getValue(PerfCliOptions.PERF_OPTIONS.EXECUTION_MODE).trim());
+            if (executionMode == null || !executionMode.isSupported()) {
+                throw new IllegalArgumentException("Execution mode " + options.getValue(PerfCliOptions.PERF_OPTIONS.EXECUTION_MODE)
+                        + " not supported, use platform, or virtual on Java 21+.");
+            }
+        }
+        if (options.hasOption(PerfCliOptions.PERF_OPTIONS.DURATION)) {
+            duration = Duration.ofMillis(Math.round(options.getDouble(PerfCliOptions.PERF_OPTIONS.DURATION, 0) * 1000));
+            warmup = Duration.ofMillis(Math.round(options.getDouble(PerfCliOptions.PERF_OPTIONS.WARMUP, 0) * 1000));
+            if (duration.isZero() || duration.isNegative() || warmup.isNegative()) {
+                throw new IllegalArgumentException("--duration should be > 0 and --warmup >= 0.");
+            }
+            if (Strings.isNullOrEmpty(funcNames)) {
+                throw new IllegalArgumentException("--duration needs the APIs to run with -a, one of " + timed_funcs + ".");
+            }
+        } else if (options.hasOption(PerfCliOptions.PERF_OPTIONS.WARMUP) && !options.hasOption(PerfCliOptions.PERF_OPTIONS.SATURATE)) {
+            throw new IllegalArgumentException("--warmup is only used with --duration or --saturate.");
+        }
+        if (options.hasOption(PerfCliOptions.PERF_OPTIONS.SATURATE)) {
+            saturation = SaturationSearch.Load.lookupByName(options.getValue(PerfCliOptions.PERF_OPTIONS.SATURATE).trim());
+            if (saturation == null) {
+                throw new IllegalArgumentException("--saturate " + options.getValue(PerfCliOptions.PERF_OPTIONS.SATURATE)
+                        + " not supported, use concurrency or rate.");
+            }
+            if (Strings.isNullOrEmpty(funcNames)) {
+                throw new IllegalArgumentException("--saturate needs the APIs to search with -a, one of " + saturation_funcs + ".");
+            }
+            if (duration == null) {
+                duration = Duration.ofSeconds(default_saturation_step_sec);
+            }
+            warmup = Duration.ofMillis(Math.round(options.getDouble(PerfCliOptions.PERF_OPTIONS.WARMUP, default_saturation_warmup_sec) * 1000));
+            if (warmup.isNegative()) {
+                throw new IllegalArgumentException("--warmup should be >= 0.");
+            }
+            sloP99Ms = options.getDouble(PerfCliOptions.PERF_OPTIONS.SLO_P99_MS, default_slo_p99_ms);
+            maxErrorRate = options.getDouble(PerfCliOptions.PERF_OPTIONS.MAX_ERROR_RATE, max_failure_rate);
         }
         try {
-            if (!Strings.isNullOrEmpty(funcNames)) {
+            if (options.hasOption(PerfCliOptions.PERF_OPTIONS.LISTING_FIXTURE_KEYS)) {
+                useListingFixture(options);
+            }
+            if (options.hasOption(PerfCliOptions.PERF_OPTIONS.WORKER)) {
+                runWorker(options.getValue(PerfCliOptions.PERF_OPTIONS.WORKER));
+            } else if (options.hasOption(PerfCliOptions.PERF_OPTIONS.SCENARIO)) {
+                runScenario(Scenario.load(new File(options.getValue(PerfCliOptions.PERF_OPTIONS.SCENARIO))));
+            } else if (options.hasOption(PerfCliOptions.PERF_OPTIONS.TRACE)) {
+                replayTrace(new File(options.getValue(PerfCliOptions.PERF_OPTIONS.TRACE)),
+                        options.getDouble(PerfCliOptions.PERF_OPTIONS.SPEEDUP, default_speedup));
+            } else if (!Strings.isNullOrEmpty(funcNames)) {
                 String[] funcs = funcNames.split(",");
                 for (String funcName : funcs) {
                     FUNC_NAME func = FUNC_NAME.lookupByName(funcName.trim());
                     if (func == null) {
                         throw new IllegalArgumentException(errorMessageForArguments(funcName));
                     }
+                    if (saturation != null) {
+                        if (!saturation_funcs.contains(func)) {
+                            throw new IllegalArgumentException(func.getName() + " can not run with --saturate, use one of " + saturation_funcs + ".");
+                        }
+                        measureSaturation(func);
+                        continue;
+                    }
+                    if (duration != null && !timed_funcs.contains(func)) {
+                        throw new IllegalArgumentException(func.getName() + " can not run with --duration, use -t or one of " + timed_funcs + ".");
+                    }
                     measureOneFunc(func, timesInt);
                 }
             } else {
@@ -91,9 +352,76 @@ public class PerfMeasurement {
         }
     }
 
-    private CommandLine parseArgs(Options options, String[] args) {
-        CliParser parser = new CliParser(options);
-        return parser.parse(args);
+    /**
+     * Run the phases of a scenario file instead of the functions of -a, with a pool under {@value prefix}.
+     */
+    private void runScenario(Scenario scenario) {
+        new ScenarioRunner(credentialsProvider, EnvConstants.REGION_1, EnvConstants.ENDPOINT, bucketName, prefix)
+                .run(scenario, System.out);
+    }
+
+    /**
+     * Run the scenario of a distributed run as one of its workers, with a pool under a prefix of {@value prefix} named
+     * after the worker id, so the workers never write to the same keys.
+     * @param coordinator host:port of the coordinator.
+     */
+    private void runWorker(String coordinator) {
+        new DistributedWorker(coordinator).run((scenario, workerId, beforePhase) ->
+                new ScenarioRunner(credentialsProvider, EnvConstants.REGION_1, EnvConstants.ENDPOINT, bucketName, prefix + "/worker_" + workerId)
+                        .withBeforePhase(beforePhase)
+                        .run(scenario, System.out));
+    }
+
+    /**
+     * Replay a trace file with --concurrency requests at most in flight, its keys under --sourcePrefix, or under a
+     * prefix of {@value prefix} if not provided. The trace is streamed, never loaded in memory.
+     * @param speedup Factor the inter-arrival times of the trace are divided by, 0 for as fast as possible.
+     */
+    private void replayTrace(File traceFile, double speedup) {
+        String keyPrefix = sourcePrefix != null ? sourcePrefix : prefix + "/replay";
+        System.out.printf("Replay %s under %s at %sx%n", traceFile, keyPrefix, speedup > 0 ? String.valueOf(speedup) : "max speed");
+        TraceReplayer replayer = new TraceReplayer(concurrentClient(), bucketName, keyPrefix)
+                .withConcurrency(concurrency)
+                .withSpeedup(speedup)
+                .withExecutionMode(executionMode);
+        TraceReplayer.Result result;
+        try (TraceReader reader = TraceReader.open(traceFile)) {
+            result = replayer.replay(reader);
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to close trace " + traceFile, e);
+        }
+        System.out.println(WorkloadStats.HEADER);
+        result.print(System.out, "replay");
+    }
+
+    /**
+     * Build or reuse a listing fixture, and point the large listing measurement at it.
+     * The fixture is kept outside of {@value prefix}, so it survives the cleanup and is reused by the next run.
+     */
+    private void useListingFixture(PerfCliOptions options) {
+        long numKeys = options.getLong(PerfCliOptions.PERF_OPTIONS.LISTING_FIXTURE_KEYS, 0);
+        int objectSize = options.getInt(PerfCliOptions.PERF_OPTIONS.FIXTURE_OBJECT_SIZE, 0);
+        ListingFixtureGenerator.KeyDistribution distribution = ListingFixtureGenerator.KeyDistribution.lookupByName(
+                Strings.isNullOrEmpty(options.getValue(PerfCliOptions.PERF_OPTIONS.FIXTURE_KEY_DISTRIBUTION))
+                        ? ListingFixtureGenerator.KeyDistribution.SEQUENTIAL.getName()
+                        : options.getValue(PerfCliOptions.PERF_OPTIONS.FIXTURE_KEY_DISTRIBUTION));
+        String fixtureName = String.format("listing_%d_%s_%d", numKeys, distribution.getName(), objectSize);
+        File manifestFile = new File(System.getProperty("user.dir"), fixtureName + ".manifest.json");
+        ListingFixtureManifest manifest = new ListingFixtureGenerator(concurrentClient(), bucketName, concurrency)
+                .loadOrBuild(EnvConstants.FIXTURE_PREFIX + "/" + fixtureName, numKeys, objectSize, distribution, manifestFile);
+        listingPrefix = manifest.getPrefix();
+        listingTotalSize = manifest.getNumKeys();
+    }
+
+    /**
+     * Get the client for measurements running {@link #concurrency} requests in parallel.
+     */
+    private static S3CompatStorageClient concurrentClient() {
+        if (concurrentClient == null) {
+            concurrentClient = new S3CompatStorageClient(credentialsProvider, EnvConstants.REGION_1, EnvConstants.ENDPOINT, concurrency);
+            concurrentClient.setReadAfterWriteVerification(verification, verificationSampleRate);
+        }
+        return concurrentClient;
     }
 
     private String errorMessageForArguments(String funcName) {
@@ -111,6 +439,8 @@ public class PerfMeasurement {
         bucketName =  EnvConstants.BUCKET_AT_REGION_1;
         credentialsProvider = new AWSStaticCredentialsProvider(new BasicAWSCredentials(EnvConstants.ACCESS_KEY, EnvConstants.SECRET_KEY));
         clientWithRegion1 = new S3CompatStorageClient(credentialsProvider, EnvConstants.REGION_1, EnvConstants.ENDPOINT);
+        listingPrefix = EnvConstants.PREFIX_FOR_PAGE_LISTING_AT_REG_1;
+        listingTotalSize = EnvConstants.PAGE_LISTING_TOTAL_SIZE;
         // put files in order for testing
         putObjectResult1 = clientWithRegion1.putObject(bucketName, prefix + '/' + EnvConstants.LOCAL_FILE_PATH_1 , EnvConstants.LOCAL_FILE_PATH_1);
         putObjectResult2 = clientWithRegion1.putObject(bucketName, prefix + '/' + EnvConstants.LOCAL_FILE_PATH_2, EnvConstants.LOCAL_FILE_PATH_2);
@@ -172,6 +502,69 @@ public class PerfMeasurement {
             case COPY_OBJECT:
                 measureCopyObject(times);
                 break;
+            case COPY_OBJECT_MULTIPART:
+                measureCopyObjectMultipart(times);
+                break;
+            case PUT_OBJECT_MULTIPART:
+                measurePutObjectMultipart(times);
+                break;
+            case PUT_OBJECT_VERIFICATION:
+                measurePutObjectVerification(times /* numOfObjects */);
+                break;
+            case CONSISTENCY_PROBE:
+                measureConsistencyProbe(times /* rounds */);
+                break;
+            case TAIL_RANGE_READ:
+                measureTailRangeRead(times /* numOfFiles */);
+                break;
+            case BLOCK_CACHE_READ:
+                measureBlockCacheRead(times /* numOfReads */);
+                break;
+            case READ_AHEAD:
+                measureReadAhead(times /* numOfFiles */);
+                break;
+            case COALESCED_READS:
+                measureCoalescedReads(times /* rounds */);
+                break;
+            case METADATA_CACHE:
+                measureMetadataCache(times /* numOfLookups */);
+                break;
+            case PRESIGN_URLS:
+                measurePresignUrls(times /* numOfUrls */);
+                break;
+            case PRESIGNED_DOWNLOAD:
+                measurePresignedDownload(times /* numOfObjects */);
+                break;
+            case ASYNC_READS:
+                measureAsyncReads(times /* numOfObjects */);
+                break;
+            case EXECUTION_MODES:
+                measureExecutionModes(times /* requestsPerClient */);
+                break;
+            case MIXED_WORKLOAD:
+                measureMixedWorkload(times /* numOfOperations */);
+                break;
+            case CHECKSUM_OVERHEAD:
+                measureChecksumOverhead(times);
+                break;
+            case BULK_UPLOAD:
+                measureBulkUpload(times /* numOfFiles */);
+                break;
+            case BULK_UPLOAD_RESUME:
+                measureBulkUploadResume(times /* numOfFiles */);
+                break;
+            case BULK_DOWNLOAD:
+                measureBulkDownload(times /* numOfFiles */);
+                break;
+            case BULK_HEAD:
+                measureBulkHead(times /* numOfObjects */);
+                break;
+            case BULK_COPY:
+                measureBulkCopy(times /* numOfObjects */, false /* deleteSource */);
+                break;
+            case BULK_RENAME:
+                measureBulkCopy(times /* numOfObjects */, true /* deleteSource */);
+                break;
             default:
                 throw new IllegalArgumentException("Not Supported function " + func_name.getName());
         }
@@ -191,52 +584,1149 @@ public class PerfMeasurement {
     }
     private void measureGetBucketLocation(int times) {
         clientWithRegion1.setPerfMeasurement(FUNC_NAME.GET_BUCKET_LOCATION);
-        for (int i = 0; i < times; i++) {
-            clientWithRegion1.getBucketLocation(bucketName);
-        }
+        repeat(FUNC_NAME.GET_BUCKET_LOCATION, times, i -> clientWithRegion1.getBucketLocation(bucketName));
     }
     private void measureGetObjectMetadata(int times) {
         clientWithRegion1.setPerfMeasurement(FUNC_NAME.GET_OBJECT_METADATA);
-        for (int i = 0; i < times; i++) {
-            clientWithRegion1.getObjectMetadata(bucketName, filePath1, putObjectResult1.getMetadata().getVersionId());
-        }
+        repeat(FUNC_NAME.GET_OBJECT_METADATA, times,
+                i -> clientWithRegion1.getObjectMetadata(bucketName, filePath1, putObjectResult1.getMetadata().getVersionId()));
     }
     private void measureGetObject(int times) {
         clientWithRegion1.setPerfMeasurement(FUNC_NAME.GET_OBJECT);
-        for (int i = 0; i < times; i++) {
-            clientWithRegion1.getObject(bucketName, filePath1);
-        }
+        repeat(FUNC_NAME.GET_OBJECT, times, i -> clientWithRegion1.getObject(bucketName, filePath1));
     }
     private void measurePutObject(int times) {
         clientWithRegion1.setPerfMeasurement(FUNC_NAME.PUT_OBJECT);
-        String remoteFilesName = "";
-        for (int i = 0; i < times; i++) {
-            remoteFilesName = prefix + '/' + EnvConstants.LOCAL_FILE_PATH_1 + "_" + i;
-            clientWithRegion1.putObject(bucketName, remoteFilesName, EnvConstants.LOCAL_FILE_PATH_1);
-        }
+        repeat(FUNC_NAME.PUT_OBJECT, times, i -> clientWithRegion1.putObject(bucketName,
+                prefix + '/' + EnvConstants.LOCAL_FILE_PATH_1 + "_" + i, EnvConstants.LOCAL_FILE_PATH_1));
     }
 
     private void measureCopyObject(int times) {
         clientWithRegion1.setPerfMeasurement(FUNC_NAME.COPY_OBJECT);
-        for (int i = 0; i < times; i++) {
-            clientWithRegion1.copyObject(bucketName, filePath1, putObjectResult1.getVersionId(), bucketName, "dst_" + filePath1 + i);
+        repeat(FUNC_NAME.COPY_OBJECT, times, i -> clientWithRegion1.copyObject(bucketName, filePath1,
+                putObjectResult1.getVersionId(), bucketName, "dst_" + filePath1 + i));
+    }
+
+    /**
+     * Call the function times times, or, with --duration, over and over for --warmup then --duration, and print the
+     * latency of the warmup and of the steady window. The client only records the calls of the steady window.
+     * @param call Makes the i-th call.
+     */
+    private void repeat(FUNC_NAME func, int times, IntConsumer call) {
+        if (duration == null) {
+            for (int i = 0; i < times; i++) {
+                call.accept(i);
+            }
+        } else {
+            repeatForDuration(func, i -> { }, call);
+        }
+    }
+
+    /**
+     * Call the function over and over for --warmup then --duration, and print the latency of both windows.
+     * @param setup Runs before the i-th call, outside of its latency and of the client records.
+     * @param call Makes the i-th call.
+     */
+    private void repeatForDuration(FUNC_NAME func, IntConsumer setup, IntConsumer call) {
+        clientWithRegion1.setMeasurementPerformance(false);
+        TimedRun run;
+        try {
+            run = new TimedRun(warmup, duration)
+                    .withUntimedSetup(setup)
+                    .withSteadyStart(() -> clientWithRegion1.setMeasurementPerformance(true))
+                    .run(call);
+        } finally {
+            clientWithRegion1.setMeasurementPerformance(true);
+        }
+        System.out.println(TimedRun.HEADER);
+        run.print(System.out, func.getName());
+    }
+
+    /**
+     * Compare a single copy request with a multipart copy across object sizes.
+     * A failed single copy is reported, as many stores reject or time out single copies of large objects.
+     */
+    private void measureCopyObjectMultipart(int times) {
+        System.out.println("objectSizeMB, copyObject avg ms, copyObjectMultipart avg ms");
+        for (long sizeMB : largeObjectSizesMB) {
+            String sourceKey = prefix + "/copy_source_" + sizeMB + "MB";
+            File file = generateFileWithSize(EnvConstants.LARGE_FILE_NAME, sizeMB * MB);
+            clientWithRegion1.setMeasurementPerformance(false);
+            PutObjectResult source = clientWithRegion1.putObject(bucketName, sourceKey, EnvConstants.LARGE_FILE_NAME);
+            file.delete();
+            clientWithRegion1.setMeasurementPerformance(true);
+            clientWithRegion1.setPerfMeasurement(FUNC_NAME.COPY_OBJECT);
+            String singleCopyAvgMs;
+            try {
+                long start = System.currentTimeMillis();
+                for (int i = 0; i < times; i++) {
+                    clientWithRegion1.copyObject(bucketName, sourceKey, source.getVersionId(), bucketName, sourceKey + "_single_" + i);
+                }
+                singleCopyAvgMs = String.valueOf((System.currentTimeMillis() - start) / Math.max(1, times));
+            } catch (AmazonS3Exception ex) {
+                singleCopyAvgMs = "failed: " + ex.getErrorCode();
+            }
+            clientWithRegion1.setPerfMeasurement(FUNC_NAME.COPY_OBJECT_MULTIPART);
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < times; i++) {
+                clientWithRegion1.copyObjectMultipart(bucketName, sourceKey, source.getVersionId(), bucketName, sourceKey + "_multipart_" + i,
+                        partSize, concurrency);
+            }
+            long multipartCopyAvgMs = (System.currentTimeMillis() - start) / Math.max(1, times);
+            System.out.printf("%d, %s, %d%n", sizeMB, singleCopyAvgMs, multipartCopyAvgMs);
+        }
+    }
+
+    /**
+     * Compare a single put request with a parallel multipart upload across object sizes.
+     */
+    private void measurePutObjectMultipart(int times) {
+        System.out.println("objectSizeMB, putObject avg ms, putObjectMultipart avg ms");
+        for (long sizeMB : largeObjectSizesMB) {
+            File file = generateFileWithSize(EnvConstants.LARGE_FILE_NAME, sizeMB * MB);
+            String key = prefix + "/put_" + sizeMB + "MB";
+            clientWithRegion1.setPerfMeasurement(FUNC_NAME.PUT_OBJECT);
+            String singlePutAvgMs;
+            try {
+                long start = System.currentTimeMillis();
+                for (int i = 0; i < times; i++) {
+                    clientWithRegion1.putObject(bucketName, key + "_single_" + i, EnvConstants.LARGE_FILE_NAME);
+                }
+                singlePutAvgMs = String.valueOf((System.currentTimeMillis() - start) / Math.max(1, times));
+            } catch (AmazonS3Exception ex) {
+                singlePutAvgMs = "failed: " + ex.getErrorCode();
+            }
+            clientWithRegion1.setPerfMeasurement(FUNC_NAME.PUT_OBJECT_MULTIPART);
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < times; i++) {
+                clientWithRegion1.putObjectMultipart(bucketName, key + "_multipart_" + i, EnvConstants.LARGE_FILE_NAME, partSize, concurrency);
+            }
+            long multipartPutAvgMs = (System.currentTimeMillis() - start) / Math.max(1, times);
+            file.delete();
+            System.out.printf("%d, %s, %d%n", sizeMB, singlePutAvgMs, multipartPutAvgMs);
+        }
+    }
+
+    /**
+     * Put numOfObjects objects of --objectSize bytes with --concurrency puts in parallel under each read after write
+     * verification policy. Throughput is reported when the last put returns, and again once the asynchronous
+     * verifications complete.
+     */
+    private void measurePutObjectVerification(int numOfObjects) {
+        S3CompatStorageClient client = concurrentClient();
+        byte[] content = new byte[objectSize];
+        String testPrefix = prefix + "/" + FUNC_NAME.PUT_OBJECT_VERIFICATION.getName();
+        System.out.println("verification, puts/sec, puts/sec verified, avg put ms, verification failures");
+        for (ReadAfterWriteVerification policy : ReadAfterWriteVerification.values()) {
+            LongAdder putNanos = new LongAdder();
+            long start = System.nanoTime();
+            try (BoundedExecutor executor = new BoundedExecutor(FUNC_NAME.PUT_OBJECT_VERIFICATION.getName(), concurrency, concurrency * 2, executionMode)) {
+                for (int i = 0; i < numOfObjects; i++) {
+                    String key = testPrefix + "/" + policy.getName() + "_" + i;
+                    executor.submit(() -> {
+                        try {
+                            long putStart = System.nanoTime();
+                            client.putObject(new WriteObjectSpec(bucketName, key, () -> new ByteArrayInputStream(content),
+                                    content.length, null /* clientTimeoutInMs */, null /* additionalBlobMetadata */), policy);
+                            putNanos.add(System.nanoTime() - putStart);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    });
+                }
+                executor.awaitCompletion();
+            }
+            long putsElapsed = System.nanoTime() - start;
+            int failures = client.awaitAsyncVerifications().size();
+            long verifiedElapsed = System.nanoTime() - start;
+            String name = policy == ReadAfterWriteVerification.SAMPLED ? policy.getName() + "(" + verificationSampleRate + ")" : policy.getName();
+            System.out.printf("%s, %.1f, %.1f, %.2f, %d%n", name, numOfObjects / (putsElapsed / 1e9),
+                    numOfObjects / (verifiedElapsed / 1e9), putNanos.sum() / 1e6 / Math.max(1, numOfObjects), failures);
+        }
+    }
+
+    /**
+     * Create, overwrite and delete an object for a number of rounds, polling GET, HEAD and LIST after each write
+     * until the new state is visible, optionally under --probeWriters background writers.
+     */
+    private void measureConsistencyProbe(int rounds) {
+        ConsistencyProbe probe = new ConsistencyProbe(concurrentClient(), bucketName, prefix + "/" + FUNC_NAME.CONSISTENCY_PROBE.getName())
+                .withPollIntervalMs(probeIntervalMs)
+                .withBackgroundWriters(probeWriters)
+                .withObjectSize(objectSize);
+        probe.run(rounds);
+        probe.printReport();
+    }
+
+    /**
+     * Read numOfFiles files the way Parquet and ORC readers do: a suffix range read of the footer, whose response
+     * gives the object size, then --rangeReads random ranges of --rangeKB, like column chunks. The corpus is
+     * --sourcePrefix, or objects of the first --largeObjectSizesMB size. Latency and bandwidth are reported per read type,
+     * and both read types are recorded, as tailRangeRead/footer and tailRangeRead/range.
+     */
+    private void measureTailRangeRead(int numOfFiles) {
+        S3CompatStorageClient client = concurrentClient();
+        List<String> corpus = new ArrayList<>(rangeReadCorpus(FUNC_NAME.TAIL_RANGE_READ, footerSize).keySet());
+        LatencyHistogram footerLatency = new LatencyHistogram();
+        LatencyHistogram rangeLatency = new LatencyHistogram();
+        long footerBytes = 0;
+        long rangeBytes = 0;
+        for (int i = 0; i < numOfFiles; i++) {
+            String key = corpus.get(i % corpus.size());
+            long start = System.nanoTime();
+            S3CompatObject footer = client.readObjectSuffix(bucketName, key, null /* versionId */, footerSize, IOUtils::consume);
+            long footerNanos = System.nanoTime() - start;
+            footerLatency.record(footerNanos / 1000);
+            footerBytes += footer.getContentLength();
+            PerfMeasurementRecorder.record(FUNC_NAME.TAIL_RANGE_READ.getName() + "/footer", footerNanos / 1_000_000);
+            // Content-Range: bytes first-last/size
+            long objectSize = Long.parseLong(footer.getContentRange().substring(footer.getContentRange().lastIndexOf('/') + 1));
+            long dataSize = Math.max(1, objectSize - footer.getContentLength());
+            for (int r = 0; r < rangeReads; r++) {
+                long offset = ThreadLocalRandom.current().nextLong(dataSize);
+                long end = Math.min(offset + rangeSize, dataSize) - 1;
+                start = System.nanoTime();
+                S3CompatObject range = client.readObject(bucketName, key, null /* versionId */, offset, end, IOUtils::consume);
+                long rangeNanos = System.nanoTime() - start;
+                rangeLatency.record(rangeNanos / 1000);
+                rangeBytes += range.getContentLength();
+                PerfMeasurementRecorder.record(FUNC_NAME.TAIL_RANGE_READ.getName() + "/range", rangeNanos / 1_000_000);
+            }
+        }
+        System.out.println("read, reads, avg KB, p50 ms, p99 ms, max ms, effective MB/sec");
+        printRangeReads("footer", footerLatency, footerBytes);
+        printRangeReads("range", rangeLatency, rangeBytes);
+    }
+
+    /**
+     * Get the objects read by the range read measurements: the objects of --sourcePrefix larger than minSize, or
+     * {@value tail_range_corpus_size} generated objects of the first --largeObjectSizesMB size.
+     * @return The object sizes by key.
+     */
+    private Map<String, Long> rangeReadCorpus(FUNC_NAME func, long minSize) {
+        S3CompatStorageClient client = concurrentClient();
+        Map<String, Long> corpus = new TreeMap<>();
+        if (sourcePrefix != null) {
+            client.listObjectsV2Paged(bucketName, sourcePrefix, null /* maxKeys */, page -> page.stream()
+                    .filter(summary -> summary.getSize() > minSize)
+                    .forEach(summary -> corpus.put(summary.getKey(), summary.getSize())));
+            if (corpus.isEmpty()) {
+                throw new IllegalArgumentException("No object larger than " + minSize + " bytes under " + sourcePrefix);
+            }
+        } else {
+            long size = largeObjectSizesMB[0] * MB;
+            generateFileWithSize(EnvConstants.LARGE_FILE_NAME, size);
+            for (int i = 0; i < tail_range_corpus_size; i++) {
+                String key = prefix + "/" + func.getName() + "/file_" + i;
+                if (size >= multipartThreshold) {
+                    client.putObjectMultipart(bucketName, key, EnvConstants.LARGE_FILE_NAME, partSize, concurrency);
+                } else {
+                    client.putObject(bucketName, key, EnvConstants.LARGE_FILE_NAME);
+                }
+                corpus.put(key, size);
+            }
+            new File(EnvConstants.LARGE_FILE_NAME).delete();
+        }
+        return corpus;
+    }
+
+    /**
+     * Replay the same skewed range read workload with and without a block cache in front of the reads. numOfReads
+     * ranges of --rangeKB are read by --concurrency workers; objects and ranges are drawn with a Zipf distribution of
+     * --zipfExponent, the hottest ranges being at the end of the objects, where the footers are.
+     */
+    private void measureBlockCacheRead(int numOfReads) {
+        S3CompatStorageClient client = concurrentClient();
+        Map<String, Long> corpus = rangeReadCorpus(FUNC_NAME.BLOCK_CACHE_READ, rangeSize);
+        List<String> keys = new ArrayList<>(corpus.keySet());
+        Random random = new Random(numOfReads);
+        ZipfSampler objectSampler = new ZipfSampler(keys.size(), zipfExponent);
+        List<String> readKeys = new ArrayList<>(numOfReads);
+        long[] readOffsets = new long[numOfReads];
+        Map<String, ZipfSampler> rangeSamplers = new TreeMap<>();
+        for (int i = 0; i < numOfReads; i++) {
+            String key = keys.get(objectSampler.sample(random));
+            long size = corpus.get(key);
+            int numRanges = (int) Math.max(1, Math.min(Integer.MAX_VALUE, size / rangeSize));
+            int rank = rangeSamplers.computeIfAbsent(key, k -> new ZipfSampler(numRanges, zipfExponent)).sample(random);
+            readKeys.add(key);
+            readOffsets[i] = Math.max(0, size - (rank + 1) * rangeSize);
+        }
+        System.out.println("cache, reads, p50 ms, p99 ms, max ms, reads/sec, MB/sec, hit ratio, MB saved, MB fetched");
+        replayRangeReads(client, "off", readKeys, readOffsets, null);
+        Path cacheFile = null;
+        try {
+            if (blockCacheStore == BlockCache.Store.DISK) {
+                cacheFile = Files.createTempFile("block-cache", ".bin");
+            }
+            try (BlockCache cache = new BlockCache(blockSize, blockCacheSize, blockCacheStore, cacheFile, blockCacheTtlMs)) {
+                client.setBlockCache(cache);
+                replayRangeReads(client, blockCacheStore.getName(), readKeys, readOffsets, cache);
+                System.out.println(cache);
+            } finally {
+                client.setBlockCache(null);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void replayRangeReads(S3CompatStorageClient client, String cacheName, List<String> readKeys, long[] readOffsets,
+                                  BlockCache cache) {
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder bytes = new LongAdder();
+        long start = System.nanoTime();
+        try (BoundedExecutor executor = new BoundedExecutor(FUNC_NAME.BLOCK_CACHE_READ.getName(), concurrency, concurrency * 2, executionMode)) {
+            for (int i = 0; i < readKeys.size(); i++) {
+                String key = readKeys.get(i);
+                long offset = readOffsets[i];
+                executor.submit(() -> {
+                    long readStart = System.nanoTime();
+                    S3CompatObject range = client.readObject(bucketName, key, null /* versionId */, offset, offset + rangeSize - 1,
+                            IOUtils::consume);
+                    latency.record((System.nanoTime() - readStart) / 1000);
+                    bytes.add(range.getContentLength());
+                    PerfMeasurementRecorder.record(FUNC_NAME.BLOCK_CACHE_READ, (System.nanoTime() - readStart) / 1_000_000);
+                });
+            }
+            executor.awaitCompletion();
+        }
+        double elapsedSec = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s, %d, %.2f, %.2f, %.2f, %.1f, %.2f, %.3f, %.1f, %.1f%n", cacheName, latency.getCount(),
+                latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0, latency.getMax() / 1000.0,
+                latency.getCount() / elapsedSec, bytes.sum() / (double) MB / elapsedSec,
+                cache == null ? 0 : cache.getHitRatio(), cache == null ? 0 : cache.getBytesSaved() / (double) MB,
+                cache == null ? bytes.sum() / (double) MB : cache.getBytesFetched() / (double) MB);
+    }
+
+    /**
+     * Scan numOfFiles files sequentially, first each with a single GET stream, then each with a read-ahead stream of
+     * --partSizeMB chunks and up to --readAheadWindow chunks in flight, and compare per file latency and throughput.
+     */
+    private void measureReadAhead(int numOfFiles) {
+        S3CompatStorageClient client = concurrentClient();
+        List<String> corpus = new ArrayList<>(rangeReadCorpus(FUNC_NAME.READ_AHEAD, 0 /* minSize */).keySet());
+        System.out.println("stream, files, p50 ms, p99 ms, max ms, MB/sec, chunk retries, stalls, avg window");
+        for (boolean readAhead : new boolean[] {false, true}) {
+            LatencyHistogram latency = new LatencyHistogram();
+            long bytes = 0;
+            long retries = 0;
+            long stalls = 0;
+            long windows = 0;
+            for (int i = 0; i < numOfFiles; i++) {
+                String key = corpus.get(i % corpus.size());
+                long start = System.nanoTime();
+                if (readAhead) {
+                    try (ReadAheadInputStream in = client.openReadAheadStream(bucketName, key, null /* versionId */, (int) partSize,
+                            readAheadWindow)) {
+                        bytes += IOUtils.consume(in);
+                        retries += in.getChunkRetries();
+                        stalls += in.getStalls();
+                        windows += in.getWindow();
+                    } catch (IOException e) {
+                        throw new RuntimeException("Fail to read " + key, e);
+                    }
+                } else {
+                    bytes += client.readObject(bucketName, key, null /* versionId */, null /* start */, null /* end */,
+                            IOUtils::consume).getContentLength();
+                }
+                latency.record((System.nanoTime() - start) / 1000);
+                PerfMeasurementRecorder.record(FUNC_NAME.READ_AHEAD, (System.nanoTime() - start) / 1_000_000);
+            }
+            System.out.printf("%s, %d, %.2f, %.2f, %.2f, %.2f, %d, %d, %.1f%n", readAhead ? "readAhead" : "singleGet",
+                    latency.getCount(), latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0,
+                    latency.getMax() / 1000.0, bytes / (double) MB / (Math.max(1, latency.getSum()) / 1e6), retries, stalls,
+                    readAhead ? windows / (double) Math.max(1, numOfFiles) : 1.0);
+        }
+    }
+
+    /**
+     * Have --concurrency workers read the same manifest object of --objectSize at the same moment, rounds times: each
+     * round every worker waits for the others, then calls getObjectMetadata and getObject. The rounds run without and
+     * with request coalescing, and the network calls saved are printed.
+     */
+    private void measureCoalescedReads(int rounds) {
+        S3CompatStorageClient client = concurrentClient();
+        String key = prefix + "/" + FUNC_NAME.COALESCED_READS.getName() + "/manifest";
+        byte[] content = new byte[objectSize];
+        ThreadLocalRandom.current().nextBytes(content);
+        try {
+            client.putObject(new WriteObjectSpec(bucketName, key, () -> new ByteArrayInputStream(content), content.length,
+                    null /* clientTimeoutInMs */, null /* additionalBlobMetadata */));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        System.out.println("coalescing, calls, network calls, calls saved, calls/sec, p50 ms, p99 ms");
+        for (boolean coalescing : new boolean[] {false, true}) {
+            client.setRequestCoalescing(coalescing);
+            client.resetCoalescingStats();
+            LatencyHistogram latency = new LatencyHistogram();
+            CyclicBarrier barrier = new CyclicBarrier(concurrency);
+            long start = System.nanoTime();
+            try (BoundedExecutor executor = new BoundedExecutor(FUNC_NAME.COALESCED_READS.getName(), concurrency, concurrency, executionMode)) {
+                for (int w = 0; w < concurrency; w++) {
+                    executor.submit(() -> {
+                        for (int r = 0; r < rounds; r++) {
+                            try {
+                                barrier.await();
+                            } catch (InterruptedException | BrokenBarrierException e) {
+                                throw new RuntimeException(e);
+                            }
+                            long callStart = System.nanoTime();
+                            client.getObjectMetadata(bucketName, key, null /* versionId */);
+                            latency.record((System.nanoTime() - callStart) / 1000);
+                            callStart = System.nanoTime();
+                            client.getObject(bucketName, key);
+                            latency.record((System.nanoTime() - callStart) / 1000);
+                            PerfMeasurementRecorder.record(FUNC_NAME.COALESCED_READS, (System.nanoTime() - callStart) / 1_000_000);
+                        }
+                    });
+                }
+                executor.awaitCompletion();
+            } finally {
+                client.setRequestCoalescing(false);
+            }
+            double elapsedSec = (System.nanoTime() - start) / 1e9;
+            long calls = latency.getCount();
+            long networkCalls = coalescing ? client.getCoalescingLeaderRequests() : calls;
+            System.out.printf("%s, %d, %d, %d, %.1f, %.2f, %.2f%n", coalescing ? "on" : "off", calls, networkCalls,
+                    calls - networkCalls, calls / elapsedSec, latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0);
+        }
+    }
+
+    /**
+     * Compare numOfLookups getObjectMetadata calls over {@value metadata_cache_objects} objects: cold HEADs without a
+     * cache, lookups served by a warm cache, and lookups revalidated every time with a HEAD conditional on the ETag,
+     * which shows what the endpoint's support of If-None-Match saves.
+     */
+    private void measureMetadataCache(int numOfLookups) {
+        S3CompatStorageClient client = concurrentClient();
+        List<String> keys = new ArrayList<>();
+        byte[] content = new byte[objectSize];
+        for (int i = 0; i < metadata_cache_objects; i++) {
+            String key = prefix + "/" + FUNC_NAME.METADATA_CACHE.getName() + "/object_" + i;
+            try {
+                client.putObject(new WriteObjectSpec(bucketName, key, () -> new ByteArrayInputStream(content), content.length,
+                        null /* clientTimeoutInMs */, null /* additionalBlobMetadata */));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            keys.add(key);
+        }
+        System.out.println("lookup, lookups, p50 ms, p99 ms, lookups/sec, hits, not modified, refreshed");
+        Map<String, MetadataCache> caches = new LinkedHashMap<>();
+        caches.put("cold", null);
+        caches.put("cached", new MetadataCache(metadata_cache_objects, TimeUnit.DAYS.toMillis(1) /* ttlMs */));
+        caches.put("revalidated", new MetadataCache(metadata_cache_objects, 0 /* ttlMs */));
+        for (Map.Entry<String, MetadataCache> mode : caches.entrySet()) {
+            MetadataCache cache = mode.getValue();
+            client.setMetadataCache(cache);
+            try {
+                if (cache != null) {
+                    keys.forEach(key -> client.getObjectMetadata(bucketName, key, null /* versionId */));
+                    cache.resetStats();
+                }
+                LatencyHistogram latency = new LatencyHistogram();
+                long start = System.nanoTime();
+                for (int i = 0; i < numOfLookups; i++) {
+                    long lookupStart = System.nanoTime();
+                    client.getObjectMetadata(bucketName, keys.get(i % keys.size()), null /* versionId */);
+                    latency.record((System.nanoTime() - lookupStart) / 1000);
+                    PerfMeasurementRecorder.record(FUNC_NAME.METADATA_CACHE, (System.nanoTime() - lookupStart) / 1_000_000);
+                }
+                double elapsedSec = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%s, %d, %.3f, %.3f, %.1f, %d, %d, %d%n", mode.getKey(), latency.getCount(),
+                        latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0, latency.getCount() / elapsedSec,
+                        cache == null ? 0 : cache.getHits(), cache == null ? 0 : cache.getNotModified(),
+                        cache == null ? 0 : cache.getRefreshed());
+            } finally {
+                client.setMetadataCache(null);
+            }
+        }
+    }
+
+    private static void printRangeReads(String read, LatencyHistogram latency, long bytes) {
+        long reads = Math.max(1, latency.getCount());
+        double totalSec = Math.max(1, latency.getSum()) / 1e6;
+        System.out.printf("%s, %d, %.1f, %.2f, %.2f, %.2f, %.2f%n", read, latency.getCount(), bytes / 1024.0 / reads,
+                latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0, latency.getMax() / 1000.0,
+                bytes / (double) MB / totalSec);
+    }
+
+    /**
+     * Compare the URLs/sec of presigning numOfUrls keys one at a time with generatePresignedUrl, and in one batch with
+     * presignUrls. Signing is local, so nothing is sent to the endpoint; each path is warmed up first.
+     */
+    private void measurePresignUrls(int numOfUrls) {
+        List<String> keys = new ArrayList<>(numOfUrls);
+        for (int i = 0; i < numOfUrls; i++) {
+            keys.add(prefix + "/" + FUNC_NAME.PRESIGN_URLS.getName() + "/part_" + i + ".parquet");
+        }
+        int lifetimeInSecs = 3600;
+        System.out.println("presign, urls, urls/sec, us/url");
+        for (boolean batch : new boolean[] {false, true}) {
+            long elapsed = 0;
+            for (int round = 0; round < presign_warmup_rounds + 1; round++) {
+                long start = System.nanoTime();
+                if (batch) {
+                    clientWithRegion1.presignUrls(bucketName, keys, HttpMethod.GET, lifetimeInSecs);
+                } else {
+                    for (String key : keys) {
+                        clientWithRegion1.generatePresignedUrl(bucketName, key, lifetimeInSecs, null /* contentType */);
+                    }
+                }
+                elapsed = System.nanoTime() - start;
+            }
+            PerfMeasurementRecorder.record(FUNC_NAME.PRESIGN_URLS, elapsed / 1_000_000);
+            System.out.printf("%s, %d, %.1f, %.2f%n", batch ? "presignUrls" : "generatePresignedUrl", numOfUrls,
+                    numOfUrls / (elapsed / 1e9), elapsed / 1000.0 / Math.max(1, numOfUrls));
+        }
+    }
+
+    /**
+     * Download the objects under --sourcePrefix, or numOfObjects generated objects of --objectSize, with --concurrency
+     * workers: first through the SDK getObject path, then through presigned URLs fetched with a java.net.http.HttpClient,
+     * which keeps its connections alive across requests, the way Snowflake reads files through presigned URLs.
+     */
+    private void measurePresignedDownload(int numOfObjects) {
+        S3CompatStorageClient client = concurrentClient();
+        List<String> keys = downloadCorpus(client, FUNC_NAME.PRESIGNED_DOWNLOAD, numOfObjects);
+        List<String> urls = client.presignUrls(bucketName, keys, HttpMethod.GET, 3600 /* lifetimeInSecs */);
+        System.out.println(download_header);
+        downloadConcurrently(FUNC_NAME.PRESIGNED_DOWNLOAD, "sdkGetObject", keys.size(), i -> client.readObject(bucketName,
+                keys.get(i), null /* versionId */, null /* start */, null /* end */, IOUtils::consume).getContentLength());
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        downloadConcurrently(FUNC_NAME.PRESIGNED_DOWNLOAD, "presignedUrl", urls.size(), i -> {
+            try {
+                HttpResponse<InputStream> response = httpClient.send(HttpRequest.newBuilder(URI.create(urls.get(i))).GET().build(),
+                        HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = response.body()) {
+                    long bytes = IOUtils.consume(body);
+                    if (response.statusCode() != 200) {
+                        throw new RuntimeException("GET " + keys.get(i) + " through its presigned url returned " + response.statusCode());
+                    }
+                    return bytes;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Fail to download " + keys.get(i), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * Download the objects under --sourcePrefix, or numOfObjects generated objects of --objectSize, with the same
+     * --concurrency both ways: one thread blocked on each request in flight with the SDK client, then requests in flight
+     * on the async client, whose responses are handled by {@value async_response_threads} threads.
+     */
+    private void measureAsyncReads(int numOfObjects) {
+        S3CompatStorageClient client = concurrentClient();
+        List<String> keys = downloadCorpus(client, FUNC_NAME.ASYNC_READS, numOfObjects);
+        System.out.println(download_header);
+        downloadConcurrently(FUNC_NAME.ASYNC_READS, "threadPerRequest", keys.size(), i -> client.readObject(bucketName,
+                keys.get(i), null /* versionId */, null /* start */, null /* end */, IOUtils::consume).getContentLength());
+        try (AsyncS3CompatStorageClient asyncClient = client.createAsyncClient(async_response_threads)) {
+            LatencyHistogram latency = new LatencyHistogram();
+            String label = FUNC_NAME.ASYNC_READS.getName() + "/async";
+            LongAdder bytes = new LongAdder();
+            AtomicLong failures = new AtomicLong();
+            Semaphore inFlight = new Semaphore(concurrency);
+            threadMXBean.resetPeakThreadCount();
+            long start = System.nanoTime();
+            for (String key : keys) {
+                inFlight.acquireUninterruptibly();
+                long readStart = System.nanoTime();
+                CompletableFuture<S3CompatObject> read;
+                try {
+                    read = asyncClient.readObject(bucketName, key, null /* start */, null /* end */, IOUtils::consume);
+                } catch (RuntimeException e) {
+                    // failed before it was sent, e.g. while presigning, no callback releases the permit.
+                    recordFailure(failures, label, e);
+                    inFlight.release();
+                    continue;
+                }
+                read.whenComplete((object, e) -> {
+                    if (e == null) {
+                        bytes.add(object.getContentLength());
+                        latency.record((System.nanoTime() - readStart) / 1000);
+                        PerfMeasurementRecorder.record(label, (System.nanoTime() - readStart) / 1_000_000);
+                    } else {
+                        recordFailure(failures, label, e);
+                    }
+                    inFlight.release();
+                });
+            }
+            inFlight.acquireUninterruptibly(concurrency);
+            printDownloadRow("async", latency, bytes.sum(), failures.get(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Sweep --concurrencyLevels simulated clients, each reading requestsPerClient random objects of a small corpus with
+     * the blocking SDK client, on platform threads and then on virtual threads when the JVM supports them. A level is
+     * sustained while at most 1% of the requests fail and the throughput stays within
+     * {@value execution_modes_max_rate_drop} of the best level. Pinning of virtual threads is recorded with JFR.
+     */
+    private void measureExecutionModes(int requestsPerClient) {
+        List<String> keys = downloadCorpus(concurrentClient(), FUNC_NAME.EXECUTION_MODES, execution_modes_objects);
+        System.out.println("mode, concurrency, requests, requests/sec, p50 ms, p99 ms, failures, peak threads, peak heap MB, peak RSS MB, pinned events");
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            if (!mode.isSupported()) {
+                System.out.printf("%s, not supported on Java %s%n", mode.getName(), System.getProperty("java.version"));
+                continue;
+            }
+            long maxSustained = 0;
+            double bestRate = 0;
+            for (long level : concurrencyLevels) {
+                LatencyHistogram latency = new LatencyHistogram();
+                AtomicLong failures = new AtomicLong();
+                System.gc();
+                threadMXBean.resetPeakThreadCount();
+                PinningMonitor pinning = mode == ExecutionMode.VIRTUAL ? new PinningMonitor() : null;
+                long start = System.nanoTime();
+                try (S3CompatStorageClient client = new S3CompatStorageClient(credentialsProvider, EnvConstants.REGION_1, EnvConstants.ENDPOINT, (int) level);
+                     FootprintSampler footprint = new FootprintSampler(50 /* intervalMs */)) {
+                    try (BoundedExecutor executor = new BoundedExecutor(mode.getName(), (int) level, (int) level, mode)) {
+                        for (int c = 0; c < level; c++) {
+                            executor.submit(() -> {
+                                for (int r = 0; r < requestsPerClient; r++) {
+                                    long readStart = System.nanoTime();
+                                    try {
+                                        client.readObject(bucketName, keys.get(ThreadLocalRandom.current().nextInt(keys.size())),
+                                                null /* versionId */, null /* start */, null /* end */, IOUtils::consume);
+                                        latency.record((System.nanoTime() - readStart) / 1000);
+                                        PerfMeasurementRecorder.record(FUNC_NAME.EXECUTION_MODES, (System.nanoTime() - readStart) / 1_000_000);
+                                    } catch (RuntimeException e) {
+                                        recordFailure(failures, FUNC_NAME.EXECUTION_MODES.getName() + " on " + mode.getName() + " threads", e);
+                                    }
+                                }
+                            });
+                        }
+                        executor.awaitCompletion();
+                    } catch (OutOfMemoryError e) {
+                        // e.g. "unable to create native thread", the level is out of reach for this mode.
+                        System.out.printf("%s, %d, failed: %s%n", mode.getName(), level, e.getMessage());
+                        break;
+                    } finally {
+                        if (pinning != null) {
+                            pinning.stop();
+                        }
+                    }
+                    double elapsedSec = (System.nanoTime() - start) / 1e9;
+                    double rate = latency.getCount() / elapsedSec;
+                    System.out.printf("%s, %d, %d, %.1f, %.2f, %.2f, %d, %d, %d, %d, %d%n", mode.getName(), level,
+                            latency.getCount() + failures.get(), rate, latency.getPercentile(50) / 1000.0,
+                            latency.getPercentile(99) / 1000.0, failures.get(), threadMXBean.getPeakThreadCount(),
+                            footprint.getPeakHeapUsed() / MB, footprint.getPeakRss() / MB, pinning != null ? pinning.getPinnedEvents() : 0);
+                    if (pinning != null && pinning.getPinnedEvents() > 0) {
+                        System.out.println("  pinned at: " + pinning.getTopSites(3));
+                    }
+                    if (failures.get() <= max_failure_rate * (latency.getCount() + failures.get())
+                            && rate >= bestRate * (1 - execution_modes_max_rate_drop)) {
+                        maxSustained = level;
+                    }
+                    bestRate = Math.max(bestRate, rate);
+                }
+            }
+            System.out.printf("Max sustained concurrency on %s threads: %d, best rate %.1f requests/sec%n", mode.getName(), maxSustained, bestRate);
+        }
+    }
+
+    /**
+     * Run numOfOperations operations of --mix with --concurrency workers over a pool of generated objects of
+     * --objectSize. When the mix has PUTs, the same mix without them runs first, so the read latency with and without
+     * concurrent writes can be compared. With --duration, each run lasts --warmup then --duration instead.
+     */
+    private void measureMixedWorkload(int numOfOperations) {
+        S3CompatStorageClient client = concurrentClient();
+        String poolPrefix = prefix + "/" + FUNC_NAME.MIXED_WORKLOAD.getName();
+        ListingFixtureManifest pool = new ListingFixtureGenerator(client, bucketName, concurrency)
+                .build(poolPrefix, mixed_workload_objects, objectSize, ListingFixtureGenerator.KeyDistribution.SEQUENTIAL);
+        List<String> keys = new ArrayList<>();
+        client.listObjectsV2Paged(bucketName, pool.getPrefix(), null /* maxKeys */, page -> page.forEach(summary -> keys.add(summary.getKey())));
+        Map<String, OperationMix> runs = new LinkedHashMap<>();
+        if (mix.getShare(WorkloadOp.PUT) > 0 && mix.getShare(WorkloadOp.PUT) < 1) {
+            runs.put("withoutWrites", mix.without(WorkloadOp.PUT));
+        }
+        runs.put("mixed", mix);
+        System.out.println("mix: " + mix);
+        System.out.println(WorkloadStats.HEADER);
+        Map<String, WorkloadStats> results = new LinkedHashMap<>();
+        for (Map.Entry<String, OperationMix> run : runs.entrySet()) {
+            MixedWorkload workload = new MixedWorkload(client, bucketName, pool.getPrefix(), keys, run.getValue())
+                    .withConcurrency(concurrency)
+                    .withObjectSize(objectSize)
+                    .withExecutionMode(executionMode);
+            WorkloadStats stats;
+            if (duration != null) {
+                WorkloadResult result = workload.run(warmup, duration);
+                result.print(System.out, run.getKey());
+                stats = result.getSteady();
+            } else {
+                stats = workload.run(numOfOperations);
+                stats.print(System.out, run.getKey());
+            }
+            PerfMeasurementRecorder.record(FUNC_NAME.MIXED_WORKLOAD, (long) stats.getElapsedMs());
+            results.put(run.getKey(), stats);
+        }
+        if (results.size() > 1) {
+            for (WorkloadOp read : new WorkloadOp[] {WorkloadOp.GET, WorkloadOp.HEAD}) {
+                if (mix.getShare(read) > 0) {
+                    System.out.printf("%s p99 with writes: %.2f ms, without: %.2f ms%n", read.getName(),
+                            results.get("mixed").getLatency(read).getPercentile(99) / 1000.0,
+                            results.get("withoutWrites").getLatency(read).getPercentile(99) / 1000.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Search the max sustainable throughput of a function: its concurrency, or its rate with --concurrency workers, is
+     * doubled every --duration seconds (after --warmup) until the p99 latency exceeds --sloP99Ms or the failure rate
+     * --maxErrorRate, then bisected down to the knee. Prints each step as it is measured, then the latency curve and the
+     * max sustainable ops/sec. The calls run as a {@link MixedWorkload} over a pool of generated objects of --objectSize.
+     */
+    private void measureSaturation(FUNC_NAME func) {
+        OperationMix funcMix;
+        switch (func) {
+            case GET_OBJECT:
+                funcMix = OperationMix.parse(WorkloadOp.GET.getName() + "=1");
+                break;
+            case GET_OBJECT_METADATA:
+                funcMix = OperationMix.parse(WorkloadOp.HEAD.getName() + "=1");
+                break;
+            case PUT_OBJECT:
+                funcMix = OperationMix.parse(WorkloadOp.PUT.getName() + "=1");
+                break;
+            case LIST_OBJECTS:
+            case LIST_OBJECTS_V2:
+                funcMix = OperationMix.parse(WorkloadOp.LIST.getName() + "=1");
+                break;
+            default:
+                funcMix = mix;
+        }
+        String poolPrefix = prefix + "/saturation";
+        List<String> keys = new ArrayList<>();
+        concurrentClient().listObjectsV2Paged(bucketName, poolPrefix, null /* maxKeys */, page -> page.forEach(summary -> keys.add(summary.getKey())));
+        if (keys.isEmpty()) {
+            new ListingFixtureGenerator(concurrentClient(), bucketName, concurrency)
+                    .build(poolPrefix, mixed_workload_objects, objectSize, ListingFixtureGenerator.KeyDistribution.SEQUENTIAL);
+            concurrentClient().listObjectsV2Paged(bucketName, poolPrefix, null /* maxKeys */, page -> page.forEach(summary -> keys.add(summary.getKey())));
+        }
+        SaturationSearch search = new SaturationSearch(saturation, sloP99Ms, maxErrorRate);
+        if (saturation == SaturationSearch.Load.CONCURRENCY) {
+            search.withLevels(1, saturation_max_concurrency);
+        } else {
+            search.withLevels(saturation_min_rate, saturation_max_rate);
+        }
+        System.out.printf("%s: %s stepped every %d sec after a %d sec warmup, SLO p99 <= %.1f ms and failure rate <= %.4f%n",
+                func.getName(), saturation.getName(), duration.getSeconds(), warmup.getSeconds(), sloP99Ms, maxErrorRate);
+        System.out.println(SaturationSearch.HEADER);
+        SaturationSearch.Result result = search.search(level -> {
+            int workers = saturation == SaturationSearch.Load.CONCURRENCY ? (int) level : concurrency;
+            WorkloadStats stats;
+            try (S3CompatStorageClient client = new S3CompatStorageClient(credentialsProvider, EnvConstants.REGION_1, EnvConstants.ENDPOINT, workers)) {
+                stats = new MixedWorkload(client, bucketName, poolPrefix, keys, funcMix)
+                        .withConcurrency(workers)
+                        .withRate(saturation == SaturationSearch.Load.RATE ? level : 0)
+                        .withObjectSize(objectSize)
+                        .withExecutionMode(executionMode)
+                        .run(warmup, duration)
+                        .getSteady();
+            }
+            SaturationSearch.Step step = search.step(level, stats.getLatency(), stats.getFailures(), stats.getOpsPerSec());
+            step.print(System.out);
+            return step;
+        });
+        System.out.println("Latency curve of " + func.getName());
+        System.out.println(SaturationSearch.HEADER);
+        result.getCurve().forEach(step -> step.print(System.out));
+        SaturationSearch.Step knee = result.getKnee();
+        if (knee == null) {
+            System.out.printf("No %s of %s sustained the SLO, the lowest one breached it.%n", saturation.getName(), func.getName());
+        } else {
+            System.out.printf("Max sustainable throughput of %s: %.1f ops/sec at %s %d, p99 %.2f ms%s%n", func.getName(),
+                    knee.getOpsPerSec(), saturation.getName(), knee.getLevel(), knee.getP99Ms(),
+                    result.isMaxLevelSustained() ? ", the highest level searched, the knee is beyond it" : "");
+        }
+    }
+
+    /**
+     * Get the keys of the objects to download: the objects under --sourcePrefix, or numOfObjects objects of --objectSize
+     * generated under a prefix named after the function.
+     */
+    private List<String> downloadCorpus(S3CompatStorageClient client, FUNC_NAME func, int numOfObjects) {
+        String downloadPrefix = sourcePrefix;
+        if (downloadPrefix == null) {
+            downloadPrefix = prefix + "/" + func.getName();
+            new ListingFixtureGenerator(client, bucketName, concurrency)
+                    .build(downloadPrefix, numOfObjects, objectSize, ListingFixtureGenerator.KeyDistribution.SEQUENTIAL);
+        }
+        List<String> keys = new ArrayList<>();
+        client.listObjectsV2Paged(bucketName, downloadPrefix, null /* maxKeys */, page -> page.forEach(summary -> keys.add(summary.getKey())));
+        return keys;
+    }
+
+    /**
+     * Run numOfObjects downloads with --concurrency workers and print their latency and throughput. Each download is
+     * recorded as func/path, so the paths compared by a measurement are not mixed.
+     * @param download Downloads the i-th object and returns its size.
+     */
+    private void downloadConcurrently(FUNC_NAME func, String path, int numOfObjects, IntToLongFunction download) {
+        String label = func.getName() + "/" + path;
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder bytes = new LongAdder();
+        AtomicLong failures = new AtomicLong();
+        threadMXBean.resetPeakThreadCount();
+        long start = System.nanoTime();
+        try (BoundedExecutor executor = new BoundedExecutor(path, concurrency, concurrency * 2, executionMode)) {
+            for (int i = 0; i < numOfObjects; i++) {
+                int index = i;
+                executor.submit(() -> {
+                    long downloadStart = System.nanoTime();
+                    try {
+                        bytes.add(download.applyAsLong(index));
+                        latency.record((System.nanoTime() - downloadStart) / 1000);
+                        PerfMeasurementRecorder.record(label, (System.nanoTime() - downloadStart) / 1_000_000);
+                    } catch (RuntimeException e) {
+                        recordFailure(failures, label, e);
+                    }
+                });
+            }
+            executor.awaitCompletion();
+        }
+        printDownloadRow(path, latency, bytes.sum(), failures.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Count a failed request, logging the first one only so a failing endpoint does not flood the log.
+     */
+    private static void recordFailure(AtomicLong failures, String operation, Throwable e) {
+        if (failures.incrementAndGet() == 1) {
+            logger.warn(operation + " failed, the next failures are only counted", e);
         }
     }
 
+    private static void printDownloadRow(String path, LatencyHistogram latency, long bytes, long failures, long elapsedNanos) {
+        double elapsedSec = elapsedNanos / 1e9;
+        System.out.printf("%s, %d, %.2f, %.2f, %.2f, %.1f, %.2f, %d, %d%n", path, latency.getCount(), latency.getPercentile(50) / 1000.0,
+                latency.getPercentile(99) / 1000.0, latency.getMax() / 1000.0, latency.getCount() / elapsedSec,
+                bytes / (double) MB / elapsedSec, failures, threadMXBean.getPeakThreadCount());
+    }
+
+    /**
+     * Measure the CPU cost of checksums: first digesting in memory, which bounds the rate one core can verify at,
+     * then putting and reading back objects of --partSizeMB with each checksum verified while streaming.
+     * The objects carry their checksums in user metadata, so reads verify CRC32C as well as MD5.
+     */
+    private void measureChecksumOverhead(int times) {
+        byte[] content = new byte[(int) Math.min(partSize, Integer.MAX_VALUE - 8)];
+        ThreadLocalRandom.current().nextBytes(content);
+        System.out.println("checksum, in memory ms/GB, in memory GB/s");
+        long digestBytes = 1024 * MB;
+        for (ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+            ChecksumAlgorithm.Digest digest = algorithm.newDigest();
+            // warm up, so the intrinsics are compiled.
+            for (int i = 0; i < 8; i++) {
+                digest.update(content, 0, content.length);
+            }
+            long start = System.nanoTime();
+            for (long digested = 0; digested < digestBytes; digested += content.length) {
+                digest.update(content, 0, content.length);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%s, %.1f, %.2f%n", algorithm.getName(), elapsed * (1024.0 * MB / digestBytes) / 1_000_000,
+                    digestBytes / (1024.0 * MB) / (elapsed / 1e9));
+        }
+        Map<String, String> storedChecksums = new TreeMap<>();
+        for (ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+            storedChecksums.put(algorithm.getMetadataKey(), algorithm.checksumOf(content));
+        }
+        System.out.println("checksums, putObject avg ms, readObject avg ms, checksum cpu ms per GB digested");
+        List<Set<ChecksumAlgorithm>> configs = List.of(EnumSet.noneOf(ChecksumAlgorithm.class), EnumSet.of(ChecksumAlgorithm.MD5),
+                EnumSet.of(ChecksumAlgorithm.CRC32C), EnumSet.allOf(ChecksumAlgorithm.class));
+        String key = prefix + "/" + FUNC_NAME.CHECKSUM_OVERHEAD.getName();
+        for (Set<ChecksumAlgorithm> algorithms : configs) {
+            clientWithRegion1.setChecksumVerification(algorithms);
+            ChecksumCost cost = clientWithRegion1.getChecksumCost();
+            cost.reset();
+            long putNanos = 0;
+            long readNanos = 0;
+            for (int i = 0; i < times; i++) {
+                try {
+                    WriteObjectSpec spec = new WriteObjectSpec(bucketName, key, () -> new ByteArrayInputStream(content),
+                            content.length, null /* clientTimeoutInMs */, storedChecksums);
+                    long start = System.nanoTime();
+                    clientWithRegion1.putObject(spec);
+                    putNanos += System.nanoTime() - start;
+                } catch (IOException e) {
+                    throw new RuntimeException("Fail to create write spec: " + e);
+                }
+                long start = System.nanoTime();
+                clientWithRegion1.readObject(bucketName, key, null /* versionId */, null /* start */, null /* end */, IOUtils::consume);
+                readNanos += System.nanoTime() - start;
+            }
+            double cpuMsPerGB = 0;
+            for (ChecksumAlgorithm algorithm : algorithms) {
+                cpuMsPerGB += cost.getNanosPerGB(algorithm) / 1_000_000;
+            }
+            System.out.printf("%s, %d, %d, %.1f%n", algorithms.isEmpty() ? "none" : algorithms,
+                    putNanos / Math.max(1, times) / 1_000_000, readNanos / Math.max(1, times) / 1_000_000, cpuMsPerGB);
+        }
+        clientWithRegion1.setChecksumVerification(EnumSet.noneOf(ChecksumAlgorithm.class));
+    }
+
+    /**
+     * Upload a local directory, or a generated dataset of numOfFiles small files and one multipart sized file.
+     * With a checkpoint, files completed by an earlier run are skipped.
+     * The throughput of the slowest files is written to bulkUpload-files.csv.
+     */
+    private void measureBulkUpload(int numOfFiles) {
+        Path dir = localDir != null ? Paths.get(localDir) : generateLocalDataset(numOfFiles);
+        try (TransferCheckpoint checkpoint = checkpointFile != null ? new TransferCheckpoint(new File(checkpointFile)) : null) {
+            S3CompatStorageClient client = concurrentClient();
+            TransferStats stats = new BulkUploader(client, concurrency)
+                    .withMultipart(multipartThreshold, partSize, concurrency)
+                    .withCheckpoint(checkpoint)
+                    .uploadDirectory(dir, bucketName, prefix + "/" + FUNC_NAME.BULK_UPLOAD.getName());
+            PerfMeasurementRecorder.record(FUNC_NAME.BULK_UPLOAD, (long) stats.getElapsedMs());
+            File report = new File(System.getProperty("user.dir"), FUNC_NAME.BULK_UPLOAD.getName() + "-files.csv");
+            stats.writePerObjectReport(report);
+            System.out.println(stats + ", per file report: " + report);
+        } finally {
+            if (localDir == null) {
+                FileUtils.deleteQuietly(dir.toFile());
+            }
+        }
+    }
+
+    /**
+     * Upload a dataset, stop it as soon as a part of a multipart upload completes, or once half of the bytes are
+     * uploaded when no file is large enough for a multipart upload, then resume it from the journal. Parts are uploaded
+     * with a parallelism below half the parts of the largest file, so the stopped upload has parts not started yet.
+     * The resumed run skips the completed files and the completed parts of the multipart upload in progress,
+     * so comparing both runs with a full upload shows the cost of resuming.
+     */
+    private void measureBulkUploadResume(int numOfFiles) {
+        Path dir = localDir != null ? Paths.get(localDir) : generateLocalDataset(numOfFiles);
+        File journal = checkpointFile != null ? new File(checkpointFile) : new File(dir.toFile().getParentFile(),
+                dir.getFileName() + "-checkpoint.jsonl");
+        String uploadPrefix = prefix + "/" + FUNC_NAME.BULK_UPLOAD_RESUME.getName();
+        S3CompatStorageClient client = concurrentClient();
+        try {
+            long totalBytes = directorySize(dir);
+            long largestParts = (largestFileSize(dir) + partSize - 1) / partSize;
+            // the part completing stops the upload, the parts in flight and at most one more submitted complete.
+            int partParallelism = (int) Math.max(1, Math.min(concurrency, (largestParts - 1) / 2));
+            TransferStats interrupted;
+            try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal) {
+                @Override
+                public void partCompleted(String key, int partNumber, String eTag) {
+                    super.partCompleted(key, partNumber, eTag);
+                    stop();
+                }
+            }) {
+                BulkUploader uploader = new BulkUploader(client, concurrency)
+                        .withMultipart(multipartThreshold, partSize, partParallelism)
+                        .withCheckpoint(checkpoint);
+                CompletableFuture<TransferStats> run = CompletableFuture.supplyAsync(
+                        () -> uploader.uploadDirectory(dir, bucketName, uploadPrefix));
+                while (!run.isDone() && directorySize(dir, checkpoint) < totalBytes / 2) {
+                    Thread.sleep(100);
+                }
+                checkpoint.stop();
+                interrupted = run.join();
+            }
+            TransferStats resumed;
+            try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+                resumed = new BulkUploader(client, concurrency)
+                        .withMultipart(multipartThreshold, partSize, partParallelism)
+                        .withCheckpoint(checkpoint)
+                        .uploadDirectory(dir, bucketName, uploadPrefix);
+            }
+            PerfMeasurementRecorder.record(FUNC_NAME.BULK_UPLOAD_RESUME, (long) resumed.getElapsedMs());
+            System.out.println("Interrupted run: " + interrupted);
+            System.out.println("Resumed run: " + resumed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the upload: " + e);
+        } finally {
+            if (checkpointFile == null) {
+                FileUtils.deleteQuietly(journal);
+            }
+            if (localDir == null) {
+                FileUtils.deleteQuietly(dir.toFile());
+            }
+        }
+    }
+
+    /**
+     * Size in bytes of the regular files under a directory, counting only the files completed in the checkpoint
+     * if one is given.
+     */
+    private static long directorySize(Path dir) {
+        return directorySize(dir, null);
+    }
+    private static long directorySize(Path dir, TransferCheckpoint checkpoint) {
+        String uploadPrefix = prefix + "/" + FUNC_NAME.BULK_UPLOAD_RESUME.getName() + "/";
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> checkpoint == null || checkpoint.isObjectCompleted(
+                            uploadPrefix + dir.relativize(file).toString().replace(File.separator, "/")))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to walk " + dir + ": " + e);
+        }
+    }
+
+    /**
+     * Size in bytes of the largest regular file under a directory.
+     */
+    private static long largestFileSize(Path dir) {
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).max().orElse(0);
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to walk " + dir + ": " + e);
+        }
+    }
+
+    /**
+     * Download an existing prefix, or a dataset of numOfFiles small objects and one object downloaded in ranges,
+     * into a temporary directory. With a checkpoint, objects and ranges completed by an earlier run are skipped.
+     * The throughput of the slowest objects is written to bulkDownload-files.csv.
+     */
+    private void measureBulkDownload(int numOfFiles) {
+        S3CompatStorageClient client = concurrentClient();
+        String downloadPrefix = sourcePrefix;
+        if (downloadPrefix == null) {
+            downloadPrefix = prefix + "/" + FUNC_NAME.BULK_DOWNLOAD.getName();
+            Path dataset = generateLocalDataset(numOfFiles);
+            try {
+                new BulkUploader(client, concurrency)
+                        .withMultipart(multipartThreshold, partSize, concurrency)
+                        .uploadDirectory(dataset, bucketName, downloadPrefix);
+            } finally {
+                FileUtils.deleteQuietly(dataset.toFile());
+            }
+        }
+        if (checkpointFile != null && localDir == null) {
+            throw new IllegalArgumentException("bulkDownload with a checkpoint needs --localDir to keep the downloaded files.");
+        }
+        Path dir = null;
+        try (TransferCheckpoint checkpoint = checkpointFile != null ? new TransferCheckpoint(new File(checkpointFile)) : null) {
+            dir = localDir != null ? Paths.get(localDir) : Files.createTempDirectory("s3compat-download");
+            client.setPerfMeasurement(FUNC_NAME.GET_OBJECT);
+            client.setMeasurementPerformance(true);
+            TransferStats stats = new BulkDownloader(client, concurrency)
+                    .withRanges(multipartThreshold, partSize)
+                    .withCheckpoint(checkpoint)
+                    .downloadPrefix(bucketName, downloadPrefix, dir);
+            client.setMeasurementPerformance(false);
+            PerfMeasurementRecorder.record(FUNC_NAME.BULK_DOWNLOAD, (long) stats.getElapsedMs());
+            File report = new File(System.getProperty("user.dir"), FUNC_NAME.BULK_DOWNLOAD.getName() + "-files.csv");
+            stats.writePerObjectReport(report);
+            System.out.println(stats + ", per file report: " + report);
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to create download directory: " + e);
+        } finally {
+            if (dir != null && localDir == null) {
+                FileUtils.deleteQuietly(dir.toFile());
+            }
+        }
+    }
+
+    private Path generateLocalDataset(int numOfFiles) {
+        try {
+            Path dir = Files.createTempDirectory("s3compat-dataset");
+            byte[] content = new byte[objectSize];
+            for (int i = 0; i < numOfFiles; i++) {
+                Path subDir = dir.resolve("part_" + (i / 100));
+                Files.createDirectories(subDir);
+                Files.write(subDir.resolve("file_" + i), content);
+            }
+            generateFileWithSize(dir.resolve("large_file").toString(), multipartThreshold + partSize);
+            return dir;
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to generate local dataset: " + e);
+        }
+    }
+
+    /**
+     * Sweep the HEADs in flight over --concurrencyLevels, fetching the metadata of every object under --sourcePrefix,
+     * or of numOfObjects generated objects, at each level. Each level has its own client with a connection pool of
+     * its size. The level past which HEADs/sec stop growing by {@value bulk_head_min_gain} is the metadata ceiling.
+     */
+    private void measureBulkHead(int numOfObjects) {
+        String headPrefix = sourcePrefix;
+        if (headPrefix == null) {
+            headPrefix = prefix + "/" + FUNC_NAME.BULK_HEAD.getName();
+            new ListingFixtureGenerator(concurrentClient(), bucketName, concurrency)
+                    .build(headPrefix, numOfObjects, objectSize, ListingFixtureGenerator.KeyDistribution.SEQUENTIAL);
+        }
+        List<String> keys = new ArrayList<>();
+        concurrentClient().listObjectsV2Paged(bucketName, headPrefix, null /* maxKeys */,
+                page -> page.forEach(summary -> keys.add(summary.getKey())));
+        System.out.println("concurrency, HEADs, HEADs/sec, p50 ms, p99 ms, failures");
+        int ceiling = 0;
+        double bestRate = 0;
+        for (long level : concurrencyLevels) {
+            LatencyHistogram latency = new LatencyHistogram();
+            TransferStats stats;
+            try (S3CompatStorageClient client = new S3CompatStorageClient(credentialsProvider, EnvConstants.REGION_1, EnvConstants.ENDPOINT, (int) level)) {
+                stats = new BulkMetadataFetcher(client, (int) level)
+                        .fetch(bucketName, keys, null /* versionIds */, result -> latency.record(result.getElapsedNanos() / 1000));
+            }
+            PerfMeasurementRecorder.record(FUNC_NAME.BULK_HEAD, (long) stats.getElapsedMs());
+            System.out.printf("%d, %d, %.1f, %.2f, %.2f, %d%n", level, stats.getObjects(), stats.getObjectsPerSec(),
+                    latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0, stats.getFailures());
+            if (stats.getObjectsPerSec() > bestRate * (1 + bulk_head_min_gain)) {
+                ceiling = (int) level;
+            }
+            bestRate = Math.max(bestRate, stats.getObjectsPerSec());
+        }
+        System.out.printf("Metadata ceiling: %.1f HEADs/sec, reached at concurrency %d%n", bestRate, ceiling);
+    }
+
+    /**
+     * Copy or rename a prefix with numOfObjects objects, each copy is recorded as copyObject.
+     */
+    private void measureBulkCopy(int numOfObjects, boolean deleteSource) {
+        FUNC_NAME func = deleteSource ? FUNC_NAME.BULK_RENAME : FUNC_NAME.BULK_COPY;
+        String sourcePrefix = prefix + "/" + func.getName() + "_src";
+        new ListingFixtureGenerator(concurrentClient(), bucketName, concurrency)
+                .build(sourcePrefix, numOfObjects, objectSize, ListingFixtureGenerator.KeyDistribution.SEQUENTIAL);
+        S3CompatStorageClient client = concurrentClient();
+        client.setPerfMeasurement(FUNC_NAME.COPY_OBJECT);
+        client.setMeasurementPerformance(true);
+        // Any single multipart copy may use the whole part pool of the client, which is as large as its connection
+        // pool, so the part copies of all objects together stay within the connections.
+        TransferStats stats = new BulkCopier(client, concurrency, multipartThreshold, partSize, concurrency)
+                .copyPrefix(bucketName, sourcePrefix, bucketName, prefix + "/" + func.getName() + "_dst", deleteSource);
+        client.setMeasurementPerformance(false);
+        PerfMeasurementRecorder.record(func, (long) stats.getElapsedMs());
+        System.out.println(stats);
+    }
+
     private void measureListObjects(int times) {
         clientWithRegion1.setPerfMeasurement(FUNC_NAME.LIST_OBJECTS_V2);
         String testPrefix = prefix + "/listObjectsV2";
         uploadFilesForTesting(times, testPrefix);
-        for (int i = 0; i < times; i++) {
-            clientWithRegion1.listObjectsV2(bucketName, testPrefix, null /* maxKeys */);
-        }
+        repeat(FUNC_NAME.LIST_OBJECTS_V2, times, i -> clientWithRegion1.listObjectsV2(bucketName, testPrefix, null /* maxKeys */));
     }
     private void measureListLargeNumObjects(int times) {
         clientWithRegion1.setPerfMeasurement(FUNC_NAME.LIST_LARGE_NUM_OBJECTS);
-        String testPrefix = EnvConstants.PREFIX_FOR_PAGE_LISTING_AT_REG_1;
-        for (int i = 0; i < times; i++) {
-            clientWithRegion1.listObjectsV2(bucketName, testPrefix, null, FUNC_NAME.LIST_LARGE_NUM_OBJECTS);
-        }
+        repeat(FUNC_NAME.LIST_LARGE_NUM_OBJECTS, times, i -> {
+            int listed = clientWithRegion1.listObjectsV2(bucketName, listingPrefix, null, FUNC_NAME.LIST_LARGE_NUM_OBJECTS).size();
+            if (listingTotalSize >= 0 && listed != listingTotalSize) {
+                System.out.printf("Listed %d objects under %s, expected %d%n", listed, listingPrefix, listingTotalSize);
+            }
+        });
     }
     private void putLargeSizeObject() {
         clientWithRegion1.setPerfMeasurement(FUNC_NAME.PUT_OBJECT);
@@ -262,9 +1752,7 @@ public class PerfMeasurement {
         String testPrefix = prefix + "/versions_" + getRandomInt(1, 5000);
         String remoteFileName = testPrefix + '/' + EnvConstants.LOCAL_FILE_PATH_1;
         PutObjectResult res = clientWithRegion1.putObject(bucketName, remoteFileName, EnvConstants.LOCAL_FILE_PATH_1);
-        for (int i = 0; i < times; i++) {
-            clientWithRegion1.listVersions(bucketName, remoteFileName, false, null);
-        }
+        repeat(FUNC_NAME.LIST_VERSIONS, times, i -> clientWithRegion1.listVersions(bucketName, remoteFileName, false, null));
     }
     /**
      * Helper to obtain a random int value between specified bounds.
@@ -281,6 +1769,13 @@ public class PerfMeasurement {
         clientWithRegion1.setPerfMeasurement(FUNC_NAME.DELETE_OBJECT);
         int numFiles = times;
         String testPrefix = prefix + "/" + FUNC_NAME.DELETE_OBJECT.getName();
+        if (duration != null) {
+            // each object deleted is written just before, outside of the measured call.
+            repeatForDuration(FUNC_NAME.DELETE_OBJECT,
+                    i -> clientWithRegion1.putObject(bucketName, testPrefix + "/tempfile_" + i, EnvConstants.LOCAL_FILE_PATH_1),
+                    i -> clientWithRegion1.deleteObject(bucketName, testPrefix + "/tempfile_" + i));
+            return;
+        }
         List<PutObjectResult> putFilesToDelete = uploadFilesForTesting(numFiles, testPrefix);
         for (int i = 0; i < putFilesToDelete.size(); i++) {
             String fileName = "tempfile_" + i;
@@ -323,7 +1818,28 @@ public class PerfMeasurement {
         LIST_VERSIONS("listVersions"),
         DELETE_OBJECT("deleteObject"),
         DELETE_OBJECTS("deleteObjects"),
-        COPY_OBJECT("copyObject");
+        COPY_OBJECT("copyObject"),
+        COPY_OBJECT_MULTIPART("copyObjectMultipart"),
+        PUT_OBJECT_MULTIPART("putObjectMultipart"),
+        PUT_OBJECT_VERIFICATION("putObjectVerification"),
+        CHECKSUM_OVERHEAD("checksumOverhead"),
+        CONSISTENCY_PROBE("consistencyProbe"),
+        TAIL_RANGE_READ("tailRangeRead"),
+        BLOCK_CACHE_READ("blockCacheRead"),
+        READ_AHEAD("readAhead"),
+        COALESCED_READS("coalescedReads"),
+        METADATA_CACHE("metadataCache"),
+        PRESIGN_URLS("presignUrls"),
+        PRESIGNED_DOWNLOAD("presignedDownload"),
+        ASYNC_READS("asyncReads"),
+        EXECUTION_MODES("executionModes"),
+        MIXED_WORKLOAD("mixedWorkload"),
+        BULK_UPLOAD("bulkUpload"),
+        BULK_UPLOAD_RESUME("bulkUploadResume"),
+        BULK_DOWNLOAD("bulkDownload"),
+        BULK_HEAD("bulkHead"),
+        BULK_COPY("bulkCopy"),
+        BULK_RENAME("bulkRename");
 
         private final String name;
 
@@ -5,31 +5,28 @@ package com.snowflake.s3compatapitestsuite.perf;
 
 import org.spf4j.perf.MeasurementRecorder;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * A performance stats recorder.
+ * A performance stats recorder. It is safe to share between threads, each thread times its own calls.
  */
 public class PerfMeasurementRecorder {
 
     private PerfMeasurement.FUNC_NAME functionName;
-    private long startTime;
+    /** Start time of the call in progress, per calling thread. */
+    private final ThreadLocal<Long> startTime = ThreadLocal.withInitial(System::currentTimeMillis);
     private MeasurementRecorder mr;
 
-    private static final Map<PerfMeasurement.FUNC_NAME, MeasurementRecorder> measurementRecorderMap = new HashMap<>();
+    private static final Map<Object, MeasurementRecorder> measurementRecorderMap = new ConcurrentHashMap<>();
 
     /**
      * Constructor for a performance measurement recorder.
      * @param functionName
      */
     public PerfMeasurementRecorder(PerfMeasurement.FUNC_NAME functionName) {
-        if (!measurementRecorderMap.containsKey(functionName)) {
-            measurementRecorderMap.put(functionName, Spf4jConfig.getMeasurementRecorder(functionName));
-        }
-        mr = measurementRecorderMap.get(functionName);
+        mr = getRecorder(functionName);
         this.functionName = functionName;
-        this.startTime = System.currentTimeMillis();
     }
 
     /**
@@ -39,7 +36,7 @@ public class PerfMeasurementRecorder {
 
     public void recordElapsedTime(PerfMeasurement.FUNC_NAME targetFuncName){
         if (this.functionName.equals(targetFuncName)) {
-            mr.record(System.currentTimeMillis() - startTime);
+            mr.record(System.currentTimeMillis() - startTime.get());
         }
     }
 
@@ -48,7 +45,20 @@ public class PerfMeasurementRecorder {
      */
     public void startTiming(PerfMeasurement.FUNC_NAME targetFuncName) {
         if (this.functionName.equals(targetFuncName)) {
-            this.startTime = System.currentTimeMillis();
+            this.startTime.set(System.currentTimeMillis());
         }
     }
+
+    /**
+     * Record a measurement timed by the caller, for measurements not bound to a single client call.
+     * @param forWhat What is measured, a FUNC_NAME or a more specific label.
+     * @param value The measured value in ms.
+     */
+    public static void record(Object forWhat, long value) {
+        getRecorder(forWhat).record(value);
+    }
+
+    private static MeasurementRecorder getRecorder(Object forWhat) {
+        return measurementRecorderMap.computeIfAbsent(forWhat, Spf4jConfig::getMeasurementRecorder);
+    }
 }
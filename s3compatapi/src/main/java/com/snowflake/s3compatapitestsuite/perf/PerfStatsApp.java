@@ -3,13 +3,49 @@
  */
 package com.snowflake.s3compatapitestsuite.perf;
 
+import com.snowflake.s3compatapitestsuite.distributed.DistributedCoordinator;
+import com.snowflake.s3compatapitestsuite.options.PerfCliOptions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
 /**
  * Collect performance stats.
  */
 public class PerfStatsApp {
     public static void main(String[] args) {
         Spf4jConfig.initialize();
-        new PerfMeasurement().startPerfMeasurement(args);
+        PerfCliOptions options = new PerfCliOptions(args);
+        if (options.hasOption(PerfCliOptions.PERF_OPTIONS.COORDINATOR)) {
+            runCoordinator(options);
+        } else {
+            new PerfMeasurement().startPerfMeasurement(args);
+        }
         System.exit(0);
     }
+
+    /**
+     * Coordinate a distributed run of --scenario on --workers worker processes. The coordinator sends no request to
+     * the storage itself, so it needs no credentials.
+     */
+    private static void runCoordinator(PerfCliOptions options) {
+        String scenarioFile = options.getValue(PerfCliOptions.PERF_OPTIONS.SCENARIO);
+        if (scenarioFile == null) {
+            throw new IllegalArgumentException("--coordinator needs the --scenario run by the workers.");
+        }
+        String scenarioJson;
+        try {
+            scenarioJson = new String(Files.readAllBytes(Paths.get(scenarioFile)), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Fail to read scenario " + scenarioFile, e);
+        }
+        try (DistributedCoordinator coordinator = new DistributedCoordinator(options.getInt(PerfCliOptions.PERF_OPTIONS.COORDINATOR, 0),
+                options.getInt(PerfCliOptions.PERF_OPTIONS.WORKERS, 1))) {
+            coordinator.run(scenarioJson, System.out);
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to stop the coordinator", e);
+        }
+    }
 }
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Records the JFR events emitted when a virtual thread blocks while pinned to its carrier thread, e.g. inside a
+ * synchronized block of the SDK or of the HTTP client, and groups them by the first frame outside of the JDK.
+ * Pinned threads hold a carrier thread while they wait, so frequent pinning caps the concurrency of virtual threads
+ * at the number of carriers. On JVMs without virtual threads the event does not exist and nothing is recorded.
+ */
+public class PinningMonitor implements AutoCloseable {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private final Recording recording;
+    private final Map<String, Long> pinnedBySite = new HashMap<>();
+    private long pinnedEvents = 0;
+    private Duration pinnedTime = Duration.ZERO;
+    private boolean stopped = false;
+
+    /**
+     * Start recording pinning events.
+     */
+    public PinningMonitor() {
+        recording = new Recording();
+        recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+        recording.setToDisk(true);
+        recording.start();
+    }
+
+    /**
+     * Stop recording and aggregate the events, later calls do nothing.
+     */
+    public synchronized void stop() {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        recording.stop();
+        Path dump = null;
+        try {
+            dump = Files.createTempFile("pinning", ".jfr");
+            recording.dump(dump);
+            for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+                if (!PINNED_EVENT.equals(event.getEventType().getName())) {
+                    continue;
+                }
+                pinnedEvents++;
+                pinnedTime = pinnedTime.plus(event.getDuration());
+                pinnedBySite.merge(site(event), 1L, Long::sum);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to read the pinning events", e);
+        } finally {
+            recording.close();
+            if (dump != null) {
+                dump.toFile().delete();
+            }
+        }
+    }
+
+    /** Get the number of times a virtual thread blocked while pinned. */
+    public synchronized long getPinnedEvents() {
+        return pinnedEvents;
+    }
+
+    /** Get the total time virtual threads spent blocked while pinned. */
+    public synchronized Duration getPinnedTime() {
+        return pinnedTime;
+    }
+
+    /**
+     * Get the sites pinning virtual threads most often.
+     * @param n Max number of sites.
+     * @return Number of events by site, most frequent first.
+     */
+    public synchronized Map<String, Long> getTopSites(int n) {
+        return pinnedBySite.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(n)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("PinningMonitor: {pinned events: %d, pinned ms: %d, top sites: %s}",
+                pinnedEvents, pinnedTime.toMillis(), getTopSites(3));
+    }
+
+    /**
+     * The first frame outside of the JDK, where the monitor is held, or the top frame if all are in the JDK.
+     */
+    private static String site(RecordedEvent event) {
+        if (event.getStackTrace() == null || event.getStackTrace().getFrames().isEmpty()) {
+            return "unknown";
+        }
+        RecordedFrame site = event.getStackTrace().getFrames().get(0);
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                site = frame;
+                break;
+            }
+        }
+        return site.getMethod().getType().getName() + "." + site.getMethod().getName() + ":" + site.getLineNumber();
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Finds the max sustainable throughput of an operation: the load, a concurrency or an arrival rate, is multiplied
+ * step by step until a step breaches the latency SLO or the error-rate threshold, then the range between the last
+ * sustained step and the first breached step is bisected to find the knee.
+ */
+public class SaturationSearch {
+    /** Header of the rows printed by {@link Step#print(PrintStream)}. */
+    public static final String HEADER = "load, level, ops/sec, p50 ms, p99 ms, failure rate, sustained";
+    /** Share of the offered rate a {@link Load#RATE} step should achieve to be sustained. */
+    private static final double MIN_ACHIEVED_RATE = 0.9;
+
+    /**
+     * What is stepped up.
+     */
+    public enum Load {
+        /** Number of workers calling in a closed loop. */
+        CONCURRENCY("concurrency"),
+        /** Operations per second offered by a fixed number of workers. */
+        RATE("rate");
+
+        private final String name;
+
+        Load(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public static Load lookupByName(String name) {
+            for (Load load : Load.values()) {
+                if (load.name.equalsIgnoreCase(name)) {
+                    return load;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Load load;
+    private final double sloP99Ms;
+    private final double maxFailureRate;
+    private long startLevel = 1;
+    private long maxLevel = 1024;
+    private double stepFactor = 2;
+    /** Bisection stops when the range is at most this share of the sustained level. */
+    private double resolution = 0.05;
+
+    /**
+     * Constructor for a saturation search.
+     * @param load What is stepped up.
+     * @param sloP99Ms p99 latency in ms above which a step is not sustained.
+     * @param maxFailureRate Share of failed operations above which a step is not sustained.
+     */
+    public SaturationSearch(Load load, double sloP99Ms, double maxFailureRate) {
+        this.load = load;
+        this.sloP99Ms = sloP99Ms;
+        this.maxFailureRate = maxFailureRate;
+    }
+
+    /** Set the first and the last level stepped through. */
+    public SaturationSearch withLevels(long startLevel, long maxLevel) {
+        if (startLevel <= 0 || maxLevel < startLevel) {
+            throw new IllegalArgumentException("The start level should be > 0 and <= the max level.");
+        }
+        this.startLevel = startLevel;
+        this.maxLevel = maxLevel;
+        return this;
+    }
+
+    /** Set the factor applied to the level after each sustained step. */
+    public SaturationSearch withStepFactor(double stepFactor) {
+        if (stepFactor <= 1) {
+            throw new IllegalArgumentException("The step factor should be > 1.");
+        }
+        this.stepFactor = stepFactor;
+        return this;
+    }
+
+    /** Set the width of the bisected range, as a share of the sustained level, at which the search stops. */
+    public SaturationSearch withResolution(double resolution) {
+        this.resolution = resolution;
+        return this;
+    }
+
+    /**
+     * Run the search.
+     * @param probe Measures the operation at a level, as a {@link Step} built with {@link #step}.
+     * @return The steps measured and the knee.
+     */
+    public Result search(LongFunction<Step> probe) {
+        List<Step> steps = new ArrayList<>();
+        Step sustained = null;
+        Step breached = null;
+        for (long level = startLevel; level <= maxLevel && breached == null; ) {
+            Step step = probe.apply(level);
+            steps.add(step);
+            if (step.isSustained()) {
+                sustained = step;
+                if (level == maxLevel) {
+                    break;
+                }
+                level = Math.min(maxLevel, Math.max(level + 1, (long) Math.ceil(level * stepFactor)));
+            } else {
+                breached = step;
+            }
+        }
+        if (sustained != null && breached != null) {
+            while (breached.getLevel() - sustained.getLevel() > Math.max(1, sustained.getLevel() * resolution)) {
+                Step step = probe.apply((sustained.getLevel() + breached.getLevel()) / 2);
+                steps.add(step);
+                if (step.isSustained()) {
+                    sustained = step;
+                } else {
+                    breached = step;
+                }
+            }
+        }
+        return new Result(steps, breached == null);
+    }
+
+    /**
+     * Build the step of a level from its measurements, sustained if it meets the SLO and the error-rate threshold and,
+     * for a rate, achieves most of the offered rate.
+     * @param level The concurrency or the offered rate.
+     * @param latency Latency in µs of the successful operations.
+     * @param failures Number of failed operations.
+     * @param opsPerSec Successful operations per second.
+     */
+    public Step step(long level, LatencyHistogram latency, long failures, double opsPerSec) {
+        long total = latency.getCount() + failures;
+        double failureRate = total > 0 ? failures / (double) total : 1;
+        double p99Ms = latency.getPercentile(99) / 1000.0;
+        boolean sustained = total > 0 && p99Ms <= sloP99Ms && failureRate <= maxFailureRate
+                && (load != Load.RATE || opsPerSec >= level * MIN_ACHIEVED_RATE);
+        return new Step(load, level, opsPerSec, latency.getPercentile(50) / 1000.0, p99Ms, failureRate, sustained);
+    }
+
+    /**
+     * A level measured by the search.
+     */
+    public static class Step {
+        private final Load load;
+        private final long level;
+        private final double opsPerSec;
+        private final double p50Ms;
+        private final double p99Ms;
+        private final double failureRate;
+        private final boolean sustained;
+
+        private Step(Load load, long level, double opsPerSec, double p50Ms, double p99Ms, double failureRate, boolean sustained) {
+            this.load = load;
+            this.level = level;
+            this.opsPerSec = opsPerSec;
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+            this.failureRate = failureRate;
+            this.sustained = sustained;
+        }
+
+        public long getLevel() {
+            return level;
+        }
+
+        public double getOpsPerSec() {
+            return opsPerSec;
+        }
+
+        public double getP99Ms() {
+            return p99Ms;
+        }
+
+        public boolean isSustained() {
+            return sustained;
+        }
+
+        /** Print the step as a row, see {@link #HEADER}. */
+        public void print(PrintStream out) {
+            out.printf("%s, %d, %.1f, %.2f, %.2f, %.4f, %s%n", load.getName(), level, opsPerSec, p50Ms, p99Ms, failureRate, sustained);
+        }
+    }
+
+    /**
+     * The steps measured by a search.
+     */
+    public static class Result {
+        private final List<Step> steps;
+        private final boolean maxLevelSustained;
+
+        private Result(List<Step> steps, boolean maxLevelSustained) {
+            this.steps = steps;
+            this.maxLevelSustained = maxLevelSustained;
+        }
+
+        /** Get the latency curve: the steps measured, by level. */
+        public List<Step> getCurve() {
+            List<Step> curve = new ArrayList<>(steps);
+            curve.sort(Comparator.comparingLong(Step::getLevel));
+            return curve;
+        }
+
+        /** Get the sustained step with the highest throughput, null if no step was sustained. */
+        public Step getKnee() {
+            return steps.stream().filter(Step::isSustained).max(Comparator.comparingDouble(Step::getOpsPerSec)).orElse(null);
+        }
+
+        /** Whether no step breached the thresholds up to the max level, so the knee is beyond the levels searched. */
+        public boolean isMaxLevelSustained() {
+            return maxLevelSustained;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs an operation over and over for a wall-clock time instead of a number of times. Operations started during the
+ * warmup, which pay for JIT compilation, TLS handshakes and the fill of the connection pool, are recorded apart from
+ * those of the steady window, and the throughput is computed over the steady window only.
+ */
+public class TimedRun {
+    public static final String HEADER = "function, window, ops, ops/sec, p50 ms, p99 ms, max ms, failures";
+
+    private final Duration warmup;
+    private final Duration duration;
+    private IntConsumer setup = i -> { };
+    private Runnable atSteadyStart = () -> { };
+    private final Window warmupWindow = new Window();
+    private final Window steadyWindow = new Window();
+
+    /**
+     * Constructor for a timed run.
+     * @param warmup Time the operation runs before it is measured, may be zero.
+     * @param duration Time the operation is measured.
+     */
+    public TimedRun(Duration warmup, Duration duration) {
+        if (warmup.isNegative() || duration.isZero() || duration.isNegative()) {
+            throw new IllegalArgumentException("The warmup should be >= 0 and the duration > 0.");
+        }
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    /** Set a step run before each operation and left out of its latency, e.g. to write the object it deletes. */
+    public TimedRun withUntimedSetup(IntConsumer setup) {
+        this.setup = setup;
+        return this;
+    }
+
+    /** Set a step run once when the warmup ends, e.g. to start recording the client calls. */
+    public TimedRun withSteadyStart(Runnable atSteadyStart) {
+        this.atSteadyStart = atSteadyStart;
+        return this;
+    }
+
+    /**
+     * Run the operation for the warmup, then for the duration. A failed operation is counted and the run goes on.
+     * @param operation Runs the i-th operation, i counting up across the warmup and the steady window.
+     * @return This run, with its samples.
+     */
+    public TimedRun run(IntConsumer operation) {
+        long start = System.nanoTime();
+        long steadyStart = start + warmup.toNanos();
+        int i = 0;
+        for (; System.nanoTime() < steadyStart; i++) {
+            runOnce(operation, i, warmupWindow);
+        }
+        // the last warmup operation may end after the planned steady start, the steady window starts when it does.
+        steadyStart = Math.max(steadyStart, System.nanoTime());
+        warmupWindow.elapsedNanos = steadyStart - start;
+        atSteadyStart.run();
+        long end = steadyStart + duration.toNanos();
+        for (; System.nanoTime() < end; i++) {
+            runOnce(operation, i, steadyWindow);
+        }
+        steadyWindow.elapsedNanos = System.nanoTime() - steadyStart;
+        return this;
+    }
+
+    private void runOnce(IntConsumer operation, int i, Window window) {
+        setup.accept(i);
+        long opStart = System.nanoTime();
+        try {
+            operation.accept(i);
+            window.latency.record((System.nanoTime() - opStart) / 1000);
+        } catch (RuntimeException e) {
+            window.failures++;
+        }
+    }
+
+    /** Get the latency in µs of the operations of the warmup. */
+    public LatencyHistogram getWarmupLatency() {
+        return warmupWindow.latency;
+    }
+
+    /** Get the latency in µs of the operations of the steady window. */
+    public LatencyHistogram getSteadyLatency() {
+        return steadyWindow.latency;
+    }
+
+    public long getSteadyFailures() {
+        return steadyWindow.failures;
+    }
+
+    /** Get the successful operations per second of the steady window. */
+    public double getSteadyOpsPerSec() {
+        return steadyWindow.opsPerSec();
+    }
+
+    /**
+     * Print a row for the warmup, if it ran any operation, and a row for the steady window, see {@link #HEADER}.
+     * @param out Where to print.
+     * @param label Label of the run, the first column of the rows.
+     */
+    public void print(PrintStream out, String label) {
+        if (warmupWindow.latency.getCount() + warmupWindow.failures > 0) {
+            warmupWindow.print(out, label, "warmup");
+        }
+        steadyWindow.print(out, label, "steady");
+    }
+
+    private static class Window {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long failures;
+        private long elapsedNanos;
+
+        private double opsPerSec() {
+            return latency.getCount() / (Math.max(elapsedNanos, 1) / 1e9);
+        }
+
+        private void print(PrintStream out, String label, String window) {
+            out.printf("%s, %s, %d, %.1f, %.2f, %.2f, %.2f, %d%n", label, window, latency.getCount(), opsPerSec(),
+                    latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0, latency.getMax() / 1000.0, failures);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Samples ranks 0..n-1 with a Zipf distribution: rank k is drawn with a probability proportional to 1/(k+1)^exponent,
+ * so a few hot ranks get most of the draws, like the files and ranges of a skewed query workload.
+ */
+public class ZipfSampler {
+    /** Cumulative probability of ranks 0..k. */
+    private final double[] cumulative;
+
+    /**
+     * Constructor for a Zipf sampler.
+     * @param n Number of ranks.
+     * @param exponent Skew of the distribution, 0 for uniform draws.
+     */
+    public ZipfSampler(int n, double exponent) {
+        if (n <= 0 || exponent < 0) {
+            throw new IllegalArgumentException("n should be > 0 and exponent should be >= 0.");
+        }
+        this.cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    /**
+     * Draw a rank.
+     * @param random Source of randomness.
+     * @return A rank between 0 and n-1, 0 being the most likely.
+     */
+    public int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.transfer;
+
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+
+/**
+ * Copy or rename every object under a prefix. The source listing is streamed page by page into a bounded
+ * worker pool, so prefixes of any size are copied with flat memory.
+ */
+public class BulkCopier {
+    /** Tasks queued per worker thread, enough to hide the latency of the next listing page. */
+    private static final int QUEUED_TASKS_PER_WORKER = 4;
+
+    private final S3CompatStorageClient client;
+    private final int concurrency;
+    private final long multipartThreshold;
+    private final long partSize;
+    private final int partParallelism;
+
+    /**
+     * Constructor for a bulk copier.
+     * @param client The client to issue requests with, its connection pool should fit the concurrency.
+     * @param concurrency Number of objects copied in parallel.
+     * @param multipartThreshold Objects of this size or larger are copied as multipart uploads.
+     * @param partSize Part size in bytes of multipart copies.
+     * @param partParallelism Max number of parts in flight for each multipart copy. The parts of all multipart copies
+     *                        share one pool of the client, as large as its connection pool, which bounds their total.
+     */
+    public BulkCopier(S3CompatStorageClient client, int concurrency, long multipartThreshold, long partSize, int partParallelism) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency should be > 0.");
+        }
+        this.client = client;
+        this.concurrency = concurrency;
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = partSize;
+        this.partParallelism = partParallelism;
+    }
+
+    /**
+     * Copy every object under a source prefix to a destination prefix, keeping the key suffixes.
+     * A failed object is counted in the stats and does not stop the other copies.
+     * The destination prefix can not be inside the source prefix in the same bucket, as the listing would pick up
+     * the copies.
+     * @param sourceBucket Bucket name of the source objects.
+     * @param sourcePrefix Prefix of the source objects.
+     * @param dstBucket Bucket name of the targets.
+     * @param dstPrefix Prefix replacing the source prefix in the target keys.
+     * @param deleteSource If true, delete each source object after it is copied, which renames the prefix.
+     * @return The throughput of the copy.
+     */
+    public TransferStats copyPrefix(String sourceBucket, String sourcePrefix, String dstBucket, String dstPrefix, boolean deleteSource) {
+        if (sourceBucket.equals(dstBucket) && dstPrefix.startsWith(sourcePrefix)) {
+            throw new IllegalArgumentException("The destination prefix " + dstPrefix + " is inside the source prefix " + sourcePrefix
+                    + " of bucket " + sourceBucket + ", the copies would be copied again.");
+        }
+        TransferStats stats = new TransferStats(deleteSource ? "bulkRename" : "bulkCopy");
+        try (BoundedExecutor executor = new BoundedExecutor("bulk-copy", concurrency, concurrency * QUEUED_TASKS_PER_WORKER)) {
+            client.listObjectsV2Paged(sourceBucket, sourcePrefix, null /* maxKeys */, page -> {
+                for (S3ObjectSummary summary : page) {
+                    executor.submit(() -> copyOne(sourceBucket, summary, sourcePrefix, dstBucket, dstPrefix, deleteSource, stats));
+                }
+            });
+            executor.awaitCompletion();
+        }
+        return stats.finish();
+    }
+
+    private void copyOne(String sourceBucket, S3ObjectSummary summary, String sourcePrefix, String dstBucket, String dstPrefix,
+                         boolean deleteSource, TransferStats stats) {
+        String sourceKey = summary.getKey();
+        String destKey = dstPrefix + sourceKey.substring(sourcePrefix.length());
+        try {
+            if (summary.getSize() >= multipartThreshold) {
+                client.copyObjectMultipart(sourceBucket, sourceKey, null /* sourceFileVersionId */, dstBucket, destKey,
+                        partSize, partParallelism);
+            } else {
+                client.copyObject(sourceBucket, sourceKey, null /* sourceFileVersionId */, dstBucket, destKey);
+            }
+            if (deleteSource) {
+                client.deleteObject(sourceBucket, sourceKey);
+            }
+            stats.recordSuccess(summary.getSize());
+        } catch (RuntimeException e) {
+            // e.g. an aborted multipart copy, counted so one bad object does not stop the others.
+            stats.recordFailure(sourceKey, e);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.transfer;
+
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Download every object under a prefix to a local directory. Each local file is preallocated, and every
+ * GET response is transferred straight into the file channel at its offset, so objects are never buffered
+ * as a whole on the heap. Large objects are split into ranged GETs downloaded in parallel into the same file.
+ */
+public class BulkDownloader {
+    /** Tasks queued per worker thread, enough to hide the latency of the next listing page. */
+    private static final int QUEUED_TASKS_PER_WORKER = 4;
+
+    private final S3CompatStorageClient client;
+    private final int concurrency;
+    /** Objects of this size or larger are downloaded as parallel ranged GETs. */
+    private long rangedThreshold = 64L * 1024 * 1024;
+    /** Size in bytes of each ranged GET. */
+    private long rangeSize = 16L * 1024 * 1024;
+    /** Journal of the job for resuming, or null. */
+    private @Nullable TransferCheckpoint checkpoint;
+
+    /**
+     * Constructor for a bulk downloader.
+     * @param client The client to issue requests with, its connection pool should fit the concurrency.
+     * @param concurrency Number of GETs in parallel, ranges of the same object included.
+     */
+    public BulkDownloader(S3CompatStorageClient client, int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency should be > 0.");
+        }
+        this.client = client;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Download large objects as parallel ranged GETs.
+     * @param rangedThreshold Objects of this size or larger are downloaded in ranges.
+     * @param rangeSize Size in bytes of each range.
+     * @return The bulk downloader.
+     */
+    public @NotNull BulkDownloader withRanges(long rangedThreshold, long rangeSize) {
+        if (rangeSize <= 0) {
+            throw new IllegalArgumentException("rangeSize should be > 0.");
+        }
+        this.rangedThreshold = rangedThreshold;
+        this.rangeSize = rangeSize;
+        return this;
+    }
+    /**
+     * Download with a checkpoint: objects and ranges completed in an earlier run are skipped, keeping the
+     * partial local files, and stopping the checkpoint stops the download at the next range.
+     * The range size must not change between runs.
+     * @param checkpoint Journal of the job.
+     * @return The bulk downloader.
+     */
+    public @NotNull BulkDownloader withCheckpoint(@Nullable TransferCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * Download every object under a prefix, keeping the key suffixes as relative paths under the local directory.
+     * A failed object is counted in the stats and does not stop the other downloads. Objects skipped from a
+     * checkpoint, or not completed because the checkpoint is stopped, are not counted.
+     * @param bucketName Bucket name of the objects.
+     * @param prefix Prefix of the objects.
+     * @param localDir The local directory.
+     * @return The throughput of the download, with the {@value BulkUploader#SLOWEST_FILES_KEPT} slowest object transfers.
+     */
+    public TransferStats downloadPrefix(String bucketName, String prefix, Path localDir) {
+        TransferStats stats = new TransferStats("bulkDownload", BulkUploader.SLOWEST_FILES_KEPT);
+        try (BoundedExecutor executor = new BoundedExecutor("bulk-download", concurrency, concurrency * QUEUED_TASKS_PER_WORKER)) {
+            client.listObjectsV2Paged(bucketName, prefix, null /* maxKeys */, page -> {
+                for (S3ObjectSummary summary : page) {
+                    if (summary.getKey().endsWith("/")) {
+                        // directory marker, nothing to download.
+                        continue;
+                    }
+                    if (checkpoint != null && (checkpoint.isStopped() || checkpoint.isObjectCompleted(summary.getKey()))) {
+                        continue;
+                    }
+                    Path localFile = localDir.resolve(summary.getKey().substring(prefix.length()).replaceFirst("^/+", ""));
+                    submitObject(executor, bucketName, summary, localFile, stats);
+                }
+            });
+            executor.awaitCompletion();
+        }
+        return stats.finish();
+    }
+
+    private void submitObject(BoundedExecutor executor, String bucketName, S3ObjectSummary summary, Path localFile, TransferStats stats) {
+        long size = summary.getSize();
+        String key = summary.getKey();
+        // a partially downloaded file of an earlier run keeps its completed ranges, if the object did not change since.
+        boolean resumed = checkpoint != null && checkpoint.resumeRanges(key, summary.getETag());
+        OpenOption[] openOptions = resumed
+                ? new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ}
+                : new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ,
+                        StandardOpenOption.TRUNCATE_EXISTING};
+        FileChannel channel;
+        try {
+            Files.createDirectories(localFile.toAbsolutePath().getParent());
+            channel = FileChannel.open(localFile, openOptions);
+            preallocate(channel, size);
+        } catch (IOException e) {
+            stats.recordFailure(key, e);
+            return;
+        }
+        int numRanges = size >= rangedThreshold ? (int) ((size + rangeSize - 1) / rangeSize) : 1;
+        long start = System.nanoTime();
+        AtomicInteger remainingRanges = new AtomicInteger(numRanges);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        AtomicBoolean skipped = new AtomicBoolean(false);
+        for (int i = 0; i < numRanges; i++) {
+            long offset = numRanges == 1 ? 0 : i * rangeSize;
+            long length = numRanges == 1 ? size : Math.min(rangeSize, size - offset);
+            executor.submit(() -> {
+                try {
+                    if (failed.get()) {
+                        return;
+                    }
+                    if (checkpoint != null && numRanges > 1) {
+                        if (checkpoint.isRangeCompleted(key, offset)) {
+                            return;
+                        }
+                        if (checkpoint.isStopped()) {
+                            skipped.set(true);
+                            return;
+                        }
+                    }
+                    downloadRange(bucketName, key, summary.getETag(), channel, offset, length, numRanges > 1);
+                    if (checkpoint != null && numRanges > 1) {
+                        checkpoint.rangeCompleted(key, summary.getETag(), offset);
+                    }
+                } catch (RuntimeException e) {
+                    if (failed.compareAndSet(false, true)) {
+                        stats.recordFailure(key, e);
+                    }
+                } finally {
+                    if (remainingRanges.decrementAndGet() == 0) {
+                        closeQuietly(channel);
+                        if (!failed.get() && !skipped.get()) {
+                            if (checkpoint != null) {
+                                checkpoint.objectCompleted(key);
+                            }
+                            stats.recordSuccess(key, size, System.nanoTime() - start);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Download a range of the version listed, pinned to its ETag, so an object overwritten during the download fails
+     * instead of mixing ranges of two versions.
+     */
+    private void downloadRange(String bucketName, String key, @Nullable String eTag, FileChannel channel, long offset, long length,
+                               boolean ranged) {
+        if (length == 0) {
+            return;
+        }
+        GetObjectRequest request = new GetObjectRequest(bucketName, key);
+        if (eTag != null) {
+            request.withMatchingETagConstraint(eTag);
+        }
+        if (ranged) {
+            request.setRange(offset, offset + length - 1);
+        }
+        client.readObject(request, content -> transferToChannel(content, channel, offset, length));
+    }
+
+    /**
+     * Transfer a response body into the file at an offset. Positional transfers do not move the channel
+     * position, so ranges of the same file are written concurrently.
+     */
+    private static void transferToChannel(InputStream content, FileChannel channel, long offset, long length) throws IOException {
+        ReadableByteChannel source = Channels.newChannel(content);
+        long transferred = 0;
+        while (transferred < length) {
+            long n = channel.transferFrom(source, offset + transferred, length - transferred);
+            if (n <= 0) {
+                throw new EOFException("Expected " + length + " bytes at offset " + offset + ", got " + transferred);
+            }
+            transferred += n;
+        }
+    }
+
+    /**
+     * Reserve the file size up front, so ranges can be written in any order without growing the file.
+     */
+    private static void preallocate(FileChannel channel, long size) throws IOException {
+        if (size > 0) {
+            channel.write(ByteBuffer.allocate(1), size - 1);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // the content is already written, nothing to do.
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.transfer;
+
+import com.snowflake.s3compatapitestsuite.compatapi.RemoteObjectMetadata;
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Fetch the metadata of many objects, fanning the HEADs out over a bounded worker pool. Results are handed to the
+ * caller as they complete, so the keys of any list are refreshed with flat memory.
+ */
+public class BulkMetadataFetcher {
+    /** Tasks queued per worker thread, so workers never wait for the caller to submit. */
+    private static final int QUEUED_TASKS_PER_WORKER = 4;
+
+    private final S3CompatStorageClient client;
+    private final int concurrency;
+
+    /**
+     * Constructor for a bulk metadata fetcher.
+     * @param client The client to issue requests with, its connection pool should fit the concurrency.
+     * @param concurrency Number of HEADs in flight.
+     */
+    public BulkMetadataFetcher(S3CompatStorageClient client, int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency should be > 0.");
+        }
+        this.client = client;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Fetch the metadata of a list of objects. A failed HEAD is reported to the consumer and counted in the stats,
+     * and does not stop the other HEADs.
+     * @param bucketName Bucket name of the objects.
+     * @param keys Keys of the objects.
+     * @param versionIds VersionIds of the objects in the order of the keys, null entries or a null list for the current versions.
+     * @param consumer Consumer of the results in completion order, called from the worker threads.
+     * @return The aggregate HEADs/sec, as objects/sec.
+     */
+    public TransferStats fetch(String bucketName, List<String> keys, @Nullable List<String> versionIds, Consumer<Result> consumer) {
+        if (versionIds != null && versionIds.size() != keys.size()) {
+            throw new IllegalArgumentException("There should be one versionId per key.");
+        }
+        TransferStats stats = new TransferStats("bulkHead");
+        try (BoundedExecutor executor = new BoundedExecutor("bulk-head", concurrency, concurrency * QUEUED_TASKS_PER_WORKER)) {
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                String versionId = versionIds == null ? null : versionIds.get(i);
+                executor.submit(() -> {
+                    long start = System.nanoTime();
+                    Result result;
+                    try {
+                        RemoteObjectMetadata metadata = client.getObjectMetadata(bucketName, key, versionId);
+                        stats.recordSuccess(0 /* numBytes */);
+                        result = new Result(key, versionId, metadata, null, System.nanoTime() - start);
+                    } catch (RuntimeException e) {
+                        stats.recordFailure(key, e);
+                        result = new Result(key, versionId, null, e, System.nanoTime() - start);
+                    }
+                    // outside of the catch, so a failing consumer is not taken for a failed HEAD.
+                    consumer.accept(result);
+                });
+            }
+            executor.awaitCompletion();
+        }
+        return stats.finish();
+    }
+
+    /**
+     * The metadata of one object, or the failure to fetch it.
+     */
+    public static class Result {
+        private final String key;
+        private final @Nullable String versionId;
+        private final @Nullable RemoteObjectMetadata metadata;
+        private final @Nullable RuntimeException failure;
+        private final long elapsedNanos;
+
+        Result(String key, @Nullable String versionId, @Nullable RemoteObjectMetadata metadata,
+               @Nullable RuntimeException failure, long elapsedNanos) {
+            this.key = key;
+            this.versionId = versionId;
+            this.metadata = metadata;
+            this.failure = failure;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public @Nullable String getVersionId() {
+            return versionId;
+        }
+
+        /** Get the metadata, null if the HEAD failed. */
+        public @Nullable RemoteObjectMetadata getMetadata() {
+            return metadata;
+        }
+
+        /** Get the failure, null if the HEAD succeeded. */
+        public @Nullable RuntimeException getFailure() {
+            return failure;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.transfer;
+
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Upload a local directory tree. The tree is walked in parallel and every file becomes part of a work unit:
+ * small files are batched together, so per-file scheduling overhead does not dominate, while large files are
+ * uploaded alone as multipart uploads. Work units go through a bounded executor, so the walk blocks instead of
+ * queueing the whole tree in memory when the uploads fall behind.
+ */
+public class BulkUploader {
+    /** Number of the slowest files kept for the per file report. */
+    public static final int SLOWEST_FILES_KEPT = 1000;
+    private final S3CompatStorageClient client;
+    private final int concurrency;
+    /** Max number of work units queued on top of the running ones. */
+    private int maxQueuedUnits;
+    /** Number of threads walking the directory tree. */
+    private int walkParallelism = 4;
+    /** Files smaller than this are batched into shared work units of at most this many bytes. */
+    private long smallFileThreshold = 1024 * 1024;
+    /** Max number of files in a batched work unit. */
+    private int maxFilesPerBatch = 32;
+    /** Files of this size or larger are uploaded as multipart uploads. */
+    private long multipartThreshold = 64L * 1024 * 1024;
+    /** Part size in bytes of multipart uploads. */
+    private long partSize = 16L * 1024 * 1024;
+    /** Number of parts uploaded in parallel for each multipart upload. */
+    private int partParallelism = 4;
+    /** Journal of the job for resuming, or null. */
+    private @Nullable TransferCheckpoint checkpoint;
+
+    /**
+     * Constructor for a bulk uploader.
+     * @param client The client to issue requests with, its connection pool should fit the concurrency.
+     * @param concurrency Number of work units uploaded in parallel.
+     */
+    public BulkUploader(S3CompatStorageClient client, int concurrency) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("concurrency should be > 0.");
+        }
+        this.client = client;
+        this.concurrency = concurrency;
+        this.maxQueuedUnits = concurrency * 2;
+    }
+
+    /**
+     * Upload with a bound on the work units queued.
+     * @param maxQueuedUnits Max number of work units queued on top of the running ones.
+     * @return The bulk uploader.
+     */
+    public @NotNull BulkUploader withMaxQueuedUnits(int maxQueuedUnits) {
+        this.maxQueuedUnits = maxQueuedUnits;
+        return this;
+    }
+    /**
+     * Upload with a number of threads walking the directory tree.
+     * @param walkParallelism Number of walking threads.
+     * @return The bulk uploader.
+     */
+    public @NotNull BulkUploader withWalkParallelism(int walkParallelism) {
+        this.walkParallelism = walkParallelism;
+        return this;
+    }
+    /**
+     * Upload with batching of small files.
+     * @param smallFileThreshold Files smaller than this are batched into shared work units of at most this many bytes.
+     * @param maxFilesPerBatch Max number of files in a batched work unit.
+     * @return The bulk uploader.
+     */
+    public @NotNull BulkUploader withSmallFileBatching(long smallFileThreshold, int maxFilesPerBatch) {
+        this.smallFileThreshold = smallFileThreshold;
+        this.maxFilesPerBatch = maxFilesPerBatch;
+        return this;
+    }
+    /**
+     * Upload large files as multipart uploads.
+     * @param multipartThreshold Files of this size or larger are uploaded as multipart uploads.
+     * @param partSize Part size in bytes.
+     * @param partParallelism Number of parts uploaded in parallel for each file.
+     * @return The bulk uploader.
+     */
+    public @NotNull BulkUploader withMultipart(long multipartThreshold, long partSize, int partParallelism) {
+        this.multipartThreshold = multipartThreshold;
+        this.partSize = partSize;
+        this.partParallelism = partParallelism;
+        return this;
+    }
+    /**
+     * Upload with a checkpoint: files completed in an earlier run are skipped, multipart uploads in progress
+     * are resumed, and stopping the checkpoint stops the upload at the next file or part.
+     * @param checkpoint Journal of the job.
+     * @return The bulk uploader.
+     */
+    public @NotNull BulkUploader withCheckpoint(@Nullable TransferCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * Upload every regular file under a local directory, keeping the relative paths as key suffixes.
+     * Symbolic links are not followed, so a link cycle can not loop the walk.
+     * A failed file is counted in the stats and does not stop the other uploads. Files skipped from a checkpoint,
+     * or not uploaded because the checkpoint is stopped, are not counted.
+     * @param localDir The local directory.
+     * @param bucketName Bucket name of the targets.
+     * @param prefix Prefix of the target keys.
+     * @return The throughput of the upload, with the {@value SLOWEST_FILES_KEPT} slowest file transfers.
+     */
+    public TransferStats uploadDirectory(Path localDir, String bucketName, String prefix) {
+        TransferStats stats = new TransferStats("bulkUpload", SLOWEST_FILES_KEPT);
+        ForkJoinPool walkPool = new ForkJoinPool(walkParallelism);
+        try (BoundedExecutor executor = new BoundedExecutor("bulk-upload", concurrency, concurrency + maxQueuedUnits)) {
+            Batcher batcher = new Batcher(executor, localDir, bucketName, prefix, stats);
+            walkPool.invoke(new DirectoryWalk(localDir, batcher));
+            batcher.flush();
+            executor.awaitCompletion();
+        } finally {
+            walkPool.shutdown();
+        }
+        return stats.finish();
+    }
+
+    private void uploadUnit(List<Path> files, Path localDir, String bucketName, String prefix, TransferStats stats) {
+        for (Path file : files) {
+            String key = prefix + "/" + localDir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+            if (checkpoint != null) {
+                if (checkpoint.isStopped()) {
+                    return;
+                }
+                if (checkpoint.isObjectCompleted(key)) {
+                    continue;
+                }
+            }
+            try {
+                long size = Files.size(file);
+                long start = System.nanoTime();
+                if (size >= multipartThreshold) {
+                    client.putObjectMultipart(bucketName, key, file.toString(), partSize, partParallelism, checkpoint);
+                } else {
+                    client.putObject(bucketName, key, file.toString());
+                }
+                if (checkpoint != null) {
+                    checkpoint.objectCompleted(key);
+                }
+                stats.recordSuccess(key, size, System.nanoTime() - start);
+            } catch (CancellationException e) {
+                // stopped in the middle of a multipart upload, it stays in progress in the checkpoint.
+                return;
+            } catch (RuntimeException | IOException e) {
+                // e.g. a checksum mismatch or a failed read after write, counted so the other files still upload.
+                stats.recordFailure(key, e);
+            }
+        }
+    }
+
+    /**
+     * Groups small files into work units and submits them, submitting large files alone.
+     */
+    private class Batcher {
+        private final BoundedExecutor executor;
+        private final Path localDir;
+        private final String bucketName;
+        private final String prefix;
+        private final TransferStats stats;
+        private List<Path> batch = new ArrayList<>();
+        private long batchBytes = 0;
+
+        Batcher(BoundedExecutor executor, Path localDir, String bucketName, String prefix, TransferStats stats) {
+            this.executor = executor;
+            this.localDir = localDir;
+            this.bucketName = bucketName;
+            this.prefix = prefix;
+            this.stats = stats;
+        }
+
+        void add(Path file, long size) {
+            if (size >= smallFileThreshold) {
+                submit(List.of(file));
+                return;
+            }
+            List<Path> full = null;
+            synchronized (this) {
+                batch.add(file);
+                batchBytes += size;
+                if (batch.size() >= maxFilesPerBatch || batchBytes >= smallFileThreshold) {
+                    full = batch;
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+            }
+            if (full != null) {
+                // submit outside of the lock, it blocks when the executor is full.
+                submit(full);
+            }
+        }
+
+        void flush() {
+            List<Path> rest;
+            synchronized (this) {
+                rest = batch;
+                batch = new ArrayList<>();
+                batchBytes = 0;
+            }
+            if (!rest.isEmpty()) {
+                submit(rest);
+            }
+        }
+
+        private void submit(List<Path> files) {
+            executor.submit(() -> uploadUnit(files, localDir, bucketName, prefix, stats));
+        }
+    }
+
+    /**
+     * Walks a directory, forking a sub task for each sub directory, without following symbolic links.
+     */
+    private static class DirectoryWalk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Path dir;
+        private final Batcher batcher;
+
+        DirectoryWalk(Path dir, Batcher batcher) {
+            this.dir = dir;
+            this.batcher = batcher;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryWalk> subDirs = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        subDirs.add(new DirectoryWalk(entry, batcher));
+                    } else if (Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        batcher.add(entry, Files.size(entry));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Fail to walk " + dir, e);
+            }
+            invokeAll(subDirs);
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.transfer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.snowflake.s3compatapitestsuite.compatapi.MultipartCheckpoint;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Journal of a bulk transfer job: completed objects, completed download ranges with the ETag of the version they
+ * belong to, and multipart upload ids with their completed parts. Every event is appended as one JSON line and flushed, so a restarted job loads the
+ * journal, skips finished work and resumes multipart uploads in progress. A torn last line from a crash is ignored.
+ */
+public class TransferCheckpoint implements MultipartCheckpoint, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(TransferCheckpoint.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final File journalFile;
+    private final BufferedWriter writer;
+    private final Set<String> completedObjects = ConcurrentHashMap.newKeySet();
+    private final Map<String, RangeProgress> completedRanges = new ConcurrentHashMap<>();
+    private final Map<String, MultipartProgress> multipartUploads = new ConcurrentHashMap<>();
+    private volatile boolean stopped = false;
+
+    /**
+     * Open a checkpoint, loading the journal file if it exists.
+     * @param journalFile The journal file.
+     */
+    public TransferCheckpoint(File journalFile) {
+        this.journalFile = journalFile;
+        try {
+            if (journalFile.exists()) {
+                load();
+            }
+            boolean tornLastLine = journalFile.exists() && !endsWithNewLine(journalFile);
+            this.writer = Files.newBufferedWriter(journalFile.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            if (tornLastLine) {
+                // terminate the torn line, so the next event starts on a line of its own.
+                writer.newLine();
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to open transfer checkpoint " + journalFile, e);
+        }
+    }
+
+    /**
+     * Whether an object is completely transferred.
+     * @param key Key of the object.
+     * @return true if completed in this or an earlier run.
+     */
+    public boolean isObjectCompleted(String key) {
+        return completedObjects.contains(key);
+    }
+
+    /**
+     * Record an object completely transferred.
+     * @param key Key of the object.
+     */
+    public void objectCompleted(String key) {
+        append(new Event(EventType.OBJECT, key));
+        completedObjects.add(key);
+        multipartUploads.remove(key);
+        completedRanges.remove(key);
+    }
+
+    /**
+     * Whether a range of a download is completed.
+     * @param key Key of the object.
+     * @param offset Offset of the range.
+     * @return true if completed in this or an earlier run.
+     */
+    public boolean isRangeCompleted(String key, long offset) {
+        RangeProgress ranges = completedRanges.get(key);
+        return ranges != null && ranges.offsets.contains(offset);
+    }
+
+    /**
+     * Whether a download resumes ranges completed in an earlier run, in which case the partial local file must be kept.
+     * Ranges completed for another version of the object are discarded, so a file never mixes two versions.
+     * @param key Key of the object.
+     * @param eTag ETag of the version to download.
+     * @return true if some range of this version is completed.
+     */
+    public boolean resumeRanges(String key, @Nullable String eTag) {
+        RangeProgress ranges = completedRanges.get(key);
+        if (ranges != null && !Objects.equals(ranges.eTag, eTag)) {
+            logger.info("Discard the completed ranges of " + key + ", its ETag changed from " + ranges.eTag + " to " + eTag);
+            completedRanges.remove(key, ranges);
+            return false;
+        }
+        return ranges != null && !ranges.offsets.isEmpty();
+    }
+
+    /**
+     * Record a range of a download completed.
+     * @param key Key of the object.
+     * @param eTag ETag of the version downloaded.
+     * @param offset Offset of the range.
+     */
+    public void rangeCompleted(String key, @Nullable String eTag, long offset) {
+        Event event = new Event(EventType.RANGE, key);
+        event.eTag = eTag;
+        event.offset = offset;
+        append(event);
+        addRange(key, eTag, offset);
+    }
+
+    /**
+     * Get the number of objects completed so far.
+     * @return The number of completed objects.
+     */
+    public int getCompletedObjectCount() {
+        return completedObjects.size();
+    }
+
+    /**
+     * Stop the job using this checkpoint: no more objects or parts are started, work in flight completes,
+     * and the journal keeps everything needed to resume.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public @Nullable String getUploadId(String key) {
+        MultipartProgress progress = multipartUploads.get(key);
+        return progress == null ? null : progress.uploadId;
+    }
+
+    @Override
+    public long getPartSize(String key) {
+        MultipartProgress progress = multipartUploads.get(key);
+        if (progress == null) {
+            throw new IllegalStateException("No multipart upload in progress for " + key);
+        }
+        return progress.partSize;
+    }
+
+    @Override
+    public @Nullable String getPartETag(String key, int partNumber) {
+        MultipartProgress progress = multipartUploads.get(key);
+        return progress == null ? null : progress.partETags.get(partNumber);
+    }
+
+    @Override
+    public void uploadStarted(String key, String uploadId, long partSize) {
+        Event event = new Event(EventType.UPLOAD, key);
+        event.uploadId = uploadId;
+        event.partSize = partSize;
+        append(event);
+        multipartUploads.put(key, new MultipartProgress(uploadId, partSize));
+    }
+
+    @Override
+    public void partCompleted(String key, int partNumber, String eTag) {
+        Event event = new Event(EventType.PART, key);
+        event.partNumber = partNumber;
+        event.eTag = eTag;
+        append(event);
+        MultipartProgress progress = multipartUploads.get(key);
+        if (progress != null) {
+            progress.partETags.put(partNumber, eTag);
+        }
+    }
+
+    @Override
+    public void uploadDiscarded(String key) {
+        append(new Event(EventType.DISCARD, key));
+        multipartUploads.remove(key);
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to close transfer checkpoint " + journalFile, e);
+        }
+    }
+
+    private void load() throws IOException {
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                Event event;
+                try {
+                    event = MAPPER.readValue(line, Event.class);
+                } catch (JsonProcessingException e) {
+                    // a torn write of the last event before a crash.
+                    logger.warn("Ignore malformed line " + lineNumber + " of transfer checkpoint " + journalFile);
+                    continue;
+                }
+                apply(event);
+            }
+        }
+        logger.info("Loaded transfer checkpoint " + journalFile + ": " + completedObjects.size() + " completed objects, "
+                + multipartUploads.size() + " multipart uploads in progress.");
+    }
+
+    private static boolean endsWithNewLine(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() == 0) {
+                return true;
+            }
+            raf.seek(raf.length() - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    private void apply(Event event) {
+        switch (event.type) {
+            case OBJECT:
+                completedObjects.add(event.key);
+                multipartUploads.remove(event.key);
+                completedRanges.remove(event.key);
+                break;
+            case RANGE:
+                addRange(event.key, event.eTag, event.offset);
+                break;
+            case UPLOAD:
+                multipartUploads.put(event.key, new MultipartProgress(event.uploadId, event.partSize));
+                break;
+            case PART:
+                MultipartProgress progress = multipartUploads.get(event.key);
+                if (progress != null) {
+                    progress.partETags.put(event.partNumber, event.eTag);
+                }
+                break;
+            case DISCARD:
+                multipartUploads.remove(event.key);
+                break;
+            default:
+                throw new IllegalArgumentException("Not supported checkpoint event " + event.type);
+        }
+    }
+
+    /** Add a completed range, replacing the ranges of another version of the object. */
+    private void addRange(String key, @Nullable String eTag, long offset) {
+        completedRanges.compute(key, (k, ranges) ->
+                ranges != null && Objects.equals(ranges.eTag, eTag) ? ranges : new RangeProgress(eTag)).offsets.add(offset);
+    }
+
+    private synchronized void append(Event event) {
+        try {
+            writer.write(MAPPER.writeValueAsString(event));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to write transfer checkpoint " + journalFile, e);
+        }
+    }
+
+    /**
+     * Types of journal events.
+     */
+    enum EventType {
+        OBJECT,
+        RANGE,
+        UPLOAD,
+        PART,
+        DISCARD
+    }
+
+    /**
+     * A journal event, one JSON line in the journal file.
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    static class Event {
+        @JsonProperty("type")
+        EventType type;
+        @JsonProperty("key")
+        String key;
+        @JsonProperty("offset")
+        long offset;
+        @JsonProperty("uploadId")
+        String uploadId;
+        @JsonProperty("partSize")
+        long partSize;
+        @JsonProperty("partNumber")
+        int partNumber;
+        @JsonProperty("eTag")
+        String eTag;
+
+        Event() {
+        }
+
+        Event(EventType type, String key) {
+            this.type = type;
+            this.key = key;
+        }
+    }
+
+    /**
+     * The completed ranges of a download of one version of an object.
+     */
+    private static class RangeProgress {
+        private final @Nullable String eTag;
+        private final Set<Long> offsets = ConcurrentHashMap.newKeySet();
+
+        RangeProgress(@Nullable String eTag) {
+            this.eTag = eTag;
+        }
+    }
+
+    /**
+     * A multipart upload in progress.
+     */
+    private static class MultipartProgress {
+        private final String uploadId;
+        private final long partSize;
+        private final Map<Integer, String> partETags = new ConcurrentHashMap<>();
+
+        MultipartProgress(String uploadId, long partSize) {
+            this.uploadId = uploadId;
+            this.partSize = partSize;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.transfer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregate throughput of a bulk transfer. Safe to update from concurrent workers.
+ */
+public class TransferStats {
+    private static final Logger logger = LogManager.getLogger(TransferStats.class);
+    private static final double MB = 1024.0 * 1024;
+    /** Name of the transfer operation, for reporting. */
+    private final String operation;
+    private final AtomicLong objects = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos = -1;
+    /** Max number of object transfers kept for the report. */
+    private final int maxObjectTransfers;
+    /** The slowest object transfers so far, the fastest of them first, guarded by itself. */
+    private final PriorityQueue<ObjectTransfer> slowestTransfers =
+            new PriorityQueue<>(Comparator.comparingLong((ObjectTransfer t) -> t.elapsedNanos));
+
+    /**
+     * Constructor for transfer stats, the clock starts now.
+     * @param operation Name of the transfer operation.
+     */
+    public TransferStats(String operation) {
+        this(operation, 0);
+    }
+
+    /**
+     * Constructor for transfer stats, the clock starts now.
+     * @param operation Name of the transfer operation.
+     * @param maxObjectTransfers Number of the slowest object transfers kept for {@link #writePerObjectReport(File)},
+     *                           which bounds the memory of the stats whatever the number of objects.
+     */
+    public TransferStats(String operation, int maxObjectTransfers) {
+        if (maxObjectTransfers < 0) {
+            throw new IllegalArgumentException("maxObjectTransfers should be >= 0.");
+        }
+        this.operation = operation;
+        this.maxObjectTransfers = maxObjectTransfers;
+    }
+
+    /**
+     * Record an object transferred successfully.
+     * @param numBytes Number of bytes of the object.
+     */
+    public void recordSuccess(long numBytes) {
+        objects.incrementAndGet();
+        bytes.addAndGet(numBytes);
+    }
+
+    /**
+     * Record an object transferred successfully, with its own timing.
+     * @param key Key of the object.
+     * @param numBytes Number of bytes of the object.
+     * @param elapsedNanos Time spent transferring the object.
+     */
+    public void recordSuccess(String key, long numBytes, long elapsedNanos) {
+        recordSuccess(numBytes);
+        if (maxObjectTransfers == 0) {
+            return;
+        }
+        synchronized (slowestTransfers) {
+            if (slowestTransfers.size() < maxObjectTransfers) {
+                slowestTransfers.add(new ObjectTransfer(key, numBytes, elapsedNanos));
+            } else if (slowestTransfers.peek().elapsedNanos < elapsedNanos) {
+                slowestTransfers.poll();
+                slowestTransfers.add(new ObjectTransfer(key, numBytes, elapsedNanos));
+            }
+        }
+    }
+
+    /**
+     * Write one CSV line per object transfer kept, the slowest first: key, bytes, elapsed ms and MB/sec.
+     * @param reportFile The file to write.
+     */
+    public void writePerObjectReport(File reportFile) {
+        if (maxObjectTransfers == 0) {
+            throw new IllegalStateException("Per object transfers are not kept for " + operation);
+        }
+        List<ObjectTransfer> transfers;
+        synchronized (slowestTransfers) {
+            transfers = new ArrayList<>(slowestTransfers);
+        }
+        transfers.sort(Comparator.comparingLong((ObjectTransfer t) -> t.elapsedNanos).reversed());
+        try (PrintWriter writer = new PrintWriter(reportFile, StandardCharsets.UTF_8)) {
+            writer.println("key,bytes,elapsedMs,mbPerSec");
+            for (ObjectTransfer t : transfers) {
+                double elapsedMs = t.elapsedNanos / 1_000_000.0;
+                writer.printf("%s,%d,%.3f,%.3f%n", t.key, t.bytes, elapsedMs, t.bytes / MB * 1000.0 / Math.max(elapsedMs, 1e-3));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Fail to write transfer report " + reportFile, e);
+        }
+    }
+
+    /**
+     * Record an object that failed to transfer.
+     * @param key Key of the object.
+     * @param e The failure.
+     */
+    public void recordFailure(String key, Exception e) {
+        failures.incrementAndGet();
+        logger.warn(operation + " failed for " + key, e);
+    }
+
+    /**
+     * Stop the clock.
+     * @return this.
+     */
+    public TransferStats finish() {
+        endNanos = System.nanoTime();
+        return this;
+    }
+
+    public long getObjects() {
+        return objects.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Get the elapsed time, up to now if not finished.
+     * @return Elapsed time in ms.
+     */
+    public double getElapsedMs() {
+        long end = endNanos < 0 ? System.nanoTime() : endNanos;
+        return (end - startNanos) / 1_000_000.0;
+    }
+
+    public double getObjectsPerSec() {
+        return objects.get() * 1000.0 / Math.max(getElapsedMs(), 1e-3);
+    }
+
+    public double getBytesPerSec() {
+        return bytes.get() * 1000.0 / Math.max(getElapsedMs(), 1e-3);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d objects, %.1f MB in %.1f ms, %.1f objects/sec, %.2f MB/sec, %d failures",
+                operation, getObjects(), getBytes() / MB, getElapsedMs(), getObjectsPerSec(), getBytesPerSec() / MB, getFailures());
+    }
+
+    /**
+     * A transfer of a single object.
+     */
+    private static class ObjectTransfer {
+        private final String key;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        ObjectTransfer(String key, long bytes, long elapsedNanos) {
+            this.key = key;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An executor that bounds the number of tasks in flight. Once the bound is reached, {@link #submit(Runnable)}
+ * blocks the producer instead of queueing more work, so memory stays flat no matter how many tasks are produced.
+ */
+public class BoundedExecutor implements AutoCloseable {
+    /** The executor running the tasks. */
+    private final ExecutorService executor;
+    /** Permits for tasks in flight, either queued or running. */
+    private final Semaphore permits;
+    /** Max number of tasks in flight. */
+    private final int maxInFlight;
+    /** Permits for running tasks when every task gets its own thread, null when a fixed pool bounds them. */
+    private final @Nullable Semaphore running;
+    /** The first failure thrown by any task. */
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    /**
+     * Constructor for a bounded executor backed by a fixed pool of daemon threads.
+     * @param name Name prefix of the worker threads.
+     * @param concurrency Number of worker threads.
+     * @param maxInFlight Max number of tasks queued or running at the same time, must be >= concurrency.
+     */
+    public BoundedExecutor(String name, int concurrency, int maxInFlight) {
+        this(name, concurrency, maxInFlight, ExecutionMode.PLATFORM);
+    }
+
+    /**
+     * Constructor for a bounded executor running tasks on threads of the given mode.
+     * @param name Name prefix of the worker threads.
+     * @param concurrency Max number of tasks running at the same time.
+     * @param maxInFlight Max number of tasks queued or running at the same time, must be >= concurrency.
+     * @param mode Platform threads from a fixed pool, or a virtual thread per task.
+     */
+    public BoundedExecutor(String name, int concurrency, int maxInFlight, ExecutionMode mode) {
+        this(newExecutor(name, concurrency, maxInFlight, mode), maxInFlight,
+                mode == ExecutionMode.VIRTUAL && concurrency < maxInFlight ? new Semaphore(concurrency) : null);
+    }
+
+    /**
+     * Constructor for a bounded executor on top of an existing executor, which is owned by this instance afterwards.
+     * @param executor The executor running the tasks.
+     * @param maxInFlight Max number of tasks queued or running at the same time.
+     */
+    public BoundedExecutor(ExecutorService executor, int maxInFlight) {
+        this(executor, maxInFlight, null);
+    }
+
+    /** Create the executor once the bounds are checked, so invalid bounds do not leave threads behind. */
+    private static ExecutorService newExecutor(String name, int concurrency, int maxInFlight, ExecutionMode mode) {
+        if (concurrency <= 0 || maxInFlight < concurrency) {
+            throw new IllegalArgumentException("concurrency should be > 0 and maxInFlight should be >= concurrency.");
+        }
+        return mode.newExecutor(name, concurrency);
+    }
+
+    private BoundedExecutor(ExecutorService executor, int maxInFlight, @Nullable Semaphore running) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight should be > 0.");
+        }
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+        this.running = running;
+    }
+
+    /**
+     * Submit a task, blocking while the number of tasks in flight is at the bound.
+     * @param task The task to run.
+     */
+    public void submit(Runnable task) {
+        rethrowFailure();
+        permits.acquireUninterruptibly();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (running != null) {
+                        running.acquireUninterruptibly();
+                    }
+                    try {
+                        task.run();
+                    } finally {
+                        if (running != null) {
+                            running.release();
+                        }
+                    }
+                } catch (Throwable t) {
+                    firstFailure.compareAndSet(null, t);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Wait until all submitted tasks finish.
+     * @throws RuntimeException The first failure thrown by any task, wrapped if it is a checked exception.
+     */
+    public void awaitCompletion() {
+        permits.acquireUninterruptibly(maxInFlight);
+        permits.release(maxInFlight);
+        rethrowFailure();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rethrowFailure() {
+        Throwable t = firstFailure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new RuntimeException("Task failed in bounded executor.", t);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The kind of threads running concurrent tasks. Virtual threads need Java 21, while the module targets Java 11, so they
+ * are created through reflection and {@link #VIRTUAL} is only supported when the JVM running the suite provides them.
+ */
+public enum ExecutionMode {
+    /** A fixed pool of platform threads, one per concurrent task. */
+    PLATFORM("platform"),
+    /** A new virtual thread per task, parked instead of blocking a platform thread while it waits on I/O. */
+    VIRTUAL("virtual");
+
+    /** First Java release with virtual threads out of preview. */
+    private static final int VIRTUAL_THREADS_JAVA_VERSION = 21;
+
+    private final String name;
+
+    ExecutionMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the running JVM supports this mode.
+     * @return true for platform threads, and for virtual threads on Java 21+.
+     */
+    public boolean isSupported() {
+        // Java 19 and 20 have Thread.ofVirtual as a preview API, failing without --enable-preview.
+        return this == PLATFORM || Runtime.version().feature() >= VIRTUAL_THREADS_JAVA_VERSION;
+    }
+
+    /**
+     * Create an executor running tasks on threads of this mode.
+     * @param name Name prefix of the threads.
+     * @param concurrency Number of platform threads, virtual threads are created per task.
+     * @return The executor.
+     */
+    public ExecutorService newExecutor(String name, int concurrency) {
+        if (this == PLATFORM) {
+            return Executors.newFixedThreadPool(concurrency,
+                    new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build());
+        }
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or later, the JVM is " + System.getProperty("java.version"));
+        }
+        try {
+            // Thread.ofVirtual().name(name + "-", 0).factory()
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+            throw new RuntimeException("Fail to create a virtual thread executor", cause);
+        }
+    }
+
+    /**
+     * Lookup a mode by its name.
+     * @param name Name of the mode.
+     * @return The mode, or null if not found.
+     */
+    public static ExecutionMode lookupByName(String name) {
+        for (ExecutionMode mode : values()) {
+            if (mode.name.equalsIgnoreCase(name)) {
+                return mode;
+            }
+        }
+        return null;
+    }
+}
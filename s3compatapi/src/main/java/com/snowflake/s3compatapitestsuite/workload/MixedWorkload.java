@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.compatapi.WriteObjectSpec;
+import com.snowflake.s3compatapitestsuite.perf.ZipfSampler;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import com.snowflake.s3compatapitestsuite.util.ExecutionMode;
+import org.apache.commons.io.IOUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongFunction;
+
+/**
+ * Runs concurrent workers against a shared pool of objects, each worker picking its next operation from a weighted
+ * {@link OperationMix}: GETs and HEADs of pool objects, LISTs of the pool prefix, and PUTs overwriting pool objects,
+ * so reads and writes hit the same keys on the same endpoint at the same time. Keys are picked uniformly or with a
+ * Zipf skew towards the first keys, and the workers can be throttled to a total rate.
+ */
+public class MixedWorkload {
+    private static final int DEFAULT_LIST_MAX_KEYS = 1000;
+
+    private final S3CompatStorageClient client;
+    private final String bucketName;
+    private final String poolPrefix;
+    private final List<String> keys;
+    private final OperationMix mix;
+    private int concurrency = 1;
+    private SizeDistribution objectSizes = SizeDistribution.fixed(1024);
+    private int listMaxKeys = DEFAULT_LIST_MAX_KEYS;
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    private double ratePerSec = 0;
+    private @Nullable ZipfSampler keySampler = null;
+
+    /**
+     * Constructor for a mixed workload.
+     * @param client The client sending the requests, with a connection pool sized for the concurrency.
+     * @param bucketName Bucket of the pool.
+     * @param poolPrefix Prefix of the pool, listed by LISTs.
+     * @param keys Keys of the pool objects, read and overwritten by the other operations.
+     * @param mix Weighted operations picked by the workers.
+     */
+    public MixedWorkload(S3CompatStorageClient client, String bucketName, String poolPrefix, List<String> keys, OperationMix mix) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("The object pool should not be empty.");
+        }
+        this.client = client;
+        this.bucketName = bucketName;
+        this.poolPrefix = poolPrefix;
+        this.keys = new ArrayList<>(keys);
+        this.mix = mix;
+    }
+
+    /** Set the number of workers. */
+    public MixedWorkload withConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /** Set the size in bytes of the objects written by PUTs. */
+    public MixedWorkload withObjectSize(int objectSize) {
+        return withObjectSizes(SizeDistribution.fixed(objectSize));
+    }
+
+    /** Set the distribution of the sizes of the objects written by PUTs. */
+    public MixedWorkload withObjectSizes(SizeDistribution objectSizes) {
+        this.objectSizes = objectSizes;
+        return this;
+    }
+
+    /** Set the max number of keys of each page listed by LISTs. */
+    public MixedWorkload withListMaxKeys(int listMaxKeys) {
+        this.listMaxKeys = listMaxKeys;
+        return this;
+    }
+
+    /** Set the threads running the workers. */
+    public MixedWorkload withExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    /** Set the max number of operations per second of all workers together, 0 for as fast as the workers go. */
+    public MixedWorkload withRate(double ratePerSec) {
+        this.ratePerSec = ratePerSec;
+        return this;
+    }
+
+    /** Set the skew of the keys picked, 0 for uniform picks, higher values pick the first keys of the pool more often. */
+    public MixedWorkload withKeyZipfExponent(double exponent) {
+        this.keySampler = exponent > 0 ? new ZipfSampler(keys.size(), exponent) : null;
+        return this;
+    }
+
+    /**
+     * Run a number of operations spread over the workers.
+     * @param numOfOperations Number of operations of all workers together.
+     * @return The statistics of each operation.
+     */
+    public WorkloadStats run(long numOfOperations) {
+        AtomicLong remaining = new AtomicLong(numOfOperations);
+        WorkloadStats stats = new WorkloadStats();
+        runWorkers(() -> remaining.getAndDecrement() > 0, start -> stats);
+        return stats.finish();
+    }
+
+    /**
+     * Run the workers for a wall-clock time.
+     * @param warmup Time at the start whose operations are recorded apart, e.g. while connections are opened.
+     * @param duration Time the operations are measured after the warmup.
+     * @return The statistics of the warmup and of the steady window.
+     */
+    public WorkloadResult run(Duration warmup, Duration duration) {
+        long start = System.nanoTime();
+        long steadyStart = start + warmup.toNanos();
+        long end = steadyStart + duration.toNanos();
+        WorkloadStats warmupStats = new WorkloadStats(start);
+        WorkloadStats steadyStats = new WorkloadStats(steadyStart);
+        runWorkers(() -> System.nanoTime() < end, opStart -> opStart < steadyStart ? warmupStats : steadyStats);
+        // operations started before the end may complete after it, they count in a window that ends when they do.
+        long finished = System.nanoTime();
+        return new WorkloadResult(warmupStats.finish(Math.min(finished, steadyStart)), steadyStats.finish(Math.max(finished, steadyStart)));
+    }
+
+    /**
+     * Run the workers while the condition holds.
+     * @param statsOf Picks the statistics an operation is recorded in from its start time.
+     */
+    private void runWorkers(BooleanSupplier keepGoing, LongFunction<WorkloadStats> statsOf) {
+        byte[] content = new byte[objectSizes.getMax()];
+        new Random().nextBytes(content);
+        RateLimiter rateLimiter = ratePerSec > 0 ? RateLimiter.create(ratePerSec) : null;
+        try (BoundedExecutor executor = new BoundedExecutor("mixed-workload", concurrency, concurrency, executionMode)) {
+            for (int w = 0; w < concurrency; w++) {
+                executor.submit(() -> {
+                    while (keepGoing.getAsBoolean()) {
+                        if (rateLimiter != null) {
+                            rateLimiter.acquire();
+                        }
+                        long start = System.nanoTime();
+                        execute(mix.pick(ThreadLocalRandom.current()), content, statsOf.apply(start), start);
+                    }
+                });
+            }
+            executor.awaitCompletion();
+        }
+    }
+
+    private void execute(WorkloadOp op, byte[] content, WorkloadStats stats, long start) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String key = keys.get(keySampler != null ? keySampler.sample(random) : random.nextInt(keys.size()));
+        try {
+            long bytes = 0;
+            switch (op) {
+                case GET:
+                    bytes = client.readObject(bucketName, key, null /* versionId */, null /* start */, null /* end */,
+                            IOUtils::consume).getContentLength();
+                    break;
+                case HEAD:
+                    client.getObjectMetadata(bucketName, key, null /* versionId */);
+                    break;
+                case LIST:
+                    client.listObjectsV2(bucketName, poolPrefix, listMaxKeys);
+                    break;
+                case PUT:
+                    int size = objectSizes.sample(random);
+                    client.putObject(new WriteObjectSpec(bucketName, key, () -> new ByteArrayInputStream(content, 0, size), size,
+                            null /* clientTimeoutInMs */, null /* additionalBlobMetadata */));
+                    bytes = size;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not supported operation " + op.getName());
+            }
+            stats.recordSuccess(op, System.nanoTime() - start, bytes);
+        } catch (RuntimeException | IOException e) {
+            stats.recordFailure(op);
+        }
+    }
+}
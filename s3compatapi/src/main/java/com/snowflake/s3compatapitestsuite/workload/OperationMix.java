@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * A weighted distribution of operations, e.g. get=60,head=25,list=10,put=5. Weights are relative, each operation is
+ * picked with a probability of its weight over the sum of the weights.
+ */
+public class OperationMix {
+    private final Map<WorkloadOp, Double> shares = new EnumMap<>(WorkloadOp.class);
+    private final WorkloadOp[] ops;
+    /** Cumulative share of ops[0..i]. */
+    private final double[] cumulative;
+
+    /**
+     * Constructor for an operation mix.
+     * @param weights Weight of each operation, operations missing or weighted 0 are never picked.
+     */
+    public OperationMix(Map<WorkloadOp, Double> weights) {
+        double total = 0;
+        for (Map.Entry<WorkloadOp, Double> weight : weights.entrySet()) {
+            if (weight.getKey() == WorkloadOp.DELETE && weight.getValue() != 0) {
+                throw new IllegalArgumentException("delete can not be part of a mix, it would empty the pool.");
+            }
+            if (weight.getValue() < 0 || weight.getValue().isNaN()) {
+                throw new IllegalArgumentException("Weight of " + weight.getKey().getName() + " should be >= 0.");
+            }
+            total += weight.getValue();
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one operation should have a weight > 0.");
+        }
+        for (Map.Entry<WorkloadOp, Double> weight : new EnumMap<>(weights).entrySet()) {
+            if (weight.getValue() > 0) {
+                shares.put(weight.getKey(), weight.getValue() / total);
+            }
+        }
+        ops = shares.keySet().toArray(new WorkloadOp[0]);
+        cumulative = new double[ops.length];
+        double sum = 0;
+        for (int i = 0; i < ops.length; i++) {
+            sum += shares.get(ops[i]);
+            cumulative[i] = sum;
+        }
+    }
+
+    /**
+     * Parse a mix.
+     * @param spec Comma separated operation=weight pairs, like get=60,head=25,list=10,put=5.
+     * @return The mix.
+     */
+    public static OperationMix parse(String spec) {
+        Map<WorkloadOp, Double> weights = new EnumMap<>(WorkloadOp.class);
+        for (String pair : spec.split(",")) {
+            String[] parts = pair.split("=");
+            WorkloadOp op = parts.length == 2 ? WorkloadOp.lookupByName(parts[0].trim()) : null;
+            if (op == null || op == WorkloadOp.DELETE) {
+                throw new IllegalArgumentException("Invalid operation weight " + pair + ", use operation=weight with operations "
+                        + Arrays.stream(WorkloadOp.values()).filter(o -> o != WorkloadOp.DELETE).map(WorkloadOp::getName)
+                        .collect(Collectors.joining(", ")));
+            }
+            weights.merge(op, Double.parseDouble(parts[1].trim()), Double::sum);
+        }
+        return new OperationMix(weights);
+    }
+
+    /**
+     * Pick an operation.
+     * @param random Source of randomness.
+     * @return The operation.
+     */
+    public WorkloadOp pick(Random random) {
+        double draw = random.nextDouble();
+        for (int i = 0; i < ops.length - 1; i++) {
+            if (draw < cumulative[i]) {
+                return ops[i];
+            }
+        }
+        return ops[ops.length - 1];
+    }
+
+    /**
+     * Get the share of an operation.
+     * @param op The operation.
+     * @return The probability it is picked, between 0 and 1.
+     */
+    public double getShare(WorkloadOp op) {
+        return shares.getOrDefault(op, 0.0);
+    }
+
+    /**
+     * Get the same mix without an operation, e.g. a read-only baseline of a mix with writes.
+     * @param op The operation to drop.
+     * @return The mix of the other operations, with the same relative weights.
+     */
+    public OperationMix without(WorkloadOp op) {
+        Map<WorkloadOp, Double> weights = new EnumMap<>(shares);
+        weights.remove(op);
+        return new OperationMix(weights);
+    }
+
+    @Override
+    public String toString() {
+        return shares.entrySet().stream()
+                .map(share -> String.format("%s=%.1f%%", share.getKey().getName(), share.getValue() * 100))
+                .collect(Collectors.joining(","));
+    }
+}
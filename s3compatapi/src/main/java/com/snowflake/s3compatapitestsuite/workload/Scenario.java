@@ -0,0 +1,310 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.snowflake.s3compatapitestsuite.util.ExecutionMode;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A benchmark scenario read from a JSON file: a pool of objects, and phases run one after the other against it, each
+ * with its own operation mix, concurrency or rate, duration, warmup, object sizes, key distribution and client.
+ * Unknown fields fail the parsing, so a typo can not silently fall back to a default. See
+ * src/main/resources/scenarios for examples.
+ */
+public class Scenario {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Name of the scenario, also the name of the prefix of its pool. */
+    private final String name;
+    /** Number of objects of the pool. */
+    private final int poolObjects;
+    /** Sizes of the pool objects, and of the objects written by phases without their own sizes. */
+    private final SizeDistribution objectSize;
+    /** Client of the phases without their own client. */
+    private final ClientConfig client;
+    private final List<Phase> phases;
+
+    /**
+     * Constructor for a scenario.
+     * @param name Name of the scenario.
+     * @param poolObjects Number of objects of the pool, 100 if null.
+     * @param objectSize Size distribution of the pool objects, see {@link SizeDistribution}, 1024 bytes if null.
+     * @param client Client of the phases without their own client, the defaults of {@link ClientConfig} if null.
+     * @param phases The phases, in the order they run.
+     */
+    @JsonCreator
+    public Scenario(
+            @JsonProperty(value = "name", required = true) String name,
+            @JsonProperty("poolObjects") @Nullable Integer poolObjects,
+            @JsonProperty("objectSize") @Nullable String objectSize,
+            @JsonProperty("client") @Nullable ClientConfig client,
+            @JsonProperty(value = "phases", required = true) List<Phase> phases) {
+        if (name == null || !name.matches("[A-Za-z0-9_.-]+")) {
+            throw new IllegalArgumentException("Scenario name " + name + " should only have letters, digits, '_', '.' and '-'.");
+        }
+        if (phases == null || phases.isEmpty()) {
+            throw new IllegalArgumentException("Scenario " + name + " should have at least one phase.");
+        }
+        Set<String> phaseNames = new HashSet<>();
+        for (Phase phase : phases) {
+            if (!phaseNames.add(phase.getName())) {
+                throw new IllegalArgumentException("Phase name " + phase.getName() + " is used twice in scenario " + name + ".");
+            }
+        }
+        this.name = name;
+        this.poolObjects = poolObjects != null ? poolObjects : 100;
+        if (this.poolObjects <= 0) {
+            throw new IllegalArgumentException("poolObjects should be > 0.");
+        }
+        this.objectSize = SizeDistribution.parse(objectSize != null ? objectSize : "1024");
+        this.client = client != null ? client : new ClientConfig(null, null, null, null, null);
+        this.phases = Collections.unmodifiableList(new ArrayList<>(phases));
+    }
+
+    /**
+     * Read a scenario file.
+     * @param file The JSON file.
+     * @return The scenario.
+     */
+    public static Scenario load(File file) {
+        try {
+            return MAPPER.readValue(file, Scenario.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Fail to read scenario " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Parse a scenario, e.g. one sent by the coordinator of a distributed run.
+     * @param json The content of a scenario file.
+     * @return The scenario.
+     */
+    public static Scenario parse(String json) {
+        try {
+            return MAPPER.readValue(json, Scenario.class);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid scenario: " + e.getMessage(), e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPoolObjects() {
+        return poolObjects;
+    }
+
+    public SizeDistribution getObjectSize() {
+        return objectSize;
+    }
+
+    public ClientConfig getClient() {
+        return client;
+    }
+
+    public List<Phase> getPhases() {
+        return phases;
+    }
+
+    /**
+     * A phase of a scenario. It runs either for a duration after an optional warmup, or for a number of operations.
+     */
+    public static class Phase {
+        private final String name;
+        private final OperationMix mix;
+        private final int concurrency;
+        /** Max operations per second of all workers together, 0 for unthrottled. */
+        private final double ratePerSec;
+        private final @Nullable Duration duration;
+        private final Duration warmup;
+        private final @Nullable Long operations;
+        private final @Nullable SizeDistribution objectSize;
+        /** Zipf exponent of the keys picked, 0 for uniform picks. */
+        private final double keyZipfExponent;
+        private final @Nullable ClientConfig client;
+
+        /**
+         * Constructor for a phase.
+         * @param name Name of the phase, the first column of its report rows.
+         * @param mix Weighted operations, like get=60,head=25,list=10,put=5.
+         * @param concurrency Number of workers, 16 if null.
+         * @param ratePerSec Max operations per second of all workers together, unthrottled if null.
+         * @param durationSec Time in seconds the phase is measured, after the warmup.
+         * @param warmupSec Time in seconds the phase runs before it is measured, 0 if null.
+         * @param operations Number of operations of the phase when it has no duration.
+         * @param objectSize Size distribution of the objects written, the one of the scenario if null.
+         * @param keyDistribution "uniform", or "zipf:exponent" to read and write the first keys of the pool more often.
+         * @param client Client of the phase, the one of the scenario if null.
+         */
+        @JsonCreator
+        public Phase(
+                @JsonProperty(value = "name", required = true) String name,
+                @JsonProperty(value = "mix", required = true) String mix,
+                @JsonProperty("concurrency") @Nullable Integer concurrency,
+                @JsonProperty("ratePerSec") @Nullable Double ratePerSec,
+                @JsonProperty("durationSec") @Nullable Double durationSec,
+                @JsonProperty("warmupSec") @Nullable Double warmupSec,
+                @JsonProperty("operations") @Nullable Long operations,
+                @JsonProperty("objectSize") @Nullable String objectSize,
+                @JsonProperty("keyDistribution") @Nullable String keyDistribution,
+                @JsonProperty("client") @Nullable ClientConfig client) {
+            if ((durationSec == null) == (operations == null)) {
+                throw new IllegalArgumentException("Phase " + name + " should have either durationSec or operations.");
+            }
+            if (durationSec != null && durationSec <= 0 || operations != null && operations <= 0) {
+                throw new IllegalArgumentException("durationSec and operations of phase " + name + " should be > 0.");
+            }
+            if (warmupSec != null && (warmupSec < 0 || operations != null)) {
+                throw new IllegalArgumentException("warmupSec of phase " + name + " should be >= 0, and only set with durationSec.");
+            }
+            this.name = name;
+            this.mix = OperationMix.parse(mix);
+            this.concurrency = concurrency != null ? concurrency : 16;
+            if (this.concurrency <= 0) {
+                throw new IllegalArgumentException("concurrency of phase " + name + " should be > 0.");
+            }
+            this.ratePerSec = ratePerSec != null ? ratePerSec : 0;
+            this.duration = durationSec != null ? Duration.ofMillis(Math.round(durationSec * 1000)) : null;
+            this.warmup = Duration.ofMillis(warmupSec != null ? Math.round(warmupSec * 1000) : 0);
+            this.operations = operations;
+            this.objectSize = objectSize != null ? SizeDistribution.parse(objectSize) : null;
+            this.keyZipfExponent = parseKeyDistribution(keyDistribution);
+            this.client = client;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public OperationMix getMix() {
+            return mix;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public double getRatePerSec() {
+            return ratePerSec;
+        }
+
+        /** Get the measured time of the phase, null for a phase running a number of operations. */
+        public @Nullable Duration getDuration() {
+            return duration;
+        }
+
+        public Duration getWarmup() {
+            return warmup;
+        }
+
+        /** Get the number of operations of the phase, null for a phase running for a duration. */
+        public @Nullable Long getOperations() {
+            return operations;
+        }
+
+        /** Get the size distribution of the objects written, null to use the one of the scenario. */
+        public @Nullable SizeDistribution getObjectSize() {
+            return objectSize;
+        }
+
+        public double getKeyZipfExponent() {
+            return keyZipfExponent;
+        }
+
+        /** Get the client of the phase, null to use the one of the scenario. */
+        public @Nullable ClientConfig getClient() {
+            return client;
+        }
+
+        private static double parseKeyDistribution(@Nullable String keyDistribution) {
+            if (keyDistribution == null || keyDistribution.trim().equalsIgnoreCase("uniform")) {
+                return 0;
+            }
+            String[] parts = keyDistribution.trim().split(":");
+            if (parts.length == 2 && parts[0].equalsIgnoreCase("zipf")) {
+                try {
+                    double exponent = Double.parseDouble(parts[1]);
+                    if (exponent >= 0) {
+                        return exponent;
+                    }
+                } catch (NumberFormatException e) {
+                    // fall through to the error below.
+                }
+            }
+            throw new IllegalArgumentException("Invalid key distribution " + keyDistribution + ", use uniform or zipf:exponent.");
+        }
+    }
+
+    /**
+     * Configuration of the client sending the requests of a phase.
+     */
+    public static class ClientConfig {
+        /** Region of the client, the region of the suite if null. */
+        private final @Nullable String region;
+        /** Size of the connection pool, the concurrency of the phase if null. */
+        private final @Nullable Integer maxConnections;
+        private final ExecutionMode executionMode;
+        private final boolean requestCoalescing;
+        /** TTL of the metadata cache serving HEADs, no cache if null. */
+        private final @Nullable Long metadataCacheTtlMs;
+
+        /**
+         * Constructor for a client configuration.
+         * @param region Region of the client, the region of the suite if null.
+         * @param maxConnections Size of the connection pool, the concurrency of the phase if null.
+         * @param executionMode Threads running the workers, platform or virtual, platform if null.
+         * @param requestCoalescing Whether identical concurrent GETs and HEADs share one request, false if null.
+         * @param metadataCacheTtlMs TTL of the metadata cache serving HEADs, no cache if null.
+         */
+        @JsonCreator
+        public ClientConfig(
+                @JsonProperty("region") @Nullable String region,
+                @JsonProperty("maxConnections") @Nullable Integer maxConnections,
+                @JsonProperty("executionMode") @Nullable String executionMode,
+                @JsonProperty("requestCoalescing") @Nullable Boolean requestCoalescing,
+                @JsonProperty("metadataCacheTtlMs") @Nullable Long metadataCacheTtlMs) {
+            this.region = region;
+            this.maxConnections = maxConnections;
+            this.executionMode = executionMode != null ? ExecutionMode.lookupByName(executionMode.trim()) : ExecutionMode.PLATFORM;
+            if (this.executionMode == null) {
+                throw new IllegalArgumentException("Execution mode " + executionMode + " not supported, use platform or virtual.");
+            }
+            this.requestCoalescing = requestCoalescing != null && requestCoalescing;
+            this.metadataCacheTtlMs = metadataCacheTtlMs;
+        }
+
+        public @Nullable String getRegion() {
+            return region;
+        }
+
+        public @Nullable Integer getMaxConnections() {
+            return maxConnections;
+        }
+
+        public ExecutionMode getExecutionMode() {
+            return executionMode;
+        }
+
+        public boolean isRequestCoalescing() {
+            return requestCoalescing;
+        }
+
+        public @Nullable Long getMetadataCacheTtlMs() {
+            return metadataCacheTtlMs;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.snowflake.s3compatapitestsuite.compatapi.MetadataCache;
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.compatapi.WriteObjectSpec;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Runs a {@link Scenario}: writes its pool of objects, then runs its phases one after the other as
+ * {@link MixedWorkload}s, each with a client built from the configuration of the phase and closed when the phase ends,
+ * and prints the report rows of each phase as it completes.
+ */
+public class ScenarioRunner {
+    private static final Logger logger = LogManager.getLogger(ScenarioRunner.class);
+    /** Uploads in flight while the pool is written. */
+    private static final int POOL_WRITERS = 32;
+
+    private final AWSCredentialsProvider credentialsProvider;
+    private final String defaultRegion;
+    private final String endpoint;
+    private final String bucketName;
+    private final String basePrefix;
+    private Consumer<Scenario.Phase> beforePhase = phase -> { };
+
+    /**
+     * Constructor for a scenario runner.
+     * @param credentialsProvider Credentials of the clients.
+     * @param defaultRegion Region of the clients whose configuration has none.
+     * @param endpoint Endpoint of the clients.
+     * @param bucketName Bucket of the pools.
+     * @param basePrefix Prefix under which each scenario writes its pool, in a sub prefix named after the scenario.
+     */
+    public ScenarioRunner(AWSCredentialsProvider credentialsProvider, String defaultRegion, String endpoint, String bucketName,
+                          String basePrefix) {
+        this.credentialsProvider = credentialsProvider;
+        this.defaultRegion = defaultRegion;
+        this.endpoint = endpoint;
+        this.bucketName = bucketName;
+        this.basePrefix = basePrefix;
+    }
+
+    /**
+     * Set a step run just before each phase starts, after the pool is written, e.g. to wait for the other workers of a
+     * distributed run.
+     */
+    public ScenarioRunner withBeforePhase(Consumer<Scenario.Phase> beforePhase) {
+        this.beforePhase = beforePhase;
+        return this;
+    }
+
+    /**
+     * Run a scenario.
+     * @param scenario The scenario.
+     * @param out Where to print the report.
+     * @return The result of each phase, by phase name, in the order the phases ran.
+     */
+    public Map<String, WorkloadResult> run(Scenario scenario, PrintStream out) {
+        for (Scenario.Phase phase : scenario.getPhases()) {
+            Scenario.ClientConfig config = clientConfigOf(scenario, phase);
+            if (!config.getExecutionMode().isSupported()) {
+                throw new IllegalArgumentException("Phase " + phase.getName() + " runs on " + config.getExecutionMode().getName()
+                        + " threads, not supported on Java " + System.getProperty("java.version"));
+            }
+        }
+        String poolPrefix = basePrefix + "/" + scenario.getName();
+        out.printf("scenario %s: %d objects of %s under %s%n", scenario.getName(), scenario.getPoolObjects(),
+                scenario.getObjectSize(), poolPrefix);
+        List<String> keys = writePool(scenario, poolPrefix);
+        out.println(WorkloadStats.HEADER);
+        Map<String, WorkloadResult> results = new LinkedHashMap<>();
+        for (Scenario.Phase phase : scenario.getPhases()) {
+            logger.info("Run phase {} of scenario {}: mix {}, concurrency {}, rate {}/sec", phase.getName(), scenario.getName(),
+                    phase.getMix(), phase.getConcurrency(), phase.getRatePerSec());
+            Scenario.ClientConfig config = clientConfigOf(scenario, phase);
+            WorkloadResult result;
+            try (S3CompatStorageClient client = createClient(config, phase, keys.size())) {
+                MixedWorkload workload = new MixedWorkload(client, bucketName, poolPrefix, keys, phase.getMix())
+                        .withConcurrency(phase.getConcurrency())
+                        .withRate(phase.getRatePerSec())
+                        .withObjectSizes(phase.getObjectSize() != null ? phase.getObjectSize() : scenario.getObjectSize())
+                        .withKeyZipfExponent(phase.getKeyZipfExponent())
+                        .withExecutionMode(config.getExecutionMode());
+                beforePhase.accept(phase);
+                if (phase.getDuration() != null) {
+                    result = workload.run(phase.getWarmup(), phase.getDuration());
+                } else {
+                    long start = System.nanoTime();
+                    result = new WorkloadResult(new WorkloadStats(start).finish(start), workload.run(phase.getOperations()));
+                }
+            }
+            result.print(out, phase.getName());
+            results.put(phase.getName(), result);
+        }
+        return results;
+    }
+
+    private S3CompatStorageClient createClient(Scenario.ClientConfig config, Scenario.Phase phase, int poolObjects) {
+        S3CompatStorageClient client = new S3CompatStorageClient(credentialsProvider,
+                config.getRegion() != null ? config.getRegion() : defaultRegion, endpoint,
+                config.getMaxConnections() != null ? config.getMaxConnections() : phase.getConcurrency());
+        client.setRequestCoalescing(config.isRequestCoalescing());
+        if (config.getMetadataCacheTtlMs() != null) {
+            client.setMetadataCache(new MetadataCache(poolObjects, config.getMetadataCacheTtlMs()));
+        }
+        return client;
+    }
+
+    private static Scenario.ClientConfig clientConfigOf(Scenario scenario, Scenario.Phase phase) {
+        return phase.getClient() != null ? phase.getClient() : scenario.getClient();
+    }
+
+    /**
+     * Write the pool objects, with sizes drawn from the distribution of the scenario.
+     * @return The keys of the pool, in order.
+     */
+    private List<String> writePool(Scenario scenario, String poolPrefix) {
+        byte[] content = new byte[scenario.getObjectSize().getMax()];
+        Random random = new Random(scenario.getName().hashCode());
+        random.nextBytes(content);
+        List<String> keys = new ArrayList<>();
+        try (S3CompatStorageClient client = new S3CompatStorageClient(credentialsProvider, defaultRegion, endpoint, POOL_WRITERS);
+             BoundedExecutor executor = new BoundedExecutor("scenario-pool", POOL_WRITERS, POOL_WRITERS * 2)) {
+            for (int i = 0; i < scenario.getPoolObjects(); i++) {
+                String key = String.format("%s/object_%08d", poolPrefix, i);
+                int size = scenario.getObjectSize().sample(random);
+                keys.add(key);
+                executor.submit(() -> {
+                    try {
+                        client.putObject(new WriteObjectSpec(bucketName, key, () -> new ByteArrayInputStream(content, 0, size), size,
+                                null /* clientTimeoutInMs */, null /* additionalBlobMetadata */));
+                    } catch (IOException e) {
+                        throw new RuntimeException("Fail to write pool object " + key, e);
+                    }
+                });
+            }
+            executor.awaitCompletion();
+        }
+        return keys;
+    }
+}
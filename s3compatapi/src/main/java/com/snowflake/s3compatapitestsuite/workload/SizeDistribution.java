@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import java.util.Random;
+
+/**
+ * A distribution of object sizes in bytes, parsed from a spec:
+ * <ul>
+ *     <li>"1024": every object has 1024 bytes.</li>
+ *     <li>"uniform:1024-1048576": sizes uniform between the bounds, inclusive.</li>
+ *     <li>"lognormal:65536:1.5": log-normal sizes with a median of 65536 and a sigma of 1.5, like the file sizes of
+ *     most data lakes, capped at the median times e^(4 sigma) so a rare draw can not exhaust memory.</li>
+ * </ul>
+ */
+public class SizeDistribution {
+    /** Number of sigmas above the median where log-normal sizes are capped. */
+    private static final double LOGNORMAL_CAP_SIGMAS = 4;
+    /** Largest size, so content fits in a byte array. */
+    private static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    private final String spec;
+    private final Type type;
+    private final int min;
+    private final int max;
+    private final double median;
+    private final double sigma;
+
+    private enum Type {
+        FIXED, UNIFORM, LOGNORMAL
+    }
+
+    private SizeDistribution(String spec, Type type, int min, int max, double median, double sigma) {
+        this.spec = spec;
+        this.type = type;
+        this.min = min;
+        this.max = max;
+        this.median = median;
+        this.sigma = sigma;
+    }
+
+    /**
+     * Get a distribution where every object has the same size.
+     * @param size Size in bytes.
+     * @return The distribution.
+     */
+    public static SizeDistribution fixed(int size) {
+        return parse(Integer.toString(size));
+    }
+
+    /**
+     * Parse a distribution.
+     * @param spec The spec, see the class comment.
+     * @return The distribution.
+     */
+    public static SizeDistribution parse(String spec) {
+        String trimmed = spec.trim();
+        try {
+            if (trimmed.startsWith("uniform:")) {
+                String[] bounds = trimmed.substring("uniform:".length()).split("-");
+                int min = toSize(Long.parseLong(bounds[0].trim()));
+                int max = toSize(Long.parseLong(bounds[1].trim()));
+                if (bounds.length != 2 || min > max) {
+                    throw new IllegalArgumentException("Invalid size distribution " + spec + ", min should be <= max.");
+                }
+                return new SizeDistribution(trimmed, Type.UNIFORM, min, max, 0, 0);
+            }
+            if (trimmed.startsWith("lognormal:")) {
+                String[] params = trimmed.substring("lognormal:".length()).split(":");
+                double median = Double.parseDouble(params[0].trim());
+                double sigma = Double.parseDouble(params[1].trim());
+                if (params.length != 2 || median < 1 || sigma < 0) {
+                    throw new IllegalArgumentException("Invalid size distribution " + spec + ", median should be >= 1 and sigma >= 0.");
+                }
+                int max = (int) Math.min(MAX_SIZE, Math.round(median * Math.exp(LOGNORMAL_CAP_SIGMAS * sigma)));
+                return new SizeDistribution(trimmed, Type.LOGNORMAL, 0, max, median, sigma);
+            }
+            int size = toSize(Long.parseLong(trimmed));
+            return new SizeDistribution(trimmed, Type.FIXED, size, size, 0, 0);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid size distribution " + spec
+                    + ", use a size in bytes, uniform:min-max or lognormal:median:sigma.", e);
+        }
+    }
+
+    /**
+     * Draw a size.
+     * @param random Source of randomness.
+     * @return A size in bytes, at most {@link #getMax()}.
+     */
+    public int sample(Random random) {
+        switch (type) {
+            case UNIFORM:
+                return min + (int) (random.nextDouble() * ((long) max - min + 1));
+            case LOGNORMAL:
+                return (int) Math.min(max, Math.round(median * Math.exp(sigma * random.nextGaussian())));
+            default:
+                return min;
+        }
+    }
+
+    /**
+     * Get the largest size drawn.
+     * @return The size in bytes.
+     */
+    public int getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    private static int toSize(long size) {
+        if (size < 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Object size " + size + " should be between 0 and " + MAX_SIZE + ".");
+        }
+        return (int) size;
+    }
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the records of a trace one line at a time, so a trace of any size is read with constant memory. Blank lines
+ * and lines starting with # are skipped.
+ * <ul>
+ *     <li>JSONL: one object per line, like {"ts": 1650000000123.5, "op": "get", "key": "data/part_0.parquet",
+ *     "size": 65536, "offset": 1024}. size and offset are optional.</li>
+ *     <li>CSV: timestampMs,operation,size,key per line, with an optional header line. The key comes last, so it may
+ *     hold commas.</li>
+ * </ul>
+ * Operations are get, head, list, put and delete, or their S3 API and access log names like GetObject or
+ * REST.GET.OBJECT.
+ */
+public class TraceReader implements Iterator<TraceRecord>, Closeable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * The formats of a trace.
+     */
+    public enum Format {
+        JSONL("jsonl"),
+        CSV("csv");
+
+        private final String name;
+
+        Format(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Lookup a format by the extension of a file.
+         * @param file The trace file.
+         * @return The format, or null if the extension is not one of a format.
+         */
+        public static Format lookupByFile(File file) {
+            String fileName = file.getName().toLowerCase(Locale.ROOT);
+            for (Format format : values()) {
+                if (fileName.endsWith("." + format.name)) {
+                    return format;
+                }
+            }
+            return fileName.endsWith(".json") ? JSONL : null;
+        }
+    }
+
+    private final BufferedReader reader;
+    private final Format format;
+    private long lineNumber = 0;
+    /** Whether the first line that is not blank nor a comment was read, the only one that may be a CSV header. */
+    private boolean headerChecked = false;
+    private TraceRecord next;
+
+    /**
+     * Constructor for a trace reader.
+     * @param reader Source of the trace, closed with this reader.
+     * @param format Format of the trace.
+     */
+    public TraceReader(Reader reader, Format format) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.format = format;
+    }
+
+    /**
+     * Open a trace file, its format picked from its extension: .jsonl (or .json) or .csv.
+     * @param file The trace file.
+     * @return The reader.
+     */
+    public static TraceReader open(File file) {
+        Format format = Format.lookupByFile(file);
+        if (format == null) {
+            throw new IllegalArgumentException("Trace " + file + " should be a .jsonl or a .csv file.");
+        }
+        try {
+            return new TraceReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8), format);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Fail to open trace " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readRecord();
+        }
+        return next != null;
+    }
+
+    @Override
+    public TraceRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TraceRecord record = next;
+        next = null;
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private TraceRecord readRecord() {
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                boolean firstRecordLine = !headerChecked;
+                headerChecked = true;
+                if (format == Format.CSV && firstRecordLine && !Character.isDigit(line.charAt(0))) {
+                    // a header line
+                    continue;
+                }
+                try {
+                    return format == Format.JSONL ? parseJson(line) : parseCsv(line);
+                } catch (RuntimeException | IOException e) {
+                    throw new IllegalArgumentException("Invalid trace record at line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fail to read the trace at line " + lineNumber, e);
+        }
+    }
+
+    private static TraceRecord parseJson(String line) throws IOException {
+        JsonNode node = MAPPER.readTree(line);
+        if (!node.hasNonNull("ts") || !node.hasNonNull("op") || !node.hasNonNull("key")) {
+            throw new IllegalArgumentException("ts, op and key are required.");
+        }
+        return new TraceRecord(node.get("ts").asDouble(), parseOp(node.get("op").asText()), node.get("key").asText(),
+                node.path("size").asLong(0), node.path("offset").asLong(0));
+    }
+
+    private static TraceRecord parseCsv(String line) {
+        String[] fields = line.split(",", 4);
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Expected timestampMs,operation,size,key.");
+        }
+        String size = fields[2].trim();
+        return new TraceRecord(Double.parseDouble(fields[0].trim()), parseOp(fields[1]), fields[3].trim(),
+                size.isEmpty() ? 0 : Long.parseLong(size), 0 /* offset */);
+    }
+
+    private static WorkloadOp parseOp(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "get":
+            case "getobject":
+            case "rest.get.object":
+                return WorkloadOp.GET;
+            case "head":
+            case "headobject":
+            case "rest.head.object":
+                return WorkloadOp.HEAD;
+            case "list":
+            case "listobjects":
+            case "listobjectsv2":
+            case "rest.get.bucket":
+                return WorkloadOp.LIST;
+            case "put":
+            case "putobject":
+            case "rest.put.object":
+                return WorkloadOp.PUT;
+            case "delete":
+            case "deleteobject":
+            case "rest.delete.object":
+                return WorkloadOp.DELETE;
+            default:
+                throw new IllegalArgumentException("Operation " + name + " not supported, use get, head, list, put or delete.");
+        }
+    }
+}
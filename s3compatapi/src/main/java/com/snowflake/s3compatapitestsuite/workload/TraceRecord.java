@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+/**
+ * A request of a recorded trace: when it was sent, the operation, the key and the bytes transferred.
+ */
+public class TraceRecord {
+    private final double timestampMs;
+    private final WorkloadOp op;
+    private final String key;
+    private final long size;
+    private final long offset;
+
+    /**
+     * Constructor for a trace record.
+     * @param timestampMs Time the request was sent in ms, only the differences between records matter.
+     * @param op The operation.
+     * @param key Key of the object read, written or deleted, or prefix listed.
+     * @param size Bytes written by a PUT, or read by a GET from offset, 0 to read the whole object.
+     * @param offset First byte read by a GET of size bytes.
+     */
+    public TraceRecord(double timestampMs, WorkloadOp op, String key, long size, long offset) {
+        if (size < 0 || offset < 0) {
+            throw new IllegalArgumentException("size and offset of " + op.getName() + " " + key + " should be >= 0.");
+        }
+        this.timestampMs = timestampMs;
+        this.op = op;
+        this.key = key;
+        this.size = size;
+        this.offset = offset;
+    }
+
+    public double getTimestampMs() {
+        return timestampMs;
+    }
+
+    public WorkloadOp getOp() {
+        return op;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+}
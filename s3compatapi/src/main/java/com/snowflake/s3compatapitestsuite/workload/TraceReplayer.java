@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import com.snowflake.s3compatapitestsuite.compatapi.S3CompatStorageClient;
+import com.snowflake.s3compatapitestsuite.compatapi.WriteObjectSpec;
+import com.snowflake.s3compatapitestsuite.perf.LatencyHistogram;
+import com.snowflake.s3compatapitestsuite.util.BoundedExecutor;
+import com.snowflake.s3compatapitestsuite.util.ExecutionMode;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.SequenceInputStream;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a trace of requests with a client: each record is sent as the matching call at its original offset from the
+ * first record, divided by a speedup factor. Records are pulled from the trace one at a time, and at most twice the
+ * concurrency of them are in flight, so a trace of any size replays with constant memory. When the endpoint can not
+ * keep up, records are sent late, and how late is reported as the dispatch lag.
+ */
+public class TraceReplayer {
+    private static final int DEFAULT_LIST_MAX_KEYS = 1000;
+    /** Size of the random content repeated to fill the objects written by PUTs. */
+    private static final int CONTENT_SIZE = 8 * 1024 * 1024;
+
+    private final S3CompatStorageClient client;
+    private final String bucketName;
+    private final String keyPrefix;
+    private int concurrency = 16;
+    private double speedup = 1;
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM;
+    private final byte[] content = new byte[CONTENT_SIZE];
+
+    /**
+     * Constructor for a trace replayer.
+     * @param client The client sending the requests, with a connection pool sized for the concurrency.
+     * @param bucketName Bucket the trace is replayed against.
+     * @param keyPrefix Prefix prepended to the keys of the trace, empty to use them as they are.
+     */
+    public TraceReplayer(S3CompatStorageClient client, String bucketName, String keyPrefix) {
+        this.client = client;
+        this.bucketName = bucketName;
+        this.keyPrefix = keyPrefix;
+        new Random().nextBytes(content);
+    }
+
+    /** Set the max number of requests running at once. */
+    public TraceReplayer withConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /** Set the factor the inter-arrival times of the trace are divided by, 1 for the original timing, 0 for as fast as possible. */
+    public TraceReplayer withSpeedup(double speedup) {
+        if (speedup < 0) {
+            throw new IllegalArgumentException("The speedup should be >= 0.");
+        }
+        this.speedup = speedup;
+        return this;
+    }
+
+    /** Set the threads sending the requests. */
+    public TraceReplayer withExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        return this;
+    }
+
+    /**
+     * Replay a trace.
+     * @param trace The records, in the order they were sent.
+     * @return The statistics of the calls and of their dispatch lag.
+     */
+    public Result replay(Iterator<TraceRecord> trace) {
+        WorkloadStats stats = new WorkloadStats();
+        LatencyHistogram dispatchLag = new LatencyHistogram();
+        long replayStart = System.nanoTime();
+        double firstTimestampMs = 0;
+        long records = 0;
+        try (BoundedExecutor executor = new BoundedExecutor("trace-replay", concurrency, concurrency * 2, executionMode)) {
+            while (trace.hasNext()) {
+                TraceRecord record = trace.next();
+                if (records++ == 0) {
+                    firstTimestampMs = record.getTimestampMs();
+                }
+                long due = speedup > 0
+                        ? replayStart + (long) ((record.getTimestampMs() - firstTimestampMs) * 1_000_000 / speedup)
+                        : System.nanoTime();
+                for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                // blocks while the in flight requests are at their max, which delays this record and the next ones.
+                executor.submit(() -> execute(record, due, stats, dispatchLag));
+            }
+            executor.awaitCompletion();
+        }
+        return new Result(stats.finish(), dispatchLag, records);
+    }
+
+    /**
+     * Send the call of a record, its dispatch lag is measured when it starts, so the time it waited for a free thread
+     * is counted.
+     */
+    private void execute(TraceRecord record, long due, WorkloadStats stats, LatencyHistogram dispatchLag) {
+        String key = keyPrefix.isEmpty() ? record.getKey() : keyPrefix + "/" + record.getKey();
+        long start = System.nanoTime();
+        dispatchLag.record(Math.max(0, start - due) / 1000);
+        try {
+            long bytes = 0;
+            switch (record.getOp()) {
+                case GET:
+                    Long rangeStart = record.getSize() > 0 ? record.getOffset() : null;
+                    Long rangeEnd = record.getSize() > 0 ? record.getOffset() + record.getSize() - 1 : null;
+                    bytes = client.readObject(bucketName, key, null /* versionId */, rangeStart, rangeEnd, IOUtils::consume)
+                            .getContentLength();
+                    break;
+                case HEAD:
+                    client.getObjectMetadata(bucketName, key, null /* versionId */);
+                    break;
+                case LIST:
+                    client.listObjectsV2(bucketName, key, DEFAULT_LIST_MAX_KEYS);
+                    break;
+                case PUT:
+                    client.putObject(new WriteObjectSpec(bucketName, key, () -> contentOf(record.getSize()), record.getSize(),
+                            null /* clientTimeoutInMs */, null /* additionalBlobMetadata */));
+                    bytes = record.getSize();
+                    break;
+                case DELETE:
+                    client.deleteObject(bucketName, key);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Not supported operation " + record.getOp().getName());
+            }
+            stats.recordSuccess(record.getOp(), System.nanoTime() - start, bytes);
+        } catch (RuntimeException | IOException e) {
+            stats.recordFailure(record.getOp());
+        }
+    }
+
+    /** Get a stream of size bytes, the random content repeated as many times as needed. */
+    private InputStream contentOf(long size) {
+        if (size <= content.length) {
+            return new ByteArrayInputStream(content, 0, (int) size);
+        }
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            private long remaining = size;
+
+            @Override
+            public boolean hasMoreElements() {
+                return remaining > 0;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                int length = (int) Math.min(remaining, content.length);
+                remaining -= length;
+                return new ByteArrayInputStream(content, 0, length);
+            }
+        });
+    }
+
+    /**
+     * Result of a replay.
+     */
+    public static class Result {
+        private final WorkloadStats stats;
+        private final LatencyHistogram dispatchLag;
+        private final long records;
+
+        private Result(WorkloadStats stats, LatencyHistogram dispatchLag, long records) {
+            this.stats = stats;
+            this.dispatchLag = dispatchLag;
+            this.records = records;
+        }
+
+        /** Get the statistics of the calls, their latency excludes the dispatch lag. */
+        public WorkloadStats getStats() {
+            return stats;
+        }
+
+        /** Get how late in µs the calls of the records started after their due time. */
+        public LatencyHistogram getDispatchLag() {
+            return dispatchLag;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        /**
+         * Print the rows of the calls, see {@link WorkloadStats#HEADER}, then the dispatch lag.
+         * @param out Where to print.
+         * @param run Label of the replay, the first column of the rows.
+         */
+        public void print(PrintStream out, String run) {
+            stats.print(out, run);
+            out.printf("%s: %d records replayed, dispatch lag p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", run, records,
+                    dispatchLag.getPercentile(50) / 1000.0, dispatchLag.getPercentile(99) / 1000.0, dispatchLag.getMax() / 1000.0);
+        }
+    }
+}
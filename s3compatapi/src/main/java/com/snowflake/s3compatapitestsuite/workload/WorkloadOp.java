@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+/**
+ * The operations a mixed workload issues against its pool of objects, or a trace replays.
+ */
+public enum WorkloadOp {
+    /** Read a whole object of the pool. */
+    GET("get"),
+    /** Read the metadata of an object of the pool. */
+    HEAD("head"),
+    /** List the pool prefix. */
+    LIST("list"),
+    /** Overwrite an object of the pool. */
+    PUT("put"),
+    /** Delete an object, only replayed from traces since it would empty the pool of a mix. */
+    DELETE("delete");
+
+    private final String name;
+
+    WorkloadOp(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Lookup an operation by its name.
+     * @param name Name of the operation.
+     * @return The operation, or null if not found.
+     */
+    public static WorkloadOp lookupByName(String name) {
+        for (WorkloadOp op : values()) {
+            if (op.name.equalsIgnoreCase(name)) {
+                return op;
+            }
+        }
+        return null;
+    }
+}
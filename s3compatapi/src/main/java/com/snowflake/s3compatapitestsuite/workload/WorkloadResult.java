@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import java.io.PrintStream;
+
+/**
+ * Result of a workload run for a duration: the operations started during the warmup are kept apart from those of the
+ * steady window, whose throughput is computed over the steady window only.
+ */
+public class WorkloadResult {
+    private final WorkloadStats warmup;
+    private final WorkloadStats steady;
+
+    /**
+     * Constructor for a workload result.
+     * @param warmup Statistics of the operations started during the warmup.
+     * @param steady Statistics of the operations started after the warmup.
+     */
+    public WorkloadResult(WorkloadStats warmup, WorkloadStats steady) {
+        this.warmup = warmup;
+        this.steady = steady;
+    }
+
+    public WorkloadStats getWarmup() {
+        return warmup;
+    }
+
+    public WorkloadStats getSteady() {
+        return steady;
+    }
+
+    /**
+     * Print the rows of the steady window, preceded by those of the warmup if it ran any operation.
+     * @param out Where to print.
+     * @param run Label of the run, suffixed with "/warmup" for the warmup rows.
+     */
+    public void print(PrintStream out, String run) {
+        if (warmup.getOps() + warmup.getFailures() > 0) {
+            warmup.print(out, run + "/warmup");
+        }
+        steady.print(out, run);
+    }
+}
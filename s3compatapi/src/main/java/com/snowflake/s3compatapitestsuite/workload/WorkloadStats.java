@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import com.snowflake.s3compatapitestsuite.perf.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per operation statistics of a workload: latency histogram in microseconds, failures and bytes, safe to update from
+ * many workers at once.
+ */
+public class WorkloadStats {
+    /** Header of the rows printed by {@link #print(PrintStream, String)}. */
+    public static final String HEADER = "run, operation, ops, ops/sec, p50 ms, p99 ms, max ms, failures, MB/sec";
+
+    private final Map<WorkloadOp, OpStats> stats = new EnumMap<>(WorkloadOp.class);
+    private final long startNanos;
+    private long elapsedNanos = -1;
+
+    public WorkloadStats() {
+        this(System.nanoTime());
+    }
+
+    /**
+     * Constructor for statistics of a window starting at a given time, e.g. the steady window after a warmup.
+     * @param startNanos Start of the window, as a System.nanoTime() value.
+     */
+    public WorkloadStats(long startNanos) {
+        this.startNanos = startNanos;
+        for (WorkloadOp op : WorkloadOp.values()) {
+            stats.put(op, new OpStats());
+        }
+    }
+
+    /**
+     * Record a successful operation.
+     * @param op The operation.
+     * @param elapsedNanos Time the operation took.
+     * @param bytes Bytes read or written.
+     */
+    public void recordSuccess(WorkloadOp op, long elapsedNanos, long bytes) {
+        OpStats opStats = stats.get(op);
+        opStats.latency.record(elapsedNanos / 1000);
+        opStats.bytes.add(bytes);
+    }
+
+    /**
+     * Record a failed operation.
+     * @param op The operation.
+     */
+    public void recordFailure(WorkloadOp op) {
+        stats.get(op).failures.increment();
+    }
+
+    /**
+     * Add calls of an operation recorded elsewhere, e.g. by another process.
+     * @param op The operation.
+     * @param latency Latency in microseconds of the successful calls.
+     * @param failures Number of failed calls.
+     * @param bytes Bytes read or written.
+     */
+    public void add(WorkloadOp op, LatencyHistogram latency, long failures, long bytes) {
+        OpStats opStats = stats.get(op);
+        opStats.latency.merge(latency);
+        opStats.failures.add(failures);
+        opStats.bytes.add(bytes);
+    }
+
+    /**
+     * Add all calls of other statistics, e.g. of the workers of a distributed run. The window is left as it is.
+     * @param other The statistics to add, not updated concurrently.
+     */
+    public void merge(WorkloadStats other) {
+        for (WorkloadOp op : WorkloadOp.values()) {
+            add(op, other.getLatency(op), other.getFailures(op), other.getBytes(op));
+        }
+    }
+
+    /**
+     * Stop the clock, the throughput is computed over the time between the creation and this call.
+     * @return this
+     */
+    public WorkloadStats finish() {
+        return finish(System.nanoTime());
+    }
+
+    /**
+     * Stop the clock at a given time.
+     * @param endNanos End of the window, as a System.nanoTime() value.
+     * @return this
+     */
+    public WorkloadStats finish(long endNanos) {
+        elapsedNanos = Math.max(0, endNanos - startNanos);
+        return this;
+    }
+
+    /** Get the latency histogram of the successful calls of an operation, in microseconds. */
+    public LatencyHistogram getLatency(WorkloadOp op) {
+        return stats.get(op).latency;
+    }
+
+    /** Get the latency histogram of the successful calls of all operations, in microseconds. */
+    public LatencyHistogram getLatency() {
+        LatencyHistogram all = new LatencyHistogram();
+        stats.values().forEach(opStats -> all.merge(opStats.latency));
+        return all;
+    }
+
+    /** Get the number of failed calls of an operation. */
+    public long getFailures(WorkloadOp op) {
+        return stats.get(op).failures.sum();
+    }
+
+    /** Get the bytes read or written by an operation. */
+    public long getBytes(WorkloadOp op) {
+        return stats.get(op).bytes.sum();
+    }
+
+    /** Get the number of successful calls of all operations. */
+    public long getOps() {
+        return stats.values().stream().mapToLong(opStats -> opStats.latency.getCount()).sum();
+    }
+
+    /** Get the number of failed calls of all operations. */
+    public long getFailures() {
+        return stats.values().stream().mapToLong(opStats -> opStats.failures.sum()).sum();
+    }
+
+    /** Get the elapsed time in ms, up to now if not finished. */
+    public double getElapsedMs() {
+        return (elapsedNanos >= 0 ? elapsedNanos : System.nanoTime() - startNanos) / 1e6;
+    }
+
+    /** Get the number of successful calls of all operations per second. */
+    public double getOpsPerSec() {
+        return getElapsedMs() > 0 ? getOps() * 1000 / getElapsedMs() : 0;
+    }
+
+    /**
+     * Print a row per operation called, and a row for all operations.
+     * @param out Where to print.
+     * @param run Label of the run, first column of the rows.
+     */
+    public void print(PrintStream out, String run) {
+        LatencyHistogram all = new LatencyHistogram();
+        long allBytes = 0;
+        for (WorkloadOp op : WorkloadOp.values()) {
+            OpStats opStats = stats.get(op);
+            if (opStats.latency.getCount() == 0 && opStats.failures.sum() == 0) {
+                continue;
+            }
+            printRow(out, run, op.getName(), opStats.latency, opStats.failures.sum(), opStats.bytes.sum());
+            all.merge(opStats.latency);
+            allBytes += opStats.bytes.sum();
+        }
+        printRow(out, run, "all", all, getFailures(), allBytes);
+    }
+
+    private void printRow(PrintStream out, String run, String op, LatencyHistogram latency, long failures, long bytes) {
+        double elapsedSec = Math.max(getElapsedMs(), 1e-3) / 1000;
+        out.printf("%s, %s, %d, %.1f, %.2f, %.2f, %.2f, %d, %.2f%n", run, op, latency.getCount(), latency.getCount() / elapsedSec,
+                latency.getPercentile(50) / 1000.0, latency.getPercentile(99) / 1000.0, latency.getMax() / 1000.0, failures,
+                bytes / (1024.0 * 1024) / elapsedSec);
+    }
+
+    private static class OpStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+    }
+}
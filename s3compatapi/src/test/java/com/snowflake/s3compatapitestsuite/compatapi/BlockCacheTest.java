@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test the eviction, invalidation, revalidation and stores of the block cache.
+ */
+class BlockCacheTest {
+    @Test
+    void evictsLeastRecentlyUsedBlock() {
+        try (BlockCache cache = new BlockCache(4 /* blockSize */, 8 /* capacity */, BlockCache.Store.OFF_HEAP, null /* diskFile */, 0 /* ttlMs */)) {
+            cache.putBlock("bucket", "key", "etag", 0, new byte[] {0, 1, 2, 3});
+            cache.putBlock("bucket", "key", "etag", 1, new byte[] {4, 5});
+            // touch block 0, so block 1 is the least recently used one.
+            Assertions.assertArrayEquals(new byte[] {0, 1, 2, 3}, cache.getBlock("bucket", "key", "etag", 0));
+            cache.putBlock("bucket", "key", "etag", 2, new byte[] {8, 9, 10, 11});
+            Assertions.assertNull(cache.getBlock("bucket", "key", "etag", 1));
+            Assertions.assertArrayEquals(new byte[] {8, 9, 10, 11}, cache.getBlock("bucket", "key", "etag", 2));
+            Assertions.assertNull(cache.getBlock("bucket", "key", "other-etag", 0));
+            Assertions.assertEquals(1, cache.getEvictions());
+            Assertions.assertEquals(2, cache.getHits());
+            Assertions.assertEquals(2, cache.getMisses());
+            Assertions.assertEquals(0.5, cache.getHitRatio());
+        }
+    }
+
+    @Test
+    void newVersionDropsBlocks(@TempDir Path dir) {
+        try (BlockCache cache = new BlockCache(4 /* blockSize */, 16 /* capacity */, BlockCache.Store.DISK, dir.resolve("cache.bin"), 0 /* ttlMs */)) {
+            cache.setObjectVersion("bucket", "key", new BlockCache.ObjectVersion("v1", 6));
+            cache.putBlock("bucket", "key", "v1", 0, new byte[] {0, 1, 2, 3});
+            cache.putBlock("bucket", "key", "v1", 1, new byte[] {4, 5});
+            Assertions.assertArrayEquals(new byte[] {4, 5}, cache.getBlock("bucket", "key", "v1", 1));
+            cache.setObjectVersion("bucket", "key", new BlockCache.ObjectVersion("v2", 6));
+            Assertions.assertNull(cache.getBlock("bucket", "key", "v1", 0));
+            cache.putBlock("bucket", "key", "v2", 0, new byte[] {9, 9, 9, 9});
+            Assertions.assertArrayEquals(new byte[] {9, 9, 9, 9}, cache.getBlock("bucket", "key", "v2", 0));
+            cache.invalidate("bucket", "key");
+            Assertions.assertNull(cache.getObjectVersion("bucket", "key"));
+            Assertions.assertNull(cache.getBlock("bucket", "key", "v2", 0));
+        }
+    }
+
+    @Test
+    void forgetsVersionWithItsLastBlock() {
+        try (BlockCache cache = new BlockCache(4 /* blockSize */, 8 /* capacity */, BlockCache.Store.OFF_HEAP, null /* diskFile */, 0 /* ttlMs */)) {
+            for (int i = 0; i < 100; i++) {
+                cache.setObjectVersion("bucket", "key" + i, new BlockCache.ObjectVersion("etag", 4));
+                cache.putBlock("bucket", "key" + i, "etag", 0, new byte[] {1, 2, 3, 4});
+            }
+            // two slots, so only the versions of the last two objects are kept.
+            Assertions.assertEquals(2, cache.getCachedObjects());
+            Assertions.assertNull(cache.getObjectVersion("bucket", "key0"));
+            Assertions.assertNotNull(cache.getObjectVersion("bucket", "key99"));
+            // a block of an older version fetched late is not cached.
+            cache.setObjectVersion("bucket", "key99", new BlockCache.ObjectVersion("new-etag", 4));
+            cache.putBlock("bucket", "key99", "etag", 0, new byte[] {1, 2, 3, 4});
+            Assertions.assertNull(cache.getBlock("bucket", "key99", "etag", 0));
+        }
+    }
+
+    @Test
+    void expiresVersionAfterTtl() {
+        AtomicLong nanos = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        };
+        try (BlockCache cache = new BlockCache(4 /* blockSize */, 8 /* capacity */, BlockCache.Store.OFF_HEAP, null /* diskFile */,
+                100 /* ttlMs */, ticker)) {
+            Assertions.assertFalse(cache.isFresh("bucket", "key"));
+            cache.setObjectVersion("bucket", "key", new BlockCache.ObjectVersion("etag", 4));
+            cache.putBlock("bucket", "key", "etag", 0, new byte[] {1, 2, 3, 4});
+            nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(99));
+            Assertions.assertTrue(cache.isFresh("bucket", "key"));
+            nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+            Assertions.assertFalse(cache.isFresh("bucket", "key"));
+            // a revalidation confirming the version keeps the blocks and restarts the TTL.
+            cache.setObjectVersion("bucket", "key", new BlockCache.ObjectVersion("etag", 4));
+            Assertions.assertTrue(cache.isFresh("bucket", "key"));
+            Assertions.assertArrayEquals(new byte[] {1, 2, 3, 4}, cache.getBlock("bucket", "key", "etag", 0));
+        }
+    }
+}
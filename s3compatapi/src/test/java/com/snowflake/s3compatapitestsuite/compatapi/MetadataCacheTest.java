@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Test the TTL, conditional revalidation and refresh of the metadata cache, with a fake clock and HEAD.
+ */
+class MetadataCacheTest {
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    };
+    /** The ETag of each HEAD, null for an unconditional one. */
+    private final List<String> conditions = new ArrayList<>();
+    /** The current object, a conditional HEAD on its ETag returns null as a 304 does. */
+    private RemoteObjectMetadata current = metadata("etag-1");
+    private final Function<String, RemoteObjectMetadata> head = eTag -> {
+        conditions.add(eTag);
+        return current.getObjectETag().equals(eTag) ? null : current;
+    };
+
+    @Test
+    void servesFreshEntryWithoutHead() {
+        MetadataCache cache = new MetadataCache(10 /* maxEntries */, 100 /* ttlMs */, ticker);
+        Assertions.assertEquals(current, cache.get("bucket", "key", null, head));
+        advanceMs(99);
+        Assertions.assertEquals(current, cache.get("bucket", "key", null, head));
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, conditions.size());
+        Assertions.assertNull(conditions.get(0));
+    }
+
+    @Test
+    void revalidatesStaleEntryWithConditionalHead() {
+        MetadataCache cache = new MetadataCache(10 /* maxEntries */, 100 /* ttlMs */, ticker);
+        RemoteObjectMetadata first = cache.get("bucket", "key", null, head);
+        advanceMs(100);
+        Assertions.assertSame(first, cache.get("bucket", "key", null, head));
+        Assertions.assertEquals("etag-1", conditions.get(1));
+        Assertions.assertEquals(1, cache.getNotModified());
+        // the 304 restarts the TTL.
+        advanceMs(50);
+        cache.get("bucket", "key", null, head);
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(2, conditions.size());
+    }
+
+    @Test
+    void refreshesChangedObject() {
+        MetadataCache cache = new MetadataCache(10 /* maxEntries */, 100 /* ttlMs */, ticker);
+        cache.get("bucket", "key", null, head);
+        current = metadata("etag-2");
+        // still fresh, so the change is not seen yet.
+        Assertions.assertEquals("etag-1", cache.get("bucket", "key", null, head).getObjectETag());
+        advanceMs(100);
+        Assertions.assertEquals("etag-2", cache.get("bucket", "key", null, head).getObjectETag());
+        Assertions.assertEquals("etag-1", conditions.get(1));
+        Assertions.assertEquals(1, cache.getRefreshed());
+        advanceMs(1);
+        Assertions.assertEquals("etag-2", cache.get("bucket", "key", null, head).getObjectETag());
+        Assertions.assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void zeroTtlRevalidatesEveryLookup() {
+        MetadataCache cache = new MetadataCache(10 /* maxEntries */, 0 /* ttlMs */, ticker);
+        for (int i = 0; i < 3; i++) {
+            cache.get("bucket", "key", null, head);
+        }
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(2, cache.getNotModified());
+        cache.invalidate("bucket", "key", null);
+        cache.get("bucket", "key", null, head);
+        Assertions.assertEquals(2, cache.getMisses());
+    }
+
+    private void advanceMs(long ms) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    private static RemoteObjectMetadata metadata(String eTag) {
+        return new RemoteObjectMetadata(1024, eTag, null, new Date(0));
+    }
+}
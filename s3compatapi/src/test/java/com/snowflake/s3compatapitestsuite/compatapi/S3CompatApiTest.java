@@ -4,9 +4,12 @@
 package com.snowflake.s3compatapitestsuite.compatapi;
 
 import com.amazonaws.auth.*;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.PutObjectResult;
 import com.amazonaws.services.s3.model.S3VersionSummary;
 import com.snowflake.s3compatapitestsuite.EnvConstants;
+import com.snowflake.s3compatapitestsuite.transfer.BulkMetadataFetcher;
+import com.snowflake.s3compatapitestsuite.transfer.TransferStats;
 import com.snowflake.s3compatapitestsuite.util.TestUtils;
 
 import org.apache.log4j.BasicConfigurator;
@@ -15,7 +18,10 @@ import org.junit.jupiter.api.*;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -134,6 +140,10 @@ class S3CompatApiTest {
         clientWithRegion1.putObject(EnvConstants.BUCKET_AT_REGION_1, prefix, EnvConstants.LOCAL_FILE_PATH_1);
         // Positive test: put a file with user metadata
         testPutObjectWithUserMetadata();
+        // Positive test: put and read a file verifying checksums while streaming
+        testPutObjectWithChecksums();
+        // Positive test: put files verified off the calling thread, or not verified
+        testPutObjectWithVerificationPolicies();
         // Positive test: put a file with up to size of 5GB
         testPutLargeObjectUpTo5GB();
         // Negative test: put object on a non-existing bucket
@@ -177,6 +187,44 @@ class S3CompatApiTest {
         Assertions.assertEquals(addiontalMetadata.get("user"), metadata.getObjectUserMetadata().get("user"));
         Assertions.assertEquals(file.length(), metadata.getObjectContentLength());
     }
+    private void testPutObjectWithChecksums() throws IOException {
+        updatePrefixForTestCase(TestUtils.OPERATIONS.PUT_OBJECT);
+        File file = new File(EnvConstants.LOCAL_FILE_PATH_2);
+        String filePath = prefix + "/" + EnvConstants.LOCAL_FILE_PATH_2;
+        byte[] content = Files.readAllBytes(file.toPath());
+        Map<String, String> storedChecksums = new TreeMap<>();
+        storedChecksums.put(ChecksumAlgorithm.CRC32C.getMetadataKey(), ChecksumAlgorithm.CRC32C.checksumOf(content));
+        clientWithRegion1.setChecksumVerification(EnumSet.allOf(ChecksumAlgorithm.class));
+        clientWithRegion1.getChecksumCost().reset();
+        try {
+            clientWithRegion1.putObject(new WriteObjectSpec(EnvConstants.BUCKET_AT_REGION_1, filePath,
+                    () -> new FileInputStream(file), file.length(), null /* clientTimeoutInMs */, storedChecksums));
+            // the read verifies the MD5 against the ETag and the CRC32C against the stored metadata
+            clientWithRegion1.readObject(EnvConstants.BUCKET_AT_REGION_1, filePath, null /* versionId */, null /* start */, null /* end */,
+                    in -> in.read());
+            Assertions.assertEquals(2 * file.length(), clientWithRegion1.getChecksumCost().getBytes(ChecksumAlgorithm.CRC32C));
+            // Negative test: a stored checksum not matching the content fails the put
+            storedChecksums.put(ChecksumAlgorithm.CRC32C.getMetadataKey(), ChecksumAlgorithm.CRC32C.checksumOf(new byte[] {1}));
+            Assertions.assertThrows(RuntimeException.class, () -> clientWithRegion1.putObject(new WriteObjectSpec(EnvConstants.BUCKET_AT_REGION_1,
+                    filePath, () -> new FileInputStream(file), file.length(), null /* clientTimeoutInMs */, storedChecksums)));
+        } finally {
+            clientWithRegion1.setChecksumVerification(EnumSet.noneOf(ChecksumAlgorithm.class));
+        }
+    }
+    private void testPutObjectWithVerificationPolicies() {
+        updatePrefixForTestCase(TestUtils.OPERATIONS.PUT_OBJECT);
+        try {
+            clientWithRegion1.setReadAfterWriteVerification(ReadAfterWriteVerification.ASYNC, 1.0 /* sampleRate */);
+            clientWithRegion1.putObject(EnvConstants.BUCKET_AT_REGION_1, prefix + "/async", EnvConstants.LOCAL_FILE_PATH_1);
+            Assertions.assertTrue(clientWithRegion1.awaitAsyncVerifications().isEmpty());
+            clientWithRegion1.setReadAfterWriteVerification(ReadAfterWriteVerification.OFF, 1.0 /* sampleRate */);
+            PutObjectResult res = clientWithRegion1.putObject(EnvConstants.BUCKET_AT_REGION_1, prefix + "/off", EnvConstants.LOCAL_FILE_PATH_1);
+            Assertions.assertEquals(new File(EnvConstants.LOCAL_FILE_PATH_1).length(),
+                    clientWithRegion1.getObjectMetadata(EnvConstants.BUCKET_AT_REGION_1, prefix + "/off", res.getVersionId()).getObjectContentLength());
+        } finally {
+            clientWithRegion1.setReadAfterWriteVerification(ReadAfterWriteVerification.ALWAYS, 1.0 /* sampleRate */);
+        }
+    }
     private void testPutLargeObjectUpTo5GB() throws Exception {
         updatePrefixForTestCase(TestUtils.OPERATIONS.PUT_OBJECT);
         long size_5GB = 5368709120L;
@@ -212,6 +260,53 @@ class S3CompatApiTest {
         String contentRange = object1.getContentRange();
         String expectedContentRange = String.format("bytes %d-%d/%d", start, end, file.length());
         Assertions.assertEquals(expectedContentRange, contentRange, "Content range does not match, expected content range: " + expectedContentRange + ", but got: " + contentRange);
+        // Test getObject suffix range, the last bytes of an object without knowing its size
+        long suffixLength = 8;
+        S3CompatObject object2 = clientWithRegion1.readObjectSuffix(EnvConstants.BUCKET_AT_REGION_1, filePath, null /* versionId */, suffixLength, in -> in.read());
+        Assertions.assertEquals(suffixLength, object2.getContentLength());
+        String expectedSuffixRange = String.format("bytes %d-%d/%d", file.length() - suffixLength, file.length() - 1, file.length());
+        Assertions.assertEquals(expectedSuffixRange, object2.getContentRange(), "Content range does not match, expected content range: " + expectedSuffixRange + ", but got: " + object2.getContentRange());
+        // Test ranged reads through a block cache, the second read is served from the cached blocks
+        byte[] expectedRange = Arrays.copyOfRange(Files.readAllBytes(file.toPath()), 3, 20);
+        try (BlockCache cache = new BlockCache(8 /* blockSize */, 1024 /* capacity */, BlockCache.Store.OFF_HEAP, null /* diskFile */, 60_000 /* ttlMs */)) {
+            clientWithRegion1.setBlockCache(cache);
+            for (int i = 0; i < 2; i++) {
+                ByteArrayOutputStream rangeContent = new ByteArrayOutputStream();
+                S3CompatObject cached = clientWithRegion1.readObject(EnvConstants.BUCKET_AT_REGION_1, filePath, null /* versionId */, 3L, 19L,
+                        in -> in.transferTo(rangeContent));
+                Assertions.assertArrayEquals(expectedRange, rangeContent.toByteArray());
+                Assertions.assertEquals(String.format("bytes 3-19/%d", file.length()), cached.getContentRange());
+            }
+            Assertions.assertEquals(3, cache.getHits());
+            Assertions.assertEquals(cache.getBytesFetched(), cache.getBytesSaved());
+        } finally {
+            clientWithRegion1.setBlockCache(null);
+        }
+        // Test a sequential read of small chunks kept in flight ahead of the reader
+        try (ReadAheadInputStream in = clientWithRegion1.openReadAheadStream(EnvConstants.BUCKET_AT_REGION_1, filePath, null /* versionId */,
+                7 /* chunkSize */, 3 /* maxWindow */)) {
+            Assertions.assertArrayEquals(Files.readAllBytes(file.toPath()), in.readAllBytes());
+            Assertions.assertEquals((file.length() + 6) / 7, in.getChunksFetched());
+            Assertions.assertTrue(in.getWindow() <= 3);
+        }
+        // Test a put, ranged read, metadata lookup and delete through the async client
+        try (AsyncS3CompatStorageClient asyncClient = clientWithRegion1.createAsyncClient(2 /* threads */)) {
+            String asyncKey = filePath + ".async";
+            byte[] content = Files.readAllBytes(file.toPath());
+            PutObjectResult putResult = asyncClient.putObject(EnvConstants.BUCKET_AT_REGION_1, asyncKey, content).join();
+            ByteArrayOutputStream rangeContent = new ByteArrayOutputStream();
+            S3CompatObject asyncObject = asyncClient.readObject(EnvConstants.BUCKET_AT_REGION_1, asyncKey, 3L, 19L,
+                    in -> in.transferTo(rangeContent)).join();
+            Assertions.assertArrayEquals(expectedRange, rangeContent.toByteArray());
+            Assertions.assertEquals(String.format("bytes 3-19/%d", file.length()), asyncObject.getContentRange());
+            RemoteObjectMetadata asyncMetadata = asyncClient.getObjectMetadata(EnvConstants.BUCKET_AT_REGION_1, asyncKey).join();
+            Assertions.assertEquals(file.length(), asyncMetadata.getObjectContentLength());
+            Assertions.assertEquals(putResult.getETag(), asyncMetadata.getObjectETag());
+            asyncClient.deleteObject(EnvConstants.BUCKET_AT_REGION_1, asyncKey).join();
+            CompletionException missing = Assertions.assertThrows(CompletionException.class,
+                    () -> asyncClient.getObjectMetadata(EnvConstants.BUCKET_AT_REGION_1, asyncKey).join());
+            Assertions.assertEquals(404, ((AmazonS3Exception) missing.getCause()).getStatusCode());
+        }
         // Negative test: get a file that does not exist
         TestUtils.functionCallThrowsException(() -> clientWithRegion1.getObject(EnvConstants.BUCKET_AT_REGION_1, "notExisting" + filePath),
                 404 /* expectedStatusCode */,
@@ -250,6 +345,31 @@ class S3CompatApiTest {
         // Etag the same
         Assertions.assertEquals(mt3.getObjectETag(), mt2.getObjectETag());
         Assertions.assertTrue(mt1.getObjectLastModified().compareTo(mt3.getObjectLastModified()) < 0 );
+        // Test metadata revalidated with a HEAD conditional on the cached ETag
+        clientWithRegion1.setMetadataCache(new MetadataCache(16 /* maxEntries */, 0 /* ttlMs */));
+        try {
+            RemoteObjectMetadata cold = clientWithRegion1.getObjectMetadata(EnvConstants.BUCKET_AT_REGION_1, filePath, null /* versionId */);
+            RemoteObjectMetadata revalidated = clientWithRegion1.getObjectMetadata(EnvConstants.BUCKET_AT_REGION_1, filePath, null /* versionId */);
+            Assertions.assertEquals(cold.getObjectETag(), revalidated.getObjectETag());
+            Assertions.assertEquals(1, clientWithRegion1.getMetadataCache().getNotModified(),
+                    "HEAD with If-None-Match of the current ETag should return 304 Not Modified.");
+        } finally {
+            clientWithRegion1.setMetadataCache(null);
+        }
+        // Test fetching the metadata of several objects in parallel, a missing object fails alone
+        Queue<BulkMetadataFetcher.Result> results = new ConcurrentLinkedQueue<>();
+        TransferStats headStats = new BulkMetadataFetcher(clientWithRegion1, 2 /* concurrency */).fetch(EnvConstants.BUCKET_AT_REGION_1,
+                Arrays.asList(filePath, filePath, "not-existing" + filePath),
+                Arrays.asList(null, putObjectResult1.getVersionId(), null), results::add);
+        Assertions.assertEquals(2, headStats.getObjects());
+        Assertions.assertEquals(1, headStats.getFailures());
+        for (BulkMetadataFetcher.Result result : results) {
+            if (result.getKey().equals(filePath)) {
+                Assertions.assertEquals(file.length(), result.getMetadata().getObjectContentLength());
+            } else {
+                Assertions.assertEquals(404, ((AmazonS3Exception) result.getFailure()).getStatusCode());
+            }
+        }
         // Negative test: get metadata for a non-existing file
         TestUtils.functionCallThrowsException(() -> getObjectMetadata(clientWithRegion1, EnvConstants.BUCKET_AT_REGION_1, "not-existing" + filePath),
                 404 /* expectedStatusCode */,
@@ -372,6 +492,12 @@ class S3CompatApiTest {
         RemoteObjectMetadata source = getObjectMetadata(clientWithRegion1, EnvConstants.BUCKET_AT_REGION_1, sourceFileName);
         Assertions.assertEquals(source.getObjectContentLength(), dstMt1.getObjectContentLength());
         Assertions.assertEquals(source.getObjectETag(), dstMt1.getObjectETag());
+        // Copy as a multipart upload, with the source version id
+        String dstFileName2 = "dst2_" + sourceFileName;
+        clientWithRegion1.copyObjectMultipart(EnvConstants.BUCKET_AT_REGION_1, sourceFileName, source.getObjectVersionId(), EnvConstants.BUCKET_AT_REGION_1, dstFileName2,
+                5 * 1024 * 1024 /* partSize */, 4 /* parallelism */);
+        RemoteObjectMetadata dstMt2 = getObjectMetadata(clientWithRegion1, EnvConstants.BUCKET_AT_REGION_1, dstFileName2);
+        Assertions.assertEquals(source.getObjectContentLength(), dstMt2.getObjectContentLength());
     }
     @Test
     void generatePresignedUrl() {
@@ -385,6 +511,12 @@ class S3CompatApiTest {
             URL presignedUrl1 = new URL(validPresignedUrl1);
             HttpURLConnection c = (HttpURLConnection) presignedUrl1.openConnection();
             Assertions.assertEquals(200, c.getResponseCode());
+            // Test urls presigned in a batch
+            for (String batchUrl : clientWithRegion1.presignUrls(EnvConstants.BUCKET_AT_REGION_1, Arrays.asList(filePath, filePath),
+                    com.amazonaws.HttpMethod.GET, 3600 /* lifetimeInSecs */)) {
+                HttpURLConnection batchConnection = (HttpURLConnection) new URL(batchUrl).openConnection();
+                Assertions.assertEquals(200, batchConnection.getResponseCode());
+            }
         } catch (IOException e) {
             Assertions.fail("Unexpected failure for using presigned url: " + e);
         }
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.compatapi;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test that concurrent identical calls share one call and its failure.
+ */
+class SingleFlightTest {
+    @Test
+    void concurrentCallsShareOneCall() throws Exception {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> flights.execute("key", () -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return 42;
+        }), executor);
+        while (calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        List<CompletableFuture<Integer>> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            followers.add(CompletableFuture.supplyAsync(() -> flights.execute("key", calls::incrementAndGet), executor));
+        }
+        while (flights.getCoalesced() < 4) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        Assertions.assertEquals(42, leader.get(10, TimeUnit.SECONDS));
+        for (CompletableFuture<Integer> follower : followers) {
+            Assertions.assertEquals(42, follower.get(10, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(1, flights.getExecuted());
+        Assertions.assertEquals(4, flights.getCoalesced());
+        // nothing is cached once the call completes.
+        Assertions.assertEquals(2, flights.execute("key", calls::incrementAndGet));
+        executor.shutdown();
+    }
+
+    @Test
+    void failureIsShared() throws Exception {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> leader = CompletableFuture.supplyAsync(() -> flights.execute("key", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            throw new IllegalStateException("boom");
+        }));
+        started.await();
+        CompletableFuture<Integer> follower = CompletableFuture.supplyAsync(() -> flights.execute("key", () -> 1));
+        while (flights.getCoalesced() == 0) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        Assertions.assertThrows(Exception.class, () -> leader.get(10, TimeUnit.SECONDS));
+        Exception e = Assertions.assertThrows(Exception.class, () -> follower.get(10, TimeUnit.SECONDS));
+        Assertions.assertEquals("boom", e.getCause().getMessage());
+    }
+}
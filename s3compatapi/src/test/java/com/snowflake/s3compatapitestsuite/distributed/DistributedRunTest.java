@@ -0,0 +1,197 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.distributed;
+
+import com.snowflake.s3compatapitestsuite.perf.LatencyHistogram;
+import com.snowflake.s3compatapitestsuite.workload.Scenario;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadOp;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadResult;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadStats;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test a distributed run of a coordinator and workers over local sockets, with workers simulating their phases, in
+ * threads of the test and in worker processes.
+ */
+class DistributedRunTest {
+    private static final String SCENARIO = "{\"name\": \"distributed\", \"phases\": ["
+            + "{\"name\": \"reads\", \"mix\": \"get=1\", \"operations\": 1000},"
+            + "{\"name\": \"writes\", \"mix\": \"put=1\", \"durationSec\": 1, \"warmupSec\": 1}]}";
+    private static final int WORKERS = 3;
+
+    @Test
+    void startsPhasesTogetherAndMergesLosslessly() throws Exception {
+        Map<String, Long> slowestReady = new ConcurrentHashMap<>();
+        Map<String, List<Long>> goTimes = new ConcurrentHashMap<>();
+        List<Map<String, WorkloadResult>> workerResults = new ArrayList<>();
+        for (int w = 0; w < WORKERS; w++) {
+            workerResults.add(null);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(WORKERS + 1);
+        try (DistributedCoordinator coordinator = new DistributedCoordinator(0, WORKERS)) {
+            ByteArrayOutputStream report = new ByteArrayOutputStream();
+            Future<Map<String, WorkloadResult>> merged = pool.submit(() ->
+                    coordinator.run(SCENARIO, new PrintStream(report, true, StandardCharsets.UTF_8)));
+            List<Future<?>> workers = new ArrayList<>();
+            for (int w = 0; w < WORKERS; w++) {
+                workers.add(pool.submit(() -> new DistributedWorker("localhost:" + coordinator.getPort()).run((scenario, workerId, beforePhase) -> {
+                    Map<String, WorkloadResult> results = new LinkedHashMap<>();
+                    for (Scenario.Phase phase : scenario.getPhases()) {
+                        if (workerId == 0) {
+                            // the last worker ready, the others should wait for it.
+                            sleep(300);
+                            slowestReady.put(phase.getName(), System.nanoTime());
+                        }
+                        beforePhase.accept(phase);
+                        goTimes.computeIfAbsent(phase.getName(), name -> new CopyOnWriteArrayList<>()).add(System.nanoTime());
+                        results.put(phase.getName(), simulate(workerId, phase));
+                    }
+                    workerResults.set(workerId, results);
+                    return results;
+                })));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(30, TimeUnit.SECONDS);
+            }
+            Map<String, WorkloadResult> mergedResults = merged.get(30, TimeUnit.SECONDS);
+            for (String phase : new String[] {"reads", "writes"}) {
+                Assertions.assertEquals(WORKERS, goTimes.get(phase).size());
+                for (long go : goTimes.get(phase)) {
+                    Assertions.assertTrue(go >= slowestReady.get(phase), "a worker started " + phase + " before all were ready");
+                }
+            }
+            for (String phase : mergedResults.keySet()) {
+                LatencyHistogram expected = new LatencyHistogram();
+                long failures = 0;
+                double maxElapsedMs = 0;
+                for (Map<String, WorkloadResult> results : workerResults) {
+                    WorkloadStats steady = results.get(phase).getSteady();
+                    expected.merge(steady.getLatency());
+                    failures += steady.getFailures();
+                    maxElapsedMs = Math.max(maxElapsedMs, steady.getElapsedMs());
+                }
+                WorkloadStats steady = mergedResults.get(phase).getSteady();
+                LatencyHistogram actual = steady.getLatency();
+                Assertions.assertEquals(expected.getCount(), actual.getCount());
+                Assertions.assertEquals(expected.getSum(), actual.getSum());
+                Assertions.assertEquals(expected.getMin(), actual.getMin());
+                Assertions.assertEquals(expected.getMax(), actual.getMax());
+                for (double percentile : new double[] {1, 50, 90, 99, 99.9, 100}) {
+                    Assertions.assertEquals(expected.getPercentile(percentile), actual.getPercentile(percentile), phase + " p" + percentile);
+                }
+                Assertions.assertEquals(failures, steady.getFailures());
+                Assertions.assertEquals(maxElapsedMs, steady.getElapsedMs(), 1e-3);
+            }
+            Assertions.assertEquals(WORKERS * 10, mergedResults.get("writes").getWarmup().getOps());
+            Assertions.assertTrue(report.toString(StandardCharsets.UTF_8).contains("writes/warmup, put, "));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void failsWhenAWorkerFails() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try (DistributedCoordinator coordinator = new DistributedCoordinator(0, 2)) {
+            Future<?> merged = pool.submit(() -> coordinator.run(SCENARIO, new PrintStream(new ByteArrayOutputStream())));
+            for (int w = 0; w < 2; w++) {
+                pool.submit(() -> new DistributedWorker("localhost:" + coordinator.getPort()).run((scenario, workerId, beforePhase) -> {
+                    if (workerId == 1) {
+                        throw new IllegalStateException("pool write failed");
+                    }
+                    scenario.getPhases().forEach(beforePhase);
+                    return new LinkedHashMap<>();
+                }));
+            }
+            Exception e = Assertions.assertThrows(Exception.class, () -> merged.get(30, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause().getMessage().contains("pool write failed"), e.getCause().getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void runsWorkerProcesses() throws Exception {
+        List<Process> processes = new ArrayList<>();
+        try (DistributedCoordinator coordinator = new DistributedCoordinator(0, WORKERS, TimeUnit.SECONDS.toMillis(60))) {
+            for (int w = 0; w < WORKERS; w++) {
+                processes.add(new ProcessBuilder(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                        "-cp", System.getProperty("java.class.path"), SimulatedWorkerMain.class.getName(),
+                        "localhost:" + coordinator.getPort())
+                        .inheritIO()
+                        .start());
+            }
+            ByteArrayOutputStream report = new ByteArrayOutputStream();
+            Map<String, WorkloadResult> merged = coordinator.run(SCENARIO, new PrintStream(report, true, StandardCharsets.UTF_8));
+            for (Process process : processes) {
+                Assertions.assertTrue(process.waitFor(30, TimeUnit.SECONDS), "a worker process did not exit");
+                Assertions.assertEquals(0, process.exitValue());
+            }
+            // each worker records 1000 calls and one more failure than its id.
+            WorkloadStats steady = merged.get("reads").getSteady();
+            Assertions.assertEquals(WORKERS * 1000, steady.getLatency().getCount());
+            Assertions.assertEquals(WORKERS * (WORKERS + 1) / 2, steady.getFailures());
+            Assertions.assertEquals(WORKERS * 10, merged.get("writes").getWarmup().getOps());
+            String printed = report.toString(StandardCharsets.UTF_8);
+            for (int w = 0; w < WORKERS; w++) {
+                Assertions.assertTrue(printed.contains("worker " + w + ": "), printed);
+            }
+        } finally {
+            processes.forEach(Process::destroyForcibly);
+        }
+    }
+
+    @Test
+    void failsWhenWorkersDoNotConnect() throws Exception {
+        try (DistributedCoordinator coordinator = new DistributedCoordinator(0, 2, 500 /* acceptTimeoutMs */)) {
+            Exception e = Assertions.assertThrows(IllegalStateException.class,
+                    () -> coordinator.run(SCENARIO, new PrintStream(new ByteArrayOutputStream())));
+            Assertions.assertTrue(e.getMessage().contains("Only 0 of 2 workers connected"), e.getMessage());
+        }
+    }
+
+    /** Simulate the calls of a worker: each worker records its own range of latencies and some failures. */
+    static WorkloadResult simulate(int workerId, Scenario.Phase phase) {
+        WorkloadOp op = phase.getMix().getShare(WorkloadOp.GET) > 0 ? WorkloadOp.GET : WorkloadOp.PUT;
+        WorkloadStats warmup = new WorkloadStats(0);
+        WorkloadStats steady = new WorkloadStats(0);
+        for (int i = 0; i < 1000; i++) {
+            steady.recordSuccess(op, (workerId * 5_000L + i * 37L) * 1000, 1024);
+        }
+        for (int i = 0; i <= workerId; i++) {
+            steady.recordFailure(op);
+        }
+        if (phase.getDuration() != null) {
+            for (int i = 0; i < 10; i++) {
+                warmup.recordSuccess(op, 50_000_000L, 1024);
+            }
+        }
+        return new WorkloadResult(warmup.finish(1_000_000_000L), steady.finish((1000 + workerId * 100) * 1_000_000L));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.distributed;
+
+import com.snowflake.s3compatapitestsuite.workload.Scenario;
+import com.snowflake.s3compatapitestsuite.workload.WorkloadResult;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A worker process of a distributed run that simulates its phases instead of sending requests, started by
+ * {@link DistributedRunTest} on the test classpath.
+ */
+public class SimulatedWorkerMain {
+    /**
+     * Run as a worker.
+     * @param args host:port of the coordinator.
+     */
+    public static void main(String[] args) {
+        new DistributedWorker(args[0]).run((scenario, workerId, beforePhase) -> {
+            Map<String, WorkloadResult> results = new LinkedHashMap<>();
+            for (Scenario.Phase phase : scenario.getPhases()) {
+                beforePhase.accept(phase);
+                results.put(phase.getName(), DistributedRunTest.simulate(workerId, phase));
+            }
+            return results;
+        });
+    }
+}
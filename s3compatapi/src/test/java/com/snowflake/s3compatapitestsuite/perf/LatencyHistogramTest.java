@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the buckets, percentiles and merging of latency histograms.
+ */
+class LatencyHistogramTest {
+    @Test
+    void bucketsCoverAllValues() {
+        int previous = -1;
+        for (long value : new long[] {0, 1, 31, 32, 33, 63, 64, 1000, 1_000_000, Long.MAX_VALUE / 2, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            Assertions.assertTrue(bucket >= previous, "buckets should grow with values");
+            Assertions.assertTrue(bucket < LatencyHistogram.BUCKET_COUNT);
+            Assertions.assertTrue(LatencyHistogram.lowestValueOf(bucket) <= value);
+            Assertions.assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+            previous = bucket;
+        }
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT - 1; bucket++) {
+            Assertions.assertEquals(LatencyHistogram.highestValueOf(bucket) + 1, LatencyHistogram.lowestValueOf(bucket + 1));
+        }
+    }
+
+    @Test
+    void percentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+        Assertions.assertEquals(10_000, histogram.getCount());
+        Assertions.assertEquals(1, histogram.getMin());
+        Assertions.assertEquals(10_000, histogram.getMax());
+        Assertions.assertEquals(5000.5, histogram.getMean(), 0.001);
+        Assertions.assertEquals(5000, histogram.getPercentile(50), 5000 * 0.07);
+        Assertions.assertEquals(9900, histogram.getPercentile(99), 9900 * 0.07);
+        Assertions.assertEquals(10_000, histogram.getPercentile(100));
+    }
+
+    @Test
+    void mergeIsLossless() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        LatencyHistogram all = new LatencyHistogram();
+        for (long i = 0; i < 1000; i++) {
+            fast.record(i);
+            slow.record(i * 1000);
+            all.record(i);
+            all.record(i * 1000);
+        }
+        LatencyHistogram merged = new LatencyHistogram();
+        merged.merge(fast);
+        merged.merge(slow);
+        Assertions.assertEquals(all.getCount(), merged.getCount());
+        Assertions.assertEquals(all.getSum(), merged.getSum());
+        Assertions.assertEquals(all.getMin(), merged.getMin());
+        Assertions.assertEquals(all.getMax(), merged.getMax());
+        for (double p : new double[] {1, 50, 90, 99, 99.9}) {
+            Assertions.assertEquals(all.getPercentile(p), merged.getPercentile(p));
+        }
+    }
+}
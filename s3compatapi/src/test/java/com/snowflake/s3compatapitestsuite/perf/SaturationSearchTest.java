@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Test the stepping and the bisection of saturation searches against a simulated endpoint.
+ */
+class SaturationSearchTest {
+    /** A simulated endpoint whose p99 stays at 50ms up to 37 workers, then grows with the queue. */
+    private static SaturationSearch.Step concurrencyProbe(SaturationSearch search, long level) {
+        LatencyHistogram latency = new LatencyHistogram();
+        long latencyUs = level <= 37 ? 50_000 : 50_000 * level / 37 * 3;
+        for (int i = 0; i < 1000; i++) {
+            latency.record(latencyUs);
+        }
+        return search.step(level, latency, 0, Math.min(level, 37) * 20.0);
+    }
+
+    @Test
+    void bisectsToTheKnee() {
+        SaturationSearch search = new SaturationSearch(SaturationSearch.Load.CONCURRENCY, 100, 0.01).withResolution(0);
+        SaturationSearch.Result result = search.search(level -> concurrencyProbe(search, level));
+        Assertions.assertEquals(37, result.getKnee().getLevel());
+        Assertions.assertEquals(740, result.getKnee().getOpsPerSec(), 1e-9);
+        Assertions.assertFalse(result.isMaxLevelSustained());
+        List<SaturationSearch.Step> curve = result.getCurve();
+        for (int i = 1; i < curve.size(); i++) {
+            Assertions.assertTrue(curve.get(i - 1).getLevel() < curve.get(i).getLevel());
+        }
+        // 1, 2, 4, ..., 64 then a bisection of [32, 64].
+        Assertions.assertTrue(curve.size() <= 7 + 5, "steps " + curve.size());
+    }
+
+    @Test
+    void stopsAtTheMaxLevel() {
+        SaturationSearch search = new SaturationSearch(SaturationSearch.Load.CONCURRENCY, 100, 0.01).withLevels(1, 20);
+        SaturationSearch.Result result = search.search(level -> concurrencyProbe(search, level));
+        Assertions.assertTrue(result.isMaxLevelSustained());
+        Assertions.assertEquals(20, result.getKnee().getLevel());
+    }
+
+    @Test
+    void breachesOnFailuresAndUnachievedRates() {
+        SaturationSearch search = new SaturationSearch(SaturationSearch.Load.RATE, 100, 0.01);
+        LatencyHistogram latency = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            latency.record(10_000);
+        }
+        Assertions.assertTrue(search.step(100, latency, 0, 95).isSustained());
+        Assertions.assertFalse(search.step(100, latency, 0, 80).isSustained());
+        Assertions.assertFalse(search.step(100, latency, 2, 95).isSustained());
+        Assertions.assertFalse(search.step(100, new LatencyHistogram(), 0, 0).isSustained());
+        SaturationSearch.Result result = search.withLevels(10, 1000).search(level -> search.step(level, latency, 0, Math.min(level, 250)));
+        Assertions.assertTrue(result.getKnee().getLevel() >= 250 && result.getKnee().getLevel() <= 277, "knee " + result.getKnee().getLevel());
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.perf;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test that timed runs keep warmup samples apart from the steady window.
+ */
+class TimedRunTest {
+    @Test
+    void recordsWarmupApart() {
+        AtomicInteger steadyStartedAt = new AtomicInteger(-1);
+        List<Integer> setups = new ArrayList<>();
+        AtomicInteger calls = new AtomicInteger();
+        TimedRun run = new TimedRun(Duration.ofMillis(100), Duration.ofMillis(200))
+                .withUntimedSetup(setups::add)
+                .withSteadyStart(() -> steadyStartedAt.set(calls.get()))
+                .run(i -> {
+                    Assertions.assertEquals(calls.getAndIncrement(), i);
+                    if (i % 10 == 9) {
+                        throw new IllegalStateException("failed call " + i);
+                    }
+                    sleep(5);
+                });
+        long warmupCalls = run.getWarmupLatency().getCount();
+        long steadyCalls = run.getSteadyLatency().getCount();
+        Assertions.assertTrue(warmupCalls > 0 && steadyCalls > 0, warmupCalls + " warmup and " + steadyCalls + " steady calls");
+        Assertions.assertTrue(run.getSteadyFailures() > 0);
+        Assertions.assertEquals(calls.get(), setups.size());
+        Assertions.assertTrue(steadyStartedAt.get() > 0 && steadyStartedAt.get() < calls.get());
+        Assertions.assertTrue(run.getWarmupLatency().getMin() >= 5000, "latency in µs " + run.getWarmupLatency().getMin());
+        // about 5ms per call over a 200ms steady window, not over the 300ms of the whole run.
+        Assertions.assertEquals(steadyCalls / 0.2, run.getSteadyOpsPerSec(), steadyCalls / 0.2 * 0.25);
+    }
+
+    @Test
+    void rejectsEmptyDuration() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimedRun(Duration.ZERO, Duration.ZERO));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimedRun(Duration.ofSeconds(-1), Duration.ofSeconds(1)));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+}
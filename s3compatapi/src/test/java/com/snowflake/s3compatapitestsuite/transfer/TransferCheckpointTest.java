@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.transfer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Test replaying a transfer checkpoint journal.
+ */
+class TransferCheckpointTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void resumeFromJournal() {
+        File journal = tempDir.resolve("checkpoint.jsonl").toFile();
+        try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+            checkpoint.objectCompleted("prefix/done");
+            checkpoint.uploadStarted("prefix/large", "upload-1", 5 * 1024 * 1024);
+            checkpoint.partCompleted("prefix/large", 1, "etag-1");
+            checkpoint.partCompleted("prefix/large", 3, "etag-3");
+            checkpoint.rangeCompleted("prefix/download", "etag-d", 0);
+            checkpoint.uploadStarted("prefix/expired", "upload-2", 5 * 1024 * 1024);
+            checkpoint.uploadDiscarded("prefix/expired");
+        }
+        try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+            Assertions.assertTrue(checkpoint.isObjectCompleted("prefix/done"));
+            Assertions.assertFalse(checkpoint.isObjectCompleted("prefix/large"));
+            Assertions.assertEquals("upload-1", checkpoint.getUploadId("prefix/large"));
+            Assertions.assertEquals(5 * 1024 * 1024, checkpoint.getPartSize("prefix/large"));
+            Assertions.assertEquals("etag-1", checkpoint.getPartETag("prefix/large", 1));
+            Assertions.assertNull(checkpoint.getPartETag("prefix/large", 2));
+            Assertions.assertEquals("etag-3", checkpoint.getPartETag("prefix/large", 3));
+            Assertions.assertTrue(checkpoint.resumeRanges("prefix/download", "etag-d"));
+            Assertions.assertTrue(checkpoint.isRangeCompleted("prefix/download", 0));
+            Assertions.assertFalse(checkpoint.isRangeCompleted("prefix/download", 1024));
+            Assertions.assertNull(checkpoint.getUploadId("prefix/expired"));
+            Assertions.assertFalse(checkpoint.isStopped());
+
+            checkpoint.objectCompleted("prefix/large");
+        }
+        try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+            Assertions.assertTrue(checkpoint.isObjectCompleted("prefix/large"));
+            Assertions.assertNull(checkpoint.getUploadId("prefix/large"));
+            Assertions.assertEquals(2, checkpoint.getCompletedObjectCount());
+        }
+    }
+
+    @Test
+    void discardRangesOfChangedObject() {
+        File journal = tempDir.resolve("ranges.jsonl").toFile();
+        try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+            checkpoint.rangeCompleted("prefix/download", "etag-1", 0);
+            checkpoint.rangeCompleted("prefix/download", "etag-1", 1024);
+        }
+        try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+            // the object was overwritten since, its old ranges must not be kept in the local file.
+            Assertions.assertFalse(checkpoint.resumeRanges("prefix/download", "etag-2"));
+            Assertions.assertFalse(checkpoint.isRangeCompleted("prefix/download", 0));
+            checkpoint.rangeCompleted("prefix/download", "etag-2", 2048);
+        }
+        try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+            Assertions.assertTrue(checkpoint.resumeRanges("prefix/download", "etag-2"));
+            Assertions.assertFalse(checkpoint.isRangeCompleted("prefix/download", 1024));
+            Assertions.assertTrue(checkpoint.isRangeCompleted("prefix/download", 2048));
+        }
+    }
+
+    @Test
+    void ignoreTornLastLine() throws IOException {
+        File journal = tempDir.resolve("torn.jsonl").toFile();
+        try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+            checkpoint.objectCompleted("prefix/done");
+        }
+        Files.write(journal.toPath(), "{\"type\":\"OBJECT\",\"ke".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+            Assertions.assertTrue(checkpoint.isObjectCompleted("prefix/done"));
+            Assertions.assertEquals(1, checkpoint.getCompletedObjectCount());
+            checkpoint.objectCompleted("prefix/after");
+        }
+        try (TransferCheckpoint checkpoint = new TransferCheckpoint(journal)) {
+            Assertions.assertTrue(checkpoint.isObjectCompleted("prefix/after"));
+            Assertions.assertEquals(2, checkpoint.getCompletedObjectCount());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Test the parsing and the sampling of operation mixes.
+ */
+class OperationMixTest {
+    @Test
+    void picksOperationsByWeight() {
+        OperationMix mix = OperationMix.parse("get=60, head=25,list=10,PUT=5");
+        Assertions.assertEquals(0.6, mix.getShare(WorkloadOp.GET), 1e-9);
+        Assertions.assertEquals(0.05, mix.getShare(WorkloadOp.PUT), 1e-9);
+        Map<WorkloadOp, Integer> picks = new EnumMap<>(WorkloadOp.class);
+        Random random = new Random(42);
+        int draws = 100_000;
+        for (int i = 0; i < draws; i++) {
+            picks.merge(mix.pick(random), 1, Integer::sum);
+        }
+        for (WorkloadOp op : WorkloadOp.values()) {
+            Assertions.assertEquals(mix.getShare(op), picks.getOrDefault(op, 0) / (double) draws, 0.01, op.getName());
+        }
+        OperationMix reads = mix.without(WorkloadOp.PUT);
+        Assertions.assertEquals(0, reads.getShare(WorkloadOp.PUT));
+        Assertions.assertEquals(60 / 95.0, reads.getShare(WorkloadOp.GET), 1e-9);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertNotEquals(WorkloadOp.PUT, reads.pick(random));
+        }
+    }
+
+    @Test
+    void rejectsInvalidMixes() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("get=60,delete=40"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("get"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("get=0,put=0"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("get=-1,put=2"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> OperationMix.parse("put=5").without(WorkloadOp.PUT));
+    }
+}
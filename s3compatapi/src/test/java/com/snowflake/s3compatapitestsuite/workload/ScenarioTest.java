@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import com.snowflake.s3compatapitestsuite.util.ExecutionMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Test the parsing of scenario files and of object size distributions.
+ */
+class ScenarioTest {
+    @Test
+    void loadsExampleScenario() {
+        Scenario scenario = Scenario.load(new File("src/main/resources/scenarios/read-heavy.json"));
+        Assertions.assertEquals("read-heavy", scenario.getName());
+        Assertions.assertEquals(1000, scenario.getPoolObjects());
+        Assertions.assertEquals(ExecutionMode.PLATFORM, scenario.getClient().getExecutionMode());
+        Assertions.assertEquals(3, scenario.getPhases().size());
+        Scenario.Phase reads = scenario.getPhases().get(0);
+        Assertions.assertEquals(Duration.ofSeconds(120), reads.getDuration());
+        Assertions.assertEquals(Duration.ofSeconds(20), reads.getWarmup());
+        Assertions.assertEquals(1.1, reads.getKeyZipfExponent(), 1e-9);
+        Assertions.assertNull(reads.getClient());
+        Scenario.Phase throttled = scenario.getPhases().get(2);
+        Assertions.assertEquals(500, throttled.getRatePerSec(), 1e-9);
+        Assertions.assertEquals(1048576, throttled.getObjectSize().getMax());
+        Assertions.assertTrue(throttled.getClient().isRequestCoalescing());
+        Assertions.assertEquals(5000L, throttled.getClient().getMetadataCacheTtlMs());
+    }
+
+    @Test
+    void rejectsInvalidScenarios(@TempDir Path dir) throws IOException {
+        String phase = "{\"name\": \"p\", \"mix\": \"get=1\", \"operations\": 10}";
+        assertInvalid(dir, "{\"name\": \"s\", \"phases\": []}");
+        assertInvalid(dir, "{\"name\": \"a/b\", \"phases\": [" + phase + "]}");
+        assertInvalid(dir, "{\"name\": \"s\", \"phases\": [" + phase + ", " + phase + "]}");
+        assertInvalid(dir, "{\"name\": \"s\", \"phazes\": [" + phase + "]}");
+        assertInvalid(dir, "{\"name\": \"s\", \"phases\": [{\"name\": \"p\", \"mix\": \"get=1\"}]}");
+        assertInvalid(dir, "{\"name\": \"s\", \"phases\": [{\"name\": \"p\", \"mix\": \"get=1\", \"operations\": 10, \"warmupSec\": 5}]}");
+        assertInvalid(dir, "{\"name\": \"s\", \"phases\": [{\"name\": \"p\", \"mix\": \"get=1\", \"operations\": 10, \"keyDistribution\": \"zipf\"}]}");
+        Assertions.assertEquals(10L, load(dir, "{\"name\": \"s\", \"phases\": [" + phase + "]}").getPhases().get(0).getOperations());
+    }
+
+    @Test
+    void samplesSizesWithinBounds() {
+        Random random = new Random(42);
+        Assertions.assertEquals(4096, SizeDistribution.parse("4096").sample(random));
+        SizeDistribution uniform = SizeDistribution.parse("uniform:100-200");
+        SizeDistribution lognormal = SizeDistribution.parse("lognormal:1000:1.5");
+        for (int i = 0; i < 10_000; i++) {
+            int size = uniform.sample(random);
+            Assertions.assertTrue(size >= 100 && size <= 200, "size " + size);
+            size = lognormal.sample(random);
+            Assertions.assertTrue(size >= 0 && size <= lognormal.getMax(), "size " + size);
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SizeDistribution.parse("uniform:200-100"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SizeDistribution.parse("lognormal:1000"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SizeDistribution.parse("-1"));
+    }
+
+    private static void assertInvalid(Path dir, String json) {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> load(dir, json), json);
+    }
+
+    private static Scenario load(Path dir, String json) throws IOException {
+        Path file = Files.write(dir.resolve("scenario.json"), json.getBytes(StandardCharsets.UTF_8));
+        return Scenario.load(file.toFile());
+    }
+}
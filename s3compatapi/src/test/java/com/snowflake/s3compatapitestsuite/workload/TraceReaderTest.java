@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2022 Snowflake Inc. All rights reserved.
+ */
+package com.snowflake.s3compatapitestsuite.workload;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test the parsing of JSONL and CSV traces.
+ */
+class TraceReaderTest {
+    @Test
+    void readsJsonLines() {
+        List<TraceRecord> records = readAll(TraceReader.Format.JSONL,
+                "{\"ts\": 1000.5, \"op\": \"get\", \"key\": \"data/a\", \"size\": 100, \"offset\": 20}\n"
+                        + "\n"
+                        + "# a comment\n"
+                        + "{\"ts\": 1002, \"op\": \"REST.PUT.OBJECT\", \"key\": \"data/b\", \"size\": 4096}\n"
+                        + "{\"ts\": 1003, \"op\": \"DeleteObject\", \"key\": \"data/b\"}\n");
+        Assertions.assertEquals(3, records.size());
+        Assertions.assertEquals(1000.5, records.get(0).getTimestampMs(), 1e-9);
+        Assertions.assertEquals(WorkloadOp.GET, records.get(0).getOp());
+        Assertions.assertEquals(20, records.get(0).getOffset());
+        Assertions.assertEquals(WorkloadOp.PUT, records.get(1).getOp());
+        Assertions.assertEquals(4096, records.get(1).getSize());
+        Assertions.assertEquals(WorkloadOp.DELETE, records.get(2).getOp());
+        Assertions.assertEquals(0, records.get(2).getSize());
+    }
+
+    @Test
+    void readsCsvWithHeader() {
+        List<TraceRecord> records = readAll(TraceReader.Format.CSV,
+                "# exported access log\n"
+                        + "timestampMs,operation,size,key\n"
+                        + "10,HeadObject,,data/a,b\n"
+                        + "25, list , 0, data/\n");
+        Assertions.assertEquals(2, records.size());
+        Assertions.assertEquals(WorkloadOp.HEAD, records.get(0).getOp());
+        Assertions.assertEquals("data/a,b", records.get(0).getKey());
+        Assertions.assertEquals(WorkloadOp.LIST, records.get(1).getOp());
+        Assertions.assertEquals(25, records.get(1).getTimestampMs(), 1e-9);
+    }
+
+    @Test
+    void rejectsInvalidRecords() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> readAll(TraceReader.Format.CSV, "10,copy,0,data/a\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> readAll(TraceReader.Format.CSV, "10,get,data/a\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> readAll(TraceReader.Format.JSONL, "{\"ts\": 1, \"op\": \"get\"}\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> readAll(TraceReader.Format.JSONL,
+                "{\"ts\": 1, \"op\": \"get\", \"key\": \"a\"}\nnot json\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TraceReader.open(new File("trace.txt")));
+        Assertions.assertEquals(TraceReader.Format.CSV, TraceReader.Format.lookupByFile(new File("/logs/Trace.CSV")));
+    }
+
+    private static List<TraceRecord> readAll(TraceReader.Format format, String trace) {
+        List<TraceRecord> records = new ArrayList<>();
+        new TraceReader(new StringReader(trace), format).forEachRemaining(records::add);
+        return records;
+    }
+}